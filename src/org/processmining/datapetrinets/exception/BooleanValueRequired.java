@@ -19,4 +19,23 @@ public class BooleanValueRequired extends EvaluatorException {
 		super(message, cause);
 	}
 
+	private BooleanValueRequired(Throwable cause, String format, Object... arguments) {
+		super(cause, format, arguments);
+	}
+
+	/**
+	 * @param cause
+	 *            may be NULL
+	 * @param format
+	 * @param arguments
+	 * @return an exception with stack trace, or a lightweight exception
+	 *         inside {@link EvaluatorException#beginLightweight()}
+	 */
+	public static BooleanValueRequired lazy(Throwable cause, String format, Object... arguments) {
+		if (isLightweight()) {
+			return new BooleanValueRequired(cause, format, arguments);
+		}
+		return new BooleanValueRequired(format(format, arguments), cause);
+	}
+
 }
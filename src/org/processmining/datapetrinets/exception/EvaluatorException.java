@@ -1,23 +1,139 @@
 package org.processmining.datapetrinets.exception;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 
 public class EvaluatorException extends RuntimeException {
 
 	private static final long serialVersionUID = 1608376231344658194L;
 
+	private static final ThreadLocal<boolean[]> LIGHTWEIGHT = new ThreadLocal<boolean[]>() {
+
+		protected boolean[] initialValue() {
+			return new boolean[1];
+		}
+
+	};
+
+	private transient final String format;
+	private transient final Object[] arguments;
+	private String formatted;
+
 	public EvaluatorException() {
+		this.format = null;
+		this.arguments = null;
 	}
 
 	public EvaluatorException(String message) {
 		super(message);
+		this.format = null;
+		this.arguments = null;
 	}
 
 	public EvaluatorException(Throwable cause) {
 		super(cause);
+		this.format = null;
+		this.arguments = null;
 	}
 
 	public EvaluatorException(String message, Throwable cause) {
 		super(message, cause);
+		this.format = null;
+		this.arguments = null;
+	}
+
+	/**
+	 * Creates a lightweight exception for errors that are expected to occur
+	 * frequently, e.g., variables missing in incomplete events. It has no
+	 * stack trace and its message is only formatted with
+	 * {@link String#format(String, Object...)} when it is read.
+	 * 
+	 * @param cause
+	 *            may be NULL
+	 * @param format
+	 *            may be NULL for an exception without message
+	 * @param arguments
+	 */
+	protected EvaluatorException(Throwable cause, String format, Object... arguments) {
+		super(null, cause, false, false);
+		this.format = format;
+		this.arguments = arguments;
+	}
+
+	/**
+	 * Switches the factory methods named <code>lazy</code> of all
+	 * {@link EvaluatorException}s to lightweight exceptions on the current
+	 * thread. Meant for callers that handle the errors of many evaluations
+	 * without looking at their stack trace. Always restore the previous mode
+	 * in a finally block.
+	 * 
+	 * @return the previous mode to be passed to {@link #endLightweight(boolean)}
+	 */
+	public static boolean beginLightweight() {
+		boolean[] lightweight = LIGHTWEIGHT.get();
+		boolean previous = lightweight[0];
+		lightweight[0] = true;
+		return previous;
+	}
+
+	/**
+	 * @param previous
+	 *            the mode returned by {@link #beginLightweight()}
+	 */
+	public static void endLightweight(boolean previous) {
+		LIGHTWEIGHT.get()[0] = previous;
+	}
+
+	/**
+	 * @return whether exceptions created on the current thread are
+	 *         lightweight, see {@link #beginLightweight()}
+	 */
+	protected static boolean isLightweight() {
+		return LIGHTWEIGHT.get()[0];
+	}
+
+	/**
+	 * @param format
+	 *            may be NULL
+	 * @param arguments
+	 * @return the formatted message or NULL
+	 */
+	protected static String format(String format, Object... arguments) {
+		return format != null ? String.format(format, arguments) : null;
+	}
+
+	/**
+	 * @param cause
+	 * @param format
+	 * @param arguments
+	 * @return an exception with stack trace, or a lightweight exception
+	 *         without stack trace whose message is formatted when it is read
+	 *         inside {@link #beginLightweight()}
+	 */
+	public static EvaluatorException lazy(Throwable cause, String format, Object... arguments) {
+		if (isLightweight()) {
+			return new EvaluatorException(cause, format, arguments);
+		}
+		return new EvaluatorException(format(format, arguments), cause);
+	}
+
+	public String getMessage() {
+		String message = formatted;
+		if (message == null) {
+			message = super.getMessage();
+			if (message == null && format != null) {
+				message = String.format(format, arguments);
+				// Threads formatting at the same time compute the same message
+				formatted = message;
+			}
+		}
+		return message;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		// The arguments may not be serializable
+		getMessage();
+		out.defaultWriteObject();
 	}
 
 }
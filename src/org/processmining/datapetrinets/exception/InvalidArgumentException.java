@@ -0,0 +1,30 @@
+package org.processmining.datapetrinets.exception;
+
+/**
+ * A function was called with an argument it cannot use, e.g., a malformed
+ * regular expression.
+ * 
+ * @author F. Mannhardt
+ *
+ */
+public class InvalidArgumentException extends EvaluatorException {
+
+	private static final long serialVersionUID = 4719301858213576403L;
+
+	public InvalidArgumentException() {
+		super();
+	}
+
+	public InvalidArgumentException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	public InvalidArgumentException(String message) {
+		super(message);
+	}
+
+	public InvalidArgumentException(Throwable cause) {
+		super(cause);
+	}
+
+}
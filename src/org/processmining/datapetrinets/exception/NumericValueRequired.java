@@ -20,4 +20,23 @@ public class NumericValueRequired extends EvaluatorException {
 		super(cause);
 	}
 	
+	private NumericValueRequired(Throwable cause, String format, Object... arguments) {
+		super(cause, format, arguments);
+	}
+
+	/**
+	 * @param cause
+	 *            may be NULL
+	 * @param format
+	 * @param arguments
+	 * @return an exception with stack trace, or a lightweight exception
+	 *         inside {@link EvaluatorException#beginLightweight()}
+	 */
+	public static NumericValueRequired lazy(Throwable cause, String format, Object... arguments) {
+		if (isLightweight()) {
+			return new NumericValueRequired(cause, format, arguments);
+		}
+		return new NumericValueRequired(format(format, arguments), cause);
+	}
+
 }
@@ -0,0 +1,15 @@
+package org.processmining.datapetrinets.exception;
+
+public class TypeCheckException extends Exception {
+
+	private static final long serialVersionUID = -4529783014851420917L;
+
+	public TypeCheckException(String message) {
+		super(message);
+	}
+
+	public TypeCheckException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
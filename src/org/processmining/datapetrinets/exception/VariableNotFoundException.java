@@ -20,4 +20,36 @@ public class VariableNotFoundException extends EvaluatorException {
 		super(cause);
 	}
 
+	private VariableNotFoundException(String format, Object... arguments) {
+		super(null, format, arguments);
+	}
+
+	/**
+	 * @param variableName
+	 * @return an exception with stack trace, or a lightweight exception
+	 *         inside {@link EvaluatorException#beginLightweight()}
+	 */
+	public static VariableNotFoundException lazy(Object variableName) {
+		if (isLightweight()) {
+			return new VariableNotFoundException("Variable %s is not found!", variableName);
+		}
+		return new VariableNotFoundException(String.format("Variable %s is not found!", variableName));
+	}
+
+	/**
+	 * @param variableName
+	 * @param values
+	 *            the values in which the variable was looked up, only part of
+	 *            the message of exceptions with stack trace as the values may
+	 *            change after the exception was thrown
+	 * @return an exception with stack trace, or a lightweight exception
+	 *         inside {@link EvaluatorException#beginLightweight()}
+	 */
+	public static VariableNotFoundException lazy(Object variableName, Object values) {
+		if (isLightweight()) {
+			return new VariableNotFoundException("Variable %s is not found!", variableName);
+		}
+		return new VariableNotFoundException(String.format("Variable %s is not found in map %s", variableName, values));
+	}
+
 }
@@ -0,0 +1,72 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Computes functions asynchronously and in batches, e.g., by sending one
+ * request for many calls to a backing store. Used by the
+ * {@link BatchEvaluator} to evaluate a guard for many bindings with few
+ * requests. Like for a {@link FunctionProvider}, variables passed as argument
+ * are passed as their identifier, unless the function takes values, see
+ * {@link #passesValues(String)}.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public interface AsyncFunctionProvider {
+
+	/**
+	 * Calculates a batch of calls of the same function. A result that is a
+	 * {@link Throwable} marks that only this call failed, a future that
+	 * completes exceptionally fails all calls of the batch.
+	 *
+	 * @param function
+	 * @param calls
+	 *            the parameters of each call, the same parameters are not
+	 *            passed twice
+	 * @return the results in the order of the calls
+	 */
+	CompletableFuture<List<Object>> calculateAll(String function, List<Object[]> calls);
+
+	/**
+	 * @param function
+	 * @return whether variables passed to the function are resolved to their
+	 *         values, see {@link FunctionProvider#passesValues(String)}
+	 */
+	default boolean passesValues(String function) {
+		return false;
+	}
+
+	/**
+	 * Adapts a synchronous provider, e.g., an in-memory stand-in for the
+	 * backing store. Each batch is calculated call by call when it is
+	 * requested.
+	 *
+	 * @param provider
+	 * @return the provider returning completed futures
+	 */
+	static AsyncFunctionProvider of(final FunctionProvider provider) {
+		return new AsyncFunctionProvider() {
+
+			public CompletableFuture<List<Object>> calculateAll(String function, List<Object[]> calls) {
+				List<Object> results = new ArrayList<>(calls.size());
+				for (Object[] parameters : calls) {
+					try {
+						results.add(provider.calculate(function, parameters));
+					} catch (RuntimeException e) {
+						results.add(e);
+					}
+				}
+				return CompletableFuture.completedFuture(results);
+			}
+
+			public boolean passesValues(String function) {
+				return provider.passesValues(function);
+			}
+
+		};
+	}
+
+}
@@ -4,6 +4,7 @@ import org.processmining.datapetrinets.expression.syntax.ExprAtLeast;
 import org.processmining.datapetrinets.expression.syntax.ExprAtMost;
 import org.processmining.datapetrinets.expression.syntax.ExprEqual;
 import org.processmining.datapetrinets.expression.syntax.ExprGreaterThan;
+import org.processmining.datapetrinets.expression.syntax.ExprIn;
 import org.processmining.datapetrinets.expression.syntax.ExprLessThan;
 import org.processmining.datapetrinets.expression.syntax.ExprNotEqual;
 import org.processmining.datapetrinets.expression.syntax.ExprRoot;
@@ -29,32 +30,37 @@ public final class AtomCollector {
 
 		public Object visit(ExprEqual node, Object data) throws ExpressionVisitorException {
 			((AtomCount)data).inc();
-			return data;
+			return TreeTraversal.SKIP_CHILDREN;
 		}
 
 		public Object visit(ExprNotEqual node, Object data) throws ExpressionVisitorException {
 			((AtomCount)data).inc();
-			return data;
+			return TreeTraversal.SKIP_CHILDREN;
 		}
 
 		public Object visit(ExprLessThan node, Object data) throws ExpressionVisitorException {
 			((AtomCount)data).inc();
-			return data;
+			return TreeTraversal.SKIP_CHILDREN;
 		}
 
 		public Object visit(ExprAtMost node, Object data) throws ExpressionVisitorException {
 			((AtomCount)data).inc();
-			return data;
+			return TreeTraversal.SKIP_CHILDREN;
 		}
 
 		public Object visit(ExprGreaterThan node, Object data) throws ExpressionVisitorException {
 			((AtomCount)data).inc();
-			return data;
+			return TreeTraversal.SKIP_CHILDREN;
 		}
 
 		public Object visit(ExprAtLeast node, Object data) throws ExpressionVisitorException {
 			((AtomCount)data).inc();
-			return data;
+			return TreeTraversal.SKIP_CHILDREN;
+		}
+
+		public Object visit(ExprIn node, Object data) throws ExpressionVisitorException {
+			((AtomCount)data).inc();
+			return TreeTraversal.SKIP_CHILDREN;
 		}
 		
 		public Object visit(ExprRoot node, Object data) throws ExpressionVisitorException {
@@ -62,7 +68,13 @@ public final class AtomCollector {
 				throw new IllegalArgumentException("Invalid expression " + Printer.printCanonical(node)
 						+ " should not have been parsed! Top level element is only allowed to have one child.");
 			}
-			return node.childrenAccept(this, data);
+			TreeTraversal.preOrder(node.jjtGetChild(0), this, data);
+			return data;
+		}
+
+		public Object defaultVisit(SimpleNode node, Object data) {
+			// Children are visited by the traversal
+			return data;
 		}
 
 		public Object visit(SimpleNode node, Object data) {
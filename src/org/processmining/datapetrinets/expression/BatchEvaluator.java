@@ -0,0 +1,282 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.processmining.datapetrinets.exception.EvaluatorException;
+
+/**
+ * Evaluates a guard for many bindings, calling its functions through an
+ * {@link AsyncFunctionProvider} in batches. The bindings are evaluated in
+ * rounds: a binding whose evaluation calls a function with a result that is
+ * not yet known is suspended and the call is collected. Once all bindings of
+ * a round are suspended or evaluated, the collected calls are handed to the
+ * provider as one batch per function, and the suspended bindings are
+ * evaluated again when all results have arrived. A guard with at most k
+ * calls on any evaluation path takes at most k + 1 rounds, independent of
+ * the number of bindings.
+ * <p>
+ * Bindings that cannot be evaluated do not affect the other bindings, their
+ * value is an {@link EvaluationError} as returned by
+ * {@link Evaluator#tryEvaluate(GuardExpression, VariableProvider, FunctionProvider)}.
+ * A failed call of the provider is reported to all bindings that need its
+ * result as an {@link EvaluatorException} caused by the failure.
+ * <p>
+ * Within one call of {@link #evaluateAll(GuardExpression, List)}, calls with
+ * the same function and equal parameters are only requested once, i.e.,
+ * functions are assumed to be deterministic. Instances can be shared between
+ * threads, the returned futures are completed on the threads that complete
+ * the futures of the provider.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class BatchEvaluator {
+
+	/**
+	 * Thrown by the recording {@link FunctionProvider} to stop the evaluation
+	 * of a binding that needs an unknown result
+	 */
+	private static final class Suspension extends EvaluatorException {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final Suspension INSTANCE = new Suspension();
+
+		public synchronized Throwable fillInStackTrace() {
+			// Control flow only, a stack trace would be created for every suspended binding
+			return this;
+		}
+
+	}
+
+	/**
+	 * Result of a call that failed
+	 */
+	private static final class Failure {
+
+		private final Throwable cause;
+
+		private Failure(Throwable cause) {
+			this.cause = cause;
+		}
+
+	}
+
+	/**
+	 * State of one call of {@link BatchEvaluator#evaluateAll}
+	 */
+	private final class Batch implements FunctionProvider {
+
+		private final GuardExpression guard;
+		private final List<? extends VariableProvider> bindings;
+		private final Object[] results;
+		private final int[] pending;
+		private int pendingCount;
+
+		private final Map<String, Map<List<Object>, Object>> known = new HashMap<>();
+		private final Map<String, Map<List<Object>, Object[]>> requested = new LinkedHashMap<>();
+
+		private Batch(GuardExpression guard, List<? extends VariableProvider> bindings) {
+			this.guard = guard;
+			this.bindings = bindings;
+			this.results = new Object[bindings.size()];
+			this.pending = new int[bindings.size()];
+			for (int i = 0; i < pending.length; i++) {
+				pending[i] = i;
+			}
+			this.pendingCount = pending.length;
+		}
+
+		private CompletableFuture<List<Object>> run() {
+			int suspended = 0;
+			for (int i = 0; i < pendingCount; i++) {
+				int binding = pending[i];
+				Object result = Evaluator.tryEvaluate(guard, bindings.get(binding), this);
+				if (result instanceof EvaluationError && isSuspension(((EvaluationError) result).getException())) {
+					pending[suspended++] = binding;
+				} else {
+					results[binding] = result;
+				}
+			}
+			pendingCount = suspended;
+			if (suspended == 0) {
+				return CompletableFuture.completedFuture(Arrays.asList(results));
+			}
+			return dispatch().thenCompose(new Function<Void, CompletableFuture<List<Object>>>() {
+
+				public CompletableFuture<List<Object>> apply(Void ignored) {
+					return run();
+				}
+
+			});
+		}
+
+		/**
+		 * Hands the collected calls to the provider
+		 *
+		 * @return a future that completes once all results are known
+		 */
+		private CompletableFuture<Void> dispatch() {
+			final List<String> functions = new ArrayList<>();
+			final List<List<Object[]>> calls = new ArrayList<>();
+			final List<CompletableFuture<List<Object>>> futures = new ArrayList<>();
+			for (Map.Entry<String, Map<List<Object>, Object[]>> entry : requested.entrySet()) {
+				List<Object[]> all = new ArrayList<>(entry.getValue().values());
+				for (int from = 0; from < all.size(); from += maxBatchSize) {
+					List<Object[]> chunk = all.subList(from, Math.min(all.size(), from + maxBatchSize));
+					functions.add(entry.getKey());
+					calls.add(chunk);
+					futures.add(request(entry.getKey(), chunk));
+				}
+			}
+			requested.clear();
+			return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[futures.size()]))
+					.handle(new BiFunction<Void, Throwable, Void>() {
+
+						public Void apply(Void ignored, Throwable failure) {
+							// Results are stored by a single thread after all requests are done
+							for (int i = 0; i < futures.size(); i++) {
+								store(functions.get(i), calls.get(i), futures.get(i));
+							}
+							return null;
+						}
+
+					});
+		}
+
+		private CompletableFuture<List<Object>> request(String function, List<Object[]> chunk) {
+			try {
+				CompletableFuture<List<Object>> future = provider.calculateAll(function, chunk);
+				if (future != null) {
+					return future;
+				}
+				throw new NullPointerException("No results for " + function);
+			} catch (RuntimeException e) {
+				CompletableFuture<List<Object>> failed = new CompletableFuture<>();
+				failed.completeExceptionally(e);
+				return failed;
+			}
+		}
+
+		private void store(String function, List<Object[]> chunk, CompletableFuture<List<Object>> future) {
+			Map<List<Object>, Object> results = known.get(function);
+			if (results == null) {
+				results = new HashMap<>();
+				known.put(function, results);
+			}
+			List<Object> values = null;
+			Throwable failure = null;
+			try {
+				values = future.join();
+				if (values.size() != chunk.size()) {
+					failure = new IllegalStateException("Expected " + chunk.size() + " results for " + function
+							+ ", but got " + values.size() + "!");
+				}
+			} catch (RuntimeException e) {
+				failure = e.getCause() != null ? e.getCause() : e;
+			}
+			for (int i = 0; i < chunk.size(); i++) {
+				Object value = failure != null ? new Failure(failure) : values.get(i);
+				if (value instanceof Throwable) {
+					value = new Failure((Throwable) value);
+				}
+				results.put(Arrays.asList(chunk.get(i)), value);
+			}
+		}
+
+		public Object calculate(String function, Object[] parameters) throws EvaluatorException {
+			List<Object> key = Arrays.asList(parameters);
+			Map<List<Object>, Object> results = known.get(function);
+			if (results != null && results.containsKey(key)) {
+				Object result = results.get(key);
+				if (result instanceof Failure) {
+					throw EvaluatorException.lazy(((Failure) result).cause, "Function %s failed!", function);
+				}
+				return result;
+			}
+			Map<List<Object>, Object[]> calls = requested.get(function);
+			if (calls == null) {
+				calls = new LinkedHashMap<>();
+				requested.put(function, calls);
+			}
+			if (!calls.containsKey(key)) {
+				// The evaluator may re-use the array of parameters
+				Object[] copy = parameters.clone();
+				calls.put(Arrays.asList(copy), copy);
+			}
+			throw Suspension.INSTANCE;
+		}
+
+		public boolean passesValues(String function) {
+			return provider.passesValues(function);
+		}
+
+	}
+
+	private final AsyncFunctionProvider provider;
+	private final int maxBatchSize;
+
+	/**
+	 * Hands all calls of a function collected in a round as one batch
+	 *
+	 * @param provider
+	 */
+	public BatchEvaluator(AsyncFunctionProvider provider) {
+		this(provider, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * @param provider
+	 * @param maxBatchSize
+	 *            maximum number of calls in one batch, larger batches are
+	 *            split and requested concurrently
+	 */
+	public BatchEvaluator(AsyncFunctionProvider provider, int maxBatchSize) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Batches need to have at least one call!");
+		}
+		this.provider = provider;
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Evaluates the guard for each of the bindings.
+	 *
+	 * @param guard
+	 * @param bindings
+	 * @return a future of the values of the guard in the order of the
+	 *         bindings, a binding that cannot be evaluated has an
+	 *         {@link EvaluationError} as value. The future only completes
+	 *         exceptionally for unexpected {@link RuntimeException}s, e.g.,
+	 *         thrown by a {@link VariableProvider}, regardless of the round in
+	 *         which they occur.
+	 */
+	public CompletableFuture<List<Object>> evaluateAll(GuardExpression guard, List<? extends VariableProvider> bindings) {
+		try {
+			return new Batch(guard, bindings).run();
+		} catch (RuntimeException e) {
+			// Later rounds run inside thenCompose, which fails the future
+			CompletableFuture<List<Object>> failed = new CompletableFuture<>();
+			failed.completeExceptionally(e);
+			return failed;
+		}
+	}
+
+	private static boolean isSuspension(Throwable e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause == Suspension.INSTANCE) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,344 @@
+package org.processmining.datapetrinets.expression;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+import org.processmining.datapetrinets.expression.syntax.ExprRoot;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParser;
+import org.processmining.datapetrinets.expression.syntax.ExpressionValidator;
+import org.processmining.datapetrinets.expression.syntax.ParseException;
+import org.processmining.datapetrinets.expression.syntax.TokenMgrError;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+/**
+ * Parses many expressions in parallel on a {@link ForkJoinPool}. All workers
+ * share one weak intern table for literals and function names, variables are
+ * interned in the global
+ * {@link org.processmining.datapetrinets.expression.syntax.SymbolTable}. The
+ * {@link #SHARED} instance is used for all calls, so the parser, validator and
+ * reader of a thread are re-used across calls.
+ * Errors are reported as {@link ParseResult} in input order instead of being
+ * thrown. Only input that the parser rejects is run through the
+ * {@link ExpressionValidator}, which describes the error without a stack
+ * trace.
+ *
+ * @author F. Mannhardt
+ *
+ */
+final class BulkParser {
+
+	private static final int SEQUENTIAL_THRESHOLD = 64;
+
+	static final BulkParser SHARED = new BulkParser();
+
+	private static final class CharBufferReader extends Reader {
+
+		private CharBuffer buffer;
+
+		void reset(CharBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		public int read(char[] cbuf, int off, int len) {
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int n = Math.min(len, buffer.remaining());
+			buffer.get(cbuf, off, n);
+			return n;
+		}
+
+		public void close() {
+		}
+
+	}
+
+	/**
+	 * Per-thread state for decoding UTF-8 lines without creating a String
+	 */
+	private static final class LineDecoder {
+
+		private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+		private CharBuffer chars = CharBuffer.allocate(256);
+		private int errorOffset;
+
+		/**
+		 * Decodes the remaining bytes of the line. Decoding stops at an invalid
+		 * sequence, which is then replaced by U+FFFD and its character offset
+		 * is returned by {@link #getErrorOffset()}. The position of the line
+		 * is left at the start of the invalid sequence.
+		 */
+		CharBuffer decode(ByteBuffer line) {
+			int maxChars = (int) (line.remaining() * (double) decoder.maxCharsPerByte()) + 1;
+			if (chars.capacity() < maxChars) {
+				chars = CharBuffer.allocate(Math.max(maxChars, chars.capacity() * 2));
+			}
+			((Buffer) chars).clear();
+			decoder.reset();
+			CoderResult result = decoder.decode(line, chars, true);
+			if (result.isError()) {
+				errorOffset = chars.position();
+				chars.put('\uFFFD');
+			} else {
+				errorOffset = -1;
+				decoder.flush(chars);
+			}
+			((Buffer) chars).flip();
+			return chars;
+		}
+
+		/**
+		 * @return the character offset of the invalid sequence in the last
+		 *         decoded line or -1 if the line was valid
+		 */
+		int getErrorOffset() {
+			return errorOffset;
+		}
+
+	}
+
+	// Weak as the instance lives as long as the class, the strings are kept alive by the parsed guards
+	private final Interner<String> interner = Interners.newWeakInterner();
+
+	private static final ThreadLocal<LineDecoder> lineDecoder = new ThreadLocal<LineDecoder>() {
+
+		protected LineDecoder initialValue() {
+			return new LineDecoder();
+		}
+
+	};
+
+	private static final ThreadLocal<ExpressionValidator> validators = new ThreadLocal<ExpressionValidator>() {
+
+		protected ExpressionValidator initialValue() {
+			return new ExpressionValidator();
+		}
+
+	};
+
+	private static final ThreadLocal<CharBufferReader> charReader = new ThreadLocal<CharBufferReader>() {
+
+		protected CharBufferReader initialValue() {
+			return new CharBufferReader();
+		}
+
+	};
+
+	// Re-initialized for every expression, keeps the tree of the last expression reachable until the next one
+	private final ThreadLocal<ExpressionParser> parsers = new ThreadLocal<ExpressionParser>() {
+
+		protected ExpressionParser initialValue() {
+			return new ExpressionParser(charReader.get(), interner);
+		}
+
+	};
+
+	private abstract class ParseTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		protected final ParseResult[] results;
+		private final int from;
+		private final int to;
+
+		ParseTask(ParseResult[] results, int from, int to) {
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from <= SEQUENTIAL_THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					results[i] = parseItem(i);
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(split(from, mid), split(mid, to));
+			}
+		}
+
+		abstract ParseTask split(int from, int to);
+
+		abstract ParseResult parseItem(int index);
+
+	}
+
+	private final class CharSequenceTask extends ParseTask {
+
+		private static final long serialVersionUID = 1L;
+
+		private final CharSequence[] inputs;
+
+		CharSequenceTask(CharSequence[] inputs, ParseResult[] results, int from, int to) {
+			super(results, from, to);
+			this.inputs = inputs;
+		}
+
+		ParseTask split(int from, int to) {
+			return new CharSequenceTask(inputs, results, from, to);
+		}
+
+		ParseResult parseItem(int index) {
+			return parse(inputs[index]);
+		}
+
+	}
+
+	private final class LineTask extends ParseTask {
+
+		private static final long serialVersionUID = 1L;
+
+		private final ByteBuffer buffer;
+		private final int[] lineStarts;
+		private final int[] lineEnds;
+
+		LineTask(ByteBuffer buffer, int[] lineStarts, int[] lineEnds, ParseResult[] results, int from, int to) {
+			super(results, from, to);
+			this.buffer = buffer;
+			this.lineStarts = lineStarts;
+			this.lineEnds = lineEnds;
+		}
+
+		ParseTask split(int from, int to) {
+			return new LineTask(buffer, lineStarts, lineEnds, results, from, to);
+		}
+
+		ParseResult parseItem(int index) {
+			ByteBuffer line = buffer.duplicate();
+			((Buffer) line).limit(lineEnds[index]);
+			((Buffer) line).position(lineStarts[index]);
+			LineDecoder decoder = lineDecoder.get();
+			CharBuffer chars = decoder.decode(line);
+			if (decoder.getErrorOffset() != -1) {
+				return ParseResult.failure(ParseError.atOffset(chars, decoder.getErrorOffset(), -1, 0,
+						"Invalid UTF-8 input at byte " + line.position()));
+			}
+			return parse(chars);
+		}
+
+	}
+
+	private BulkParser() {
+		super();
+	}
+
+	/**
+	 * Parses the expression with the parser of the current thread.
+	 */
+	ExprRoot parseTree(CharSequence expression) throws ParseException {
+		CharBufferReader reader = charReader.get();
+		reader.reset(CharBuffer.wrap(expression));
+		ExpressionParser parser = parsers.get();
+		parser.ReInit(reader);
+		return parser.parse();
+	}
+
+	ParseResult parse(CharSequence expression) {
+		try {
+			return ParseResult.success(new GuardExpressionImpl(parseTree(expression)));
+		} catch (ParseException e) {
+			return failure(expression, ParseError.fromException(e));
+		} catch (TokenMgrError e) {
+			return failure(expression, ParseError.fromError(e));
+		}
+	}
+
+	/**
+	 * @return the error described by the {@link ExpressionValidator}, which
+	 *         also reports the offset and the expected tokens, or the error of
+	 *         the parser if the validator accepts the expression
+	 */
+	private static ParseResult failure(CharSequence expression, ParseError parserError) {
+		ExpressionValidator validator = validators.get();
+		if (!validator.validate(expression)) {
+			return ParseResult.failure(ParseError.fromValidator(validator, expression));
+		}
+		return ParseResult.failure(parserError);
+	}
+
+	List<ParseResult> parseAll(Iterable<? extends CharSequence> expressions, ForkJoinPool pool) {
+		List<CharSequence> inputs = new ArrayList<>();
+		for (CharSequence expression : expressions) {
+			inputs.add(expression);
+		}
+		ParseResult[] results = new ParseResult[inputs.size()];
+		pool.invoke(new CharSequenceTask(inputs.toArray(new CharSequence[inputs.size()]), results, 0,
+				results.length));
+		return Arrays.asList(results);
+	}
+
+	Stream<ParseResult> parseAll(Stream<? extends CharSequence> expressions) {
+		return expressions.parallel().map(expression -> parse(expression));
+	}
+
+	/**
+	 * Parses one expression per line of UTF-8 encoded bytes. Lines are
+	 * separated by '\n', a trailing '\r' is ignored. The result contains one
+	 * entry per line, the last line may omit the line separator.
+	 */
+	List<ParseResult> parseLines(ByteBuffer utf8Lines, ForkJoinPool pool) {
+		ByteBuffer buffer = utf8Lines.duplicate();
+		int[] lineStarts = new int[16];
+		int[] lineEnds = new int[16];
+		int lines = 0;
+		int start = buffer.position();
+		int limit = buffer.limit();
+		for (int i = start; i <= limit; i++) {
+			if (i == limit || buffer.get(i) == '\n') {
+				if (i == limit && i == start) {
+					// no trailing empty line
+					break;
+				}
+				if (lines == lineStarts.length) {
+					lineStarts = Arrays.copyOf(lineStarts, lines * 2);
+					lineEnds = Arrays.copyOf(lineEnds, lines * 2);
+				}
+				int end = i;
+				if (end > start && buffer.get(end - 1) == '\r') {
+					end--;
+				}
+				lineStarts[lines] = start;
+				lineEnds[lines] = end;
+				lines++;
+				start = i + 1;
+			}
+		}
+		ParseResult[] results = new ParseResult[lines];
+		pool.invoke(new LineTask(buffer, lineStarts, lineEnds, results, 0, lines));
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Maps the whole file into memory with a single mapping, which limits the
+	 * file size to {@link Integer#MAX_VALUE} bytes.
+	 */
+	List<ParseResult> parseLines(Path file, ForkJoinPool pool) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("Cannot map " + file + " of " + channel.size() + " bytes");
+			}
+			return parseLines(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), pool);
+		}
+	}
+
+}
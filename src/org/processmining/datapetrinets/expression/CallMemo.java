@@ -0,0 +1,71 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.Arrays;
+
+/**
+ * Small cache of the results of one call site of a pure function, see
+ * {@link FunctionProvider#isPure(String)}. The cache is direct-mapped by the
+ * hash of the parameters. Entries are immutable and replaced without locking,
+ * concurrent evaluations at worst call the function again.
+ *
+ * @author F. Mannhardt
+ *
+ */
+final class CallMemo {
+
+	private static final int BITS = 3;
+	private static final int SIZE = 1 << BITS;
+
+	/**
+	 * Returned by {@link #lookup(Object, Object[])} if there is no result
+	 */
+	static final Object MISS = new Object();
+
+	private static final class Entry {
+
+		private final Object context;
+		private final Object[] parameters;
+		private final Object result;
+
+		private Entry(Object context, Object[] parameters, Object result) {
+			this.context = context;
+			this.parameters = parameters;
+			this.result = result;
+		}
+
+	}
+
+	private final Entry[] entries = new Entry[SIZE];
+
+	/**
+	 * @param context
+	 *            the result is only valid for the same context, e.g., the
+	 *            {@link FunctionProvider} that was called, may be NULL
+	 * @param parameters
+	 * @return the result of an earlier call or {@link #MISS}
+	 */
+	Object lookup(Object context, Object[] parameters) {
+		Entry entry = entries[index(parameters)];
+		if (entry != null && entry.context == context && Arrays.equals(entry.parameters, parameters)) {
+			return entry.result;
+		}
+		return MISS;
+	}
+
+	/**
+	 * @param context
+	 * @param parameters
+	 *            must not be modified afterwards
+	 * @param result
+	 */
+	void store(Object context, Object[] parameters, Object result) {
+		// May overwrite an entry stored concurrently for other parameters
+		entries[index(parameters)] = new Entry(context, parameters, result);
+	}
+
+	private static int index(Object[] parameters) {
+		// Fibonacci hashing, hashes of double values differ mostly in their high bits
+		return (Arrays.hashCode(parameters) * 0x9E3779B9) >>> (Integer.SIZE - BITS);
+	}
+
+}
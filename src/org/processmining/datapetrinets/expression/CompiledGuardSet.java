@@ -0,0 +1,47 @@
+package org.processmining.datapetrinets.expression;
+
+import org.processmining.datapetrinets.exception.EvaluatorException;
+
+/**
+ * Guards compiled ahead of time into Java code by the
+ * {@link GuardSourceGenerator}. Guards are identified by their index in
+ * {@link #getCanonicalStrings()}. Register instances with a
+ * {@link GuardRegistry} to use them.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public interface CompiledGuardSet {
+
+	/**
+	 * Version of the code generated by the {@link GuardSourceGenerator},
+	 * increased whenever the generated code or the {@link CompiledGuardSupport}
+	 * it calls change incompatibly
+	 */
+	int FORMAT_VERSION = 1;
+
+	/**
+	 * @return the value of {@link #FORMAT_VERSION} when the set was generated,
+	 *         sets generated before versions were recorded return 0
+	 */
+	default int getFormatVersion() {
+		return 0;
+	}
+
+	/**
+	 * @return the canonical string of every guard
+	 */
+	String[] getCanonicalStrings();
+
+	/**
+	 * @param guard
+	 *            index of the guard
+	 * @param variableProvider
+	 * @param functionProvider
+	 * @return the value of the guard
+	 * @throws EvaluatorException
+	 */
+	Object evaluate(int guard, VariableProvider variableProvider, FunctionProvider functionProvider)
+			throws EvaluatorException;
+
+}
@@ -0,0 +1,129 @@
+package org.processmining.datapetrinets.expression;
+
+import org.processmining.datapetrinets.exception.BooleanValueRequired;
+import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.exception.NumericValueRequired;
+import org.processmining.datapetrinets.expression.syntax.LiteralSet;
+
+/**
+ * Operations called by the code generated by the {@link GuardSourceGenerator}.
+ * Operands of unknown type are evaluated with the semantics of
+ * {@link Evaluator}. Generated code always treats numbers according to
+ * {@link NumericSemantics#FLOATING_POINT}, other semantics are not supported.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class CompiledGuardSupport {
+
+	private static final NumericSemantics SEMANTICS = NumericSemantics.FLOATING_POINT;
+
+	private CompiledGuardSupport() {
+		super();
+	}
+
+	public static boolean toBoolean(Object value) {
+		if (value instanceof Boolean) {
+			return (Boolean) value;
+		}
+		throw BooleanValueRequired.lazy(null, "Expected a boolean value, but got %s!", value);
+	}
+
+	public static double toDouble(Object value) {
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		throw NumericValueRequired.lazy(null, "Expected a numeric value, but got %s!", value);
+	}
+
+	public static int compare(double lhs, double rhs) {
+		return SEMANTICS.compare(lhs, rhs);
+	}
+
+	public static boolean equal(double lhs, double rhs) {
+		return SEMANTICS.equal(lhs, rhs);
+	}
+
+	public static boolean equal(Object lhs, Object rhs) {
+		return (Boolean) Evaluator.Visitor.equal.evaluate(lhs, rhs);
+	}
+
+	public static boolean lessThan(Object lhs, Object rhs) {
+		return (Boolean) Evaluator.Visitor.calcBinaryExpression(lhs, rhs, Evaluator.Visitor.lessThan);
+	}
+
+	public static boolean atMost(Object lhs, Object rhs) {
+		return (Boolean) Evaluator.Visitor.calcBinaryExpression(lhs, rhs, Evaluator.Visitor.atMost);
+	}
+
+	public static boolean greaterThan(Object lhs, Object rhs) {
+		return (Boolean) Evaluator.Visitor.calcBinaryExpression(lhs, rhs, Evaluator.Visitor.greaterThan);
+	}
+
+	public static boolean atLeast(Object lhs, Object rhs) {
+		return (Boolean) Evaluator.Visitor.calcBinaryExpression(lhs, rhs, Evaluator.Visitor.atLeast);
+	}
+
+	public static Object plus(Object lhs, Object rhs) {
+		return Evaluator.Visitor.calcBinaryExpression(lhs, rhs, Evaluator.Visitor.plus);
+	}
+
+	public static Object minus(Object lhs, Object rhs) {
+		return Evaluator.Visitor.calcBinaryExpression(lhs, rhs, Evaluator.Visitor.minus);
+	}
+
+	public static Object mult(Object lhs, Object rhs) {
+		return Evaluator.Visitor.calcBinaryExpression(lhs, rhs, Evaluator.Visitor.mult);
+	}
+
+	public static Object div(Object lhs, Object rhs) {
+		return Evaluator.Visitor.calcBinaryExpression(lhs, rhs, Evaluator.Visitor.div);
+	}
+
+	public static Object negate(Object value) {
+		if (value instanceof Number) {
+			return Double.valueOf(-((Number) value).doubleValue());
+		}
+		throw new EvaluatorException("Negation is not defined for non-numeric values!");
+	}
+
+	public static boolean isMember(Object value, LiteralSet set) {
+		return Evaluator.Visitor.isMember(value, set);
+	}
+
+	public static boolean isMember(double value, LiteralSet set) {
+		return set.containsNumber(value, SEMANTICS.getPrecision());
+	}
+
+	/**
+	 * Calls a function whose arguments include variables, which are passed as
+	 * identifier unless the function takes values, see
+	 * {@link Evaluator#passesValues(FunctionProvider, String)}.
+	 *
+	 * @param functions
+	 * @param variables
+	 * @param function
+	 * @param parameters
+	 *            the arguments with the identifier of variable arguments
+	 * @param identifiers
+	 *            the identifiers of variable arguments, NULL for other
+	 *            arguments
+	 * @return the result of the call
+	 */
+	public static Object call(FunctionProvider functions, VariableProvider variables, String function,
+			Object[] parameters, String[] identifiers) {
+		if (Evaluator.passesValues(functions, function)) {
+			resolveVariables(parameters, identifiers, variables);
+		}
+		return functions.calculate(function, parameters);
+	}
+
+	static void resolveVariables(Object[] parameters, String[] identifiers, VariableProvider variables) {
+		for (int i = 0; i < parameters.length; i++) {
+			if (identifiers[i] != null) {
+				parameters[i] = variables.getValue(identifiers[i]);
+			}
+		}
+	}
+
+}
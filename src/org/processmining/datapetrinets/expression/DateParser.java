@@ -0,0 +1,178 @@
+package org.processmining.datapetrinets.expression;
+
+import java.lang.ref.SoftReference;
+import java.text.DateFormat;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Thread-safe conversion of date values to milliseconds since epoch. Strings
+ * that are exactly in the {@link Evaluator#STANDARD_DATE_FORMAT} with a valid
+ * date and time after 1582 are parsed without allocation. All other strings
+ * are parsed by a lenient {@link SimpleDateFormat} in the
+ * {@link Evaluator#STANDARD_DATE_FORMAT}, then in the
+ * {@link Evaluator#OLD_DATE_FORMAT} produced by {@link Date#toString()}. The
+ * lenient formats accept out-of-range fields, such as month 13, and ignore
+ * trailing text.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class DateParser {
+
+	/**
+	 * Returned by {@link #parseMillis(CharSequence)} if the input is not a date
+	 */
+	public static final long NOT_A_DATE = Long.MIN_VALUE;
+
+	private static final long MILLIS_PER_DAY = 86400000L;
+
+	/**
+	 * {@link SimpleDateFormat} uses the Julian calendar before the Gregorian
+	 * reform, the fast path only covers later years
+	 */
+	private static final int FIRST_GREGORIAN_YEAR = 1583;
+
+	private static final ThreadLocal<SoftReference<DateFormat>> THREAD_LOCAL_OLD_DF = new ThreadLocal<>();
+	private static final ThreadLocal<SoftReference<DateFormat>> THREAD_LOCAL_STANDARD_DF = new ThreadLocal<>();
+
+	private DateParser() {
+		super();
+	}
+
+	private static DateFormat getDateFormat(ThreadLocal<SoftReference<DateFormat>> threadLocal, String pattern) {
+		SoftReference<DateFormat> softReference = threadLocal.get();
+		if (softReference != null) {
+			DateFormat dateFormat = softReference.get();
+			if (dateFormat != null) {
+				return dateFormat;
+			}
+		}
+		DateFormat result = new SimpleDateFormat(pattern, Locale.US);
+		threadLocal.set(new SoftReference<>(result));
+		return result;
+	}
+
+	/**
+	 * @param obj
+	 * @return milliseconds since epoch for {@link Date} values and strings
+	 *         that can be parsed as date, numbers are returned as they are
+	 *         (unix timestamp). Any other value is returned unchanged.
+	 */
+	public static Object tryParseMillis(Object obj) {
+		if (obj instanceof Date) {
+			return ((Date) obj).getTime();
+		}
+		if (obj instanceof String || obj instanceof EncodedString) {
+			long millis = parseMillis((CharSequence) obj);
+			if (millis != NOT_A_DATE) {
+				return millis;
+			}
+		}
+		// Numbers are already unix timestamps, other values cannot be parsed
+		return obj;
+	}
+
+	/**
+	 * @param text
+	 * @return milliseconds since epoch or {@link #NOT_A_DATE}
+	 */
+	public static long parseMillis(CharSequence text) {
+		long millis = parseStandardFormat(text);
+		if (millis != NOT_A_DATE) {
+			return millis;
+		}
+		String string = text.toString();
+		ParsePosition position = new ParsePosition(0);
+		Date date = getDateFormat(THREAD_LOCAL_STANDARD_DF, Evaluator.STANDARD_DATE_FORMAT).parse(string, position);
+		if (date == null) {
+			position.setIndex(0);
+			date = getDateFormat(THREAD_LOCAL_OLD_DF, Evaluator.OLD_DATE_FORMAT).parse(string, position);
+		}
+		return date != null ? date.getTime() : NOT_A_DATE;
+	}
+
+	/**
+	 * Parses yyyy-MM-dd'T'HH:mm:ss.SSS followed by either 'Z' or an offset
+	 * +HH:mm, returns {@link #NOT_A_DATE} for anything the lenient format
+	 * might interpret differently
+	 */
+	private static long parseStandardFormat(CharSequence text) {
+		int length = text.length();
+		if ((length != 24 && length != 29) || text.charAt(4) != '-' || text.charAt(7) != '-'
+				|| text.charAt(10) != 'T' || text.charAt(13) != ':' || text.charAt(16) != ':'
+				|| text.charAt(19) != '.') {
+			return NOT_A_DATE;
+		}
+		int year = digits(text, 0, 4);
+		int month = digits(text, 5, 2);
+		int day = digits(text, 8, 2);
+		int hour = digits(text, 11, 2);
+		int minute = digits(text, 14, 2);
+		int second = digits(text, 17, 2);
+		int millis = digits(text, 20, 3);
+		if (year < FIRST_GREGORIAN_YEAR || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) || hour < 0
+				|| hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || millis < 0) {
+			return NOT_A_DATE;
+		}
+		int offsetMinutes;
+		char zone = text.charAt(23);
+		if (length == 24) {
+			if (zone != 'Z') {
+				return NOT_A_DATE;
+			}
+			offsetMinutes = 0;
+		} else {
+			int offsetHours = digits(text, 24, 2);
+			int offsetMins = digits(text, 27, 2);
+			if ((zone != '+' && zone != '-') || text.charAt(26) != ':' || offsetHours < 0 || offsetHours > 18
+					|| offsetMins < 0 || offsetMins > 59) {
+				return NOT_A_DATE;
+			}
+			offsetMinutes = (zone == '-' ? -1 : 1) * (offsetHours * 60 + offsetMins);
+		}
+		long secondOfDay = (hour * 60 + minute - offsetMinutes) * 60L + second;
+		return epochDay(year, month, day) * MILLIS_PER_DAY + secondOfDay * 1000L + millis;
+	}
+
+	private static int digits(CharSequence text, int start, int count) {
+		int value = 0;
+		for (int i = start; i < start + count; i++) {
+			int digit = text.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return -1;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static int daysInMonth(int year, int month) {
+		switch (month) {
+			case 2 :
+				return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+			case 4 :
+			case 6 :
+			case 9 :
+			case 11 :
+				return 30;
+			default :
+				return 31;
+		}
+	}
+
+	/**
+	 * Days since 1970-01-01 in the proleptic Gregorian calendar
+	 */
+	private static long epochDay(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = Math.floorDiv(y, 400);
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+}
@@ -0,0 +1,114 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.Objects;
+
+/**
+ * String value encoded by a {@link StringDictionary}. Instances can be
+ * returned by a {@link VariableProvider} in place of {@link String} values.
+ * Two encoded strings of the same dictionary are equal if and only if their
+ * codes are equal.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class EncodedString implements CharSequence {
+
+	/**
+	 * Equality of two values, one of which may be an {@link EncodedString},
+	 * with the semantics of {@link Objects#equals(Object, Object)} applied to
+	 * the decoded values.
+	 *
+	 * @param lhs
+	 * @param rhs
+	 * @return whether both values are equal
+	 */
+	static boolean equal(Object lhs, Object rhs) {
+		if (lhs instanceof EncodedString && rhs instanceof EncodedString) {
+			EncodedString lhsString = (EncodedString) lhs;
+			EncodedString rhsString = (EncodedString) rhs;
+			if (lhsString.dictionary == rhsString.dictionary) {
+				return lhsString.code == rhsString.code;
+			}
+		}
+		return Objects.equals(decode(lhs), decode(rhs));
+	}
+
+	/**
+	 * Compares two encoded strings, using the sort ranks if both are from the
+	 * same dictionary.
+	 *
+	 * @param lhs
+	 * @param rhs
+	 * @return the same sign as {@link String#compareTo(String)}
+	 */
+	static int compare(EncodedString lhs, EncodedString rhs) {
+		if (lhs.dictionary == rhs.dictionary) {
+			if (lhs.code == rhs.code) {
+				return 0;
+			}
+			int[] ranks = lhs.dictionary.getRanks();
+			if (lhs.code < ranks.length && rhs.code < ranks.length) {
+				return Integer.compare(ranks[lhs.code], ranks[rhs.code]);
+			}
+		}
+		return lhs.value.compareTo(rhs.value);
+	}
+
+	/**
+	 * @param value
+	 * @return the {@link String} for an {@link EncodedString}, otherwise the
+	 *         value itself
+	 */
+	static Object decode(Object value) {
+		return value instanceof EncodedString ? ((EncodedString) value).value : value;
+	}
+
+	private final StringDictionary dictionary;
+	private final int code;
+	private final String value;
+
+	EncodedString(StringDictionary dictionary, int code, String value) {
+		this.dictionary = dictionary;
+		this.code = code;
+		this.value = value;
+	}
+
+	public StringDictionary getDictionary() {
+		return dictionary;
+	}
+
+	public int getCode() {
+		return code;
+	}
+
+	public int length() {
+		return value.length();
+	}
+
+	public char charAt(int index) {
+		return value.charAt(index);
+	}
+
+	public CharSequence subSequence(int start, int end) {
+		return value.subSequence(start, end);
+	}
+
+	public String toString() {
+		return value;
+	}
+
+	public int hashCode() {
+		return value.hashCode();
+	}
+
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof EncodedString)) {
+			return false;
+		}
+		return value.equals(((EncodedString) obj).value);
+	}
+
+}
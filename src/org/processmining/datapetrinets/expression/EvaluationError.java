@@ -0,0 +1,113 @@
+package org.processmining.datapetrinets.expression;
+
+import org.processmining.datapetrinets.exception.BooleanValueRequired;
+import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.exception.InvalidArgumentException;
+import org.processmining.datapetrinets.exception.NumericValueRequired;
+import org.processmining.datapetrinets.exception.UnsupportedFunctionException;
+import org.processmining.datapetrinets.exception.VariableNotFoundException;
+
+/**
+ * Result of
+ * {@link Evaluator#tryEvaluate(GuardExpression, VariableProvider, FunctionProvider)}
+ * for a guard that could not be evaluated. The {@link Kind} is known without
+ * formatting any message, the details are only formatted when
+ * {@link #getMessage()} is called.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class EvaluationError {
+
+	public enum Kind {
+
+		/**
+		 * A variable has no value, see {@link VariableNotFoundException}
+		 */
+		MISSING_VARIABLE,
+
+		/**
+		 * An operand is of the wrong type, see {@link BooleanValueRequired}
+		 * and {@link NumericValueRequired}
+		 */
+		TYPE_ERROR,
+
+		/**
+		 * A function is unknown or failed, see
+		 * {@link UnsupportedFunctionException}
+		 */
+		UNSUPPORTED_FUNCTION,
+
+		/**
+		 * A function was called with an argument it cannot use, see
+		 * {@link InvalidArgumentException}
+		 */
+		INVALID_ARGUMENT,
+
+		/**
+		 * Any other error
+		 */
+		OTHER
+
+	}
+
+	private final Kind kind;
+	private final EvaluatorException exception;
+
+	private EvaluationError(Kind kind, EvaluatorException exception) {
+		this.kind = kind;
+		this.exception = exception;
+	}
+
+	/**
+	 * @param exception
+	 *            thrown when evaluating a guard
+	 * @return the error classified by the most specific exception in the
+	 *         chain of causes
+	 */
+	static EvaluationError of(EvaluatorException exception) {
+		for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+			if (cause instanceof VariableNotFoundException) {
+				return new EvaluationError(Kind.MISSING_VARIABLE, exception);
+			} else if (cause instanceof BooleanValueRequired || cause instanceof NumericValueRequired) {
+				return new EvaluationError(Kind.TYPE_ERROR, exception);
+			} else if (cause instanceof InvalidArgumentException) {
+				return new EvaluationError(Kind.INVALID_ARGUMENT, exception);
+			} else if (cause instanceof UnsupportedFunctionException) {
+				return new EvaluationError(Kind.UNSUPPORTED_FUNCTION, exception);
+			}
+		}
+		return new EvaluationError(Kind.OTHER, exception);
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return the exception that would have been thrown by
+	 *         {@link GuardExpression#evaluate(VariableProvider, FunctionProvider)}
+	 */
+	public EvaluatorException getException() {
+		return exception;
+	}
+
+	/**
+	 * @return the messages of the exception and its causes, formatted when
+	 *         called
+	 */
+	public String getMessage() {
+		StringBuilder sb = new StringBuilder();
+		for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+			if (cause.getMessage() != null) {
+				sb.append(sb.length() > 0 ? ": " : "").append(cause.getMessage());
+			}
+		}
+		return sb.toString();
+	}
+
+	public String toString() {
+		return kind + ": " + getMessage();
+	}
+
+}
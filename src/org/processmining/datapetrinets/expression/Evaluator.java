@@ -1,16 +1,16 @@
 package org.processmining.datapetrinets.expression;
 
-import java.lang.ref.SoftReference;
-import java.text.DateFormat;
-import java.text.ParsePosition;
-import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
 import java.util.Date;
-import java.util.Locale;
+import java.util.Deque;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.processmining.datapetrinets.exception.BooleanValueRequired;
 import org.processmining.datapetrinets.exception.EvaluatorException;
 import org.processmining.datapetrinets.exception.NumericValueRequired;
+import org.processmining.datapetrinets.exception.TypeCheckException;
 import org.processmining.datapetrinets.expression.syntax.ExprAnd;
 import org.processmining.datapetrinets.expression.syntax.ExprAtLeast;
 import org.processmining.datapetrinets.expression.syntax.ExprAtMost;
@@ -18,6 +18,7 @@ import org.processmining.datapetrinets.expression.syntax.ExprDiv;
 import org.processmining.datapetrinets.expression.syntax.ExprEqual;
 import org.processmining.datapetrinets.expression.syntax.ExprFunction;
 import org.processmining.datapetrinets.expression.syntax.ExprGreaterThan;
+import org.processmining.datapetrinets.expression.syntax.ExprIn;
 import org.processmining.datapetrinets.expression.syntax.ExprLessThan;
 import org.processmining.datapetrinets.expression.syntax.ExprLitBoolean;
 import org.processmining.datapetrinets.expression.syntax.ExprLitDouble;
@@ -32,9 +33,12 @@ import org.processmining.datapetrinets.expression.syntax.ExprNotEqual;
 import org.processmining.datapetrinets.expression.syntax.ExprOr;
 import org.processmining.datapetrinets.expression.syntax.ExprPlus;
 import org.processmining.datapetrinets.expression.syntax.ExprRoot;
+import org.processmining.datapetrinets.expression.syntax.ExprSet;
 import org.processmining.datapetrinets.expression.syntax.ExprVariable;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserTreeConstants;
 import org.processmining.datapetrinets.expression.syntax.ExpressionParserVisitor;
 import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+import org.processmining.datapetrinets.expression.syntax.LiteralSet;
 import org.processmining.datapetrinets.expression.syntax.Node;
 import org.processmining.datapetrinets.expression.syntax.SimpleNode;
 
@@ -56,61 +60,38 @@ public final class Evaluator {
 
 	}
 
-	private interface BinaryOperation {
+	interface BinaryOperation {
 
 		Object evaluate(Object lhs, Object rhs);
 
 	}
 
+	/**
+	 * Default precision of numeric comparisons, see
+	 * {@link NumericSemantics#withPrecision(double)}
+	 */
 	public static final double SOLVING_PRECISION = 0.000001d;
 
 	public static final String OLD_DATE_FORMAT = "EEE MMM dd kk:mm:ss zzz yyyy";
 	public static final String STANDARD_DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSXXX";
 
-	private static final ThreadLocal<SoftReference<DateFormat>> THREAD_LOCAL_OLD_DF = new ThreadLocal<>();
-	private static final ThreadLocal<SoftReference<DateFormat>> THREAD_LOCAL_STANDARD_DF = new ThreadLocal<>();
-
-	private static DateFormat getOldDateFormat() {
-		SoftReference<DateFormat> softReference = THREAD_LOCAL_OLD_DF.get();
-		if (softReference != null) {
-			DateFormat dateFormat = softReference.get();
-			if (dateFormat != null) {
-				return dateFormat;
-			}
-		}
-		DateFormat result = new SimpleDateFormat(OLD_DATE_FORMAT, Locale.US);
-		softReference = new SoftReference<>(result);
-		THREAD_LOCAL_OLD_DF.set(softReference);
-		return result;
-	}
-
-	private static DateFormat getStandardDateFormat() {
-		SoftReference<DateFormat> softReference = THREAD_LOCAL_STANDARD_DF.get();
-		if (softReference != null) {
-			DateFormat dateFormat = softReference.get();
-			if (dateFormat != null) {
-				return dateFormat;
-			}
-		}
-		DateFormat result = new SimpleDateFormat(STANDARD_DATE_FORMAT, Locale.US);
-		softReference = new SoftReference<>(result);
-		THREAD_LOCAL_STANDARD_DF.set(softReference);
-		return result;
-	}
-
+	/**
+	 * Evaluates an expression with the {@link Provider} given as data. Each
+	 * visited node is evaluated using an explicit stack of partially evaluated
+	 * nodes, the size of an expression is not limited by the call stack.
+	 */
 	public static class Visitor implements ExpressionParserVisitor {
 
-		private static final BinaryOperation atLeast = new BinaryOperation() {
+		static final BinaryOperation atLeast = new BinaryOperation() {
 
 			public Object evaluate(Object lhs, Object rhs) {
 				try {
 					int x = compareObjects(lhs, rhs);
 					return x == 0 || x > 0;
 				} catch (NumericValueRequired e) {
-					throw new NumericValueRequired(
-							String.format(
-									"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
-									lhs, toString(), rhs), e);
+					throw NumericValueRequired.lazy(e,
+							"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
+							lhs, toString(), rhs);
 				}
 			}
 
@@ -121,17 +102,16 @@ public final class Evaluator {
 
 		};
 
-		private static final BinaryOperation atMost = new BinaryOperation() {
+		static final BinaryOperation atMost = new BinaryOperation() {
 
 			public Object evaluate(Object lhs, Object rhs) {
 				try {
 					int x = compareObjects(lhs, rhs);
 					return x == 0 || x < 0;
 				} catch (NumericValueRequired e) {
-					throw new NumericValueRequired(
-							String.format(
-									"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
-									lhs, toString(), rhs), e);
+					throw NumericValueRequired.lazy(e,
+							"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
+							lhs, toString(), rhs);
 				}
 			}
 
@@ -142,17 +122,16 @@ public final class Evaluator {
 
 		};
 
-		private static final BinaryOperation lessThan = new BinaryOperation() {
+		static final BinaryOperation lessThan = new BinaryOperation() {
 
 			public Object evaluate(Object lhs, Object rhs) {
 				try {
 					int x = compareObjects(lhs, rhs);
 					return x < 0;
 				} catch (NumericValueRequired e) {
-					throw new NumericValueRequired(
-							String.format(
-									"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
-									lhs, toString(), rhs), e);
+					throw NumericValueRequired.lazy(e,
+							"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
+							lhs, toString(), rhs);
 				}
 			}
 
@@ -163,17 +142,16 @@ public final class Evaluator {
 
 		};
 
-		private static final BinaryOperation greaterThan = new BinaryOperation() {
+		static final BinaryOperation greaterThan = new BinaryOperation() {
 
 			public Object evaluate(Object lhs, Object rhs) {
 				try {
 					int x = compareObjects(lhs, rhs);
 					return x > 0;
 				} catch (NumericValueRequired e) {
-					throw new NumericValueRequired(
-							String.format(
-									"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
-									lhs, toString(), rhs), e);
+					throw NumericValueRequired.lazy(e,
+							"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
+							lhs, toString(), rhs);
 				}
 			}
 
@@ -184,12 +162,14 @@ public final class Evaluator {
 
 		};
 
-		private static final BinaryOperation equal = new BinaryOperation() {
+		static final BinaryOperation equal = new BinaryOperation() {
 
 			public Object evaluate(Object lhs, Object rhs) {
 				if (bothNumeric(lhs, rhs)) {
 					return DoubleMath.fuzzyEquals(((Number) lhs).doubleValue(), ((Number) rhs).doubleValue(),
 							Evaluator.SOLVING_PRECISION);
+				} else if (lhs instanceof EncodedString || rhs instanceof EncodedString) {
+					return EncodedString.equal(lhs, rhs);
 				} else {
 					// NULL safe equals from Java 7
 					return Objects.equals(lhs, rhs);
@@ -203,16 +183,15 @@ public final class Evaluator {
 
 		};
 
-		private static final BinaryOperation div = new BinaryOperation() {
+		static final BinaryOperation div = new BinaryOperation() {
 
 			public Object evaluate(Object lhs, Object rhs) {
 				if (bothNumeric(lhs, rhs)) {
 					return ((Number) lhs).doubleValue() / ((Number) rhs).doubleValue();
 				} else {
-					throw new NumericValueRequired(
-							String.format(
-									"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
-									lhs, toString(), rhs));
+					throw NumericValueRequired.lazy(null,
+							"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
+							lhs, toString(), rhs);
 				}
 			}
 
@@ -223,16 +202,15 @@ public final class Evaluator {
 
 		};
 
-		private static final BinaryOperation mult = new BinaryOperation() {
+		static final BinaryOperation mult = new BinaryOperation() {
 
 			public Object evaluate(Object lhs, Object rhs) {
 				if (bothNumeric(lhs, rhs)) {
 					return ((Number) lhs).doubleValue() * ((Number) rhs).doubleValue();
 				} else {
-					throw new NumericValueRequired(
-							String.format(
-									"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
-									lhs, toString(), rhs));
+					throw NumericValueRequired.lazy(null,
+							"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
+							lhs, toString(), rhs);
 				}				
 			}
 
@@ -243,16 +221,15 @@ public final class Evaluator {
 
 		};
 
-		private static final BinaryOperation plus = new BinaryOperation() {
+		static final BinaryOperation plus = new BinaryOperation() {
 
 			public Object evaluate(Object lhs, Object rhs) {
 				if (bothNumeric(lhs, rhs)) {
 					return ((Number) lhs).doubleValue() + ((Number) rhs).doubleValue();
 				} else {
-					throw new NumericValueRequired(
-							String.format(
-									"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
-									lhs, toString(), rhs));
+					throw NumericValueRequired.lazy(null,
+							"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
+							lhs, toString(), rhs);
 				}
 			}
 
@@ -263,16 +240,15 @@ public final class Evaluator {
 
 		};
 
-		private static final BinaryOperation minus = new BinaryOperation() {
+		static final BinaryOperation minus = new BinaryOperation() {
 
 			public Object evaluate(Object lhs, Object rhs) {
 				if (bothNumeric(lhs, rhs)) {
 					return ((Number) lhs).doubleValue() - ((Number) rhs).doubleValue();
 				} else {
-					throw new NumericValueRequired(
-							String.format(
-									"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
-									lhs, toString(), rhs));
+					throw NumericValueRequired.lazy(null,
+							"Unable to determine binary expression: < %s %s %s >. Operation not defined for non-numeric values!",
+							lhs, toString(), rhs);
 				}
 			}
 
@@ -290,8 +266,12 @@ public final class Evaluator {
 						Evaluator.SOLVING_PRECISION);
 			} else if (bothString(lhs, rhs)) {
 				x = ((String) lhs).compareTo(((String) rhs));
+			} else if (lhs instanceof EncodedString && rhs instanceof EncodedString) {
+				x = EncodedString.compare((EncodedString) lhs, (EncodedString) rhs);
+			} else if (lhs instanceof EncodedString || rhs instanceof EncodedString) {
+				x = compareObjects(EncodedString.decode(lhs), EncodedString.decode(rhs));
 			} else {
-				throw new NumericValueRequired();
+				throw NumericValueRequired.lazy(null, null);
 			}
 			return x;
 		}
@@ -305,31 +285,10 @@ public final class Evaluator {
 		}
 
 		protected static Object tryParseDateToMillis(Object obj) {
-			if (obj instanceof Date) {
-				return ((Date) obj).getTime();
-			}
-			if (obj instanceof Number) {
-				// Comparison of a number (unix timestamp) with a date 
-				return obj;
-			}
-			if (obj instanceof String) {
-				ParsePosition pos = new ParsePosition(0);
-				Date date = getStandardDateFormat().parse((String) obj, pos);
-				if (date != null) {
-					return date.getTime();
-				} else {
-					pos.setIndex(0);
-					date = getOldDateFormat().parse((String) obj, pos);
-					if (date != null) {
-						return date.getTime();
-					}
-				}
-			}
-			// Fallback, we could not parse the date
-			return obj;
+			return DateParser.tryParseMillis(obj);
 		}
 
-		private static Object calcBinaryExpression(Object lhs, Object rhs, BinaryOperation op)
+		static Object calcBinaryExpression(Object lhs, Object rhs, BinaryOperation op)
 				throws EvaluatorException {
 
 			// Handle dates
@@ -341,185 +300,449 @@ public final class Evaluator {
 			return op.evaluate(lhs, rhs);
 		}
 
-		public Object visit(ExprLitNull node, Object data) {
-			return null;
+		private final NumericSemantics semantics;
+
+		/**
+		 * Binary operations indexed by the id of their node
+		 */
+		private final BinaryOperation[] operations = new BinaryOperation[ExpressionParserTreeConstants.jjtNodeName.length];
+
+		public Visitor() {
+			this(NumericSemantics.FLOATING_POINT);
+		}
+
+		public Visitor(NumericSemantics semantics) {
+			this.semantics = semantics;
+			operations[ExpressionParserTreeConstants.JJTPLUS] = plus;
+			operations[ExpressionParserTreeConstants.JJTMINUS] = minus;
+			operations[ExpressionParserTreeConstants.JJTMULT] = mult;
+			operations[ExpressionParserTreeConstants.JJTDIV] = div;
+			operations[ExpressionParserTreeConstants.JJTLESSTHAN] = lessThan;
+			operations[ExpressionParserTreeConstants.JJTATMOST] = atMost;
+			operations[ExpressionParserTreeConstants.JJTGREATERTHAN] = greaterThan;
+			operations[ExpressionParserTreeConstants.JJTATLEAST] = atLeast;
+			operations[ExpressionParserTreeConstants.JJTEQUAL] = equal;
+			for (int i = 0; i < operations.length; i++) {
+				if (operations[i] != null) {
+					operations[i] = operation(operations[i], semantics);
+				}
+			}
+		}
+
+		/**
+		 * @param operation
+		 *            one of the operations of this class
+		 * @param semantics
+		 * @return the operation treating numbers according to the semantics
+		 */
+		static BinaryOperation operation(BinaryOperation operation, NumericSemantics semantics) {
+			BinaryOperation precise = PreciseOperation.of(operation, semantics);
+			return semantics.isExactIntegers() ? IntegralOperation.of(operation, precise) : precise;
+		}
+
+		public NumericSemantics getSemantics() {
+			return semantics;
+		}
+
+		private static final Object[] NO_OPERANDS = new Object[0];
+
+		/**
+		 * Intermediate state of a node whose operands are being evaluated.
+		 */
+		private static final class Frame {
+
+			private final Node node;
+			private final Object[] operands;
+			private int count;
+			private Object accumulated;
+
+			private Frame(Node node) {
+				this.node = node;
+				this.operands = new Object[node.jjtGetNumChildren()];
+			}
+
+			/**
+			 * @return whether the next operand needs to be evaluated
+			 */
+			private boolean needsOperand() {
+				switch (node.getId()) {
+					case ExpressionParserTreeConstants.JJTAND :
+						// Short circuit AND
+						return count < operands.length && !Boolean.FALSE.equals(accumulated);
+					case ExpressionParserTreeConstants.JJTOR :
+						// Short circuit OR
+						return count < operands.length && !Boolean.TRUE.equals(accumulated);
+					case ExpressionParserTreeConstants.JJTIN :
+						// The set is not evaluated
+						return count < 1;
+					default :
+						return count < operands.length;
+				}
+			}
+
+			private void addOperand(Object value) {
+				switch (node.getId()) {
+					case ExpressionParserTreeConstants.JJTAND :
+						accumulated = count == 0 ? value : and(accumulated, value);
+						break;
+					case ExpressionParserTreeConstants.JJTOR :
+						accumulated = count == 0 ? value : or(accumulated, value);
+						break;
+					default :
+						break;
+				}
+				operands[count++] = value;
+			}
+
+		}
+
+		/**
+		 * Evaluates the node without recursion. Operands are evaluated from
+		 * left to right, the nodes whose operands are currently evaluated are
+		 * kept on an explicit stack.
+		 * 
+		 * @param node
+		 * @param provider
+		 * @return the value of the node
+		 * @throws ExpressionVisitorException
+		 */
+		Object evaluate(Node node, Provider provider) throws ExpressionVisitorException {
+			if (node.jjtGetNumChildren() == 0) {
+				return apply(node, null, provider);
+			}
+			if (hasLeafOperands(node)) {
+				return applyBinary(node, apply(node.jjtGetChild(0), null, provider),
+						apply(node.jjtGetChild(1), null, provider));
+			}
+			Deque<Frame> stack = new ArrayDeque<>();
+			Frame frame = new Frame(node);
+			while (true) {
+				if (frame.needsOperand()) {
+					Node child = frame.node.jjtGetChild(frame.count);
+					String identifier = identifierArgument(child);
+					if (identifier != null
+							&& !passesValues(provider.getFunctionProvider(), (String) ((ExprFunction) frame.node).jjtGetValue())) {
+						frame.addOperand(identifier);
+					} else if (child.jjtGetNumChildren() == 0) {
+						frame.addOperand(apply(child, null, provider));
+					} else if (hasLeafOperands(child)) {
+						// Most comparisons, no frame needed
+						frame.addOperand(applyBinary(child, apply(child.jjtGetChild(0), null, provider),
+								apply(child.jjtGetChild(1), null, provider)));
+					} else {
+						stack.push(frame);
+						frame = new Frame(child);
+					}
+				} else {
+					Object value = apply(frame.node, frame, provider);
+					if (stack.isEmpty()) {
+						return value;
+					}
+					frame = stack.pop();
+					frame.addOperand(value);
+				}
+			}
 		}
 
-		public Object visit(ExprLitBoolean node, Object data) {
-			return Boolean.valueOf((String) node.jjtGetValue());
+		/**
+		 * @param node
+		 * @param frame
+		 *            the evaluated operands or NULL for nodes without children
+		 * @param provider
+		 * @return the value of the node
+		 * @throws ExpressionVisitorException
+		 */
+		private Object apply(Node node, Frame frame, Provider provider) throws ExpressionVisitorException {
+			Object[] operands = frame != null ? frame.operands : NO_OPERANDS;
+			switch (node.getId()) {
+				case ExpressionParserTreeConstants.JJTLITNULL :
+					return null;
+				case ExpressionParserTreeConstants.JJTLITBOOLEAN :
+					return Boolean.valueOf((String) ((SimpleNode) node).jjtGetValue());
+				case ExpressionParserTreeConstants.JJTLITSTRING :
+					return unquote((String) ((SimpleNode) node).jjtGetValue());
+				case ExpressionParserTreeConstants.JJTLITDOUBLE :
+					return Double.parseDouble((String) ((SimpleNode) node).jjtGetValue());
+				case ExpressionParserTreeConstants.JJTLITINTEGER :
+					return Long.parseLong((String) ((SimpleNode) node).jjtGetValue());
+				case ExpressionParserTreeConstants.JJTVARIABLE :
+					return provider.getVariableProvider().getValue(((ExprVariable) node).getSymbol());
+				case ExpressionParserTreeConstants.JJTNOT :
+					if (operands[0] instanceof Boolean) {
+						return !((Boolean) operands[0]);
+					} else {
+						throw new EvaluatorException("'!' is not defined for non-boolean values!");
+					}
+				case ExpressionParserTreeConstants.JJTNEGATION :
+					if (operands[0] instanceof Number) {
+						if (semantics.isExactIntegers()) {
+							return IntegralOperation.negate((Number) operands[0]);
+						}
+						return Double.valueOf(-((Number) operands[0]).doubleValue());
+					} else {
+						throw new EvaluatorException("Negation is not defined for non-numeric values!");
+					}
+				case ExpressionParserTreeConstants.JJTDIV :
+				case ExpressionParserTreeConstants.JJTMULT :
+				case ExpressionParserTreeConstants.JJTMINUS :
+				case ExpressionParserTreeConstants.JJTPLUS :
+				case ExpressionParserTreeConstants.JJTATLEAST :
+				case ExpressionParserTreeConstants.JJTGREATERTHAN :
+				case ExpressionParserTreeConstants.JJTATMOST :
+				case ExpressionParserTreeConstants.JJTLESSTHAN :
+				case ExpressionParserTreeConstants.JJTNOTEQUAL :
+				case ExpressionParserTreeConstants.JJTEQUAL :
+					return applyBinary(node, operands[0], operands[1]);
+				case ExpressionParserTreeConstants.JJTIN :
+					return isMember(operands[0], ((ExprSet) node.jjtGetChild(1)).getValues(), semantics.getPrecision());
+				case ExpressionParserTreeConstants.JJTSET :
+					throw new ExpressionVisitorException("Sets are only allowed as right operand of 'in'!");
+				case ExpressionParserTreeConstants.JJTAND :
+				case ExpressionParserTreeConstants.JJTOR :
+					return frame.accumulated;
+				case ExpressionParserTreeConstants.JJTFUNCTION :
+					return provider.getFunctionProvider().calculate((String) ((ExprFunction) node).jjtGetValue(),
+							operands);
+				case ExpressionParserTreeConstants.JJTROOT :
+					if (operands.length != 1) {
+						throw new ExpressionVisitorException("Invalid expression " + Printer.printCanonical(node)
+								+ " should not have been parsed! Top level element is only allowed to have one child.");
+					}
+					return operands[0];
+				default :
+					throw new ExpressionVisitorException("No unamed nodes allowed!");
+			}
 		}
 
-		public Object visit(ExprLitString node, Object data) {
-			return unquote((String) node.jjtGetValue());
+		/**
+		 * @param node
+		 * @return whether the node is a binary operation on two leaves, which
+		 *         is evaluated without pushing a {@link Frame}
+		 */
+		private static boolean hasLeafOperands(Node node) {
+			switch (node.getId()) {
+				case ExpressionParserTreeConstants.JJTDIV :
+				case ExpressionParserTreeConstants.JJTMULT :
+				case ExpressionParserTreeConstants.JJTMINUS :
+				case ExpressionParserTreeConstants.JJTPLUS :
+				case ExpressionParserTreeConstants.JJTATLEAST :
+				case ExpressionParserTreeConstants.JJTGREATERTHAN :
+				case ExpressionParserTreeConstants.JJTATMOST :
+				case ExpressionParserTreeConstants.JJTLESSTHAN :
+				case ExpressionParserTreeConstants.JJTNOTEQUAL :
+				case ExpressionParserTreeConstants.JJTEQUAL :
+					return node.jjtGetChild(0).jjtGetNumChildren() == 0 && node.jjtGetChild(1).jjtGetNumChildren() == 0;
+				default :
+					return false;
+			}
 		}
 
-		private static String unquote(String literal) {
+		private Object applyBinary(Node node, Object lhs, Object rhs) throws ExpressionVisitorException {
+			switch (node.getId()) {
+				case ExpressionParserTreeConstants.JJTNOTEQUAL :
+					return !((Boolean) operations[ExpressionParserTreeConstants.JJTEQUAL].evaluate(lhs, rhs));
+				case ExpressionParserTreeConstants.JJTEQUAL :
+					return operations[ExpressionParserTreeConstants.JJTEQUAL].evaluate(lhs, rhs);
+				default :
+					return calcBinaryExpression(lhs, rhs, operations[node.getId()]);
+			}
+		}
+
+		static Object and(Object lhs, Object rhs) {
+			if (!(lhs instanceof Boolean && rhs instanceof Boolean)) {
+				throw BooleanValueRequired.lazy(null,
+						"Unable to determine < %s && %s >. Operation not defined for non-boolean values!", lhs, rhs);
+			}
+			return (Boolean) lhs && (Boolean) rhs;
+		}
+
+		static Object or(Object lhs, Object rhs) {
+			if (!(lhs instanceof Boolean && rhs instanceof Boolean)) {
+				throw BooleanValueRequired.lazy(null,
+						"Unable to determine < %s || %s >. Operation not defined for non-boolean values!", lhs, rhs);
+			}
+			return (Boolean) lhs || (Boolean) rhs;
+		}
+
+		static String unquote(String literal) {
 			return literal.substring(1, literal.length() - 1);
 		}
 
-		public Object visit(ExprLitDouble node, Object data) {
-			return Double.parseDouble((String) node.jjtGetValue());
+		/**
+		 * Same result as comparing the value for equality with every element
+		 * of the set.
+		 */
+		static boolean isMember(Object value, LiteralSet set) {
+			return isMember(value, set, Evaluator.SOLVING_PRECISION);
+		}
+
+		static boolean isMember(Object value, LiteralSet set, double precision) {
+			if (value instanceof Number) {
+				return set.containsNumber(((Number) value).doubleValue(), precision);
+			}
+			value = EncodedString.decode(value);
+			if (value instanceof String) {
+				return set.containsString((String) value);
+			} else if (value instanceof Boolean) {
+				return set.containsBoolean((Boolean) value);
+			} else if (value == null) {
+				return set.containsNull();
+			}
+			return false;
+		}
+
+		public Object visit(ExprLitNull node, Object data) throws ExpressionVisitorException {
+			return evaluate(node, (Provider) data);
+		}
+
+		public Object visit(ExprLitBoolean node, Object data) throws ExpressionVisitorException {
+			return evaluate(node, (Provider) data);
+		}
+
+		public Object visit(ExprLitString node, Object data) throws ExpressionVisitorException {
+			return evaluate(node, (Provider) data);
 		}
 
-		public Object visit(ExprLitInteger node, Object data) {
-			return Long.parseLong((String) node.jjtGetValue());
+		public Object visit(ExprLitDouble node, Object data) throws ExpressionVisitorException {
+			return evaluate(node, (Provider) data);
+		}
+
+		public Object visit(ExprLitInteger node, Object data) throws ExpressionVisitorException {
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprVariable node, Object data) throws ExpressionVisitorException {
-			Provider provider = (Provider) data;
-			return provider.getVariableProvider().getValue((String) node.jjtGetValue());
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprNot node, Object data) throws ExpressionVisitorException {
-			Object arg = node.jjtGetChild(0).jjtAccept(this, data);
-			if (arg instanceof Boolean) {
-				return !((Boolean) arg);
-			} else {
-				throw new EvaluatorException("'!' is not defined for non-boolean values!");
-			}
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprNegation node, Object data) throws ExpressionVisitorException {
-			Object arg = node.jjtGetChild(0).jjtAccept(this, data);
-			if (arg instanceof Number) {
-				return Double.valueOf(-((Number) arg).doubleValue());
-			} else {
-				throw new EvaluatorException("Negation is not defined for non-numeric values!");
-			}
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprDiv node, Object data) throws ExpressionVisitorException {
-			Object lhs = node.jjtGetChild(0).jjtAccept(this, data);
-			Object rhs = node.jjtGetChild(1).jjtAccept(this, data);
-			return calcBinaryExpression(lhs, rhs, div);
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprMult node, Object data) throws ExpressionVisitorException {
-			Object lhs = node.jjtGetChild(0).jjtAccept(this, data);
-			Object rhs = node.jjtGetChild(1).jjtAccept(this, data);
-			return calcBinaryExpression(lhs, rhs, mult);
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprMinus node, Object data) throws ExpressionVisitorException {
-			Object lhs = node.jjtGetChild(0).jjtAccept(this, data);
-			Object rhs = node.jjtGetChild(1).jjtAccept(this, data);
-			return calcBinaryExpression(lhs, rhs, minus);
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprPlus node, Object data) throws ExpressionVisitorException {
-			Object lhs = node.jjtGetChild(0).jjtAccept(this, data);
-			Object rhs = node.jjtGetChild(1).jjtAccept(this, data);
-			return calcBinaryExpression(lhs, rhs, plus);
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprAtLeast node, Object data) throws ExpressionVisitorException {
-			Object lhs = node.jjtGetChild(0).jjtAccept(this, data);
-			Object rhs = node.jjtGetChild(1).jjtAccept(this, data);
-			return calcBinaryExpression(lhs, rhs, atLeast);
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprGreaterThan node, Object data) throws ExpressionVisitorException {
-			Object lhs = node.jjtGetChild(0).jjtAccept(this, data);
-			Object rhs = node.jjtGetChild(1).jjtAccept(this, data);
-			return calcBinaryExpression(lhs, rhs, greaterThan);
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprAtMost node, Object data) throws ExpressionVisitorException {
-			Object lhs = node.jjtGetChild(0).jjtAccept(this, data);
-			Object rhs = node.jjtGetChild(1).jjtAccept(this, data);
-			return calcBinaryExpression(lhs, rhs, atMost);
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprLessThan node, Object data) throws ExpressionVisitorException {
-			Object lhs = node.jjtGetChild(0).jjtAccept(this, data);
-			Object rhs = node.jjtGetChild(1).jjtAccept(this, data);
-			return calcBinaryExpression(lhs, rhs, lessThan);
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprNotEqual node, Object data) throws ExpressionVisitorException {
-			Object lhs = node.jjtGetChild(0).jjtAccept(this, data);
-			Object rhs = node.jjtGetChild(1).jjtAccept(this, data);
-			return !((Boolean) equal.evaluate(lhs, rhs));
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprEqual node, Object data) throws ExpressionVisitorException {
-			Object lhs = node.jjtGetChild(0).jjtAccept(this, data);
-			Object rhs = node.jjtGetChild(1).jjtAccept(this, data);
-			return equal.evaluate(lhs, rhs);
+			return evaluate(node, (Provider) data);
 		}
 
-		public Object visit(ExprAnd node, Object data) throws ExpressionVisitorException {
-			Object lhs = node.jjtGetChild(0).jjtAccept(this, data);
-
-			if (lhs instanceof Boolean && !(Boolean) lhs) {
-				// Short circuit AND
-				return Boolean.FALSE;
-			} else {
-				Object rhs = node.jjtGetChild(1).jjtAccept(this, data);
-
-				if (!(lhs instanceof Boolean && rhs instanceof Boolean)) {
-					throw new BooleanValueRequired(
-							String.format(
-									"Unable to determine < %s || %s >. Operation not defined for non-boolean values!",
-									lhs, rhs));
-				}
+		public Object visit(ExprIn node, Object data) throws ExpressionVisitorException {
+			return evaluate(node, (Provider) data);
+		}
 
-				return (Boolean) lhs && (Boolean) rhs;
+		public Object visit(ExprSet node, Object data) throws ExpressionVisitorException {
+			return evaluate(node, (Provider) data);
+		}
 
-			}
+		public Object visit(ExprAnd node, Object data) throws ExpressionVisitorException {
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprOr node, Object data) throws ExpressionVisitorException {
-			Object lhs = node.jjtGetChild(0).jjtAccept(this, data);
-
-			if (lhs instanceof Boolean && (Boolean) lhs) {
-				// Short circuit OR
-				return Boolean.TRUE;
-			} else {
-				Object rhs = node.jjtGetChild(1).jjtAccept(this, data);
-
-				if (!(lhs instanceof Boolean && rhs instanceof Boolean)) {
-					throw new BooleanValueRequired(
-							String.format(
-									"Unable to determine < %s || %s >. Operation not defined for non-boolean values!",
-									lhs, rhs));
-				}
-
-				return (Boolean) lhs || (Boolean) rhs;
-
-			}
+			return evaluate(node, (Provider) data);
 		}
 
 		public Object visit(ExprRoot node, Object data) throws ExpressionVisitorException {
-			if (node.jjtGetNumChildren() > 1) {
-				throw new ExpressionVisitorException("Invalid expression " + Printer.printCanonical(node)
-						+ " should not have been parsed! Top level element is only allowed to have one child.");
-			}
-			return node.jjtGetChild(0).jjtAccept(this, data);
+			return evaluate(node, (Provider) data);
 		}
 
-		public Object visit(SimpleNode node, Object data) throws ExpressionVisitorException {
-			throw new ExpressionVisitorException("No unamed nodes allowed!");
+		public Object visit(ExprFunction node, Object data) throws ExpressionVisitorException {
+			return evaluate(node, (Provider) data);
 		}
 
-		public Object visit(ExprFunction node, Object data) throws ExpressionVisitorException {
-			Provider provider = (Provider) data;
-			Object[] params = new Object[node.jjtGetNumChildren()];
-			for (int i = 0; i < node.jjtGetNumChildren(); ++i) {
-				Node child = node.jjtGetChild(i);
-				if (child instanceof ExprVariable) {
-					// Use the identifier instead of resolving the variable
-					params[i] = ((ExprVariable) child).jjtGetValue();
-				} else {
-					params[i] = child.jjtAccept(this, data);
-				}
-			}
-			return provider.getFunctionProvider().calculate((String) node.jjtGetValue(), params);
+		public Object visit(SimpleNode node, Object data) throws ExpressionVisitorException {
+			return evaluate(node, (Provider) data);
 		}
 
 	}
 
+	/**
+	 * Functions receive the identifier of variables passed as argument, except
+	 * for the functions that {@link #passesValues(FunctionProvider, String)}.
+	 * All backends resolve arguments through this method and
+	 * {@link #passesValues(FunctionProvider, String)}.
+	 *
+	 * @param node
+	 * @return the identifier that is passed instead of the value of the
+	 *         variable, or NULL if the node is not a variable passed to a
+	 *         function
+	 */
+	static String identifierArgument(Node node) {
+		if (node instanceof ExprVariable && node.jjtGetParent() instanceof ExprFunction) {
+			return (String) ((ExprVariable) node).jjtGetValue();
+		}
+		return null;
+	}
+
+	/**
+	 * Functions receive the identifier of variables passed as argument, except
+	 * for the functions for which {@link FunctionProvider#passesValues(String)}
+	 * holds.
+	 *
+	 * @param functions
+	 *            may be NULL
+	 * @param function
+	 * @return whether variables passed to the function are resolved
+	 */
+	static boolean passesValues(FunctionProvider functions, String function) {
+		return functions != null && functions.passesValues(function);
+	}
+
 	private static final Visitor VISITOR = new Visitor();
+	private static final Visitor EXACT_INTEGER_VISITOR = new Visitor(NumericSemantics.EXACT_INTEGERS);
+	private static final Visitor KLEENE_VISITOR = new KleeneVisitor();
+
+	/**
+	 * Visitors of other semantics, the number of cached visitors is bounded
+	 * in case an application creates a new precision for every evaluation
+	 */
+	private static final ConcurrentMap<NumericSemantics, Visitor> SEMANTICS_VISITORS = new ConcurrentHashMap<>();
+	private static final int MAX_SEMANTICS_VISITORS = 32;
+
+	private static final VariableTypeProvider NO_TYPES = new VariableTypeProvider() {
+
+		public Class<?> getType(String variableName) {
+			return null;
+		}
+
+	};
 
 	private Evaluator() {
 		super();
@@ -527,8 +750,48 @@ public final class Evaluator {
 
 	public static Object evaluate(GuardExpression expression, final VariableProvider variableProvider,
 			final FunctionProvider functionProvider) throws EvaluatorException {
+		return evaluate(expression, variableProvider, functionProvider, VISITOR);
+	}
+
+	/**
+	 * Like {@link #evaluate(GuardExpression, VariableProvider, FunctionProvider)},
+	 * but treats numbers according to the given semantics.
+	 * 
+	 * @param expression
+	 * @param variableProvider
+	 * @param functionProvider
+	 * @param semantics
+	 * @return the value of the expression
+	 * @throws EvaluatorException
+	 */
+	public static Object evaluate(GuardExpression expression, VariableProvider variableProvider,
+			FunctionProvider functionProvider, NumericSemantics semantics) throws EvaluatorException {
+		return evaluate(expression, variableProvider, functionProvider, visitor(semantics));
+	}
+
+	private static Visitor visitor(NumericSemantics semantics) {
+		if (semantics.equals(NumericSemantics.FLOATING_POINT)) {
+			return VISITOR;
+		} else if (semantics.equals(NumericSemantics.EXACT_INTEGERS)) {
+			return EXACT_INTEGER_VISITOR;
+		}
+		Visitor visitor = SEMANTICS_VISITORS.get(semantics);
+		if (visitor == null) {
+			visitor = new Visitor(semantics);
+			if (SEMANTICS_VISITORS.size() < MAX_SEMANTICS_VISITORS) {
+				Visitor existing = SEMANTICS_VISITORS.putIfAbsent(semantics, visitor);
+				if (existing != null) {
+					visitor = existing;
+				}
+			}
+		}
+		return visitor;
+	}
+
+	static Object evaluate(GuardExpression expression, final VariableProvider variableProvider,
+			final FunctionProvider functionProvider, Visitor visitor) throws EvaluatorException {
 		try {
-			return expression.visit(VISITOR, new Provider() {
+			return expression.visit(visitor, new Provider() {
 
 				public VariableProvider getVariableProvider() {
 					return variableProvider;
@@ -540,8 +803,160 @@ public final class Evaluator {
 			});
 		} catch (ExpressionVisitorException | EvaluatorException e) {
 			// Add context information
-			throw new EvaluatorException("Error trying to evaluate expression " + expression.toCanonicalString(), e);
+			throw EvaluatorException.lazy(e, "Error trying to evaluate expression %s", expression.toCanonicalString());
+		}
+	}
+
+	/**
+	 * Evaluates the expression without throwing for data that does not fit
+	 * the expression, e.g., bindings of incomplete events. Errors are returned
+	 * as {@link EvaluationError}, whose details are only formatted when they
+	 * are read. The evaluation runs inside
+	 * {@link EvaluatorException#beginLightweight()}, so errors are raised
+	 * without stack trace and this is cheap even if many bindings fail.
+	 * 
+	 * @param expression
+	 * @param variableProvider
+	 * @param functionProvider
+	 * @return the value of the expression or an {@link EvaluationError}
+	 */
+	public static Object tryEvaluate(GuardExpression expression, VariableProvider variableProvider,
+			FunctionProvider functionProvider) {
+		boolean lightweight = EvaluatorException.beginLightweight();
+		try {
+			return expression.evaluate(variableProvider, functionProvider);
+		} catch (EvaluatorException e) {
+			return EvaluationError.of(e);
+		} finally {
+			EvaluatorException.endLightweight(lightweight);
+		}
+	}
+
+	/**
+	 * Evaluates a boolean expression for a partial binding with Kleene's
+	 * strong three-valued logic. Comparisons and other operands that read a
+	 * variable without value are {@link Truth#UNKNOWN}, <code>&&</code>,
+	 * <code>||</code> and <code>!</code> propagate unknown operands unless the
+	 * known operands already decide the result. Thus, the result is
+	 * {@link Truth#TRUE} or {@link Truth#FALSE} only if it does not depend on
+	 * the missing variables. The converse does not hold, since operands are
+	 * not related to each other, e.g., <code>x > 1 || x <= 1</code> is
+	 * {@link Truth#UNKNOWN} without a value for x.
+	 * 
+	 * @param expression
+	 * @param variableProvider
+	 *            throws a {@link VariableNotFoundException} for unknown
+	 *            variables
+	 * @param functionProvider
+	 * @return the truth value of the expression
+	 * @throws EvaluatorException
+	 *             for other errors, e.g., a non-boolean result
+	 */
+	public static Truth evaluateKleene(GuardExpression expression, VariableProvider variableProvider,
+			FunctionProvider functionProvider) throws EvaluatorException {
+		// Missing variables are expected and caught by the visitor
+		boolean lightweight = EvaluatorException.beginLightweight();
+		try {
+			return (Truth) evaluate(expression, variableProvider, functionProvider, KLEENE_VISITOR);
+		} finally {
+			EvaluatorException.endLightweight(lightweight);
 		}
 	}
 
+	/**
+	 * Lowers the expression into a {@link GuardProgram} that is executed by a
+	 * register machine instead of visiting the syntax tree. The program
+	 * evaluates to the same result as
+	 * {@link #evaluate(GuardExpression, VariableProvider, FunctionProvider)}.
+	 * 
+	 * @param expression
+	 * @return the compiled program
+	 */
+	public static GuardProgram compile(GuardExpression expression) {
+		return ProgramCompiler.compile(expression, NumericSemantics.FLOATING_POINT);
+	}
+
+	/**
+	 * Like {@link #compile(GuardExpression)}, but compares numbers with the
+	 * precision of the given semantics.
+	 * 
+	 * @param expression
+	 * @param semantics
+	 * @return the compiled program
+	 * @throws IllegalArgumentException
+	 *             for {@link NumericSemantics#isExactIntegers()}, which is not
+	 *             supported by programs
+	 */
+	public static GuardProgram compile(GuardExpression expression, NumericSemantics semantics) {
+		return ProgramCompiler.compile(expression, semantics);
+	}
+
+	/**
+	 * Type checks the expression against the declared variable types and
+	 * translates it into a {@link PreparedExpression} that uses specialized
+	 * operations for operands of known type.
+	 * 
+	 * @param expression
+	 * @param typeProvider
+	 * @return the prepared expression
+	 * @throws TypeCheckException
+	 *             in case the expression is ill-typed
+	 */
+	public static PreparedExpression prepare(GuardExpression expression, VariableTypeProvider typeProvider)
+			throws TypeCheckException {
+		return prepare(expression, typeProvider, PrepareOptions.DEFAULT);
+	}
+
+	/**
+	 * Like {@link #prepare(GuardExpression, VariableTypeProvider)}, but with
+	 * the treatment of numbers, the encoding of string literals, the
+	 * resolution of function calls and the specialization of untyped operands
+	 * given by the options.
+	 * 
+	 * @param expression
+	 * @param typeProvider
+	 * @param options
+	 * @return the prepared expression
+	 * @throws TypeCheckException
+	 *             in case the expression is ill-typed, calls an unknown
+	 *             function of the {@link FunctionRegistry} of the options or
+	 *             calls it with arguments that do not match its signature
+	 */
+	public static PreparedExpression prepare(GuardExpression expression, VariableTypeProvider typeProvider,
+			PrepareOptions options) throws TypeCheckException {
+		return ExpressionCompiler.prepare(expression, typeProvider, options);
+	}
+
+	/**
+	 * Translates the expression into a {@link PreparedExpression} without
+	 * declared variable types. Instead, every comparison and arithmetic
+	 * operation on operands of unknown type specializes itself on the runtime
+	 * types it observes, e.g., to a comparison of two {@link Long} values, and
+	 * falls back to the generic semantics once the types change.
+	 * 
+	 * @param expression
+	 * @return the prepared expression
+	 * @throws TypeCheckException
+	 *             in case the expression is ill-typed regardless of the
+	 *             variable types
+	 */
+	public static PreparedExpression prepareAdaptive(GuardExpression expression) throws TypeCheckException {
+		return prepareAdaptive(expression, NO_TYPES);
+	}
+
+	/**
+	 * Like {@link #prepareAdaptive(GuardExpression)}, but uses the declared
+	 * variable types where they are known.
+	 * 
+	 * @param expression
+	 * @param typeProvider
+	 * @return the prepared expression
+	 * @throws TypeCheckException
+	 *             in case the expression is ill-typed
+	 */
+	public static PreparedExpression prepareAdaptive(GuardExpression expression, VariableTypeProvider typeProvider)
+			throws TypeCheckException {
+		return prepare(expression, typeProvider, PrepareOptions.DEFAULT.withAdaptive(true));
+	}
+
 }
@@ -0,0 +1,660 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.processmining.datapetrinets.exception.InvalidArgumentException;
+import org.processmining.datapetrinets.exception.TypeCheckException;
+import org.processmining.datapetrinets.expression.Evaluator.BinaryOperation;
+import org.processmining.datapetrinets.expression.PreparedNode.AndNode;
+import org.processmining.datapetrinets.expression.PreparedNode.Arithmetic;
+import org.processmining.datapetrinets.expression.PreparedNode.Comparison;
+import org.processmining.datapetrinets.expression.PreparedNode.BoundFunctionNode;
+import org.processmining.datapetrinets.expression.PreparedNode.ConstantNode;
+import org.processmining.datapetrinets.expression.PreparedNode.DoubleArithmeticNode;
+import org.processmining.datapetrinets.expression.PreparedNode.DoubleBinaryFunctionNode;
+import org.processmining.datapetrinets.expression.PreparedNode.DoubleComparisonNode;
+import org.processmining.datapetrinets.expression.PreparedNode.DoubleEqualNode;
+import org.processmining.datapetrinets.expression.PreparedNode.DoubleNegationNode;
+import org.processmining.datapetrinets.expression.PreparedNode.DoubleUnaryFunctionNode;
+import org.processmining.datapetrinets.expression.PreparedNode.EncodedInNode;
+import org.processmining.datapetrinets.expression.PreparedNode.EncodedLiteralEqualNode;
+import org.processmining.datapetrinets.expression.PreparedNode.ExactComparisonNode;
+import org.processmining.datapetrinets.expression.PreparedNode.ExactEqualNode;
+import org.processmining.datapetrinets.expression.PreparedNode.FunctionNode;
+import org.processmining.datapetrinets.expression.PreparedNode.GenericBinaryNode;
+import org.processmining.datapetrinets.expression.PreparedNode.GenericEqualNode;
+import org.processmining.datapetrinets.expression.PreparedNode.GenericNegationNode;
+import org.processmining.datapetrinets.expression.PreparedNode.InNode;
+import org.processmining.datapetrinets.expression.PreparedNode.InterpretedNode;
+import org.processmining.datapetrinets.expression.PreparedNode.IntegralComparisonNode;
+import org.processmining.datapetrinets.expression.PreparedNode.IntegralEqualNode;
+import org.processmining.datapetrinets.expression.PreparedNode.MillisNode;
+import org.processmining.datapetrinets.expression.PreparedNode.NotNode;
+import org.processmining.datapetrinets.expression.PreparedNode.NumericInNode;
+import org.processmining.datapetrinets.expression.PreparedNode.ObjectEqualNode;
+import org.processmining.datapetrinets.expression.PreparedNode.OrNode;
+import org.processmining.datapetrinets.expression.PreparedNode.SpecializingArithmeticNode;
+import org.processmining.datapetrinets.expression.PreparedNode.SpecializingComparisonNode;
+import org.processmining.datapetrinets.expression.PreparedNode.SpecializingEqualNode;
+import org.processmining.datapetrinets.expression.PreparedNode.StringComparisonNode;
+import org.processmining.datapetrinets.expression.PreparedNode.StringPredicateNode;
+import org.processmining.datapetrinets.expression.PreparedNode.VariableNode;
+import org.processmining.datapetrinets.expression.syntax.ExprAnd;
+import org.processmining.datapetrinets.expression.syntax.ExprAtLeast;
+import org.processmining.datapetrinets.expression.syntax.ExprAtMost;
+import org.processmining.datapetrinets.expression.syntax.ExprDiv;
+import org.processmining.datapetrinets.expression.syntax.ExprEqual;
+import org.processmining.datapetrinets.expression.syntax.ExprFunction;
+import org.processmining.datapetrinets.expression.syntax.ExprGreaterThan;
+import org.processmining.datapetrinets.expression.syntax.ExprIn;
+import org.processmining.datapetrinets.expression.syntax.ExprLessThan;
+import org.processmining.datapetrinets.expression.syntax.ExprLitBoolean;
+import org.processmining.datapetrinets.expression.syntax.ExprLitDouble;
+import org.processmining.datapetrinets.expression.syntax.ExprLitInteger;
+import org.processmining.datapetrinets.expression.syntax.ExprLitNull;
+import org.processmining.datapetrinets.expression.syntax.ExprLitString;
+import org.processmining.datapetrinets.expression.syntax.ExprMinus;
+import org.processmining.datapetrinets.expression.syntax.ExprMult;
+import org.processmining.datapetrinets.expression.syntax.ExprNegation;
+import org.processmining.datapetrinets.expression.syntax.ExprNot;
+import org.processmining.datapetrinets.expression.syntax.ExprNotEqual;
+import org.processmining.datapetrinets.expression.syntax.ExprOr;
+import org.processmining.datapetrinets.expression.syntax.ExprPlus;
+import org.processmining.datapetrinets.expression.syntax.ExprRoot;
+import org.processmining.datapetrinets.expression.syntax.ExprSet;
+import org.processmining.datapetrinets.expression.syntax.ExprVariable;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserDefaultVisitor;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserVisitor;
+import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+import org.processmining.datapetrinets.expression.syntax.LiteralSet;
+import org.processmining.datapetrinets.expression.syntax.Node;
+import org.processmining.datapetrinets.expression.syntax.SimpleNode;
+
+/**
+ * Translates the syntax tree of a type checked expression into a tree of
+ * {@link PreparedNode}, choosing specialized nodes wherever the static types of
+ * the operands are known.
+ *
+ * @author F. Mannhardt
+ *
+ */
+final class ExpressionCompiler implements ExpressionParserVisitor {
+
+	/**
+	 * Prepared nodes evaluate their operands recursively, expressions with
+	 * more levels are evaluated by the {@link Evaluator} instead.
+	 */
+	static final int MAX_PREPARED_HEIGHT = 256;
+
+	/**
+	 * @param guard
+	 * @param typeProvider
+	 * @param options
+	 * @return the prepared expression
+	 * @throws TypeCheckException
+	 */
+	static PreparedExpression prepare(GuardExpression guard, VariableTypeProvider typeProvider, PrepareOptions options)
+			throws TypeCheckException {
+		ExpressionCompiler compiler = new ExpressionCompiler(
+				TypeChecker.check(guard, typeProvider, options.getFunctions()), options.getDictionary(),
+				options.isAdaptive(), options.getSemantics(), options.getFunctions());
+		try {
+			PreparedNode root = (PreparedNode) guard.visit(compiler, null);
+			if (compiler.height > MAX_PREPARED_HEIGHT) {
+				// Does not use the specialized nodes, but evaluates without recursion
+				root = new InterpretedNode(guard, options.getSemantics(), options.getFunctions());
+			}
+			return new PreparedExpression(guard, compiler.rootType, options.getSemantics(), root);
+		} catch (ExpressionVisitorException e) {
+			throw new TypeCheckException("Could not prepare expression " + guard.toCanonicalString(), e);
+		}
+	}
+
+	private final Map<Node, ExpressionType> types;
+	private final StringDictionary dictionary;
+	private final boolean adaptive;
+	private final NumericSemantics semantics;
+	private final boolean exactIntegers;
+	private final FunctionRegistry functions;
+	private ExpressionType rootType = ExpressionType.ANY;
+
+	// Nodes are compiled bottom-up, the operands of a node are looked up here
+	private final Map<Node, PreparedNode> compiled = new IdentityHashMap<>();
+	private final Map<Node, Integer> numericProperties = new IdentityHashMap<>();
+	private final Map<Node, Integer> heights = new IdentityHashMap<>();
+	private int height = 0;
+
+	private static final int INTEGRAL = 1;
+	private static final int FLOATING = 2;
+	private static final int INTEGER_VALUED = 4;
+
+	private final ExpressionParserVisitor bottomUp = new ExpressionParserDefaultVisitor() {
+
+		public Object defaultVisit(SimpleNode node, Object data) throws ExpressionVisitorException {
+			if (node instanceof ExprSet && node.jjtGetParent() instanceof ExprIn) {
+				// Translated together with the operation
+				return data;
+			}
+			recordNumericProperties(node);
+			recordHeight(node);
+			compiled.put(node, (PreparedNode) node.jjtAccept(ExpressionCompiler.this, data));
+			return data;
+		}
+
+	};
+
+	private ExpressionCompiler(Map<Node, ExpressionType> types, StringDictionary dictionary, boolean adaptive,
+			NumericSemantics semantics, FunctionRegistry functions) {
+		this.types = types;
+		this.dictionary = dictionary;
+		this.adaptive = adaptive;
+		this.semantics = semantics;
+		this.exactIntegers = semantics.isExactIntegers();
+		this.functions = functions;
+	}
+
+	PreparedNode compile(Node node) throws ExpressionVisitorException {
+		PreparedNode prepared = compiled.get(node);
+		if (prepared == null) {
+			// Compiles the operands before their operation, so that the translation does not recurse
+			TreeTraversal.postOrder(node, bottomUp, null);
+			prepared = compiled.get(node);
+		}
+		return prepared;
+	}
+
+	private ExpressionType typeOf(Node node) {
+		ExpressionType type = types.get(node);
+		return type != null ? type : ExpressionType.ANY;
+	}
+
+	/**
+	 * @param node
+	 * @return the milliseconds since epoch if the node is a string literal
+	 *         denoting a date, otherwise NULL
+	 */
+	private static Long dateLiteral(Node node) {
+		if (node instanceof ExprLitString) {
+			String literal = Evaluator.Visitor.unquote((String) ((ExprLitString) node).jjtGetValue());
+			long millis = DateParser.parseMillis(literal);
+			if (millis != DateParser.NOT_A_DATE) {
+				return millis;
+			}
+		}
+		return null;
+	}
+
+	private static boolean isTemporal(ExpressionType type, ExpressionType other) {
+		// Strings are converted to dates if the other operand is a date
+		return type.isTemporal() || (type == ExpressionType.STRING && other == ExpressionType.DATE);
+	}
+
+	private PreparedNode temporalOperand(Node node, boolean anyDate) throws ExpressionVisitorException {
+		if (anyDate) {
+			Long millis = dateLiteral(node);
+			if (millis != null) {
+				return new ConstantNode(millis);
+			}
+		}
+		PreparedNode operand = compile(node);
+		ExpressionType type = typeOf(node);
+		if (anyDate && (type == ExpressionType.DATE || type == ExpressionType.STRING)) {
+			return new MillisNode(operand);
+		}
+		return operand;
+	}
+
+	private EncodedString encodeLiteral(ExprLitString literal) {
+		return dictionary.encode(Evaluator.Visitor.unquote((String) literal.jjtGetValue()));
+	}
+
+	private PreparedNode stringOperand(Node node) throws ExpressionVisitorException {
+		if (dictionary != null && node instanceof ExprLitString) {
+			return new ConstantNode(encodeLiteral((ExprLitString) node));
+		}
+		return compile(node);
+	}
+
+	/**
+	 * Records the numeric properties of the node, which are derived from the
+	 * recorded properties of its operands.
+	 */
+	private void recordNumericProperties(Node node) {
+		int properties = 0;
+		if (deriveIntegral(node)) {
+			properties |= INTEGRAL;
+		}
+		if (deriveFloating(node)) {
+			properties |= FLOATING;
+		}
+		if (deriveIntegerValued(node)) {
+			properties |= INTEGER_VALUED;
+		}
+		numericProperties.put(node, properties);
+	}
+
+	private void recordHeight(Node node) {
+		int nodeHeight = 1;
+		for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+			Integer childHeight = heights.get(node.jjtGetChild(i));
+			if (childHeight != null) {
+				nodeHeight = Math.max(nodeHeight, childHeight + 1);
+			}
+		}
+		heights.put(node, nodeHeight);
+		height = Math.max(height, nodeHeight);
+	}
+
+	private boolean hasProperty(Node node, int property) {
+		Integer properties = numericProperties.get(node);
+		return properties != null && (properties & property) != 0;
+	}
+
+	/**
+	 * @return whether the node evaluates to an integral value under
+	 *         {@link NumericSemantics#EXACT_INTEGERS}, unless the result
+	 *         overflows
+	 */
+	private boolean isIntegral(Node node) {
+		return hasProperty(node, INTEGRAL);
+	}
+
+	private boolean deriveIntegral(Node node) {
+		if (typeOf(node) == ExpressionType.LONG) {
+			return true;
+		}
+		if (exactIntegers && (node instanceof ExprPlus || node instanceof ExprMinus || node instanceof ExprMult)) {
+			return isIntegral(node.jjtGetChild(0)) && isIntegral(node.jjtGetChild(1));
+		}
+		return exactIntegers && node instanceof ExprNegation && isIntegral(node.jjtGetChild(0));
+	}
+
+	/**
+	 * @return whether the node evaluates to a double value, i.e., it is of
+	 *         static type {@link ExpressionType#DOUBLE} and cannot evaluate to
+	 *         an integral value under {@link NumericSemantics#EXACT_INTEGERS}
+	 */
+	private boolean isFloating(Node node) {
+		return hasProperty(node, FLOATING);
+	}
+
+	private boolean deriveFloating(Node node) {
+		if (node instanceof ExprPlus || node instanceof ExprMinus || node instanceof ExprMult
+				|| node instanceof ExprDiv) {
+			return isFloating(node.jjtGetChild(0)) || isFloating(node.jjtGetChild(1));
+		} else if (node instanceof ExprNegation) {
+			return isFloating(node.jjtGetChild(0));
+		}
+		return typeOf(node) == ExpressionType.DOUBLE;
+	}
+
+	/**
+	 * @return whether numeric operands of the operation are always evaluated
+	 *         as double values
+	 */
+	private boolean isDoubleOperation(Node lhs, Node rhs) {
+		return !exactIntegers || isFloating(lhs) || isFloating(rhs);
+	}
+
+	/**
+	 * @return the value of a numeric literal, possibly negated, otherwise NULL
+	 */
+	private static Double numericLiteral(Node node) {
+		boolean negated = false;
+		while (node instanceof ExprNegation) {
+			negated = !negated;
+			node = node.jjtGetChild(0);
+		}
+		double literal;
+		if (node instanceof ExprLitInteger) {
+			literal = Long.parseLong((String) ((ExprLitInteger) node).jjtGetValue());
+		} else if (node instanceof ExprLitDouble) {
+			literal = Double.parseDouble((String) ((ExprLitDouble) node).jjtGetValue());
+		} else {
+			return null;
+		}
+		return negated ? -literal : literal;
+	}
+
+	/**
+	 * @return whether the node evaluates to a double value without fractional
+	 *         part (or to an infinite value or NaN) when evaluated as double
+	 */
+	private boolean isIntegerValued(Node node) {
+		return hasProperty(node, INTEGER_VALUED);
+	}
+
+	private boolean deriveIntegerValued(Node node) {
+		ExpressionType type = typeOf(node);
+		if (type == ExpressionType.LONG || type == ExpressionType.DATE) {
+			return true;
+		} else if (node instanceof ExprPlus || node instanceof ExprMinus || node instanceof ExprMult) {
+			return isIntegerValued(node.jjtGetChild(0)) && isIntegerValued(node.jjtGetChild(1));
+		} else if (node instanceof ExprNegation) {
+			return isIntegerValued(node.jjtGetChild(0));
+		}
+		Double literal = numericLiteral(node);
+		return literal != null && literal == Math.rint(literal);
+	}
+
+	/**
+	 * @return whether the node is a numeric literal that differs from every
+	 *         integer by more than the precision
+	 */
+	private boolean isDistantFromIntegers(Node node) {
+		Double literal = numericLiteral(node);
+		return literal != null && Math.abs(literal - Math.rint(literal)) > semantics.getPrecision();
+	}
+
+	/**
+	 * @return whether comparing the operands as double values with the
+	 *         precision of the semantics gives the same result as comparing
+	 *         them exactly
+	 */
+	private boolean isExactComparison(Node lhs, Node rhs) {
+		if (semantics.isExactComparison()) {
+			return true;
+		} else if (isIntegerValued(lhs)) {
+			return isIntegerValued(rhs) ? semantics.isExactForIntegers() : isDistantFromIntegers(rhs);
+		}
+		return isIntegerValued(rhs) && isDistantFromIntegers(lhs);
+	}
+
+	private BinaryOperation operation(BinaryOperation operation) {
+		return Evaluator.Visitor.operation(operation, semantics);
+	}
+
+	private GenericBinaryNode genericBinary(Node lhs, Node rhs, BinaryOperation operation)
+			throws ExpressionVisitorException {
+		return new GenericBinaryNode(operation(operation), compile(lhs), compile(rhs), dateLiteral(lhs),
+				dateLiteral(rhs));
+	}
+
+	private PreparedNode arithmetic(SimpleNode node, Arithmetic operation, BinaryOperation fallback)
+			throws ExpressionVisitorException {
+		Node lhs = node.jjtGetChild(0);
+		Node rhs = node.jjtGetChild(1);
+		ExpressionType lhsType = typeOf(lhs);
+		ExpressionType rhsType = typeOf(rhs);
+		if (exactIntegers && isIntegral(lhs) && isIntegral(rhs)) {
+			return genericBinary(lhs, rhs, fallback);
+		} else if (isTemporal(lhsType, rhsType) && isTemporal(rhsType, lhsType) && isDoubleOperation(lhs, rhs)) {
+			boolean anyDate = lhsType == ExpressionType.DATE || rhsType == ExpressionType.DATE;
+			return new DoubleArithmeticNode(operation, temporalOperand(lhs, anyDate), temporalOperand(rhs, anyDate));
+		} else if (adaptive && !exactIntegers) {
+			// The specializations compute double values, exact integers are left to the fallback
+			return new SpecializingArithmeticNode(operation, genericBinary(lhs, rhs, fallback));
+		}
+		return genericBinary(lhs, rhs, fallback);
+	}
+
+	private PreparedNode comparison(SimpleNode node, Comparison comparison, BinaryOperation fallback)
+			throws ExpressionVisitorException {
+		Node lhs = node.jjtGetChild(0);
+		Node rhs = node.jjtGetChild(1);
+		ExpressionType lhsType = typeOf(lhs);
+		ExpressionType rhsType = typeOf(rhs);
+		if (exactIntegers && isIntegral(lhs) && isIntegral(rhs)) {
+			return new IntegralComparisonNode(comparison, operation(fallback), compile(lhs), compile(rhs));
+		} else if (isTemporal(lhsType, rhsType) && isTemporal(rhsType, lhsType) && isDoubleOperation(lhs, rhs)) {
+			boolean anyDate = lhsType == ExpressionType.DATE || rhsType == ExpressionType.DATE;
+			if (isExactComparison(lhs, rhs)) {
+				return new ExactComparisonNode(comparison, temporalOperand(lhs, anyDate),
+						temporalOperand(rhs, anyDate));
+			}
+			return new DoubleComparisonNode(comparison, semantics.getPrecision(), temporalOperand(lhs, anyDate),
+					temporalOperand(rhs, anyDate));
+		} else if (lhsType == ExpressionType.STRING && rhsType == ExpressionType.STRING) {
+			return new StringComparisonNode(comparison, stringOperand(lhs), stringOperand(rhs));
+		} else if (adaptive) {
+			return new SpecializingComparisonNode(comparison, genericBinary(lhs, rhs, fallback), semantics);
+		}
+		return genericBinary(lhs, rhs, fallback);
+	}
+
+	private PreparedNode equality(SimpleNode node, boolean negated) throws ExpressionVisitorException {
+		Node lhs = node.jjtGetChild(0);
+		Node rhs = node.jjtGetChild(1);
+		ExpressionType lhsType = typeOf(lhs);
+		ExpressionType rhsType = typeOf(rhs);
+		if (exactIntegers && isIntegral(lhs) && isIntegral(rhs)) {
+			return new IntegralEqualNode(negated, operation(Evaluator.Visitor.equal), compile(lhs), compile(rhs));
+		} else if (lhsType.isNumeric() && rhsType.isNumeric() && isDoubleOperation(lhs, rhs)) {
+			if (isExactComparison(lhs, rhs)) {
+				return new ExactEqualNode(negated, compile(lhs), compile(rhs));
+			}
+			return new DoubleEqualNode(negated, semantics.getPrecision(), compile(lhs), compile(rhs));
+		} else if (dictionary != null && rhs instanceof ExprLitString) {
+			return new EncodedLiteralEqualNode(negated, compile(lhs), encodeLiteral((ExprLitString) rhs));
+		} else if (dictionary != null && lhs instanceof ExprLitString) {
+			return new EncodedLiteralEqualNode(negated, compile(rhs), encodeLiteral((ExprLitString) lhs));
+		} else if (lhsType == rhsType && lhsType != ExpressionType.ANY) {
+			return new ObjectEqualNode(negated, compile(lhs), compile(rhs));
+		} else if (adaptive) {
+			return new SpecializingEqualNode(negated, operation(Evaluator.Visitor.equal), semantics, compile(lhs),
+					compile(rhs));
+		}
+		return new GenericEqualNode(negated, operation(Evaluator.Visitor.equal), compile(lhs), compile(rhs));
+	}
+
+	private PreparedNode[] logicalOperands(SimpleNode node, Class<? extends SimpleNode> type)
+			throws ExpressionVisitorException {
+		List<PreparedNode> operands = new ArrayList<>();
+		collectLogicalOperands(node, type, operands);
+		return operands.toArray(new PreparedNode[operands.size()]);
+	}
+
+	private void collectLogicalOperands(Node node, Class<? extends SimpleNode> type, List<PreparedNode> operands)
+			throws ExpressionVisitorException {
+		Deque<Node> pending = new ArrayDeque<>();
+		pushChildren(node, pending);
+		while (!pending.isEmpty()) {
+			Node child = pending.pop();
+			if (child.getClass() == type) {
+				// Flatten nested operations of the same kind
+				pushChildren(child, pending);
+			} else {
+				operands.add(compile(child));
+			}
+		}
+	}
+
+	private static void pushChildren(Node node, Deque<Node> stack) {
+		for (int i = node.jjtGetNumChildren() - 1; i >= 0; i--) {
+			stack.push(node.jjtGetChild(i));
+		}
+	}
+
+	public Object visit(ExprLitNull node, Object data) {
+		return new ConstantNode(null);
+	}
+
+	public Object visit(ExprLitBoolean node, Object data) {
+		return new ConstantNode(Boolean.valueOf((String) node.jjtGetValue()));
+	}
+
+	public Object visit(ExprLitString node, Object data) {
+		return new ConstantNode(Evaluator.Visitor.unquote((String) node.jjtGetValue()));
+	}
+
+	public Object visit(ExprLitDouble node, Object data) {
+		return new ConstantNode(Double.parseDouble((String) node.jjtGetValue()));
+	}
+
+	public Object visit(ExprLitInteger node, Object data) {
+		return new ConstantNode(Long.parseLong((String) node.jjtGetValue()));
+	}
+
+	public Object visit(ExprVariable node, Object data) {
+		return new VariableNode(node.getSymbol());
+	}
+
+	public Object visit(ExprNot node, Object data) throws ExpressionVisitorException {
+		return new NotNode(compile(node.jjtGetChild(0)));
+	}
+
+	public Object visit(ExprNegation node, Object data) throws ExpressionVisitorException {
+		Node operand = node.jjtGetChild(0);
+		if (exactIntegers && !isFloating(operand)) {
+			return new GenericNegationNode(compile(operand), true);
+		} else if (typeOf(operand).isNumeric()) {
+			return new DoubleNegationNode(compile(operand));
+		}
+		return new GenericNegationNode(compile(operand), exactIntegers);
+	}
+
+	public Object visit(ExprDiv node, Object data) throws ExpressionVisitorException {
+		return arithmetic(node, Arithmetic.DIV, Evaluator.Visitor.div);
+	}
+
+	public Object visit(ExprMult node, Object data) throws ExpressionVisitorException {
+		return arithmetic(node, Arithmetic.MULT, Evaluator.Visitor.mult);
+	}
+
+	public Object visit(ExprMinus node, Object data) throws ExpressionVisitorException {
+		return arithmetic(node, Arithmetic.MINUS, Evaluator.Visitor.minus);
+	}
+
+	public Object visit(ExprPlus node, Object data) throws ExpressionVisitorException {
+		return arithmetic(node, Arithmetic.PLUS, Evaluator.Visitor.plus);
+	}
+
+	public Object visit(ExprAtLeast node, Object data) throws ExpressionVisitorException {
+		return comparison(node, Comparison.AT_LEAST, Evaluator.Visitor.atLeast);
+	}
+
+	public Object visit(ExprGreaterThan node, Object data) throws ExpressionVisitorException {
+		return comparison(node, Comparison.GREATER_THAN, Evaluator.Visitor.greaterThan);
+	}
+
+	public Object visit(ExprAtMost node, Object data) throws ExpressionVisitorException {
+		return comparison(node, Comparison.AT_MOST, Evaluator.Visitor.atMost);
+	}
+
+	public Object visit(ExprLessThan node, Object data) throws ExpressionVisitorException {
+		return comparison(node, Comparison.LESS_THAN, Evaluator.Visitor.lessThan);
+	}
+
+	public Object visit(ExprNotEqual node, Object data) throws ExpressionVisitorException {
+		return equality(node, true);
+	}
+
+	public Object visit(ExprEqual node, Object data) throws ExpressionVisitorException {
+		return equality(node, false);
+	}
+
+	public Object visit(ExprIn node, Object data) throws ExpressionVisitorException {
+		Node operand = node.jjtGetChild(0);
+		ExprSet set = (ExprSet) node.jjtGetChild(1);
+		LiteralSet values = set.getValues();
+		if (typeOf(operand).isNumeric()) {
+			return new NumericInNode(compile(operand), values, semantics.getPrecision());
+		} else if (dictionary != null && !values.getStrings().isEmpty()) {
+			BitSet codes = new BitSet();
+			for (String value : values.getStrings()) {
+				codes.set(dictionary.encode(value).getCode());
+			}
+			return new EncodedInNode(compile(operand), values, dictionary, codes, semantics.getPrecision());
+		}
+		return new InNode(compile(operand), values, semantics.getPrecision());
+	}
+
+	public Object visit(ExprSet node, Object data) throws ExpressionVisitorException {
+		throw new ExpressionVisitorException("Sets are only allowed as right operand of 'in'!");
+	}
+
+	public Object visit(ExprAnd node, Object data) throws ExpressionVisitorException {
+		return new AndNode(logicalOperands(node, ExprAnd.class));
+	}
+
+	public Object visit(ExprOr node, Object data) throws ExpressionVisitorException {
+		return new OrNode(logicalOperands(node, ExprOr.class));
+	}
+
+	public Object visit(ExprFunction node, Object data) throws ExpressionVisitorException {
+		String name = (String) node.jjtGetValue();
+		FunctionRegistry.Function function = null;
+		if (functions != null) {
+			function = functions.lookup(name);
+			if (function == null) {
+				// Removed after the type check
+				throw new ExpressionVisitorException("Unknown function " + name + "!");
+			}
+		}
+		boolean passesValues = function != null && function.getStringPredicate() != null;
+		PreparedNode[] arguments = new PreparedNode[node.jjtGetNumChildren()];
+		for (int i = 0; i < arguments.length; i++) {
+			Node child = node.jjtGetChild(i);
+			String identifier = Evaluator.identifierArgument(child);
+			if (identifier != null && !passesValues) {
+				arguments[i] = new ConstantNode(identifier);
+			} else {
+				arguments[i] = compile(child);
+			}
+		}
+		if (function == null) {
+			PreparedNode[] values = arguments.clone();
+			for (int i = 0; i < values.length; i++) {
+				if (node.jjtGetChild(i) instanceof ExprVariable) {
+					values[i] = compile(node.jjtGetChild(i));
+				}
+			}
+			return new FunctionNode(name, arguments, values);
+		}
+		PreparedNode call;
+		if (function.getUnary() != null && arguments.length == 1) {
+			call = new DoubleUnaryFunctionNode(function.getUnary(), arguments[0]);
+		} else if (function.getBinary() != null && arguments.length == 2) {
+			call = new DoubleBinaryFunctionNode(function.getBinary(), arguments[0], arguments[1]);
+		} else {
+			call = new BoundFunctionNode(function, arguments);
+		}
+		if (function.getSignature().isPure() && isConstant(arguments)) {
+			try {
+				return new ConstantNode(call.evaluate(null, null));
+			} catch (RuntimeException e) {
+				// Fails again when the expression is evaluated
+			}
+		}
+		if (passesValues && arguments.length == 2 && arguments[1] instanceof ConstantNode) {
+			Object argument = EncodedString.decode(((ConstantNode) arguments[1]).getValue());
+			if (argument instanceof String) {
+				try {
+					return new StringPredicateNode(function, arguments[0], argument);
+				} catch (InvalidArgumentException e) {
+					// Invalid regular expression, fails again when the expression is evaluated
+				}
+			}
+		}
+		return call;
+	}
+
+	private static boolean isConstant(PreparedNode[] nodes) {
+		for (PreparedNode node : nodes) {
+			if (!(node instanceof ConstantNode)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public Object visit(ExprRoot node, Object data) throws ExpressionVisitorException {
+		if (node.jjtGetNumChildren() > 1) {
+			throw new ExpressionVisitorException("Invalid expression " + Printer.printCanonical(node)
+					+ " should not have been parsed! Top level element is only allowed to have one child.");
+		}
+		rootType = typeOf(node);
+		return compile(node.jjtGetChild(0));
+	}
+
+	public Object visit(SimpleNode node, Object data) throws ExpressionVisitorException {
+		throw new ExpressionVisitorException("No unamed nodes allowed!");
+	}
+
+}
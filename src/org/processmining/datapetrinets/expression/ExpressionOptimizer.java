@@ -0,0 +1,282 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.processmining.datapetrinets.expression.syntax.ExprAnd;
+import org.processmining.datapetrinets.expression.syntax.ExprAtLeast;
+import org.processmining.datapetrinets.expression.syntax.ExprAtMost;
+import org.processmining.datapetrinets.expression.syntax.ExprDiv;
+import org.processmining.datapetrinets.expression.syntax.ExprEqual;
+import org.processmining.datapetrinets.expression.syntax.ExprFunction;
+import org.processmining.datapetrinets.expression.syntax.ExprGreaterThan;
+import org.processmining.datapetrinets.expression.syntax.ExprIn;
+import org.processmining.datapetrinets.expression.syntax.ExprLessThan;
+import org.processmining.datapetrinets.expression.syntax.ExprLitBoolean;
+import org.processmining.datapetrinets.expression.syntax.ExprLitDouble;
+import org.processmining.datapetrinets.expression.syntax.ExprLitInteger;
+import org.processmining.datapetrinets.expression.syntax.ExprLitNull;
+import org.processmining.datapetrinets.expression.syntax.ExprLitString;
+import org.processmining.datapetrinets.expression.syntax.ExprMinus;
+import org.processmining.datapetrinets.expression.syntax.ExprMult;
+import org.processmining.datapetrinets.expression.syntax.ExprNegation;
+import org.processmining.datapetrinets.expression.syntax.ExprNot;
+import org.processmining.datapetrinets.expression.syntax.ExprNotEqual;
+import org.processmining.datapetrinets.expression.syntax.ExprOr;
+import org.processmining.datapetrinets.expression.syntax.ExprPlus;
+import org.processmining.datapetrinets.expression.syntax.ExprRoot;
+import org.processmining.datapetrinets.expression.syntax.ExprSet;
+import org.processmining.datapetrinets.expression.syntax.ExprVariable;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserDefaultVisitor;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserTreeConstants;
+import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+import org.processmining.datapetrinets.expression.syntax.Node;
+import org.processmining.datapetrinets.expression.syntax.SimpleNode;
+
+/**
+ * Rewrites disjunctions of equality tests on the same variable, such as
+ * <code>a == "x" || a == "y" || a == "z"</code>, into the set-membership test
+ * <code>a in {"x", "y", "z"}</code>, which is evaluated by a hash lookup
+ * instead of a chain of comparisons.
+ * <p>
+ * Only directly adjacent disjuncts are merged, so that operands are evaluated
+ * in the same order as in the original expression.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class ExpressionOptimizer {
+
+	private ExpressionOptimizer() {
+		super();
+	}
+
+	/**
+	 * @param guard
+	 * @return a new, equivalent {@link GuardExpression}, the original guard is
+	 *         not modified
+	 */
+	public static GuardExpression optimize(GuardExpression guard) {
+		try {
+			return new GuardExpressionImpl((ExprRoot) guard.visit(new ExpressionParserDefaultVisitor() {
+
+				public Object visit(ExprRoot node, Object data) {
+					return optimize(node);
+				}
+
+			}, null));
+		} catch (ExpressionVisitorException e) {
+			throw new IllegalArgumentException("Could not optimize expression " + guard.toCanonicalString(), e);
+		}
+	}
+
+	/**
+	 * @param expression
+	 * @return a new, equivalent expression tree, the original tree is not
+	 *         modified
+	 */
+	public static ExprRoot optimize(ExprRoot expression) {
+		Rewriter rewriter = new Rewriter();
+		try {
+			TreeTraversal.postOrder(expression, rewriter, null);
+		} catch (ExpressionVisitorException e) {
+			throw new IllegalArgumentException("Could not optimize expression " + Printer.printCanonical(expression),
+					e);
+		}
+		return (ExprRoot) rewriter.results.pop();
+	}
+
+	/**
+	 * Copies the tree in post-order, the copies of the operands are on the
+	 * stack when their operation is copied. The rewrite re-uses nodes, so that
+	 * it only works on the copy.
+	 */
+	private static final class Rewriter extends ExpressionParserDefaultVisitor {
+
+		private final Deque<Node> results = new ArrayDeque<>();
+
+		public Object defaultVisit(SimpleNode node, Object data) {
+			Node[] children = new Node[node.jjtGetNumChildren()];
+			for (int i = children.length - 1; i >= 0; i--) {
+				children[i] = results.pop();
+			}
+			results.push(node instanceof ExprOr ? rewriteDisjunction(children) : copy(node, children));
+			return data;
+		}
+
+	}
+
+	private static Node rewriteDisjunction(Node[] disjuncts) {
+		List<Node> operands = new ArrayList<>();
+		for (Node disjunct : disjuncts) {
+			if (disjunct instanceof ExprOr) {
+				// Already rewritten, its operands are no disjunctions
+				for (int i = 0; i < disjunct.jjtGetNumChildren(); i++) {
+					operands.add(disjunct.jjtGetChild(i));
+				}
+			} else {
+				operands.add(disjunct);
+			}
+		}
+		List<Node> merged = mergeMembershipTests(operands);
+		if (merged.size() == 1) {
+			return merged.get(0);
+		}
+		ExprOr or = new ExprOr(ExpressionParserTreeConstants.JJTOR);
+		for (int i = 0; i < merged.size(); i++) {
+			setChild(or, i, merged.get(i));
+		}
+		return or;
+	}
+
+	private static Node copy(SimpleNode node, Node[] children) {
+		SimpleNode copy = newNode(node.getId());
+		if (node instanceof ExprVariable) {
+			((ExprVariable) copy).setSymbol(((ExprVariable) node).getSymbol());
+		} else {
+			copy.jjtSetValue(node.jjtGetValue());
+		}
+		for (int i = 0; i < children.length; i++) {
+			setChild(copy, i, children[i]);
+		}
+		return copy;
+	}
+
+	private static SimpleNode newNode(int id) {
+		switch (id) {
+			case ExpressionParserTreeConstants.JJTROOT :
+				return new ExprRoot(id);
+			case ExpressionParserTreeConstants.JJTOR :
+				return new ExprOr(id);
+			case ExpressionParserTreeConstants.JJTAND :
+				return new ExprAnd(id);
+			case ExpressionParserTreeConstants.JJTEQUAL :
+				return new ExprEqual(id);
+			case ExpressionParserTreeConstants.JJTNOTEQUAL :
+				return new ExprNotEqual(id);
+			case ExpressionParserTreeConstants.JJTLESSTHAN :
+				return new ExprLessThan(id);
+			case ExpressionParserTreeConstants.JJTATMOST :
+				return new ExprAtMost(id);
+			case ExpressionParserTreeConstants.JJTGREATERTHAN :
+				return new ExprGreaterThan(id);
+			case ExpressionParserTreeConstants.JJTATLEAST :
+				return new ExprAtLeast(id);
+			case ExpressionParserTreeConstants.JJTIN :
+				return new ExprIn(id);
+			case ExpressionParserTreeConstants.JJTSET :
+				return new ExprSet(id);
+			case ExpressionParserTreeConstants.JJTNEGATION :
+				return new ExprNegation(id);
+			case ExpressionParserTreeConstants.JJTLITINTEGER :
+				return new ExprLitInteger(id);
+			case ExpressionParserTreeConstants.JJTLITDOUBLE :
+				return new ExprLitDouble(id);
+			case ExpressionParserTreeConstants.JJTPLUS :
+				return new ExprPlus(id);
+			case ExpressionParserTreeConstants.JJTMINUS :
+				return new ExprMinus(id);
+			case ExpressionParserTreeConstants.JJTMULT :
+				return new ExprMult(id);
+			case ExpressionParserTreeConstants.JJTDIV :
+				return new ExprDiv(id);
+			case ExpressionParserTreeConstants.JJTNOT :
+				return new ExprNot(id);
+			case ExpressionParserTreeConstants.JJTFUNCTION :
+				return new ExprFunction(id);
+			case ExpressionParserTreeConstants.JJTVARIABLE :
+				return new ExprVariable(id);
+			case ExpressionParserTreeConstants.JJTLITSTRING :
+				return new ExprLitString(id);
+			case ExpressionParserTreeConstants.JJTLITBOOLEAN :
+				return new ExprLitBoolean(id);
+			case ExpressionParserTreeConstants.JJTLITNULL :
+				return new ExprLitNull(id);
+			default :
+				return new SimpleNode(id);
+		}
+	}
+
+	private static List<Node> mergeMembershipTests(List<Node> operands) {
+		List<Node> merged = new ArrayList<>(operands.size());
+		int start = 0;
+		while (start < operands.size()) {
+			ExprVariable variable = getTestedVariable(operands.get(start));
+			int end = start + 1;
+			if (variable != null) {
+				while (end < operands.size() && isSameVariable(variable, getTestedVariable(operands.get(end)))) {
+					end++;
+				}
+			}
+			if (end - start > 1) {
+				merged.add(createMembershipTest(variable, operands.subList(start, end)));
+			} else {
+				merged.add(operands.get(start));
+			}
+			start = end;
+		}
+		return merged;
+	}
+
+	private static ExprIn createMembershipTest(ExprVariable variable, List<Node> tests) {
+		ExprSet set = new ExprSet(ExpressionParserTreeConstants.JJTSET);
+		int index = 0;
+		for (Node test : tests) {
+			if (test instanceof ExprIn) {
+				Node existingSet = test.jjtGetChild(1);
+				for (int i = 0; i < existingSet.jjtGetNumChildren(); i++) {
+					setChild(set, index++, existingSet.jjtGetChild(i));
+				}
+			} else {
+				Node literal = test.jjtGetChild(0) instanceof ExprVariable ? test.jjtGetChild(1)
+						: test.jjtGetChild(0);
+				setChild(set, index++, literal);
+			}
+		}
+		ExprIn in = new ExprIn(ExpressionParserTreeConstants.JJTIN);
+		setChild(in, 0, variable);
+		setChild(in, 1, set);
+		return in;
+	}
+
+	/**
+	 * @return the variable of <code>var == literal</code>,
+	 *         <code>literal == var</code> or <code>var in {...}</code>,
+	 *         otherwise NULL
+	 */
+	private static ExprVariable getTestedVariable(Node node) {
+		if (node instanceof ExprEqual) {
+			Node lhs = node.jjtGetChild(0);
+			Node rhs = node.jjtGetChild(1);
+			if (lhs instanceof ExprVariable && isLiteral(rhs)) {
+				return (ExprVariable) lhs;
+			} else if (rhs instanceof ExprVariable && isLiteral(lhs)) {
+				return (ExprVariable) rhs;
+			}
+		} else if (node instanceof ExprIn && node.jjtGetChild(0) instanceof ExprVariable) {
+			return (ExprVariable) node.jjtGetChild(0);
+		}
+		return null;
+	}
+
+	private static boolean isSameVariable(ExprVariable variable, ExprVariable other) {
+		return other != null && variable.jjtGetValue().equals(other.jjtGetValue());
+	}
+
+	private static boolean isLiteral(Node node) {
+		if (node instanceof ExprNegation) {
+			Node operand = node.jjtGetChild(0);
+			return operand instanceof ExprLitInteger || operand instanceof ExprLitDouble;
+		}
+		return node instanceof ExprLitInteger || node instanceof ExprLitDouble || node instanceof ExprLitString
+				|| node instanceof ExprLitBoolean || node instanceof ExprLitNull;
+	}
+
+	private static void setChild(Node parent, int index, Node child) {
+		((SimpleNode) parent).jjtAddChild(child, index);
+		child.jjtSetParent(parent);
+	}
+
+}
@@ -0,0 +1,56 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.Date;
+
+/**
+ * Static type of a (sub-)expression as determined by the {@link TypeChecker}.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public enum ExpressionType {
+
+	BOOLEAN, LONG, DOUBLE, STRING, DATE, NULL,
+	/**
+	 * Type is only known at runtime, e.g., variables without declared type or
+	 * function calls
+	 */
+	ANY;
+
+	/**
+	 * @param type
+	 *            Java type of a variable value, may be NULL
+	 * @return the corresponding {@link ExpressionType}, {@link #ANY} for
+	 *         unknown types
+	 */
+	public static ExpressionType of(Class<?> type) {
+		if (type == null) {
+			return ANY;
+		} else if (type == Boolean.class) {
+			return BOOLEAN;
+		} else if (type == Long.class || type == Integer.class || type == Short.class || type == Byte.class) {
+			return LONG;
+		} else if (Number.class.isAssignableFrom(type)) {
+			return DOUBLE;
+		} else if (type == String.class) {
+			return STRING;
+		} else if (Date.class.isAssignableFrom(type)) {
+			return DATE;
+		} else {
+			return ANY;
+		}
+	}
+
+	public boolean isNumeric() {
+		return this == LONG || this == DOUBLE;
+	}
+
+	/**
+	 * @return whether the value can be converted to milliseconds since epoch,
+	 *         which is the case for numbers and dates
+	 */
+	public boolean isTemporal() {
+		return isNumeric() || this == DATE;
+	}
+
+}
@@ -0,0 +1,71 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.Set;
+
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserVisitor;
+import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+
+/**
+ * {@link GuardExpression} that forwards everything except its evaluation to
+ * the wrapped guard. Subclasses may create the wrapped guard on demand by
+ * overriding {@link #getGuard()}.
+ *
+ * @author F. Mannhardt
+ *
+ */
+abstract class ForwardingGuardExpression extends AbstractGuardExpression {
+
+	final GuardExpression guard;
+
+	ForwardingGuardExpression(GuardExpression guard) {
+		super();
+		this.guard = guard;
+	}
+
+	/**
+	 * @return the wrapped guard
+	 */
+	public GuardExpression getGuard() {
+		return guard;
+	}
+
+	@Override
+	public Set<String> getNormalVariables() {
+		return getGuard().getNormalVariables();
+	}
+
+	@Override
+	public Set<String> getPrimeVariables() {
+		return getGuard().getPrimeVariables();
+	}
+
+	@Override
+	public <T> Set<T> getLiteralValues(Class<T> type) {
+		return getGuard().getLiteralValues(type);
+	}
+
+	@Override
+	public Object visit(ExpressionParserVisitor visitor, Object data) throws ExpressionVisitorException {
+		return getGuard().visit(visitor, data);
+	}
+
+	@Override
+	public String toCanonicalString() {
+		return getGuard().toCanonicalString();
+	}
+
+	@Override
+	public String toPrettyString(int spaces) {
+		return getGuard().toPrettyString(spaces);
+	}
+
+	@Override
+	public String toTreeLikeString(int indent) {
+		return getGuard().toTreeLikeString(indent);
+	}
+
+	public String toString() {
+		return getGuard().toString();
+	}
+
+}
@@ -16,5 +16,34 @@ public interface FunctionProvider {
 	public static final FunctionProvider BASIC_MATH = new FunctionProviderBasicMath();
 	
 	Object calculate(String function, Object[] parameters) throws UnsupportedFunctionException;
+
+	/**
+	 * A function is pure if its result only depends on its parameters and
+	 * calling it has no side effects. The result of calling a pure function
+	 * may be re-used for calls with equal parameters, e.g., a
+	 * {@link PreparedExpression} folds calls with constant parameters and
+	 * caches the results of recent calls.
+	 * 
+	 * @param function
+	 * @return whether the function is pure, by default no function is pure
+	 */
+	default boolean isPure(String function) {
+		return false;
+	}
+
+	/**
+	 * Variables passed as argument are passed to a function as their
+	 * identifier, e.g., <code>count(x)</code> receives "x". A function that
+	 * takes values instead receives the value of the variable, e.g., the
+	 * predicates of {@link FunctionRegistry#withStringPredicates()}. Providers
+	 * that delegate calls to another provider need to forward this method.
+	 * 
+	 * @param function
+	 * @return whether variables passed to the function are resolved to their
+	 *         values, by default they are passed as identifiers
+	 */
+	default boolean passesValues(String function) {
+		return false;
+	}
 	
 }
\ No newline at end of file
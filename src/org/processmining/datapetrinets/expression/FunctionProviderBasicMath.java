@@ -39,4 +39,15 @@ public class FunctionProviderBasicMath implements FunctionProvider {
 		}
 	}
 
+	public boolean isPure(String function) {
+		switch (function) {
+			case "min" :
+			case "max" :
+			case "abs" :
+				return true;
+			default :
+				return false;
+		}
+	}
+
 }
\ No newline at end of file
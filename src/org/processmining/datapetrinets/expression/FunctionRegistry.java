@@ -0,0 +1,505 @@
+package org.processmining.datapetrinets.expression;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.exception.UnsupportedFunctionException;
+
+/**
+ * Functions with a declared {@link Signature}. Calls of registered functions
+ * are resolved once when an expression is prepared with the registry as
+ * {@link PrepareOptions#withFunctions(FunctionRegistry)} and bound to the
+ * function itself. Unknown functions, calls with the wrong number of
+ * arguments and arguments of the wrong type are reported when the expression
+ * is prepared. Functions registered as {@link DoubleUnaryOperator}
+ * or {@link DoubleBinaryOperator} are called without boxing their arguments
+ * or result, any other function can be registered as {@link MethodHandle}.
+ * <p>
+ * The registry is also a {@link FunctionProvider} looking up the function by
+ * its name, so that expressions can be evaluated the same way without being
+ * prepared. Functions should be registered before expressions are prepared,
+ * prepared expressions keep calling the function they were bound to.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class FunctionRegistry implements FunctionProvider {
+
+	/**
+	 * Declared name, parameter types and return type of a function
+	 */
+	public static final class Signature {
+
+		private final String name;
+		private final ExpressionType returnType;
+		private final ExpressionType[] parameterTypes;
+		private final boolean variadic;
+		private final boolean pure;
+
+		private Signature(String name, ExpressionType returnType, ExpressionType[] parameterTypes, boolean variadic,
+				boolean pure) {
+			this.name = name;
+			this.returnType = returnType;
+			this.parameterTypes = parameterTypes;
+			this.variadic = variadic;
+			this.pure = pure;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public ExpressionType getReturnType() {
+			return returnType;
+		}
+
+		/**
+		 * @return the types of the parameters, the type of the last parameter
+		 *         applies to all remaining arguments of a variadic function
+		 */
+		public ExpressionType[] getParameterTypes() {
+			return parameterTypes.clone();
+		}
+
+		public boolean isVariadic() {
+			return variadic;
+		}
+
+		/**
+		 * @return whether the function was declared pure, see
+		 *         {@link FunctionProvider#isPure(String)}
+		 */
+		public boolean isPure() {
+			return pure;
+		}
+
+		/**
+		 * @param arity
+		 * @return whether the function can be called with this number of
+		 *         arguments
+		 */
+		public boolean accepts(int arity) {
+			return variadic ? arity >= parameterTypes.length - 1 : arity == parameterTypes.length;
+		}
+
+		/**
+		 * @param index
+		 * @return the type of the argument at the index
+		 */
+		public ExpressionType getParameterType(int index) {
+			return parameterTypes[Math.min(index, parameterTypes.length - 1)];
+		}
+
+		public String toString() {
+			StringBuilder sb = new StringBuilder(pure ? "pure " : "").append(name).append('(');
+			for (int i = 0; i < parameterTypes.length; i++) {
+				if (i > 0) {
+					sb.append(", ");
+				}
+				sb.append(parameterTypes[i]);
+			}
+			if (variadic) {
+				sb.append("...");
+			}
+			return sb.append(") : ").append(returnType).toString();
+		}
+
+	}
+
+	/**
+	 * A registered function, with the argument conversions derived from its
+	 * {@link MethodHandle}.
+	 */
+	static final class Function {
+
+		private final Signature signature;
+		private final MethodHandle handle;
+		private final DoubleUnaryOperator unary;
+		private final DoubleBinaryOperator binary;
+		private final StringPredicate predicate;
+
+		/**
+		 * Java types of the parameters, boxed, the component type for the
+		 * variadic parameter
+		 */
+		private final Class<?>[] parameterClasses;
+		private final int fixedArity;
+
+		/**
+		 * Component type of the array of the variadic parameter or NULL
+		 */
+		private final Class<?> restType;
+
+		/**
+		 * Generic version of the handle for calls of fixed arity
+		 */
+		private final MethodHandle generic;
+
+		/**
+		 * Generic version of the handle taking all arguments as array
+		 */
+		private final MethodHandle spreader;
+
+		private Function(String name, MethodHandle handle, DoubleUnaryOperator unary, DoubleBinaryOperator binary,
+				StringPredicate predicate, boolean pure) {
+			this.handle = handle;
+			this.unary = unary;
+			this.binary = binary;
+			this.predicate = predicate;
+			boolean variadic = handle.isVarargsCollector();
+			MethodHandle fixed = handle.asFixedArity();
+			MethodType type = fixed.type().wrap();
+			this.fixedArity = type.parameterCount();
+			this.parameterClasses = type.parameterArray();
+			this.restType = variadic ? fixed.type().parameterType(fixedArity - 1).getComponentType() : null;
+			if (variadic) {
+				parameterClasses[fixedArity - 1] = MethodType.methodType(restType).wrap().returnType();
+			}
+			ExpressionType[] parameterTypes = new ExpressionType[fixedArity];
+			for (int i = 0; i < fixedArity; i++) {
+				parameterTypes[i] = typeOf(parameterClasses[i]);
+			}
+			this.signature = new Signature(name, typeOf(type.returnType()), parameterTypes, variadic, pure);
+			this.generic = fixed.asType(MethodType.genericMethodType(fixedArity));
+			this.spreader = generic.asSpreader(Object[].class, fixedArity);
+		}
+
+		private static ExpressionType typeOf(Class<?> type) {
+			if (type == Object.class || type == Void.class) {
+				return ExpressionType.ANY;
+			}
+			ExpressionType expressionType = ExpressionType.of(type);
+			if (expressionType == ExpressionType.ANY) {
+				throw new IllegalArgumentException("Type " + type.getName() + " is not supported by expressions!");
+			}
+			return expressionType;
+		}
+
+		Signature getSignature() {
+			return signature;
+		}
+
+		private Function asPure() {
+			return new Function(signature.getName(), handle, unary, binary, predicate, true);
+		}
+
+		/**
+		 * @return the function if it is a function on one double value,
+		 *         otherwise NULL
+		 */
+		DoubleUnaryOperator getUnary() {
+			return unary;
+		}
+
+		/**
+		 * @return the function if it is a function on two double values,
+		 *         otherwise NULL
+		 */
+		DoubleBinaryOperator getBinary() {
+			return binary;
+		}
+
+		/**
+		 * @return the built-in predicate if the function is one, otherwise
+		 *         NULL
+		 */
+		StringPredicate getStringPredicate() {
+			return predicate;
+		}
+
+		/**
+		 * @return whether {@link #call(Object)} and
+		 *         {@link #call(Object, Object)} can be used
+		 */
+		boolean hasFixedArity() {
+			return !signature.isVariadic();
+		}
+
+		Object call(Object argument) {
+			try {
+				return generic.invokeExact(convert(0, argument));
+			} catch (Throwable e) {
+				throw failure(e);
+			}
+		}
+
+		Object call(Object lhs, Object rhs) {
+			try {
+				return generic.invokeExact(convert(0, lhs), convert(1, rhs));
+			} catch (Throwable e) {
+				throw failure(e);
+			}
+		}
+
+		Object call(Object[] arguments) {
+			if (!signature.accepts(arguments.length)) {
+				throw new UnsupportedFunctionException(
+						"Function " + signature + " cannot be called with " + arguments.length + " arguments!");
+			}
+			Object[] converted;
+			if (signature.isVariadic()) {
+				converted = new Object[fixedArity];
+				for (int i = 0; i < fixedArity - 1; i++) {
+					converted[i] = convert(i, arguments[i]);
+				}
+				Object rest = Array.newInstance(restType, arguments.length - fixedArity + 1);
+				for (int i = fixedArity - 1; i < arguments.length; i++) {
+					Array.set(rest, i - fixedArity + 1, convert(i, arguments[i]));
+				}
+				converted[fixedArity - 1] = rest;
+			} else {
+				converted = new Object[arguments.length];
+				for (int i = 0; i < arguments.length; i++) {
+					converted[i] = convert(i, arguments[i]);
+				}
+			}
+			try {
+				return spreader.invokeExact(converted);
+			} catch (Throwable e) {
+				throw failure(e);
+			}
+		}
+
+		private Object convert(int index, Object value) {
+			Class<?> type = parameterClasses[Math.min(index, parameterClasses.length - 1)];
+			if (type == Object.class) {
+				return value;
+			}
+			value = EncodedString.decode(value);
+			if (type == Double.class && value instanceof Number) {
+				return ((Number) value).doubleValue();
+			} else if (type == Float.class && value instanceof Number) {
+				return ((Number) value).floatValue();
+			} else if (type == Long.class && IntegralOperation.isIntegral(value)) {
+				return ((Number) value).longValue();
+			} else if (type == Integer.class && IntegralOperation.isIntegral(value)
+					&& ((Number) value).longValue() == ((Number) value).intValue()) {
+				return ((Number) value).intValue();
+			} else if (type.isInstance(value)) {
+				return value;
+			}
+			throw new UnsupportedFunctionException("Function " + signature + " is not defined for argument " + value
+					+ " of type " + (value == null ? "NULL" : value.getClass().getSimpleName()) + "!");
+		}
+
+		private RuntimeException failure(Throwable e) {
+			if (e instanceof EvaluatorException) {
+				return (EvaluatorException) e;
+			} else if (e instanceof Error) {
+				throw (Error) e;
+			}
+			return new UnsupportedFunctionException("Function " + signature + " failed!", e);
+		}
+
+	}
+
+	private static final MethodHandle UNARY;
+	private static final MethodHandle BINARY;
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+			UNARY = lookup.findVirtual(DoubleUnaryOperator.class, "applyAsDouble",
+					MethodType.methodType(double.class, double.class));
+			BINARY = lookup.findVirtual(DoubleBinaryOperator.class, "applyAsDouble",
+					MethodType.methodType(double.class, double.class, double.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	/**
+	 * @return a registry with the functions of
+	 *         {@link FunctionProvider#BASIC_MATH}
+	 */
+	public static FunctionRegistry basicMath() {
+		FunctionRegistry registry = new FunctionRegistry();
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			MethodType variadic = MethodType.methodType(double.class, double[].class);
+			registry.register("min", lookup.findStatic(FunctionRegistry.class, "min", variadic));
+			registry.register("max", lookup.findStatic(FunctionRegistry.class, "max", variadic));
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+		registry.register("abs", new DoubleUnaryOperator() {
+
+			public double applyAsDouble(double value) {
+				return Math.abs(value);
+			}
+
+		});
+		return registry.declarePure("min", "max", "abs");
+	}
+
+	private static final MethodHandle STRING_PREDICATE;
+
+	static {
+		try {
+			STRING_PREDICATE = MethodHandles.lookup().findVirtual(StringPredicate.class, "test",
+					MethodType.methodType(boolean.class, String.class, String.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static double min(double... values) {
+		double min = Double.MAX_VALUE;
+		for (double value : values) {
+			min = Math.min(min, value);
+		}
+		return min;
+	}
+
+	private static double max(double... values) {
+		double max = -Double.MAX_VALUE;
+		for (double value : values) {
+			max = Math.max(max, value);
+		}
+		return max;
+	}
+
+	private final ConcurrentMap<String, Function> functions = new ConcurrentHashMap<>();
+
+	/**
+	 * Registers a function on one double value, replacing any function with
+	 * the same name.
+	 *
+	 * @param name
+	 * @param function
+	 * @return this registry
+	 */
+	public FunctionRegistry register(String name, DoubleUnaryOperator function) {
+		functions.put(name, new Function(name, UNARY.bindTo(function), function, null, null, false));
+		return this;
+	}
+
+	/**
+	 * Registers a function on two double values, replacing any function with
+	 * the same name.
+	 *
+	 * @param name
+	 * @param function
+	 * @return this registry
+	 */
+	public FunctionRegistry register(String name, DoubleBinaryOperator function) {
+		functions.put(name, new Function(name, BINARY.bindTo(function), null, function, null, false));
+		return this;
+	}
+
+	/**
+	 * Registers a function, replacing any function with the same name. The
+	 * signature is derived from the type of the handle. Parameter and return
+	 * types may be primitive or boxed numbers, {@link Boolean},
+	 * {@link String}, {@link Date} or {@link Object} for values of any type.
+	 * Handles with a variable arity, e.g., obtained for a varargs method, are
+	 * registered as variadic function.
+	 *
+	 * @param name
+	 * @param handle
+	 * @return this registry
+	 * @throws IllegalArgumentException
+	 *             if the handle uses types unknown to expressions
+	 */
+	public FunctionRegistry register(String name, MethodHandle handle) {
+		functions.put(name, new Function(name, handle, null, null, null, false));
+		return this;
+	}
+
+	/**
+	 * Registers the pure predicates <code>startsWith(s, prefix)</code>,
+	 * <code>endsWith(s, suffix)</code>, <code>contains(s, infix)</code> and
+	 * <code>matches(s, regex)</code> on strings, replacing any functions with
+	 * the same names. Unlike for other functions, variables passed to these
+	 * predicates are resolved to their values. If the second argument is a
+	 * literal, the predicate is bound to it when the expression is prepared,
+	 * i.e., a regular expression is compiled only once.
+	 *
+	 * @return this registry
+	 */
+	public FunctionRegistry withStringPredicates() {
+		for (StringPredicate predicate : StringPredicate.values()) {
+			functions.put(predicate.getName(), new Function(predicate.getName(), STRING_PREDICATE.bindTo(predicate),
+					null, null, predicate, true));
+		}
+		return this;
+	}
+
+	/**
+	 * Declares registered functions as pure, see
+	 * {@link FunctionProvider#isPure(String)}. Calls of pure functions with
+	 * constant arguments are evaluated once when the expression is prepared.
+	 * The results of other calls are cached for each call site, unless the
+	 * function is called on primitive double values.
+	 *
+	 * @param names
+	 * @return this registry
+	 * @throws IllegalArgumentException
+	 *             if one of the functions is not registered
+	 */
+	public FunctionRegistry declarePure(String... names) {
+		for (String name : names) {
+			Function function = functions.get(name);
+			if (function == null) {
+				throw new IllegalArgumentException("Unknown function " + name);
+			}
+			functions.put(name, function.asPure());
+		}
+		return this;
+	}
+
+	/**
+	 * @param name
+	 * @return the signature of the function or NULL if there is none
+	 */
+	public Signature getSignature(String name) {
+		Function function = functions.get(name);
+		return function != null ? function.getSignature() : null;
+	}
+
+	public Set<String> getNames() {
+		return Collections.unmodifiableSet(functions.keySet());
+	}
+
+	/**
+	 * @param name
+	 * @return the function or NULL if there is none
+	 */
+	Function lookup(String name) {
+		return functions.get(name);
+	}
+
+	/**
+	 * @param name
+	 * @return whether variables are passed to the function as values rather
+	 *         than as identifiers
+	 */
+	public boolean passesValues(String name) {
+		Function function = functions.get(name);
+		return function != null && function.getStringPredicate() != null;
+	}
+
+	public boolean isPure(String function) {
+		Function resolved = functions.get(function);
+		return resolved != null && resolved.getSignature().isPure();
+	}
+
+	public Object calculate(String function, Object[] parameters) throws UnsupportedFunctionException {
+		Function resolved = functions.get(function);
+		if (resolved == null) {
+			throw new UnsupportedFunctionException("Unknown function " + function);
+		}
+		return resolved.call(parameters);
+	}
+
+}
@@ -0,0 +1,166 @@
+package org.processmining.datapetrinets.expression;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Bounds the number and the total size of the programs compiled by a
+ * {@link TieredGuardExpression.Manager}. Once the budget is exceeded, guards
+ * are evicted back to the {@link Evaluator}. Guards that were evaluated with
+ * their program since the last sweep get a second chance (CLOCK
+ * replacement), so that marking a guard as used is a single field write.
+ * <p>
+ * The cache only holds weak references to the guards. Programs of guards that
+ * are no longer referenced are garbage collected together with the guard and
+ * their size is released from the budget.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class GuardCodeCache {
+
+	private static final class Entry extends WeakReference<TieredGuardExpression> {
+
+		private final int size;
+		private boolean released;
+
+		private Entry(TieredGuardExpression guard, int size, ReferenceQueue<TieredGuardExpression> queue) {
+			super(guard, queue);
+			this.size = size;
+		}
+
+	}
+
+	private final int maxGuards;
+	private final long maxCodeSize;
+
+	private final Deque<Entry> clock = new ArrayDeque<>();
+	private final ReferenceQueue<TieredGuardExpression> collected = new ReferenceQueue<>();
+
+	private int guardCount;
+	private long codeSize;
+	private long evictionCount;
+
+	/**
+	 * @param maxGuards
+	 *            maximum number of compiled guards
+	 * @param maxCodeSize
+	 *            maximum number of words of all programs, see
+	 *            {@link GuardProgram#size()}
+	 */
+	public GuardCodeCache(int maxGuards, long maxCodeSize) {
+		if (maxGuards < 0 || maxCodeSize < 0) {
+			throw new IllegalArgumentException("Budget must not be negative!");
+		}
+		this.maxGuards = maxGuards;
+		this.maxCodeSize = maxCodeSize;
+	}
+
+	/**
+	 * Adds the program of the guard to the cache, evicting other guards until
+	 * it fits into the budget, and installs the program.
+	 *
+	 * @param guard
+	 * @param program
+	 * @return whether the program was admitted, programs that exceed the
+	 *         budget on their own are rejected
+	 */
+	synchronized boolean admit(TieredGuardExpression guard, GuardProgram program) {
+		int size = program.size();
+		if (maxGuards < 1 || size > maxCodeSize) {
+			return false;
+		}
+		expungeCollected();
+		while (guardCount + 1 > maxGuards || codeSize + size > maxCodeSize) {
+			evictOne();
+		}
+		clock.addLast(new Entry(guard, size, collected));
+		guardCount++;
+		codeSize += size;
+		// Installed while holding the lock, so that it cannot be evicted before
+		guard.install(program);
+		return true;
+	}
+
+	private void evictOne() {
+		while (true) {
+			Entry entry = clock.pollFirst();
+			if (entry.released) {
+				continue;
+			}
+			TieredGuardExpression guard = entry.get();
+			if (guard != null && guard.clearReferenced()) {
+				// Second chance for recently used guards
+				clock.addLast(entry);
+				continue;
+			}
+			release(entry);
+			if (guard != null) {
+				guard.evict();
+				evictionCount++;
+			}
+			return;
+		}
+	}
+
+	private void expungeCollected() {
+		Reference<? extends TieredGuardExpression> reference;
+		while ((reference = collected.poll()) != null) {
+			Entry entry = (Entry) reference;
+			if (!entry.released) {
+				release(entry);
+			}
+		}
+		if (clock.size() > 2 * guardCount + 16) {
+			// Drop released entries that were not yet reached by a sweep
+			Iterator<Entry> iterator = clock.iterator();
+			while (iterator.hasNext()) {
+				if (iterator.next().released) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	private void release(Entry entry) {
+		entry.released = true;
+		guardCount--;
+		codeSize -= entry.size;
+	}
+
+	public int getMaxGuards() {
+		return maxGuards;
+	}
+
+	public long getMaxCodeSize() {
+		return maxCodeSize;
+	}
+
+	/**
+	 * @return the number of compiled guards in the cache
+	 */
+	public synchronized int getGuardCount() {
+		expungeCollected();
+		return guardCount;
+	}
+
+	/**
+	 * @return the total number of words of the programs in the cache
+	 */
+	public synchronized long getCodeSize() {
+		expungeCollected();
+		return codeSize;
+	}
+
+	/**
+	 * @return the number of guards evicted back to the {@link Evaluator}
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+}
@@ -1,18 +1,27 @@
 package org.processmining.datapetrinets.expression;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 import javax.lang.model.SourceVersion;
 
 import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.exception.TypeCheckException;
 import org.processmining.datapetrinets.expression.syntax.ExprAnd;
+import org.processmining.datapetrinets.expression.syntax.ExprNot;
 import org.processmining.datapetrinets.expression.syntax.ExprOr;
 import org.processmining.datapetrinets.expression.syntax.ExprRoot;
 import org.processmining.datapetrinets.expression.syntax.ExpressionParserTreeConstants;
 import org.processmining.datapetrinets.expression.syntax.ExpressionParserVisitor;
+import org.processmining.datapetrinets.expression.syntax.ExpressionValidator;
 import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
 import org.processmining.datapetrinets.expression.syntax.Node;
 import org.processmining.datapetrinets.expression.syntax.ParseException;
@@ -66,6 +75,128 @@ public interface GuardExpression {
 			return new GuardExpressionImpl(expression);
 		}
 
+		/**
+		 * Parses the expression and type checks it against the declared
+		 * variable types. The returned {@link GuardExpression} is evaluated
+		 * using a {@link PreparedExpression}, which requires variable values
+		 * to conform to the declared types.
+		 * 
+		 * @param expression
+		 * @param typeProvider
+		 * @return the parsed and prepared {@link GuardExpression}
+		 * @throws ParseException
+		 * @throws TypeCheckException
+		 *             in case the expression is ill-typed
+		 */
+		public static GuardExpression newInstance(String expression, VariableTypeProvider typeProvider)
+				throws ParseException, TypeCheckException {
+			return new GuardExpressionImpl(expression, typeProvider, null);
+		}
+
+		/**
+		 * Like {@link #newInstance(String, VariableTypeProvider)}, but string
+		 * literals are encoded with the {@link StringDictionary}. Providers
+		 * that return values encoded with the same dictionary benefit from
+		 * comparisons on the dictionary codes.
+		 * 
+		 * @param expression
+		 * @param typeProvider
+		 * @param dictionary
+		 * @return the parsed and prepared {@link GuardExpression}
+		 * @throws ParseException
+		 * @throws TypeCheckException
+		 *             in case the expression is ill-typed
+		 */
+		public static GuardExpression newInstance(String expression, VariableTypeProvider typeProvider,
+				StringDictionary dictionary) throws ParseException, TypeCheckException {
+			return new GuardExpressionImpl(expression, typeProvider, dictionary);
+		}
+
+		/**
+		 * Parses the expression without throwing an exception for invalid
+		 * input. Input rejected by the parser is described by the
+		 * {@link ExpressionValidator}, which reports the offset and the
+		 * expected tokens of the error.
+		 * 
+		 * @param expression
+		 * @return either the parsed {@link GuardExpression} or a
+		 *         {@link ParseError}
+		 */
+		public static ParseResult tryParse(CharSequence expression) {
+			return BulkParser.SHARED.parse(expression);
+		}
+
+		/**
+		 * Checks whether the expression is syntactically valid without
+		 * building the syntax tree.
+		 * 
+		 * @param expression
+		 * @return whether {@link #newInstance(String)} would succeed
+		 */
+		public static boolean isValid(CharSequence expression) {
+			return ExpressionValidator.isValid(expression);
+		}
+
+		/**
+		 * Parses all expressions in parallel using the common
+		 * {@link ForkJoinPool}. Parse errors do not abort the operation, they
+		 * are reported in the {@link ParseResult} of the respective item.
+		 * 
+		 * @param expressions
+		 * @return one {@link ParseResult} for each expression in input order
+		 */
+		public static List<ParseResult> parseAll(Iterable<? extends CharSequence> expressions) {
+			return parseAll(expressions, ForkJoinPool.commonPool());
+		}
+
+		/**
+		 * Parses all expressions in parallel using the supplied
+		 * {@link ForkJoinPool}.
+		 * 
+		 * @param expressions
+		 * @param pool
+		 * @return one {@link ParseResult} for each expression in input order
+		 */
+		public static List<ParseResult> parseAll(Iterable<? extends CharSequence> expressions, ForkJoinPool pool) {
+			return BulkParser.SHARED.parseAll(expressions, pool);
+		}
+
+		/**
+		 * Lazily parses the expressions of the stream in parallel. The
+		 * encounter order of the stream is kept.
+		 * 
+		 * @param expressions
+		 * @return a parallel stream of {@link ParseResult}
+		 */
+		public static Stream<ParseResult> parseAll(Stream<? extends CharSequence> expressions) {
+			return BulkParser.SHARED.parseAll(expressions);
+		}
+
+		/**
+		 * Parses UTF-8 encoded expressions, one per line, directly from the
+		 * buffer without creating an intermediate String for each line.
+		 * 
+		 * @param utf8Lines
+		 *            the remaining bytes of the buffer are parsed
+		 * @return one {@link ParseResult} for each line
+		 */
+		public static List<ParseResult> parseAll(ByteBuffer utf8Lines) {
+			return BulkParser.SHARED.parseLines(utf8Lines, ForkJoinPool.commonPool());
+		}
+
+		/**
+		 * Parses a UTF-8 encoded file with one expression per line. The file is
+		 * memory mapped as a whole, so it must not be larger than 2 GB.
+		 * 
+		 * @param utf8File
+		 * @return one {@link ParseResult} for each line
+		 * @throws IOException
+		 *             if the file cannot be read or is larger than 2 GB
+		 */
+		public static List<ParseResult> parseAll(Path utf8File) throws IOException {
+			return BulkParser.SHARED.parseLines(utf8File, ForkJoinPool.commonPool());
+		}
+
 		public static GuardExpression trueInstance() {
 			return TRUE_INSTANCE;
 		}
@@ -110,6 +241,10 @@ public interface GuardExpression {
 			return new VariableProvider.DefaultVariableProvider(valueMap);
 		}
 
+		public static VariableTypeProvider mapTypeProvider(Map<String, Class<?>> typeMap) {
+			return new VariableTypeProvider.DefaultVariableTypeProvider(typeMap);
+		}
+
 	}
 
 	/**
@@ -191,10 +326,18 @@ public interface GuardExpression {
 			if (guard== null) {
 				throw new NullPointerException("Expression is NULL");
 			}			
-			try {
-				return new GuardExpressionImpl("!(" + guard.toCanonicalString() + ")");
-			} catch (ParseException e) {
-				throw new RuntimeException("Could not negate expression!", e);
+			if (guard instanceof GuardExpressionImpl) {
+				Node not = new ExprNot(ExpressionParserTreeConstants.JJTNOT);
+				Node child = ((GuardExpressionImpl) guard).getExpression().jjtGetChild(0);
+				child.jjtSetParent(not);
+				not.jjtAddChild(child, 0);
+				return newGuard(not);
+			} else {
+				try {
+					return new GuardExpressionImpl("!(" + guard.toCanonicalString() + ")");
+				} catch (ParseException e) {
+					throw new RuntimeException("Could not negate expression!", e);
+				}
 			}
 		}		
 
@@ -206,10 +349,15 @@ public interface GuardExpression {
 			Node rhsChild = rhs.getExpression().jjtGetChild(0);
 			rhsChild.jjtSetParent(booleanOp);
 			booleanOp.jjtAddChild(rhsChild, 1);
+			// Merges nested operations of the same kind into one n-ary node
+			booleanOp.jjtClose();
+			return newGuard(booleanOp);
+		}
 
+		private static GuardExpression newGuard(Node topLevelNode) {
 			ExprRoot newRoot = new ExprRoot(ExpressionParserTreeConstants.JJTROOT);
-			booleanOp.jjtSetParent(newRoot);
-			newRoot.jjtAddChild(booleanOp, 0);
+			topLevelNode.jjtSetParent(newRoot);
+			newRoot.jjtAddChild(topLevelNode, 0);
 
 			return new GuardExpressionImpl(newRoot);
 		}
@@ -268,6 +416,18 @@ public interface GuardExpression {
 
 	<T> Set<T> getLiteralValues(Class<T> type);
 
+	/**
+	 * Returns the canonical representation of the guard, which also defines
+	 * {@link Object#equals(Object)} of guards. Chains of the same connective
+	 * are printed flat regardless of their nesting, e.g., (a||b)||c, a||(b||c)
+	 * and a||b||c are all printed as (a||b||c). Earlier versions printed the
+	 * nesting of the parser, i.e., ((a||b)||c). Canonical strings stored by
+	 * earlier versions still parse to the same guard, but should be parsed and
+	 * printed again before they are compared with current canonical strings,
+	 * e.g., as keys of a {@link GuardRegistry}.
+	 *
+	 * @return the canonical String representation
+	 */
 	String toCanonicalString();
 
 	String toPrettyString(int spaces);
@@ -3,8 +3,8 @@ package org.processmining.datapetrinets.expression;
 import java.util.Set;
 
 import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.exception.TypeCheckException;
 import org.processmining.datapetrinets.expression.syntax.ExprRoot;
-import org.processmining.datapetrinets.expression.syntax.ExpressionParser;
 import org.processmining.datapetrinets.expression.syntax.ExpressionParserVisitor;
 import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
 import org.processmining.datapetrinets.expression.syntax.ParseException;
@@ -20,12 +20,19 @@ final class GuardExpressionImpl extends AbstractGuardExpression {
 
 	private final ExprRoot expression;
 
-	private final Set<String> normalVariable;
-	private final Set<String> primeVariables;
+	private final SymbolSet normalVariable;
+	private final SymbolSet primeVariables;
 	private final String canonicalString;
 
+	private final PreparedExpression prepared;
+
 	GuardExpressionImpl(String expression) throws ParseException {
-		this(new ExpressionParser(expression).parse());
+		this(BulkParser.SHARED.parseTree(expression));
+	}
+
+	GuardExpressionImpl(String expression, VariableTypeProvider typeProvider, StringDictionary dictionary)
+			throws ParseException, TypeCheckException {
+		this(BulkParser.SHARED.parseTree(expression), typeProvider, dictionary);
 	}
 
 	GuardExpressionImpl(ExprRoot expression) {
@@ -34,6 +41,17 @@ final class GuardExpressionImpl extends AbstractGuardExpression {
 		this.primeVariables = VariableCollector.collectPrimesOnly(expression);
 		this.normalVariable = VariableCollector.collectNormalOnly(expression);
 		this.canonicalString = Printer.printCanonical(expression);
+		this.prepared = null;
+	}
+
+	GuardExpressionImpl(ExprRoot expression, VariableTypeProvider typeProvider, StringDictionary dictionary)
+			throws TypeCheckException {
+		super();
+		this.expression = expression;
+		this.primeVariables = VariableCollector.collectPrimesOnly(expression);
+		this.normalVariable = VariableCollector.collectNormalOnly(expression);
+		this.canonicalString = Printer.printCanonical(expression);
+		this.prepared = Evaluator.prepare(this, typeProvider, PrepareOptions.DEFAULT.withDictionary(dictionary));
 	}
 
 	public ExprRoot getExpression() {
@@ -43,16 +61,27 @@ final class GuardExpressionImpl extends AbstractGuardExpression {
 	@Override
 	public Object evaluate(VariableProvider variableProvider, FunctionProvider functionProvider)
 			throws EvaluatorException {
+		if (prepared != null) {
+			return prepared.evaluate(variableProvider, functionProvider);
+		}
 		return Evaluator.evaluate(this, variableProvider, functionProvider);
 	}
 
+	/**
+	 * @return the {@link PreparedExpression} used for evaluation or NULL if
+	 *         the expression was created without variable types
+	 */
+	public PreparedExpression getPrepared() {
+		return prepared;
+	}
+
 	@Override
-	public Set<String> getNormalVariables() {
+	public SymbolSet getNormalVariables() {
 		return normalVariable;
 	}
 
 	@Override
-	public Set<String> getPrimeVariables() {
+	public SymbolSet getPrimeVariables() {
 		return primeVariables;
 	}
 
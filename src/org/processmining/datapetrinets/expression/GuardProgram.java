@@ -0,0 +1,409 @@
+package org.processmining.datapetrinets.expression;
+
+import org.processmining.datapetrinets.exception.BooleanValueRequired;
+import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.expression.Evaluator.BinaryOperation;
+import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+import org.processmining.datapetrinets.expression.syntax.LiteralSet;
+import org.processmining.datapetrinets.expression.syntax.Symbol;
+
+/**
+ * A {@link GuardExpression} lowered into a linear program for a register
+ * machine. The program is executed by a single loop over the instructions
+ * without visiting the syntax tree. Registers hold primitive numbers and
+ * booleans together with a type tag, so that numeric operations do not box
+ * their operands. Operands of other types are evaluated with the semantics of
+ * {@link Evaluator}, including the conversion of dates. As registers hold
+ * numbers as double values, programs only support
+ * {@link NumericSemantics#FLOATING_POINT}, possibly with another precision of
+ * the comparisons.
+ * <p>
+ * Each instruction starts with a word containing the opcode in the lowest
+ * eight bits and the target register in the remaining bits, followed by its
+ * operands. The operands of an operation are in the registers following its
+ * target register, the operands of <code>&&</code> and <code>||</code> are
+ * only evaluated until the result is known.
+ * <p>
+ * Instances are immutable and can be shared between threads. Use
+ * {@link Evaluator#compile(GuardExpression)} to obtain an instance.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class GuardProgram {
+
+	// Opcodes
+
+	/** LOAD_CONST r, constant: r = constant */
+	static final int LOAD_CONST = 0;
+	/** LOAD_VAR r, symbol: r = value of the variable */
+	static final int LOAD_VAR = 1;
+	/** NOT r, a: r = !a */
+	static final int NOT = 2;
+	/** NEG r, a: r = -a */
+	static final int NEG = 3;
+	/** ADD r, a, b: r = a + b */
+	static final int ADD = 4;
+	static final int SUB = 5;
+	static final int MUL = 6;
+	static final int DIV = 7;
+	/** LT r, a, b: r = a < b */
+	static final int LT = 8;
+	static final int LE = 9;
+	static final int GT = 10;
+	static final int GE = 11;
+	/** EQ r, a, b: r = a == b */
+	static final int EQ = 12;
+	static final int NE = 13;
+	/** IN r, a, set: r = a in set */
+	static final int IN = 14;
+	/**
+	 * CALL r, function, count, variables: r = function(r, ..., r + count - 1),
+	 * variables is the constant with the identifiers of variable arguments or
+	 * -1 if there are none
+	 */
+	static final int CALL = 15;
+	/** JUMP_IF_FALSE r, target: jumps if r is false */
+	static final int JUMP_IF_FALSE = 16;
+	/** JUMP_IF_TRUE r, target: jumps if r is true */
+	static final int JUMP_IF_TRUE = 17;
+	/** AND r, b: r = r && b, both need to be boolean */
+	static final int AND = 18;
+	/** OR r, b: r = r || b, both need to be boolean */
+	static final int OR = 19;
+	/** FAIL message: throws an {@link ExpressionVisitorException} */
+	static final int FAIL = 20;
+	/** RETURN r */
+	static final int RETURN = 21;
+
+	private static final String[] MNEMONICS = { "LOAD_CONST", "LOAD_VAR", "NOT", "NEG", "ADD", "SUB", "MUL", "DIV",
+			"LT", "LE", "GT", "GE", "EQ", "NE", "IN", "CALL", "JUMP_IF_FALSE", "JUMP_IF_TRUE", "AND", "OR", "FAIL",
+			"RETURN" };
+
+	private static final int[] OPERAND_COUNT = { 1, 1, 1, 1, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 3, 1, 1, 1, 1, 1, 0 };
+
+	// Register tags
+
+	static final byte TAG_NULL = 0;
+	static final byte TAG_BOOLEAN = 1;
+	static final byte TAG_NUMBER = 2;
+	static final byte TAG_OBJECT = 3;
+
+	/**
+	 * Register file of one execution. Numbers are kept in {@link #numbers},
+	 * booleans as 0 or 1 in {@link #bits}. The original object of a number is
+	 * kept in {@link #objects} if there is one, so that it can be passed on
+	 * unchanged.
+	 */
+	private static final class Registers {
+
+		private final byte[] tags;
+		private final long[] bits;
+		private final double[] numbers;
+		private final Object[] objects;
+
+		private Registers(int size) {
+			tags = new byte[size];
+			bits = new long[size];
+			numbers = new double[size];
+			objects = new Object[size];
+		}
+
+		private void set(int r, Object value) {
+			if (value instanceof Number) {
+				tags[r] = TAG_NUMBER;
+				numbers[r] = ((Number) value).doubleValue();
+			} else if (value instanceof Boolean) {
+				tags[r] = TAG_BOOLEAN;
+				bits[r] = (Boolean) value ? 1 : 0;
+			} else {
+				tags[r] = value == null ? TAG_NULL : TAG_OBJECT;
+			}
+			objects[r] = value;
+		}
+
+		private void setNumber(int r, double value) {
+			tags[r] = TAG_NUMBER;
+			numbers[r] = value;
+			objects[r] = null;
+		}
+
+		private void setBoolean(int r, boolean value) {
+			tags[r] = TAG_BOOLEAN;
+			bits[r] = value ? 1 : 0;
+			objects[r] = null;
+		}
+
+		private Object get(int r) {
+			switch (tags[r]) {
+				case TAG_NUMBER :
+					return objects[r] != null ? objects[r] : Double.valueOf(numbers[r]);
+				case TAG_BOOLEAN :
+					return bits[r] != 0;
+				default :
+					return objects[r];
+			}
+		}
+
+		private boolean isNumber(int r) {
+			return tags[r] == TAG_NUMBER;
+		}
+
+		private boolean isBoolean(int r) {
+			return tags[r] == TAG_BOOLEAN;
+		}
+
+	}
+
+	private final String expression;
+	private final int[] code;
+	private final Object[] constants;
+	private final Symbol[] symbols;
+	private final LiteralSet[] sets;
+	private final int registerCount;
+	private final NumericSemantics semantics;
+
+	/**
+	 * Operations on operands that are not both numbers indexed by opcode
+	 */
+	private final BinaryOperation[] operations = new BinaryOperation[NE + 1];
+
+	GuardProgram(String expression, int[] code, Object[] constants, Symbol[] symbols, LiteralSet[] sets,
+			int registerCount, NumericSemantics semantics) {
+		if (semantics.isExactIntegers()) {
+			throw new IllegalArgumentException("Programs compute with double values and do not support " + semantics
+					+ "!");
+		}
+		this.expression = expression;
+		this.code = code;
+		this.constants = constants;
+		this.symbols = symbols;
+		this.sets = sets;
+		this.registerCount = registerCount;
+		this.semantics = semantics;
+		operations[ADD] = Evaluator.Visitor.plus;
+		operations[SUB] = Evaluator.Visitor.minus;
+		operations[MUL] = Evaluator.Visitor.mult;
+		operations[DIV] = Evaluator.Visitor.div;
+		operations[LT] = Evaluator.Visitor.lessThan;
+		operations[LE] = Evaluator.Visitor.atMost;
+		operations[GT] = Evaluator.Visitor.greaterThan;
+		operations[GE] = Evaluator.Visitor.atLeast;
+		operations[EQ] = Evaluator.Visitor.equal;
+		for (int i = ADD; i <= EQ; i++) {
+			operations[i] = Evaluator.Visitor.operation(operations[i], semantics);
+		}
+	}
+
+	public Object evaluate(VariableProvider variableProvider, FunctionProvider functionProvider)
+			throws EvaluatorException {
+		try {
+			return execute(variableProvider, functionProvider);
+		} catch (ExpressionVisitorException | EvaluatorException e) {
+			// Add context information
+			throw EvaluatorException.lazy(e, "Error trying to evaluate expression %s", expression);
+		}
+	}
+
+	private Object execute(VariableProvider variableProvider, FunctionProvider functionProvider)
+			throws ExpressionVisitorException {
+		final int[] code = this.code;
+		final Registers registers = new Registers(registerCount);
+		final byte[] tags = registers.tags;
+		final long[] bits = registers.bits;
+		final double[] numbers = registers.numbers;
+		int pc = 0;
+		while (true) {
+			int instruction = code[pc];
+			int r = instruction >>> 8;
+			switch (instruction & 0xFF) {
+				case LOAD_CONST :
+					registers.set(r, constants[code[pc + 1]]);
+					pc += 2;
+					break;
+				case LOAD_VAR :
+					registers.set(r, variableProvider.getValue(symbols[code[pc + 1]]));
+					pc += 2;
+					break;
+				case NOT :
+					if (!registers.isBoolean(code[pc + 1])) {
+						throw new EvaluatorException("'!' is not defined for non-boolean values!");
+					}
+					registers.setBoolean(r, bits[code[pc + 1]] == 0);
+					pc += 2;
+					break;
+				case NEG :
+					if (!registers.isNumber(code[pc + 1])) {
+						throw new EvaluatorException("Negation is not defined for non-numeric values!");
+					}
+					registers.setNumber(r, -numbers[code[pc + 1]]);
+					pc += 2;
+					break;
+				case ADD :
+				case SUB :
+				case MUL :
+				case DIV : {
+					int a = code[pc + 1], b = code[pc + 2];
+					if (tags[a] == TAG_NUMBER && tags[b] == TAG_NUMBER) {
+						registers.setNumber(r, arithmetic(instruction & 0xFF, numbers[a], numbers[b]));
+					} else {
+						registers.set(r, Evaluator.Visitor.calcBinaryExpression(registers.get(a), registers.get(b),
+								operations[instruction & 0xFF]));
+					}
+					pc += 3;
+					break;
+				}
+				case LT :
+				case LE :
+				case GT :
+				case GE : {
+					int a = code[pc + 1], b = code[pc + 2];
+					if (tags[a] == TAG_NUMBER && tags[b] == TAG_NUMBER) {
+						int x = semantics.compare(numbers[a], numbers[b]);
+						registers.setBoolean(r, comparison(instruction & 0xFF, x));
+					} else {
+						registers.set(r, Evaluator.Visitor.calcBinaryExpression(registers.get(a), registers.get(b),
+								operations[instruction & 0xFF]));
+					}
+					pc += 3;
+					break;
+				}
+				case EQ :
+				case NE : {
+					int a = code[pc + 1], b = code[pc + 2];
+					boolean isEqual;
+					if (tags[a] == TAG_NUMBER && tags[b] == TAG_NUMBER) {
+						isEqual = semantics.equal(numbers[a], numbers[b]);
+					} else if (tags[a] == TAG_BOOLEAN && tags[b] == TAG_BOOLEAN) {
+						isEqual = bits[a] == bits[b];
+					} else {
+						isEqual = (Boolean) operations[EQ].evaluate(registers.get(a), registers.get(b));
+					}
+					registers.setBoolean(r, (instruction & 0xFF) == EQ ? isEqual : !isEqual);
+					pc += 3;
+					break;
+				}
+				case IN : {
+					int a = code[pc + 1];
+					LiteralSet set = sets[code[pc + 2]];
+					if (tags[a] == TAG_NUMBER) {
+						registers.setBoolean(r, set.containsNumber(numbers[a], semantics.getPrecision()));
+					} else {
+						registers.setBoolean(r, Evaluator.Visitor.isMember(registers.get(a), set, semantics.getPrecision()));
+					}
+					pc += 3;
+					break;
+				}
+				case CALL : {
+					String function = (String) constants[code[pc + 1]];
+					Object[] parameters = new Object[code[pc + 2]];
+					for (int i = 0; i < parameters.length; i++) {
+						parameters[i] = registers.get(r + i);
+					}
+					if (code[pc + 3] >= 0 && Evaluator.passesValues(functionProvider, function)) {
+						CompiledGuardSupport.resolveVariables(parameters, (String[]) constants[code[pc + 3]],
+								variableProvider);
+					}
+					registers.set(r, functionProvider.calculate(function, parameters));
+					pc += 4;
+					break;
+				}
+				case JUMP_IF_FALSE :
+					pc = tags[r] == TAG_BOOLEAN && bits[r] == 0 ? code[pc + 1] : pc + 2;
+					break;
+				case JUMP_IF_TRUE :
+					pc = tags[r] == TAG_BOOLEAN && bits[r] != 0 ? code[pc + 1] : pc + 2;
+					break;
+				case AND :
+				case OR : {
+					int b = code[pc + 1];
+					if (tags[r] != TAG_BOOLEAN || tags[b] != TAG_BOOLEAN) {
+						throw BooleanValueRequired.lazy(null,
+								"Unable to determine < %s %s %s >. Operation not defined for non-boolean values!",
+								registers.get(r), (instruction & 0xFF) == AND ? "&&" : "||", registers.get(b));
+					}
+					// The result is determined by the last operand
+					registers.setBoolean(r, bits[b] != 0);
+					pc += 2;
+					break;
+				}
+				case FAIL :
+					throw new ExpressionVisitorException((String) constants[code[pc + 1]]);
+				case RETURN :
+					return registers.get(r);
+				default :
+					throw new IllegalStateException("Unknown opcode " + (instruction & 0xFF) + " at " + pc);
+			}
+		}
+	}
+
+	private static double arithmetic(int opcode, double lhs, double rhs) {
+		switch (opcode) {
+			case ADD :
+				return lhs + rhs;
+			case SUB :
+				return lhs - rhs;
+			case MUL :
+				return lhs * rhs;
+			default :
+				return lhs / rhs;
+		}
+	}
+
+	private static boolean comparison(int opcode, int x) {
+		switch (opcode) {
+			case LT :
+				return x < 0;
+			case LE :
+				return x <= 0;
+			case GT :
+				return x > 0;
+			default :
+				return x >= 0;
+		}
+	}
+
+	/**
+	 * @return the treatment of numbers, always floating point
+	 */
+	public NumericSemantics getSemantics() {
+		return semantics;
+	}
+
+	/**
+	 * @return the number of registers used by the program
+	 */
+	public int getRegisterCount() {
+		return registerCount;
+	}
+
+	/**
+	 * @return the number of words of the program
+	 */
+	public int size() {
+		return code.length;
+	}
+
+	/**
+	 * @return a listing of the instructions, one per line
+	 */
+	public String disassemble() {
+		StringBuilder sb = new StringBuilder();
+		int pc = 0;
+		while (pc < code.length) {
+			int opcode = code[pc] & 0xFF;
+			sb.append(pc).append(": ").append(MNEMONICS[opcode]).append(" r").append(code[pc] >>> 8);
+			for (int i = 1; i <= OPERAND_COUNT[opcode]; i++) {
+				sb.append(", ").append(code[pc + i]);
+			}
+			sb.append('\n');
+			pc += 1 + OPERAND_COUNT[opcode];
+		}
+		return sb.toString();
+	}
+
+	public String toString() {
+		return expression;
+	}
+
+}
@@ -0,0 +1,159 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.expression.syntax.ParseException;
+
+/**
+ * Looks up guards compiled ahead of time by their canonical string. Guards
+ * that are not part of a registered {@link CompiledGuardSet} are evaluated by
+ * the {@link Evaluator}. Guards looked up by {@link #lookup(String)} are only
+ * parsed if they are not registered or if their syntax tree is needed, e.g.,
+ * to list their variables. Instances can be shared between threads.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class GuardRegistry {
+
+	private static final class Entry {
+
+		private final CompiledGuardSet guardSet;
+		private final int index;
+
+		private Entry(CompiledGuardSet guardSet, int index) {
+			this.guardSet = guardSet;
+			this.index = index;
+		}
+
+	}
+
+	private static final class CompiledGuardExpression extends ForwardingGuardExpression {
+
+		private final String canonicalString;
+		private final Entry entry;
+
+		private volatile GuardExpression parsed;
+
+		private CompiledGuardExpression(GuardExpression guard, Entry entry) {
+			super(guard);
+			this.canonicalString = guard.toCanonicalString();
+			this.entry = entry;
+			this.parsed = guard;
+		}
+
+		private CompiledGuardExpression(String canonicalString, Entry entry) {
+			super(null);
+			this.canonicalString = canonicalString;
+			this.entry = entry;
+		}
+
+		@Override
+		public GuardExpression getGuard() {
+			GuardExpression guard = parsed;
+			if (guard == null) {
+				try {
+					guard = GuardExpression.Factory.newInstance(canonicalString);
+				} catch (ParseException e) {
+					throw new IllegalStateException("Could not parse compiled guard " + canonicalString, e);
+				}
+				// Threads parsing at the same time create equal guards
+				parsed = guard;
+			}
+			return guard;
+		}
+
+		@Override
+		public String toCanonicalString() {
+			return canonicalString;
+		}
+
+		@Override
+		public Object evaluate(VariableProvider variableProvider, FunctionProvider functionProvider)
+				throws EvaluatorException {
+			try {
+				return entry.guardSet.evaluate(entry.index, variableProvider, functionProvider);
+			} catch (EvaluatorException e) {
+				// Add context information
+				throw EvaluatorException.lazy(e, "Error trying to evaluate expression %s", canonicalString);
+			}
+		}
+
+	}
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * Registers all guards of the set, replacing previously registered guards
+	 * with the same canonical string.
+	 * 
+	 * @param guardSet
+	 * @throws IllegalArgumentException
+	 *             if the set was generated for another version of
+	 *             {@link CompiledGuardSupport}
+	 */
+	public void register(CompiledGuardSet guardSet) {
+		if (guardSet.getFormatVersion() != CompiledGuardSet.FORMAT_VERSION) {
+			throw new IllegalArgumentException("Compiled guards " + guardSet.getClass().getName()
+					+ " have format version " + guardSet.getFormatVersion() + ", but version "
+					+ CompiledGuardSet.FORMAT_VERSION + " is required! Generate them again with the "
+					+ GuardSourceGenerator.class.getSimpleName() + " of this version.");
+		}
+		String[] canonicalStrings = guardSet.getCanonicalStrings();
+		for (int i = 0; i < canonicalStrings.length; i++) {
+			entries.put(canonicalStrings[i], new Entry(guardSet, i));
+		}
+	}
+
+	/**
+	 * @param canonicalString
+	 * @return whether a compiled version of the guard is registered
+	 */
+	public boolean contains(String canonicalString) {
+		return entries.containsKey(canonicalString);
+	}
+
+	/**
+	 * @param guard
+	 * @return a guard that is evaluated by its compiled version or the guard
+	 *         itself if no compiled version is registered
+	 */
+	public GuardExpression lookup(GuardExpression guard) {
+		Entry entry = entries.get(guard.toCanonicalString());
+		if (entry != null) {
+			return new CompiledGuardExpression(guard, entry);
+		}
+		return guard;
+	}
+
+	/**
+	 * Looks up a guard without parsing it if a compiled version is
+	 * registered.
+	 * 
+	 * @param canonicalString
+	 *            the canonical string of the guard as returned by
+	 *            {@link GuardExpression#toCanonicalString()}
+	 * @return a guard that is evaluated by its compiled version or the parsed
+	 *         guard if no compiled version is registered
+	 * @throws ParseException
+	 *             if no compiled version is registered and the string is not
+	 *             a valid guard
+	 */
+	public GuardExpression lookup(String canonicalString) throws ParseException {
+		Entry entry = entries.get(canonicalString);
+		if (entry != null) {
+			return new CompiledGuardExpression(canonicalString, entry);
+		}
+		return GuardExpression.Factory.newInstance(canonicalString);
+	}
+
+	/**
+	 * @return the number of registered guards
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+}
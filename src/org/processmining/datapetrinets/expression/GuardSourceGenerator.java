@@ -0,0 +1,576 @@
+package org.processmining.datapetrinets.expression;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.processmining.datapetrinets.exception.TypeCheckException;
+import org.processmining.datapetrinets.expression.syntax.ExprLitBoolean;
+import org.processmining.datapetrinets.expression.syntax.ExprLitDouble;
+import org.processmining.datapetrinets.expression.syntax.ExprLitInteger;
+import org.processmining.datapetrinets.expression.syntax.ExprLitString;
+import org.processmining.datapetrinets.expression.syntax.ExprNegation;
+import org.processmining.datapetrinets.expression.syntax.ExprRoot;
+import org.processmining.datapetrinets.expression.syntax.ExprVariable;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserDefaultVisitor;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserTreeConstants;
+import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+import org.processmining.datapetrinets.expression.syntax.Node;
+import org.processmining.datapetrinets.expression.syntax.SimpleNode;
+
+/**
+ * Generates the Java source of a {@link CompiledGuardSet} for a fixed set of
+ * guards, e.g., during the build of a deployment of a model. Every guard is
+ * translated into one static method. Operations on operands of declared
+ * numeric type are evaluated on primitive values, all other operations with
+ * the semantics of {@link Evaluator} through {@link CompiledGuardSupport}.
+ * Numbers are treated according to {@link NumericSemantics#FLOATING_POINT},
+ * guards that need other semantics should be evaluated by a
+ * {@link PreparedExpression} instead.
+ * <p>
+ * The generated class is looked up at runtime through a
+ * {@link GuardRegistry}, which neither parses nor compiles the guards.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class GuardSourceGenerator {
+
+	/**
+	 * Operations nested more deeply or longer code are moved to methods of
+	 * their own
+	 */
+	private static final int MAX_NESTING = 32;
+	private static final int MAX_LENGTH = 4096;
+
+	private enum Kind {
+		BOOLEAN, DOUBLE, OBJECT
+	}
+
+	/**
+	 * Java expression that evaluates a node
+	 */
+	private static final class Code {
+
+		private final String text;
+		private final Kind kind;
+		private final String constantDouble;
+		private final int nesting;
+
+		private Code(String text, Kind kind) {
+			this(text, kind, null);
+		}
+
+		/**
+		 * @param text
+		 * @param kind
+		 * @param constantDouble
+		 *            Java literal used if a numeric constant is required as
+		 *            double, may be NULL
+		 */
+		private Code(String text, Kind kind, String constantDouble) {
+			this(text, kind, constantDouble, 0);
+		}
+
+		/**
+		 * @param nesting
+		 *            how deeply the Java operations of the text are nested
+		 */
+		private Code(String text, Kind kind, String constantDouble, int nesting) {
+			this.text = text;
+			this.kind = kind;
+			this.constantDouble = constantDouble;
+			this.nesting = nesting;
+		}
+
+		private String asObject() {
+			switch (kind) {
+				case BOOLEAN :
+					return "Boolean.valueOf(" + text + ")";
+				case DOUBLE :
+					return "Double.valueOf(" + text + ")";
+				default :
+					return text;
+			}
+		}
+
+		private String asDouble() {
+			if (constantDouble != null) {
+				return constantDouble;
+			}
+			return kind == Kind.DOUBLE ? text : "toDouble(" + asObject() + ")";
+		}
+
+		private String asBoolean() {
+			return kind == Kind.BOOLEAN ? text : "toBoolean(" + asObject() + ")";
+		}
+
+	}
+
+	/**
+	 * Translates the nodes of a guard in post-order, the code of the operands
+	 * is kept on a stack
+	 */
+	private final class CodeGenerator extends ExpressionParserDefaultVisitor {
+
+		private final Map<Node, ExpressionType> types;
+		private final Deque<Code> operands = new ArrayDeque<>();
+
+		private CodeGenerator(Map<Node, ExpressionType> types) {
+			this.types = types;
+		}
+
+		private boolean isNumeric(Node node) {
+			ExpressionType type = types.get(node);
+			return type != null && type.isNumeric();
+		}
+
+		private Code[] pop(int count) {
+			Code[] codes = new Code[count];
+			for (int i = count - 1; i >= 0; i--) {
+				codes[i] = operands.pop();
+			}
+			return codes;
+		}
+
+		private Code arithmetic(SimpleNode node, String operator, String operation) {
+			Code[] codes = pop(2);
+			if (isNumeric(node.jjtGetChild(0)) && isNumeric(node.jjtGetChild(1))) {
+				return new Code("(" + codes[0].asDouble() + " " + operator + " " + codes[1].asDouble() + ")",
+						Kind.DOUBLE);
+			}
+			return new Code(operation + "(" + codes[0].asObject() + ", " + codes[1].asObject() + ")", Kind.OBJECT);
+		}
+
+		private Code comparison(SimpleNode node, String operator, String operation) {
+			Code[] codes = pop(2);
+			if (isNumeric(node.jjtGetChild(0)) && isNumeric(node.jjtGetChild(1))) {
+				return new Code("(compare(" + codes[0].asDouble() + ", " + codes[1].asDouble() + ") " + operator
+						+ " 0)", Kind.BOOLEAN);
+			}
+			return new Code(operation + "(" + codes[0].asObject() + ", " + codes[1].asObject() + ")", Kind.BOOLEAN);
+		}
+
+		private Code equality(SimpleNode node, boolean negated) {
+			Code[] codes = pop(2);
+			String prefix = negated ? "!" : "";
+			if (isNumeric(node.jjtGetChild(0)) && isNumeric(node.jjtGetChild(1))) {
+				return new Code(prefix + "equal(" + codes[0].asDouble() + ", " + codes[1].asDouble() + ")",
+						Kind.BOOLEAN);
+			}
+			return new Code(prefix + "equal(" + codes[0].asObject() + ", " + codes[1].asObject() + ")",
+					Kind.BOOLEAN);
+		}
+
+		private Code logical(SimpleNode node, String operator) {
+			Code[] codes = pop(node.jjtGetNumChildren());
+			StringBuilder sb = new StringBuilder("(");
+			for (int i = 0; i < codes.length; i++) {
+				if (i > 0) {
+					if (i % MAX_NESTING == 0) {
+						// The Java compiler nests every operand one level deeper
+						Code chain = extract(new Code(sb.append(')').toString(), Kind.BOOLEAN));
+						sb = new StringBuilder("(").append(chain.text);
+					}
+					sb.append(' ').append(operator).append(' ');
+				}
+				sb.append(codes[i].asBoolean());
+			}
+			return new Code(sb.append(')').toString(), Kind.BOOLEAN);
+		}
+
+		public Object visit(ExprRoot node, Object data) throws ExpressionVisitorException {
+			if (node.jjtGetNumChildren() != 1) {
+				throw new ExpressionVisitorException("Invalid expression " + Printer.printCanonical(node)
+						+ " should not have been parsed! Top level element is only allowed to have one child.");
+			}
+			TreeTraversal.postOrder(node.jjtGetChild(0), this, data);
+			return operands.pop().asObject();
+		}
+
+		public Object defaultVisit(SimpleNode node, Object data) throws ExpressionVisitorException {
+			int nesting = 0;
+			int count = 0;
+			for (Code operand : operands) {
+				if (count++ == node.jjtGetNumChildren()) {
+					break;
+				}
+				nesting = Math.max(nesting, operand.nesting + 1);
+			}
+			if (node.getId() == ExpressionParserTreeConstants.JJTAND
+					|| node.getId() == ExpressionParserTreeConstants.JJTOR) {
+				nesting += node.jjtGetNumChildren() % MAX_NESTING;
+			}
+			Code code = generate(node);
+			if (nesting > MAX_NESTING || code.text.length() > MAX_LENGTH) {
+				operands.push(extract(code));
+			} else {
+				operands.push(new Code(code.text, code.kind, code.constantDouble, nesting));
+			}
+			return data;
+		}
+
+		private Code generate(SimpleNode node) throws ExpressionVisitorException {
+			switch (node.getId()) {
+				case ExpressionParserTreeConstants.JJTLITNULL :
+					return new Code("null", Kind.OBJECT);
+				case ExpressionParserTreeConstants.JJTLITBOOLEAN :
+					return new Code(String.valueOf(Boolean.valueOf((String) node.jjtGetValue())), Kind.BOOLEAN);
+				case ExpressionParserTreeConstants.JJTLITSTRING :
+					return new Code(javaString(Evaluator.Visitor.unquote((String) node.jjtGetValue())), Kind.OBJECT);
+				case ExpressionParserTreeConstants.JJTLITDOUBLE : {
+					double value = Double.parseDouble((String) node.jjtGetValue());
+					return new Code(constant("Double", "Double.valueOf(" + javaDouble(value) + ")"), Kind.OBJECT,
+							javaDouble(value));
+				}
+				case ExpressionParserTreeConstants.JJTLITINTEGER : {
+					long value = Long.parseLong((String) node.jjtGetValue());
+					return new Code(constant("Long", "Long.valueOf(" + value + "L)"), Kind.OBJECT,
+							(double) value + "d");
+				}
+				case ExpressionParserTreeConstants.JJTVARIABLE : {
+					String identifier = (String) node.jjtGetValue();
+					if (Evaluator.identifierArgument(node) != null) {
+						return new Code(javaString(identifier), Kind.OBJECT);
+					}
+					return new Code("variables.getValue(" + javaString(identifier) + ")", Kind.OBJECT);
+				}
+				case ExpressionParserTreeConstants.JJTNOT :
+					return new Code("!" + pop(1)[0].asBoolean(), Kind.BOOLEAN);
+				case ExpressionParserTreeConstants.JJTNEGATION : {
+					Code operand = pop(1)[0];
+					if (isNumeric(node.jjtGetChild(0))) {
+						return new Code("(-" + operand.asDouble() + ")", Kind.DOUBLE);
+					}
+					return new Code("negate(" + operand.asObject() + ")", Kind.OBJECT);
+				}
+				case ExpressionParserTreeConstants.JJTPLUS :
+					return arithmetic(node, "+", "plus");
+				case ExpressionParserTreeConstants.JJTMINUS :
+					return arithmetic(node, "-", "minus");
+				case ExpressionParserTreeConstants.JJTMULT :
+					return arithmetic(node, "*", "mult");
+				case ExpressionParserTreeConstants.JJTDIV :
+					return arithmetic(node, "/", "div");
+				case ExpressionParserTreeConstants.JJTLESSTHAN :
+					return comparison(node, "<", "lessThan");
+				case ExpressionParserTreeConstants.JJTATMOST :
+					return comparison(node, "<=", "atMost");
+				case ExpressionParserTreeConstants.JJTGREATERTHAN :
+					return comparison(node, ">", "greaterThan");
+				case ExpressionParserTreeConstants.JJTATLEAST :
+					return comparison(node, ">=", "atLeast");
+				case ExpressionParserTreeConstants.JJTEQUAL :
+					return equality(node, false);
+				case ExpressionParserTreeConstants.JJTNOTEQUAL :
+					return equality(node, true);
+				case ExpressionParserTreeConstants.JJTSET :
+					// The code of the literals is not used
+					pop(node.jjtGetNumChildren());
+					return new Code(set(node), Kind.OBJECT);
+				case ExpressionParserTreeConstants.JJTIN : {
+					Code[] codes = pop(2);
+					if (isNumeric(node.jjtGetChild(0))) {
+						return new Code("isMember(" + codes[0].asDouble() + ", " + codes[1].text + ")", Kind.BOOLEAN);
+					}
+					return new Code("isMember(" + codes[0].asObject() + ", " + codes[1].text + ")", Kind.BOOLEAN);
+				}
+				case ExpressionParserTreeConstants.JJTAND :
+					return logical(node, "&&");
+				case ExpressionParserTreeConstants.JJTOR :
+					return logical(node, "||");
+				case ExpressionParserTreeConstants.JJTFUNCTION : {
+					Code[] codes = pop(node.jjtGetNumChildren());
+					StringBuilder identifiers = new StringBuilder();
+					boolean hasVariables = false;
+					for (int i = 0; i < codes.length; i++) {
+						Node child = node.jjtGetChild(i);
+						hasVariables |= child instanceof ExprVariable;
+						identifiers.append(i > 0 ? ", " : " ").append(
+								child instanceof ExprVariable ? javaString((String) ((ExprVariable) child).jjtGetValue()) : "null");
+					}
+					StringBuilder sb = new StringBuilder(hasVariables ? "call(functions, variables, " : "functions.calculate(");
+					sb.append(javaString((String) node.jjtGetValue())).append(", new Object[] {");
+					for (int i = 0; i < codes.length; i++) {
+						sb.append(i > 0 ? ", " : " ").append(codes[i].asObject());
+					}
+					sb.append(codes.length > 0 ? " }" : "}");
+					if (hasVariables) {
+						// Variables are resolved by the call if the function takes values
+						sb.append(", new String[] {").append(identifiers).append(" }");
+					}
+					return new Code(sb.append(')').toString(), Kind.OBJECT);
+				}
+				default :
+					throw new ExpressionVisitorException("No unamed nodes allowed!");
+			}
+		}
+
+	}
+
+	private final String packageName;
+	private final String className;
+	private final VariableTypeProvider typeProvider;
+
+	private final Map<String, String> methods = new LinkedHashMap<>();
+	private final List<String> parts = new ArrayList<>();
+	private final Map<String, String> constants = new LinkedHashMap<>();
+	private final Map<String, String> constantTypes = new HashMap<>();
+
+	/**
+	 * @param packageName
+	 *            package of the generated class, may be empty
+	 * @param className
+	 *            simple name of the generated class
+	 * @param typeProvider
+	 *            declared types of the variables
+	 */
+	public GuardSourceGenerator(String packageName, String className, VariableTypeProvider typeProvider) {
+		this.packageName = packageName;
+		this.className = className;
+		this.typeProvider = typeProvider;
+	}
+
+	/**
+	 * Adds the guard to the generated class. Guards with the same canonical
+	 * string are only added once.
+	 *
+	 * @param guard
+	 * @throws TypeCheckException
+	 *             in case the guard is ill-typed
+	 */
+	public void add(GuardExpression guard) throws TypeCheckException {
+		String canonicalString = guard.toCanonicalString();
+		if (methods.containsKey(canonicalString)) {
+			return;
+		}
+		CodeGenerator generator = new CodeGenerator(TypeChecker.check(guard, typeProvider));
+		try {
+			methods.put(canonicalString, (String) guard.visit(generator, null));
+		} catch (ExpressionVisitorException e) {
+			throw new TypeCheckException("Could not generate code for expression " + canonicalString, e);
+		}
+	}
+
+	/**
+	 * @return the number of guards in the generated class
+	 */
+	public int size() {
+		return methods.size();
+	}
+
+	public String getQualifiedClassName() {
+		return packageName.isEmpty() ? className : packageName + "." + className;
+	}
+
+	/**
+	 * @return the source code of the class
+	 */
+	public String generate() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("/* Generated by ").append(GuardSourceGenerator.class.getName()).append(". Do not edit. */\n");
+		if (!packageName.isEmpty()) {
+			sb.append("package ").append(packageName).append(";\n\n");
+		}
+		sb.append("import static ").append(CompiledGuardSupport.class.getName()).append(".*;\n\n");
+		sb.append("import ").append(CompiledGuardSet.class.getName()).append(";\n");
+		sb.append("import ").append(FunctionProvider.class.getName()).append(";\n");
+		sb.append("import ").append(VariableProvider.class.getName()).append(";\n");
+		sb.append("import ").append(org.processmining.datapetrinets.expression.syntax.LiteralSet.class.getName())
+				.append(";\n\n");
+		sb.append("public final class ").append(className).append(" implements CompiledGuardSet {\n\n");
+
+		sb.append("\tprivate static final String[] CANONICAL_STRINGS = {\n");
+		for (String canonicalString : methods.keySet()) {
+			sb.append("\t\t").append(javaString(canonicalString)).append(",\n");
+		}
+		sb.append("\t};\n\n");
+		for (Map.Entry<String, String> constant : constants.entrySet()) {
+			sb.append("\tprivate static final ").append(constantTypes.get(constant.getValue())).append(' ')
+					.append(constant.getValue()).append(" = ").append(constant.getKey()).append(";\n");
+		}
+		if (!constants.isEmpty()) {
+			sb.append('\n');
+		}
+
+		sb.append("\tpublic int getFormatVersion() {\n");
+		sb.append("\t\treturn ").append(CompiledGuardSet.FORMAT_VERSION).append(";\n");
+		sb.append("\t}\n\n");
+
+		sb.append("\tpublic String[] getCanonicalStrings() {\n");
+		sb.append("\t\treturn CANONICAL_STRINGS.clone();\n");
+		sb.append("\t}\n\n");
+
+		sb.append("\tpublic Object evaluate(int guard, VariableProvider variables, FunctionProvider functions) {\n");
+		sb.append("\t\tswitch (guard) {\n");
+		for (int i = 0; i < methods.size(); i++) {
+			sb.append("\t\t\tcase ").append(i).append(" :\n");
+			sb.append("\t\t\t\treturn guard").append(i).append("(variables, functions);\n");
+		}
+		sb.append("\t\t\tdefault :\n");
+		sb.append("\t\t\t\tthrow new IllegalArgumentException(\"Unknown guard \" + guard);\n");
+		sb.append("\t\t}\n");
+		sb.append("\t}\n");
+
+		int index = 0;
+		for (Map.Entry<String, String> method : methods.entrySet()) {
+			sb.append("\n\t// ").append(comment(method.getKey())).append('\n');
+			sb.append("\tprivate static Object guard").append(index++)
+					.append("(VariableProvider variables, FunctionProvider functions) {\n");
+			sb.append("\t\treturn ").append(method.getValue()).append(";\n");
+			sb.append("\t}\n");
+		}
+		for (String part : parts) {
+			sb.append('\n').append(part);
+		}
+		sb.append("\n}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Writes the source code into the directory of its package below the
+	 * source directory.
+	 *
+	 * @param sourceDirectory
+	 * @return the written file
+	 * @throws IOException
+	 */
+	public Path write(Path sourceDirectory) throws IOException {
+		Path directory = packageName.isEmpty() ? sourceDirectory
+				: sourceDirectory.resolve(packageName.replace('.', '/'));
+		Files.createDirectories(directory);
+		Path file = directory.resolve(className + ".java");
+		Files.write(file, generate().getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	/**
+	 * Moves the code into a method of its own. The Java compiler recurses on
+	 * nested operations, so that deep guards are split into several methods.
+	 * 
+	 * @return the code calling the method
+	 */
+	private Code extract(Code code) {
+		String method = "part" + parts.size();
+		String type = code.kind == Kind.BOOLEAN ? "boolean" : code.kind == Kind.DOUBLE ? "double" : "Object";
+		parts.add("\tprivate static " + type + " " + method
+				+ "(VariableProvider variables, FunctionProvider functions) {\n\t\treturn " + code.text + ";\n\t}\n");
+		return new Code(method + "(variables, functions)", code.kind);
+	}
+
+	/**
+	 * @return the name of the static field initialized with the expression
+	 */
+	private String constant(String type, String initializer) {
+		String field = constants.get(initializer);
+		if (field == null) {
+			field = "CONSTANT" + constants.size();
+			constants.put(initializer, field);
+			constantTypes.put(field, type);
+		}
+		return field;
+	}
+
+	private String set(SimpleNode node) {
+		Set<String> seen = new HashSet<>();
+		List<String> values = new ArrayList<>();
+		for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+			String value = setElement(node.jjtGetChild(i));
+			if (seen.add(value)) {
+				values.add(value);
+			}
+		}
+		StringBuilder sb = new StringBuilder("LiteralSet.of(new Object[] {");
+		for (int i = 0; i < values.size(); i++) {
+			sb.append(i > 0 ? ", " : " ").append(values.get(i));
+		}
+		return constant("LiteralSet", sb.append(values.isEmpty() ? "})" : " })").toString());
+	}
+
+	private static String setElement(Node node) {
+		if (node instanceof ExprLitString) {
+			return javaString(Evaluator.Visitor.unquote((String) ((ExprLitString) node).jjtGetValue()));
+		} else if (node instanceof ExprLitBoolean) {
+			return "Boolean." + ((String) ((ExprLitBoolean) node).jjtGetValue()).toUpperCase();
+		} else if (node.getId() == ExpressionParserTreeConstants.JJTLITNULL) {
+			return "null";
+		}
+		return javaDouble(numberValue(node));
+	}
+
+	private static double numberValue(Node node) {
+		if (node instanceof ExprNegation) {
+			return -numberValue(node.jjtGetChild(0));
+		} else if (node instanceof ExprLitInteger) {
+			return Long.parseLong((String) ((ExprLitInteger) node).jjtGetValue());
+		} else if (node instanceof ExprLitDouble) {
+			return Double.parseDouble((String) ((ExprLitDouble) node).jjtGetValue());
+		}
+		throw new IllegalArgumentException("Unsupported set element " + node);
+	}
+
+	/**
+	 * @return the Java expression denoting the double, literals that are too
+	 *         large for a double are infinite
+	 */
+	static String javaDouble(double value) {
+		if (value == Double.POSITIVE_INFINITY) {
+			return "Double.POSITIVE_INFINITY";
+		} else if (value == Double.NEGATIVE_INFINITY) {
+			return "Double.NEGATIVE_INFINITY";
+		} else if (Double.isNaN(value)) {
+			return "Double.NaN";
+		}
+		return value + "d";
+	}
+
+	/**
+	 * @return the Java literal denoting the string
+	 */
+	static String javaString(String value) {
+		StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20 || c == 0x7f) {
+				// Octal escape, as unicode escapes of line breaks are not allowed in literals
+				sb.append(String.format("\\%03o", (int) c));
+			} else if (c > 0x7f) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	private static String comment(String value) {
+		StringBuilder sb = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\') {
+				// Unicode escapes are also processed in comments
+				sb.append("\\\\");
+			} else if (c < 0x20 || c == 0x7f) {
+				sb.append(' ');
+			} else if (c > 0x7f) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+}
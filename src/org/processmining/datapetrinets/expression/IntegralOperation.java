@@ -0,0 +1,184 @@
+package org.processmining.datapetrinets.expression;
+
+import org.processmining.datapetrinets.expression.Evaluator.BinaryOperation;
+
+/**
+ * Operations of {@link NumericSemantics#EXACT_INTEGERS} that compute with long
+ * values if both operands are integral. Other operands as well as results
+ * that cannot be represented as long value are evaluated by the operation of
+ * the {@link Evaluator}.
+ *
+ * @author F. Mannhardt
+ *
+ */
+enum IntegralOperation implements BinaryOperation {
+
+	PLUS(Evaluator.Visitor.plus) {
+
+		Object apply(long lhs, long rhs) {
+			long result = lhs + rhs;
+			// Overflow iff both operands have a different sign than the result
+			if (((lhs ^ result) & (rhs ^ result)) < 0) {
+				return fallback.evaluate(lhs, rhs);
+			}
+			return result;
+		}
+
+	},
+
+	MINUS(Evaluator.Visitor.minus) {
+
+		Object apply(long lhs, long rhs) {
+			long result = lhs - rhs;
+			// Overflow iff the operands have different signs and the sign of the result differs from lhs
+			if (((lhs ^ rhs) & (lhs ^ result)) < 0) {
+				return fallback.evaluate(lhs, rhs);
+			}
+			return result;
+		}
+
+	},
+
+	MULT(Evaluator.Visitor.mult) {
+
+		Object apply(long lhs, long rhs) {
+			try {
+				return Math.multiplyExact(lhs, rhs);
+			} catch (ArithmeticException e) {
+				return fallback.evaluate(lhs, rhs);
+			}
+		}
+
+	},
+
+	DIV(Evaluator.Visitor.div) {
+
+		Object apply(long lhs, long rhs) {
+			if (rhs != 0 && lhs % rhs == 0 && !(lhs == Long.MIN_VALUE && rhs == -1)) {
+				return lhs / rhs;
+			}
+			// Division with remainder, by zero or overflow
+			return fallback.evaluate(lhs, rhs);
+		}
+
+	},
+
+	LESS_THAN(Evaluator.Visitor.lessThan) {
+
+		Object apply(long lhs, long rhs) {
+			return lhs < rhs;
+		}
+
+	},
+
+	AT_MOST(Evaluator.Visitor.atMost) {
+
+		Object apply(long lhs, long rhs) {
+			return lhs <= rhs;
+		}
+
+	},
+
+	GREATER_THAN(Evaluator.Visitor.greaterThan) {
+
+		Object apply(long lhs, long rhs) {
+			return lhs > rhs;
+		}
+
+	},
+
+	AT_LEAST(Evaluator.Visitor.atLeast) {
+
+		Object apply(long lhs, long rhs) {
+			return lhs >= rhs;
+		}
+
+	},
+
+	EQUAL(Evaluator.Visitor.equal) {
+
+		Object apply(long lhs, long rhs) {
+			return lhs == rhs;
+		}
+
+	};
+
+	final BinaryOperation fallback;
+
+	private IntegralOperation(BinaryOperation fallback) {
+		this.fallback = fallback;
+	}
+
+	/**
+	 * @param operation
+	 *            one of the operations of {@link Evaluator.Visitor}
+	 * @return the exact version of the operation or the operation itself if
+	 *         there is none
+	 */
+	static BinaryOperation of(BinaryOperation operation) {
+		return of(operation, operation);
+	}
+
+	/**
+	 * @param operation
+	 *            one of the operations of {@link Evaluator.Visitor}
+	 * @param fallback
+	 *            evaluates operands that are not both integral instead of the
+	 *            operation, e.g., a {@link PreciseOperation}
+	 * @return the exact version of the operation or the fallback if there is
+	 *         none
+	 */
+	static BinaryOperation of(BinaryOperation operation, final BinaryOperation fallback) {
+		for (final IntegralOperation integral : values()) {
+			if (integral.fallback == operation) {
+				if (fallback == operation) {
+					return integral;
+				}
+				return new BinaryOperation() {
+
+					public Object evaluate(Object lhs, Object rhs) {
+						if (isIntegral(lhs) && isIntegral(rhs)) {
+							return integral.apply(((Number) lhs).longValue(), ((Number) rhs).longValue());
+						}
+						return fallback.evaluate(lhs, rhs);
+					}
+
+					public String toString() {
+						return fallback.toString();
+					}
+
+				};
+			}
+		}
+		return fallback;
+	}
+
+	static boolean isIntegral(Object value) {
+		return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+	}
+
+	/**
+	 * @param value
+	 * @return the negated value, a long value for integral values
+	 */
+	static Object negate(Number value) {
+		if (isIntegral(value) && value.longValue() != Long.MIN_VALUE) {
+			return -value.longValue();
+		}
+		return Double.valueOf(-value.doubleValue());
+	}
+
+	public Object evaluate(Object lhs, Object rhs) {
+		if (isIntegral(lhs) && isIntegral(rhs)) {
+			return apply(((Number) lhs).longValue(), ((Number) rhs).longValue());
+		}
+		return fallback.evaluate(lhs, rhs);
+	}
+
+	abstract Object apply(long lhs, long rhs);
+
+	public String toString() {
+		return fallback.toString();
+	}
+
+}
@@ -0,0 +1,121 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.processmining.datapetrinets.exception.BooleanValueRequired;
+import org.processmining.datapetrinets.exception.VariableNotFoundException;
+import org.processmining.datapetrinets.expression.syntax.ExprAnd;
+import org.processmining.datapetrinets.expression.syntax.ExprNot;
+import org.processmining.datapetrinets.expression.syntax.ExprOr;
+import org.processmining.datapetrinets.expression.syntax.ExprRoot;
+import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+import org.processmining.datapetrinets.expression.syntax.Node;
+
+/**
+ * Evaluates a guard to a {@link Truth} with Kleene's strong three-valued
+ * logic. Operands of <code>&&</code>, <code>||</code> and <code>!</code> that
+ * are not themselves such operations are evaluated by the {@link Evaluator}.
+ * An operand that reads a variable without value is {@link Truth#UNKNOWN}.
+ * Operands are evaluated from left to right until the result is decided,
+ * which may happen after an unknown operand, e.g., <code>x > 1 && false</code>
+ * is false even if x has no value.
+ *
+ * @author F. Mannhardt
+ *
+ */
+final class KleeneVisitor extends Evaluator.Visitor {
+
+	private static final class Frame {
+
+		private final Node node;
+		private int next;
+		private Truth accumulated;
+
+		private Frame(Node node) {
+			this.node = node;
+			// Neutral element of the operation, NOT sets it from its operand
+			this.accumulated = node instanceof ExprOr ? Truth.FALSE : Truth.TRUE;
+		}
+
+		private boolean isDecided() {
+			if (node instanceof ExprAnd) {
+				return accumulated == Truth.FALSE || next == node.jjtGetNumChildren();
+			} else if (node instanceof ExprOr) {
+				return accumulated == Truth.TRUE || next == node.jjtGetNumChildren();
+			}
+			return next == 1;
+		}
+
+		private void add(Truth operand) {
+			if (node instanceof ExprAnd) {
+				accumulated = accumulated.and(operand);
+			} else if (node instanceof ExprOr) {
+				accumulated = accumulated.or(operand);
+			} else {
+				accumulated = operand.not();
+			}
+		}
+
+	}
+
+	KleeneVisitor() {
+		super();
+	}
+
+	KleeneVisitor(NumericSemantics semantics) {
+		super(semantics);
+	}
+
+	public Object visit(ExprRoot node, Object data) throws ExpressionVisitorException {
+		if (node.jjtGetNumChildren() != 1) {
+			throw new ExpressionVisitorException("Invalid expression " + Printer.printCanonical(node)
+					+ " should not have been parsed! Top level element is only allowed to have one child.");
+		}
+		Evaluator.Provider provider = (Evaluator.Provider) data;
+		Node child = node.jjtGetChild(0);
+		if (!isConnective(child)) {
+			return evaluateOperand(child, provider);
+		}
+		// Evaluates the connectives without recursion
+		Deque<Frame> stack = new ArrayDeque<>();
+		Frame frame = new Frame(child);
+		while (true) {
+			if (frame.isDecided()) {
+				Truth result = frame.accumulated;
+				if (stack.isEmpty()) {
+					return result;
+				}
+				frame = stack.pop();
+				frame.add(result);
+			} else {
+				Node operand = frame.node.jjtGetChild(frame.next++);
+				if (isConnective(operand)) {
+					stack.push(frame);
+					frame = new Frame(operand);
+				} else {
+					frame.add(evaluateOperand(operand, provider));
+				}
+			}
+		}
+	}
+
+	private static boolean isConnective(Node node) {
+		return node instanceof ExprAnd || node instanceof ExprOr || node instanceof ExprNot;
+	}
+
+	private Truth evaluateOperand(Node node, Evaluator.Provider provider) throws ExpressionVisitorException {
+		Object value;
+		try {
+			value = evaluate(node, provider);
+		} catch (VariableNotFoundException e) {
+			// Cheap as missing variables are raised without stack trace
+			return Truth.UNKNOWN;
+		}
+		if (value instanceof Boolean) {
+			return Truth.of((Boolean) value);
+		}
+		throw BooleanValueRequired.lazy(null, "Expected a boolean value, but got %s!", value);
+	}
+
+}
@@ -74,7 +74,13 @@ public final class LiteralValueCollector {
 				throw new IllegalArgumentException("Invalid expression " + Printer.printCanonical(node)
 						+ " should not have been parsed! Top level element is only allowed to have one child.");
 			}
-			return node.jjtGetChild(0).jjtAccept(this, data);
+			TreeTraversal.preOrder(node.jjtGetChild(0), this, data);
+			return data;
+		}
+
+		public Object defaultVisit(SimpleNode node, Object data) {
+			// Children are visited by the traversal
+			return data;
 		}
 
 		public Object visit(SimpleNode node, Object data) {
@@ -0,0 +1,157 @@
+package org.processmining.datapetrinets.expression;
+
+import com.google.common.math.DoubleMath;
+
+/**
+ * Configures how the {@link Evaluator} treats numbers. By default, all numbers
+ * are converted to double values. With {@link #EXACT_INTEGERS}, arithmetic on
+ * two integral operands (Long, Integer, Short or Byte) keeps a long result as
+ * long as it can be represented exactly, and comparisons of integral operands
+ * are exact.
+ * <p>
+ * Numbers compared as double values are considered equal if they differ by at
+ * most the precision, which defaults to {@link Evaluator#SOLVING_PRECISION}. A
+ * precision of zero compares all numbers exactly, see {@link #EXACT}.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class NumericSemantics {
+
+	/**
+	 * All numbers are converted to double values
+	 */
+	public static final NumericSemantics FLOATING_POINT = new NumericSemantics(false, Evaluator.SOLVING_PRECISION);
+
+	/**
+	 * Integral operands are computed and compared as long values, results
+	 * that overflow or divisions with a remainder fall back to double values
+	 */
+	public static final NumericSemantics EXACT_INTEGERS = new NumericSemantics(true, Evaluator.SOLVING_PRECISION);
+
+	/**
+	 * Like {@link #EXACT_INTEGERS}, but also double values are compared
+	 * exactly
+	 */
+	public static final NumericSemantics EXACT = new NumericSemantics(true, 0d);
+
+	private final boolean exactIntegers;
+	private final double precision;
+
+	private NumericSemantics(boolean exactIntegers, double precision) {
+		this.exactIntegers = exactIntegers;
+		this.precision = precision;
+	}
+
+	/**
+	 * @param precision
+	 *            maximum difference of numbers that are considered equal, zero
+	 *            for exact comparisons
+	 * @return semantics that treat numbers like this, but compare them with
+	 *         the given precision
+	 */
+	public NumericSemantics withPrecision(double precision) {
+		if (!(precision >= 0)) {
+			throw new IllegalArgumentException("Precision must not be negative!");
+		}
+		// Normalize -0.0 so that equal semantics are equal
+		return new NumericSemantics(exactIntegers, precision == 0d ? 0d : precision);
+	}
+
+	public boolean isExactIntegers() {
+		return exactIntegers;
+	}
+
+	public double getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * @return whether double values are compared without tolerance
+	 */
+	public boolean isExactComparison() {
+		return precision == 0d;
+	}
+
+	/**
+	 * @return whether any two distinct integral values compare as distinct,
+	 *         i.e., the precision does not change comparisons of integers
+	 */
+	boolean isExactForIntegers() {
+		return precision < 1d;
+	}
+
+	/**
+	 * Compares two numbers with the precision of these semantics. Same result
+	 * as {@link DoubleMath#fuzzyCompare(double, double, double)}.
+	 *
+	 * @param lhs
+	 * @param rhs
+	 * @return a negative value, zero or a positive value
+	 */
+	public int compare(double lhs, double rhs) {
+		if (precision == 0d) {
+			return compareExactly(lhs, rhs);
+		}
+		return DoubleMath.fuzzyCompare(lhs, rhs, precision);
+	}
+
+	/**
+	 * Same result as {@link DoubleMath#fuzzyEquals(double, double, double)}
+	 * with the precision of these semantics.
+	 *
+	 * @param lhs
+	 * @param rhs
+	 * @return whether the numbers are considered equal
+	 */
+	public boolean equal(double lhs, double rhs) {
+		if (precision == 0d) {
+			return equalExactly(lhs, rhs);
+		}
+		return DoubleMath.fuzzyEquals(lhs, rhs, precision);
+	}
+
+	/**
+	 * Same result as {@link DoubleMath#fuzzyCompare(double, double, double)}
+	 * without tolerance. Unlike {@link Double#compare(double, double)}, -0.0
+	 * and 0.0 are equal.
+	 */
+	static int compareExactly(double lhs, double rhs) {
+		if (lhs < rhs) {
+			return -1;
+		} else if (lhs > rhs) {
+			return 1;
+		}
+		// Equal or at least one NaN, NaN is greater than every other value
+		return Boolean.compare(Double.isNaN(lhs), Double.isNaN(rhs));
+	}
+
+	/**
+	 * Same result as {@link DoubleMath#fuzzyEquals(double, double, double)}
+	 * without tolerance.
+	 */
+	static boolean equalExactly(double lhs, double rhs) {
+		return lhs == rhs || (Double.isNaN(lhs) && Double.isNaN(rhs));
+	}
+
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof NumericSemantics)) {
+			return false;
+		}
+		NumericSemantics other = (NumericSemantics) obj;
+		return exactIntegers == other.exactIntegers
+				&& Double.doubleToLongBits(precision) == Double.doubleToLongBits(other.precision);
+	}
+
+	public int hashCode() {
+		return 31 * Boolean.hashCode(exactIntegers) + Double.hashCode(precision);
+	}
+
+	public String toString() {
+		return (exactIntegers ? "EXACT_INTEGERS" : "FLOATING_POINT") + " (precision " + precision + ")";
+	}
+
+}
@@ -0,0 +1,145 @@
+package org.processmining.datapetrinets.expression;
+
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserConstants;
+import org.processmining.datapetrinets.expression.syntax.ExpressionValidator;
+import org.processmining.datapetrinets.expression.syntax.ParseException;
+import org.processmining.datapetrinets.expression.syntax.Token;
+import org.processmining.datapetrinets.expression.syntax.TokenMgrError;
+
+/**
+ * Describes why an expression could not be parsed. Errors reported by the
+ * {@link ExpressionValidator} only store the position, the offending token
+ * kind and the expected token kinds, the message is formatted on demand.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class ParseError {
+
+	private static final int TAB_SIZE = 8;
+
+	static ParseError fromException(ParseException e) {
+		Token errorToken = e.currentToken != null ? e.currentToken.next : null;
+		if (errorToken != null) {
+			return new ParseError(-1, errorToken.beginLine, errorToken.beginColumn, errorToken.kind, 0,
+					e.getMessage());
+		} else {
+			return new ParseError(-1, -1, -1, -1, 0, e.getMessage());
+		}
+	}
+
+	static ParseError fromError(TokenMgrError e) {
+		return new ParseError(-1, e.getErrorLine(), e.getErrorColumn(), -1, 0, e.getMessage());
+	}
+
+	static ParseError fromValidator(ExpressionValidator validator, CharSequence input) {
+		return atOffset(input, validator.getErrorOffset(), validator.getErrorTokenKind(),
+				validator.getExpectedTokenKinds(), null);
+	}
+
+	/**
+	 * @return an error at the character offset of the input with the line and
+	 *         column computed from the input
+	 */
+	static ParseError atOffset(CharSequence input, int offset, int tokenKind, long expectedTokenKinds,
+			String message) {
+		// Same line and column counting as the SimpleCharStream of the parser, <EOF> is at the last character
+		int last = Math.min(offset, input.length() - 1);
+		int line = 1, column = 0;
+		for (int i = 0; i <= last; i++) {
+			char c = input.charAt(i);
+			column++;
+			if (c == '\t') {
+				column--;
+				column += TAB_SIZE - (column % TAB_SIZE);
+			}
+			if (i < last && (c == '\n' || (c == '\r' && input.charAt(i + 1) != '\n'))) {
+				line++;
+				column = 0;
+			}
+		}
+		return new ParseError(offset, line, column, tokenKind, expectedTokenKinds, message);
+	}
+
+	private final int offset;
+	private final int line;
+	private final int column;
+	private final int tokenKind;
+	private final long expectedTokenKinds;
+
+	private String message;
+
+	ParseError(int offset, int line, int column, int tokenKind, long expectedTokenKinds, String message) {
+		this.offset = offset;
+		this.line = line;
+		this.column = column;
+		this.tokenKind = tokenKind;
+		this.expectedTokenKinds = expectedTokenKinds;
+		this.message = message;
+	}
+
+	/**
+	 * @return the character offset of the offending token or -1 if unknown
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the line of the error (starting with 1) or -1 if unknown
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * @return the column of the error (starting with 1) or -1 if unknown
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * @return the kind of the offending token as defined in
+	 *         {@link ExpressionParserConstants} or -1 if unknown
+	 */
+	public int getTokenKind() {
+		return tokenKind;
+	}
+
+	/**
+	 * @return the kinds of the tokens, as defined in
+	 *         {@link ExpressionParserConstants}, that would have been valid
+	 *         instead of the offending token
+	 */
+	public int[] getExpectedTokenKinds() {
+		int[] kinds = new int[Long.bitCount(expectedTokenKinds)];
+		long remaining = expectedTokenKinds;
+		for (int i = 0; i < kinds.length; i++) {
+			kinds[i] = Long.numberOfTrailingZeros(remaining);
+			remaining &= remaining - 1;
+		}
+		return kinds;
+	}
+
+	public String getMessage() {
+		if (message == null) {
+			StringBuilder sb = new StringBuilder("Encountered ");
+			sb.append(tokenKind >= 0 ? ExpressionParserConstants.tokenImage[tokenKind] : "<UNKNOWN>");
+			sb.append(" at line ").append(line).append(", column ").append(column).append('.');
+			if (expectedTokenKinds != 0) {
+				sb.append(" Was expecting one of:");
+				for (int kind : getExpectedTokenKinds()) {
+					sb.append(' ').append(ExpressionParserConstants.tokenImage[kind]);
+				}
+			}
+			message = sb.toString();
+		}
+		return message;
+	}
+
+	public String toString() {
+		return getMessage();
+	}
+
+}
@@ -0,0 +1,50 @@
+package org.processmining.datapetrinets.expression;
+
+/**
+ * Outcome of parsing a single expression, either the {@link GuardExpression}
+ * or a {@link ParseError}.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class ParseResult {
+
+	static ParseResult success(GuardExpression guard) {
+		return new ParseResult(guard, null);
+	}
+
+	static ParseResult failure(ParseError error) {
+		return new ParseResult(null, error);
+	}
+
+	private final GuardExpression guard;
+	private final ParseError error;
+
+	private ParseResult(GuardExpression guard, ParseError error) {
+		this.guard = guard;
+		this.error = error;
+	}
+
+	public boolean isSuccess() {
+		return guard != null;
+	}
+
+	/**
+	 * @return the parsed expression or NULL in case of an error
+	 */
+	public GuardExpression getGuard() {
+		return guard;
+	}
+
+	/**
+	 * @return the error or NULL if parsing succeeded
+	 */
+	public ParseError getError() {
+		return error;
+	}
+
+	public String toString() {
+		return isSuccess() ? guard.toString() : "Error: " + error;
+	}
+
+}
@@ -0,0 +1,68 @@
+package org.processmining.datapetrinets.expression;
+
+import org.processmining.datapetrinets.expression.Evaluator.BinaryOperation;
+import org.processmining.datapetrinets.expression.PreparedNode.Comparison;
+
+/**
+ * Comparison of the {@link Evaluator} that compares numbers with the precision
+ * of a {@link NumericSemantics} rather than with
+ * {@link Evaluator#SOLVING_PRECISION}. Other operands are compared by the
+ * operation of the {@link Evaluator}.
+ *
+ * @author F. Mannhardt
+ *
+ */
+final class PreciseOperation implements BinaryOperation {
+
+	/**
+	 * @param operation
+	 *            one of the operations of {@link Evaluator.Visitor}
+	 * @param semantics
+	 * @return the operation comparing with the precision of the semantics or
+	 *         the operation itself if the precision does not matter
+	 */
+	static BinaryOperation of(BinaryOperation operation, NumericSemantics semantics) {
+		if (semantics.getPrecision() == Evaluator.SOLVING_PRECISION) {
+			return operation;
+		}
+		if (operation == Evaluator.Visitor.equal) {
+			return new PreciseOperation(operation, null, semantics);
+		} else if (operation == Evaluator.Visitor.lessThan) {
+			return new PreciseOperation(operation, Comparison.LESS_THAN, semantics);
+		} else if (operation == Evaluator.Visitor.atMost) {
+			return new PreciseOperation(operation, Comparison.AT_MOST, semantics);
+		} else if (operation == Evaluator.Visitor.greaterThan) {
+			return new PreciseOperation(operation, Comparison.GREATER_THAN, semantics);
+		} else if (operation == Evaluator.Visitor.atLeast) {
+			return new PreciseOperation(operation, Comparison.AT_LEAST, semantics);
+		}
+		return operation;
+	}
+
+	private final BinaryOperation operation;
+	private final Comparison comparison;
+	private final NumericSemantics semantics;
+
+	private PreciseOperation(BinaryOperation operation, Comparison comparison, NumericSemantics semantics) {
+		this.operation = operation;
+		this.comparison = comparison;
+		this.semantics = semantics;
+	}
+
+	public Object evaluate(Object lhs, Object rhs) {
+		if (lhs instanceof Number && rhs instanceof Number) {
+			double lhsValue = ((Number) lhs).doubleValue();
+			double rhsValue = ((Number) rhs).doubleValue();
+			if (comparison == null) {
+				return semantics.equal(lhsValue, rhsValue);
+			}
+			return comparison.test(semantics.compare(lhsValue, rhsValue));
+		}
+		return operation.evaluate(lhs, rhs);
+	}
+
+	public String toString() {
+		return operation.toString();
+	}
+
+}
@@ -0,0 +1,110 @@
+package org.processmining.datapetrinets.expression;
+
+/**
+ * Options of
+ * {@link Evaluator#prepare(GuardExpression, VariableTypeProvider, PrepareOptions)}.
+ * Instances are immutable, start from {@link #DEFAULT} and change one option
+ * at a time, e.g.,
+ * <code>PrepareOptions.DEFAULT.withSemantics(NumericSemantics.EXACT_INTEGERS).withFunctions(registry)</code>.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class PrepareOptions {
+
+	/**
+	 * Numbers are treated as {@link NumericSemantics#FLOATING_POINT}, string
+	 * literals are not encoded, functions are called through the
+	 * {@link FunctionProvider} given for evaluation and operations on operands
+	 * without declared type are not specialized.
+	 */
+	public static final PrepareOptions DEFAULT = new PrepareOptions(NumericSemantics.FLOATING_POINT, null, null,
+			false);
+
+	private final NumericSemantics semantics;
+	private final StringDictionary dictionary;
+	private final FunctionRegistry functions;
+	private final boolean adaptive;
+
+	private PrepareOptions(NumericSemantics semantics, StringDictionary dictionary, FunctionRegistry functions,
+			boolean adaptive) {
+		if (semantics == null) {
+			throw new IllegalArgumentException("Semantics must not be NULL!");
+		}
+		this.semantics = semantics;
+		this.dictionary = dictionary;
+		this.functions = functions;
+		this.adaptive = adaptive;
+	}
+
+	/**
+	 * @param semantics
+	 * @return options that treat numbers according to the semantics
+	 */
+	public PrepareOptions withSemantics(NumericSemantics semantics) {
+		return new PrepareOptions(semantics, dictionary, functions, adaptive);
+	}
+
+	/**
+	 * @param dictionary
+	 *            encodes the string literals of the expression, values
+	 *            returned by the {@link VariableProvider} that are encoded with
+	 *            the same dictionary are compared with these literals by their
+	 *            code, may be NULL
+	 * @return options that encode string literals with the dictionary
+	 */
+	public PrepareOptions withDictionary(StringDictionary dictionary) {
+		return new PrepareOptions(semantics, dictionary, functions, adaptive);
+	}
+
+	/**
+	 * @param functions
+	 *            resolves the function calls of the expression, the prepared
+	 *            expression calls the registered functions directly and ignores
+	 *            the {@link FunctionProvider} given for its evaluation, may be
+	 *            NULL
+	 * @return options that resolve function calls in the registry
+	 */
+	public PrepareOptions withFunctions(FunctionRegistry functions) {
+		return new PrepareOptions(semantics, dictionary, functions, adaptive);
+	}
+
+	/**
+	 * @param adaptive
+	 *            whether comparisons and arithmetic operations on operands
+	 *            without declared type specialize themselves on the runtime
+	 *            types they observe
+	 * @return options with the given specialization
+	 */
+	public PrepareOptions withAdaptive(boolean adaptive) {
+		return new PrepareOptions(semantics, dictionary, functions, adaptive);
+	}
+
+	public NumericSemantics getSemantics() {
+		return semantics;
+	}
+
+	/**
+	 * @return the dictionary or NULL
+	 */
+	public StringDictionary getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * @return the registry or NULL
+	 */
+	public FunctionRegistry getFunctions() {
+		return functions;
+	}
+
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	public String toString() {
+		return "PrepareOptions [semantics=" + semantics + ", dictionary=" + (dictionary != null) + ", functions="
+				+ (functions != null) + ", adaptive=" + adaptive + "]";
+	}
+
+}
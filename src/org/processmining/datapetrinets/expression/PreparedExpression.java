@@ -0,0 +1,91 @@
+package org.processmining.datapetrinets.expression;
+
+import org.processmining.datapetrinets.exception.EvaluatorException;
+
+/**
+ * A {@link GuardExpression} that was type checked against a
+ * {@link VariableTypeProvider} and translated into a tree of specialized
+ * nodes. Operations on operands of known type are evaluated on primitive
+ * values without inspecting the runtime type of the operands. Variable values
+ * are expected to conform to the declared types, operands without declared
+ * type are evaluated with the semantics of {@link Evaluator}.
+ * <p>
+ * Instances can be shared between threads. Use
+ * {@link Evaluator#prepare(GuardExpression, VariableTypeProvider)} to obtain
+ * an instance. Instances obtained by
+ * {@link Evaluator#prepareAdaptive(GuardExpression)} specialize their
+ * operations on the observed runtime types of the variables.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class PreparedExpression {
+
+	private final GuardExpression guard;
+	private final ExpressionType type;
+	private final NumericSemantics semantics;
+	private final PreparedNode root;
+
+	PreparedExpression(GuardExpression guard, ExpressionType type, NumericSemantics semantics, PreparedNode root) {
+		this.guard = guard;
+		this.type = type;
+		this.semantics = semantics;
+		this.root = root;
+	}
+
+	public GuardExpression getGuard() {
+		return guard;
+	}
+
+	/**
+	 * @return the static type of the expression
+	 */
+	public ExpressionType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the treatment of numbers, including the precision of numeric
+	 *         comparisons, this expression was prepared for
+	 */
+	public NumericSemantics getSemantics() {
+		return semantics;
+	}
+
+	public Object evaluate(VariableProvider variableProvider, FunctionProvider functionProvider)
+			throws EvaluatorException {
+		try {
+			return root.evaluate(variableProvider, functionProvider);
+		} catch (EvaluatorException e) {
+			throw wrapException(e);
+		}
+	}
+
+	public boolean evaluateBoolean(VariableProvider variableProvider, FunctionProvider functionProvider)
+			throws EvaluatorException {
+		try {
+			return root.evaluateBoolean(variableProvider, functionProvider);
+		} catch (EvaluatorException e) {
+			throw wrapException(e);
+		}
+	}
+
+	public double evaluateDouble(VariableProvider variableProvider, FunctionProvider functionProvider)
+			throws EvaluatorException {
+		try {
+			return root.evaluateDouble(variableProvider, functionProvider);
+		} catch (EvaluatorException e) {
+			throw wrapException(e);
+		}
+	}
+
+	private EvaluatorException wrapException(EvaluatorException e) {
+		// Add context information
+		return EvaluatorException.lazy(e, "Error trying to evaluate expression %s", guard.toCanonicalString());
+	}
+
+	public String toString() {
+		return guard.toCanonicalString();
+	}
+
+}
@@ -0,0 +1,1121 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.BitSet;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Predicate;
+import java.util.Date;
+
+import org.processmining.datapetrinets.exception.BooleanValueRequired;
+import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.exception.NumericValueRequired;
+import org.processmining.datapetrinets.expression.Evaluator.BinaryOperation;
+import org.processmining.datapetrinets.expression.syntax.LiteralSet;
+import org.processmining.datapetrinets.expression.syntax.Symbol;
+
+import com.google.common.math.DoubleMath;
+
+/**
+ * Node of a {@link PreparedExpression}. The {@link ExpressionCompiler} selects
+ * node implementations based on the static types determined by the
+ * {@link TypeChecker}, so that typed nodes can evaluate their operands through
+ * the primitive {@link #evaluateBoolean} and {@link #evaluateDouble} methods
+ * without boxing or runtime type dispatch. Nodes for operands of type
+ * {@link ExpressionType#ANY} fall back to the semantics of {@link Evaluator}.
+ *
+ * @author F. Mannhardt
+ *
+ */
+abstract class PreparedNode {
+
+	abstract Object evaluate(VariableProvider variables, FunctionProvider functions) throws EvaluatorException;
+
+	boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) throws EvaluatorException {
+		Object value = evaluate(variables, functions);
+		if (value instanceof Boolean) {
+			return (Boolean) value;
+		}
+		throw BooleanValueRequired.lazy(null, "Expected a boolean value, but got %s!", value);
+	}
+
+	double evaluateDouble(VariableProvider variables, FunctionProvider functions) throws EvaluatorException {
+		Object value = evaluate(variables, functions);
+		if (value instanceof Number) {
+			return ((Number) value).doubleValue();
+		}
+		throw NumericValueRequired.lazy(null, "Expected a numeric value, but got %s!", value);
+	}
+
+	enum Comparison {
+
+		LESS_THAN, AT_MOST, GREATER_THAN, AT_LEAST;
+
+		boolean test(int comparison) {
+			switch (this) {
+				case LESS_THAN :
+					return comparison < 0;
+				case AT_MOST :
+					return comparison <= 0;
+				case GREATER_THAN :
+					return comparison > 0;
+				default :
+					return comparison >= 0;
+			}
+		}
+
+		/**
+		 * Same result as testing the result of
+		 * {@link NumericSemantics#compareExactly(double, double)}, but with
+		 * plain comparisons unless a value is NaN.
+		 */
+		boolean testExactly(double lhs, double rhs) {
+			switch (this) {
+				case LESS_THAN :
+					return lhs < rhs || (rhs != rhs && lhs == lhs);
+				case AT_MOST :
+					return lhs <= rhs || rhs != rhs;
+				case GREATER_THAN :
+					return lhs > rhs || (lhs != lhs && rhs == rhs);
+				default :
+					return lhs >= rhs || lhs != lhs;
+			}
+		}
+
+	}
+
+	enum Arithmetic {
+
+		PLUS, MINUS, MULT, DIV;
+
+		double apply(double lhs, double rhs) {
+			switch (this) {
+				case PLUS :
+					return lhs + rhs;
+				case MINUS :
+					return lhs - rhs;
+				case MULT :
+					return lhs * rhs;
+				default :
+					return lhs / rhs;
+			}
+		}
+
+	}
+
+	static abstract class BooleanNode extends PreparedNode {
+
+		final Object evaluate(VariableProvider variables, FunctionProvider functions) {
+			return evaluateBoolean(variables, functions);
+		}
+
+		abstract boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions);
+
+	}
+
+	static abstract class DoubleNode extends PreparedNode {
+
+		final Object evaluate(VariableProvider variables, FunctionProvider functions) {
+			return evaluateDouble(variables, functions);
+		}
+
+		abstract double evaluateDouble(VariableProvider variables, FunctionProvider functions);
+
+	}
+
+	static final class ConstantNode extends PreparedNode {
+
+		private final Object value;
+
+		ConstantNode(Object value) {
+			this.value = value;
+		}
+
+		Object evaluate(VariableProvider variables, FunctionProvider functions) {
+			return value;
+		}
+
+		Object getValue() {
+			return value;
+		}
+
+	}
+
+	static final class VariableNode extends PreparedNode {
+
+		private final Symbol symbol;
+
+		VariableNode(Symbol symbol) {
+			this.symbol = symbol;
+		}
+
+		Object evaluate(VariableProvider variables, FunctionProvider functions) {
+			return variables.getValue(symbol);
+		}
+
+	}
+
+	/**
+	 * Converts a date, a number or a string in one of the supported date
+	 * formats to milliseconds since epoch
+	 */
+	static final class MillisNode extends DoubleNode {
+
+		private final PreparedNode operand;
+
+		MillisNode(PreparedNode operand) {
+			this.operand = operand;
+		}
+
+		double evaluateDouble(VariableProvider variables, FunctionProvider functions) {
+			Object value = operand.evaluate(variables, functions);
+			if (value instanceof Date) {
+				return ((Date) value).getTime();
+			} else if (value instanceof Number) {
+				return ((Number) value).doubleValue();
+			} else if (value instanceof String || value instanceof EncodedString) {
+				long millis = DateParser.parseMillis((CharSequence) value);
+				if (millis != DateParser.NOT_A_DATE) {
+					return millis;
+				}
+			}
+			throw NumericValueRequired.lazy(null, "Expected a date value, but got %s!", value);
+		}
+
+	}
+
+	static final class NotNode extends BooleanNode {
+
+		private final PreparedNode operand;
+
+		NotNode(PreparedNode operand) {
+			this.operand = operand;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			return !operand.evaluateBoolean(variables, functions);
+		}
+
+	}
+
+	static final class AndNode extends BooleanNode {
+
+		private final PreparedNode[] operands;
+
+		AndNode(PreparedNode[] operands) {
+			this.operands = operands;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			for (PreparedNode operand : operands) {
+				if (!operand.evaluateBoolean(variables, functions)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+	static final class OrNode extends BooleanNode {
+
+		private final PreparedNode[] operands;
+
+		OrNode(PreparedNode[] operands) {
+			this.operands = operands;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			for (PreparedNode operand : operands) {
+				if (operand.evaluateBoolean(variables, functions)) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+	static final class DoubleNegationNode extends DoubleNode {
+
+		private final PreparedNode operand;
+
+		DoubleNegationNode(PreparedNode operand) {
+			this.operand = operand;
+		}
+
+		double evaluateDouble(VariableProvider variables, FunctionProvider functions) {
+			return -operand.evaluateDouble(variables, functions);
+		}
+
+	}
+
+	static final class DoubleArithmeticNode extends DoubleNode {
+
+		private final Arithmetic operation;
+		private final PreparedNode lhs;
+		private final PreparedNode rhs;
+
+		DoubleArithmeticNode(Arithmetic operation, PreparedNode lhs, PreparedNode rhs) {
+			this.operation = operation;
+			this.lhs = lhs;
+			this.rhs = rhs;
+		}
+
+		double evaluateDouble(VariableProvider variables, FunctionProvider functions) {
+			return operation.apply(lhs.evaluateDouble(variables, functions), rhs.evaluateDouble(variables, functions));
+		}
+
+	}
+
+	static final class DoubleComparisonNode extends BooleanNode {
+
+		private final Comparison comparison;
+		private final double precision;
+		private final PreparedNode lhs;
+		private final PreparedNode rhs;
+
+		DoubleComparisonNode(Comparison comparison, double precision, PreparedNode lhs, PreparedNode rhs) {
+			this.comparison = comparison;
+			this.precision = precision;
+			this.lhs = lhs;
+			this.rhs = rhs;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			return comparison.test(DoubleMath.fuzzyCompare(lhs.evaluateDouble(variables, functions),
+					rhs.evaluateDouble(variables, functions), precision));
+		}
+
+	}
+
+	static final class DoubleEqualNode extends BooleanNode {
+
+		private final boolean negated;
+		private final double precision;
+		private final PreparedNode lhs;
+		private final PreparedNode rhs;
+
+		DoubleEqualNode(boolean negated, double precision, PreparedNode lhs, PreparedNode rhs) {
+			this.negated = negated;
+			this.precision = precision;
+			this.lhs = lhs;
+			this.rhs = rhs;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			return negated != DoubleMath.fuzzyEquals(lhs.evaluateDouble(variables, functions),
+					rhs.evaluateDouble(variables, functions), precision);
+		}
+
+	}
+
+	/**
+	 * Comparison of numeric operands for which the precision cannot change
+	 * the result, e.g., of two integers
+	 */
+	static final class ExactComparisonNode extends BooleanNode {
+
+		private final Comparison comparison;
+		private final PreparedNode lhs;
+		private final PreparedNode rhs;
+
+		ExactComparisonNode(Comparison comparison, PreparedNode lhs, PreparedNode rhs) {
+			this.comparison = comparison;
+			this.lhs = lhs;
+			this.rhs = rhs;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			return comparison.testExactly(lhs.evaluateDouble(variables, functions),
+					rhs.evaluateDouble(variables, functions));
+		}
+
+	}
+
+	/**
+	 * Equality of numeric operands for which the precision cannot change the
+	 * result
+	 */
+	static final class ExactEqualNode extends BooleanNode {
+
+		private final boolean negated;
+		private final PreparedNode lhs;
+		private final PreparedNode rhs;
+
+		ExactEqualNode(boolean negated, PreparedNode lhs, PreparedNode rhs) {
+			this.negated = negated;
+			this.lhs = lhs;
+			this.rhs = rhs;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			return negated != NumericSemantics.equalExactly(lhs.evaluateDouble(variables, functions),
+					rhs.evaluateDouble(variables, functions));
+		}
+
+	}
+
+	static final class StringComparisonNode extends BooleanNode {
+
+		private final Comparison comparison;
+		private final PreparedNode lhs;
+		private final PreparedNode rhs;
+
+		StringComparisonNode(Comparison comparison, PreparedNode lhs, PreparedNode rhs) {
+			this.comparison = comparison;
+			this.lhs = lhs;
+			this.rhs = rhs;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			Object lhsValue = lhs.evaluate(variables, functions);
+			Object rhsValue = rhs.evaluate(variables, functions);
+			if (lhsValue instanceof EncodedString && rhsValue instanceof EncodedString) {
+				return comparison.test(EncodedString.compare((EncodedString) lhsValue, (EncodedString) rhsValue));
+			}
+			lhsValue = EncodedString.decode(lhsValue);
+			rhsValue = EncodedString.decode(rhsValue);
+			if (lhsValue instanceof String && rhsValue instanceof String) {
+				return comparison.test(((String) lhsValue).compareTo((String) rhsValue));
+			}
+			throw NumericValueRequired.lazy(null,
+					"Unable to compare %s and %s. Operation not defined for non-numeric values!", lhsValue, rhsValue);
+		}
+
+	}
+
+	/**
+	 * Equality for operands of the same non-numeric type
+	 */
+	static final class ObjectEqualNode extends BooleanNode {
+
+		private final boolean negated;
+		private final PreparedNode lhs;
+		private final PreparedNode rhs;
+
+		ObjectEqualNode(boolean negated, PreparedNode lhs, PreparedNode rhs) {
+			this.negated = negated;
+			this.lhs = lhs;
+			this.rhs = rhs;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			return negated != EncodedString.equal(lhs.evaluate(variables, functions),
+					rhs.evaluate(variables, functions));
+		}
+
+	}
+
+	/**
+	 * Equality with a string literal encoded by a {@link StringDictionary}.
+	 * Values encoded by the same dictionary are compared by their code, other
+	 * values with the semantics of {@link Evaluator}.
+	 */
+	static final class EncodedLiteralEqualNode extends BooleanNode {
+
+		private final boolean negated;
+		private final PreparedNode operand;
+		private final EncodedString literal;
+
+		EncodedLiteralEqualNode(boolean negated, PreparedNode operand, EncodedString literal) {
+			this.negated = negated;
+			this.operand = operand;
+			this.literal = literal;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			Object value = operand.evaluate(variables, functions);
+			if (value instanceof EncodedString && ((EncodedString) value).getDictionary() == literal.getDictionary()) {
+				return negated != (((EncodedString) value).getCode() == literal.getCode());
+			}
+			return negated != (Boolean) Evaluator.Visitor.equal.evaluate(value, literal.toString());
+		}
+
+	}
+
+	/**
+	 * Equality with the semantics of {@link Evaluator} for operands of unknown
+	 * type
+	 */
+	static final class GenericEqualNode extends BooleanNode {
+
+		private final boolean negated;
+		private final BinaryOperation equal;
+		private final PreparedNode lhs;
+		private final PreparedNode rhs;
+
+		GenericEqualNode(boolean negated, BinaryOperation equal, PreparedNode lhs, PreparedNode rhs) {
+			this.negated = negated;
+			this.equal = equal;
+			this.lhs = lhs;
+			this.rhs = rhs;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			return negated != (Boolean) equal.evaluate(lhs.evaluate(variables, functions),
+					rhs.evaluate(variables, functions));
+		}
+
+	}
+
+	/**
+	 * Comparison of operands with integral static type under
+	 * {@link NumericSemantics#EXACT_INTEGERS}. The values are compared as long
+	 * values, unless one of them fell back to a double value.
+	 */
+	static final class IntegralComparisonNode extends BooleanNode {
+
+		private final Comparison comparison;
+		private final BinaryOperation fallback;
+		private final PreparedNode lhs;
+		private final PreparedNode rhs;
+
+		IntegralComparisonNode(Comparison comparison, BinaryOperation fallback, PreparedNode lhs, PreparedNode rhs) {
+			this.comparison = comparison;
+			this.fallback = fallback;
+			this.lhs = lhs;
+			this.rhs = rhs;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			Object lhsValue = lhs.evaluate(variables, functions);
+			Object rhsValue = rhs.evaluate(variables, functions);
+			if (IntegralOperation.isIntegral(lhsValue) && IntegralOperation.isIntegral(rhsValue)) {
+				return comparison.test(Long.compare(((Number) lhsValue).longValue(), ((Number) rhsValue).longValue()));
+			}
+			return (Boolean) fallback.evaluate(lhsValue, rhsValue);
+		}
+
+	}
+
+	/**
+	 * Equality of operands with integral static type under
+	 * {@link NumericSemantics#EXACT_INTEGERS}
+	 */
+	static final class IntegralEqualNode extends BooleanNode {
+
+		private final boolean negated;
+		private final BinaryOperation fallback;
+		private final PreparedNode lhs;
+		private final PreparedNode rhs;
+
+		IntegralEqualNode(boolean negated, BinaryOperation fallback, PreparedNode lhs, PreparedNode rhs) {
+			this.negated = negated;
+			this.fallback = fallback;
+			this.lhs = lhs;
+			this.rhs = rhs;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			Object lhsValue = lhs.evaluate(variables, functions);
+			Object rhsValue = rhs.evaluate(variables, functions);
+			if (IntegralOperation.isIntegral(lhsValue) && IntegralOperation.isIntegral(rhsValue)) {
+				return negated != (((Number) lhsValue).longValue() == ((Number) rhsValue).longValue());
+			}
+			return negated != (Boolean) fallback.evaluate(lhsValue, rhsValue);
+		}
+
+	}
+
+	static final class InNode extends BooleanNode {
+
+		private final PreparedNode operand;
+		private final LiteralSet values;
+		private final double precision;
+
+		InNode(PreparedNode operand, LiteralSet values, double precision) {
+			this.operand = operand;
+			this.values = values;
+			this.precision = precision;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			return Evaluator.Visitor.isMember(operand.evaluate(variables, functions), values, precision);
+		}
+
+	}
+
+	static final class NumericInNode extends BooleanNode {
+
+		private final PreparedNode operand;
+		private final LiteralSet values;
+		private final double precision;
+
+		NumericInNode(PreparedNode operand, LiteralSet values, double precision) {
+			this.operand = operand;
+			this.values = values;
+			this.precision = precision;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			return values.containsNumber(operand.evaluateDouble(variables, functions), precision);
+		}
+
+	}
+
+	/**
+	 * Membership test that uses the codes of the string literals for values
+	 * encoded by the same {@link StringDictionary}
+	 */
+	static final class EncodedInNode extends BooleanNode {
+
+		private final PreparedNode operand;
+		private final LiteralSet values;
+		private final StringDictionary dictionary;
+		private final BitSet codes;
+		private final double precision;
+
+		EncodedInNode(PreparedNode operand, LiteralSet values, StringDictionary dictionary, BitSet codes,
+				double precision) {
+			this.operand = operand;
+			this.values = values;
+			this.dictionary = dictionary;
+			this.codes = codes;
+			this.precision = precision;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			Object value = operand.evaluate(variables, functions);
+			if (value instanceof EncodedString && ((EncodedString) value).getDictionary() == dictionary) {
+				return codes.get(((EncodedString) value).getCode());
+			}
+			return Evaluator.Visitor.isMember(value, values, precision);
+		}
+
+	}
+
+	/**
+	 * Binary operation with the semantics of {@link Evaluator} for operands of
+	 * unknown type. String literals that denote a date are parsed when the
+	 * expression is prepared and used in case the other operand is a date.
+	 */
+	static final class GenericBinaryNode extends PreparedNode {
+
+		private final BinaryOperation operation;
+		private final PreparedNode lhs;
+		private final PreparedNode rhs;
+		private final Long lhsMillis;
+		private final Long rhsMillis;
+
+		/**
+		 * @param operation
+		 * @param lhs
+		 * @param rhs
+		 * @param lhsMillis
+		 *            pre-parsed date literal or NULL
+		 * @param rhsMillis
+		 *            pre-parsed date literal or NULL
+		 */
+		GenericBinaryNode(BinaryOperation operation, PreparedNode lhs, PreparedNode rhs, Long lhsMillis,
+				Long rhsMillis) {
+			this.operation = operation;
+			this.lhs = lhs;
+			this.rhs = rhs;
+			this.lhsMillis = lhsMillis;
+			this.rhsMillis = rhsMillis;
+		}
+
+		Object evaluate(VariableProvider variables, FunctionProvider functions) {
+			return apply(lhs.evaluate(variables, functions), rhs.evaluate(variables, functions));
+		}
+
+		Object apply(Object lhsValue, Object rhsValue) {
+			// Handle dates
+			if (lhsValue instanceof Date || rhsValue instanceof Date) {
+				lhsValue = lhsMillis != null ? lhsMillis : DateParser.tryParseMillis(lhsValue);
+				rhsValue = rhsMillis != null ? rhsMillis : DateParser.tryParseMillis(rhsValue);
+			}
+			return operation.evaluate(lhsValue, rhsValue);
+		}
+
+	}
+
+	/**
+	 * Runtime types of the operands observed by a {@link SpecializingNode}. A
+	 * node starts {@link #UNINITIALIZED}, specializes on the types of the first
+	 * operands it sees and only moves towards {@link #GENERIC} afterwards.
+	 */
+	enum Specialization {
+
+		UNINITIALIZED, LONG, DOUBLE, NUMBER, STRING, GENERIC;
+
+		boolean accepts(Object lhs, Object rhs) {
+			switch (this) {
+				case LONG :
+					return lhs instanceof Long && rhs instanceof Long;
+				case DOUBLE :
+					return lhs instanceof Double && rhs instanceof Double;
+				case NUMBER :
+					return lhs instanceof Number && rhs instanceof Number;
+				case STRING :
+					return lhs instanceof String && rhs instanceof String;
+				case GENERIC :
+					return true;
+				default :
+					return false;
+			}
+		}
+
+		/**
+		 * @param lhs
+		 * @param rhs
+		 * @param strings
+		 *            whether the operation has a string specialization
+		 * @return the most specific specialization that accepts both the
+		 *         previously observed operands and the given operands
+		 */
+		Specialization generalize(Object lhs, Object rhs, boolean strings) {
+			boolean numbers = lhs instanceof Number && rhs instanceof Number;
+			if (this == UNINITIALIZED) {
+				if (lhs instanceof Long && rhs instanceof Long) {
+					return LONG;
+				} else if (lhs instanceof Double && rhs instanceof Double) {
+					return DOUBLE;
+				} else if (numbers) {
+					return NUMBER;
+				} else if (strings && lhs instanceof String && rhs instanceof String) {
+					return STRING;
+				}
+			} else if ((this == LONG || this == DOUBLE) && numbers) {
+				return NUMBER;
+			}
+			return GENERIC;
+		}
+
+	}
+
+	/**
+	 * Binary operation on operands without declared type that specializes
+	 * itself on the runtime types it observes. While the operands keep their
+	 * type, the operation is evaluated without the type dispatch of
+	 * {@link Evaluator}. On a mismatch the node de-optimizes to a more general
+	 * specialization and, finally, to the semantics of {@link Evaluator}.
+	 * <p>
+	 * The specialization is updated without synchronization. Every evaluation
+	 * uses a specialization that accepts its operands, so concurrent updates
+	 * only cost an additional de-optimization.
+	 */
+	static abstract class SpecializingNode extends PreparedNode {
+
+		final PreparedNode lhs;
+		final PreparedNode rhs;
+		private final boolean strings;
+		private Specialization specialization = Specialization.UNINITIALIZED;
+
+		SpecializingNode(PreparedNode lhs, PreparedNode rhs, boolean strings) {
+			this.lhs = lhs;
+			this.rhs = rhs;
+			this.strings = strings;
+		}
+
+		final Specialization specialize(Object lhsValue, Object rhsValue) {
+			Specialization current = specialization;
+			if (!current.accepts(lhsValue, rhsValue)) {
+				current = current.generalize(lhsValue, rhsValue, strings);
+				specialization = current;
+			}
+			return current;
+		}
+
+		final Specialization getSpecialization() {
+			return specialization;
+		}
+
+	}
+
+	static final class SpecializingComparisonNode extends SpecializingNode {
+
+		private final Comparison comparison;
+		private final GenericBinaryNode generic;
+		private final NumericSemantics semantics;
+
+		SpecializingComparisonNode(Comparison comparison, GenericBinaryNode generic, NumericSemantics semantics) {
+			super(generic.lhs, generic.rhs, true);
+			this.comparison = comparison;
+			this.generic = generic;
+			this.semantics = semantics;
+		}
+
+		Object evaluate(VariableProvider variables, FunctionProvider functions) {
+			return evaluateBoolean(variables, functions);
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			Object lhsValue = lhs.evaluate(variables, functions);
+			Object rhsValue = rhs.evaluate(variables, functions);
+			switch (specialize(lhsValue, rhsValue)) {
+				case LONG :
+					if (semantics.isExactIntegers()) {
+						return comparison.test(Long.compare((Long) lhsValue, (Long) rhsValue));
+					} else if (semantics.isExactForIntegers()) {
+						// Distinct integers differ by more than the precision
+						return comparison.testExactly(((Long) lhsValue).doubleValue(),
+								((Long) rhsValue).doubleValue());
+					}
+					return comparison.test(semantics.compare(((Long) lhsValue).doubleValue(),
+							((Long) rhsValue).doubleValue()));
+				case DOUBLE :
+					return comparison.test(semantics.compare(((Double) lhsValue).doubleValue(),
+							((Double) rhsValue).doubleValue()));
+				case NUMBER :
+					if (semantics.isExactIntegers()) {
+						// Two integral operands of different types are compared as long values
+						return (Boolean) generic.apply(lhsValue, rhsValue);
+					}
+					return comparison.test(semantics.compare(((Number) lhsValue).doubleValue(),
+							((Number) rhsValue).doubleValue()));
+				case STRING :
+					return comparison.test(((String) lhsValue).compareTo((String) rhsValue));
+				default :
+					return (Boolean) generic.apply(lhsValue, rhsValue);
+			}
+		}
+
+	}
+
+	static final class SpecializingEqualNode extends SpecializingNode {
+
+		private final boolean negated;
+		private final BinaryOperation equal;
+		private final NumericSemantics semantics;
+
+		/**
+		 * @param negated
+		 * @param equal
+		 *            equality with the semantics of {@link Evaluator}
+		 * @param semantics
+		 * @param lhs
+		 * @param rhs
+		 */
+		SpecializingEqualNode(boolean negated, BinaryOperation equal, NumericSemantics semantics, PreparedNode lhs,
+				PreparedNode rhs) {
+			super(lhs, rhs, true);
+			this.negated = negated;
+			this.equal = equal;
+			this.semantics = semantics;
+		}
+
+		Object evaluate(VariableProvider variables, FunctionProvider functions) {
+			return evaluateBoolean(variables, functions);
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			Object lhsValue = lhs.evaluate(variables, functions);
+			Object rhsValue = rhs.evaluate(variables, functions);
+			switch (specialize(lhsValue, rhsValue)) {
+				case LONG :
+					if (semantics.isExactIntegers()) {
+						return negated != (((Long) lhsValue).longValue() == ((Long) rhsValue).longValue());
+					} else if (semantics.isExactForIntegers()) {
+						// Distinct integers differ by more than the precision
+						return negated != (((Long) lhsValue).doubleValue() == ((Long) rhsValue).doubleValue());
+					}
+					return negated != semantics.equal(((Long) lhsValue).doubleValue(),
+							((Long) rhsValue).doubleValue());
+				case DOUBLE :
+					return negated != semantics.equal(((Double) lhsValue).doubleValue(),
+							((Double) rhsValue).doubleValue());
+				case NUMBER :
+					if (semantics.isExactIntegers()) {
+						return negated != (Boolean) equal.evaluate(lhsValue, rhsValue);
+					}
+					return negated != semantics.equal(((Number) lhsValue).doubleValue(),
+							((Number) rhsValue).doubleValue());
+				case STRING :
+					return negated != lhsValue.equals(rhsValue);
+				default :
+					return negated != (Boolean) equal.evaluate(lhsValue, rhsValue);
+			}
+		}
+
+	}
+
+	/**
+	 * Arithmetic with specializations for numbers only, as arithmetic is not
+	 * defined for strings
+	 */
+	static final class SpecializingArithmeticNode extends SpecializingNode {
+
+		private final Arithmetic operation;
+		private final GenericBinaryNode generic;
+
+		SpecializingArithmeticNode(Arithmetic operation, GenericBinaryNode generic) {
+			super(generic.lhs, generic.rhs, false);
+			this.operation = operation;
+			this.generic = generic;
+		}
+
+		Object evaluate(VariableProvider variables, FunctionProvider functions) {
+			return evaluateDouble(variables, functions);
+		}
+
+		double evaluateDouble(VariableProvider variables, FunctionProvider functions) {
+			Object lhsValue = lhs.evaluate(variables, functions);
+			Object rhsValue = rhs.evaluate(variables, functions);
+			switch (specialize(lhsValue, rhsValue)) {
+				case LONG :
+					return operation.apply(((Long) lhsValue).longValue(), ((Long) rhsValue).longValue());
+				case DOUBLE :
+					return operation.apply(((Double) lhsValue).doubleValue(), ((Double) rhsValue).doubleValue());
+				case NUMBER :
+					return operation.apply(((Number) lhsValue).doubleValue(), ((Number) rhsValue).doubleValue());
+				default :
+					return ((Number) generic.apply(lhsValue, rhsValue)).doubleValue();
+			}
+		}
+
+	}
+
+	static final class GenericNegationNode extends PreparedNode {
+
+		private final PreparedNode operand;
+		private final boolean exactIntegers;
+
+		GenericNegationNode(PreparedNode operand, boolean exactIntegers) {
+			this.operand = operand;
+			this.exactIntegers = exactIntegers;
+		}
+
+		Object evaluate(VariableProvider variables, FunctionProvider functions) {
+			Object value = operand.evaluate(variables, functions);
+			if (value instanceof Number) {
+				if (exactIntegers) {
+					return IntegralOperation.negate((Number) value);
+				}
+				return Double.valueOf(-((Number) value).doubleValue());
+			}
+			throw new EvaluatorException("Negation is not defined for non-numeric values!");
+		}
+
+	}
+
+	/**
+	 * Call of a function on one double value that was resolved when the
+	 * expression was prepared
+	 */
+	static final class DoubleUnaryFunctionNode extends DoubleNode {
+
+		private final DoubleUnaryOperator function;
+		private final PreparedNode argument;
+
+		DoubleUnaryFunctionNode(DoubleUnaryOperator function, PreparedNode argument) {
+			this.function = function;
+			this.argument = argument;
+		}
+
+		double evaluateDouble(VariableProvider variables, FunctionProvider functions) {
+			return function.applyAsDouble(argument.evaluateDouble(variables, functions));
+		}
+
+	}
+
+	/**
+	 * Call of a function on two double values that was resolved when the
+	 * expression was prepared
+	 */
+	static final class DoubleBinaryFunctionNode extends DoubleNode {
+
+		private final DoubleBinaryOperator function;
+		private final PreparedNode lhs;
+		private final PreparedNode rhs;
+
+		DoubleBinaryFunctionNode(DoubleBinaryOperator function, PreparedNode lhs, PreparedNode rhs) {
+			this.function = function;
+			this.lhs = lhs;
+			this.rhs = rhs;
+		}
+
+		double evaluateDouble(VariableProvider variables, FunctionProvider functions) {
+			return function.applyAsDouble(lhs.evaluateDouble(variables, functions),
+					rhs.evaluateDouble(variables, functions));
+		}
+
+	}
+
+	/**
+	 * Call of a built-in {@link StringPredicate} whose second argument was
+	 * bound to a literal when the expression was prepared
+	 */
+	static final class StringPredicateNode extends BooleanNode {
+
+		private final FunctionRegistry.Function function;
+		private final Predicate<String> predicate;
+		private final PreparedNode value;
+		private final Object argument;
+
+		StringPredicateNode(FunctionRegistry.Function function, PreparedNode value, Object argument) {
+			this.function = function;
+			this.predicate = function.getStringPredicate().bind((String) argument);
+			this.value = value;
+			this.argument = argument;
+		}
+
+		boolean evaluateBoolean(VariableProvider variables, FunctionProvider functions) {
+			Object string = EncodedString.decode(value.evaluate(variables, functions));
+			if (string instanceof String) {
+				return predicate.test((String) string);
+			}
+			// Fails with the same error as an unbound call
+			return (Boolean) function.call(string, argument);
+		}
+
+	}
+
+	/**
+	 * Call of a function of a {@link FunctionRegistry} that was resolved when
+	 * the expression was prepared. The {@link FunctionProvider} is not used.
+	 */
+	static final class BoundFunctionNode extends PreparedNode {
+
+		private final FunctionRegistry.Function function;
+		private final PreparedNode[] arguments;
+		private final CallMemo memo;
+
+		/**
+		 * @param function
+		 * @param arguments
+		 *            constant nodes with the identifier for variable arguments
+		 */
+		BoundFunctionNode(FunctionRegistry.Function function, PreparedNode[] arguments) {
+			this.function = function;
+			this.arguments = arguments;
+			this.memo = function.getSignature().isPure() ? new CallMemo() : null;
+		}
+
+		Object evaluate(VariableProvider variables, FunctionProvider functions) {
+			if (memo != null) {
+				return evaluateMemoized(variables, functions);
+			}
+			if (function.hasFixedArity()) {
+				// Avoids the array of arguments for common arities
+				if (arguments.length == 1) {
+					return function.call(arguments[0].evaluate(variables, functions));
+				} else if (arguments.length == 2) {
+					return function.call(arguments[0].evaluate(variables, functions),
+							arguments[1].evaluate(variables, functions));
+				}
+			}
+			Object[] parameters = new Object[arguments.length];
+			for (int i = 0; i < arguments.length; i++) {
+				parameters[i] = arguments[i].evaluate(variables, functions);
+			}
+			return function.call(parameters);
+		}
+
+		private Object evaluateMemoized(VariableProvider variables, FunctionProvider functions) {
+			Object[] parameters = new Object[arguments.length];
+			for (int i = 0; i < arguments.length; i++) {
+				parameters[i] = arguments[i].evaluate(variables, functions);
+			}
+			Object result = memo.lookup(null, parameters);
+			if (result == CallMemo.MISS) {
+				result = function.call(parameters);
+				memo.store(null, parameters, result);
+			}
+			return result;
+		}
+
+	}
+
+	/**
+	 * Evaluates a whole expression with the {@link Evaluator}, which does not
+	 * recurse, for expressions too deep to evaluate prepared nodes on the call
+	 * stack
+	 */
+	static final class InterpretedNode extends PreparedNode {
+
+		private final GuardExpression guard;
+		private final NumericSemantics semantics;
+		private final FunctionRegistry registry;
+
+		/**
+		 * @param guard
+		 * @param semantics
+		 * @param registry
+		 *            bound functions used instead of the given provider, may
+		 *            be NULL
+		 */
+		InterpretedNode(GuardExpression guard, NumericSemantics semantics, FunctionRegistry registry) {
+			this.guard = guard;
+			this.semantics = semantics;
+			this.registry = registry;
+		}
+
+		Object evaluate(VariableProvider variables, FunctionProvider functions) {
+			return Evaluator.evaluate(guard, variables, registry != null ? registry : functions, semantics);
+		}
+
+	}
+
+	static final class FunctionNode extends PreparedNode {
+
+		/**
+		 * How the last {@link FunctionProvider} treats the function
+		 */
+		private static final class Purity {
+
+			private final FunctionProvider functions;
+			private final boolean pure;
+			private final boolean passesValues;
+
+			private Purity(FunctionProvider functions, boolean pure, boolean passesValues) {
+				this.functions = functions;
+				this.pure = pure;
+				this.passesValues = passesValues;
+			}
+
+		}
+
+		private final String name;
+		private final PreparedNode[] arguments;
+		private final PreparedNode[] values;
+		private final CallMemo memo = new CallMemo();
+		private Purity purity;
+
+		/**
+		 * @param name
+		 * @param arguments
+		 *            constant nodes with the identifier for variable arguments
+		 * @param values
+		 *            the same arguments, but resolving variable arguments for
+		 *            functions that take values, see
+		 *            {@link FunctionRegistry#withStringPredicates()}
+		 */
+		FunctionNode(String name, PreparedNode[] arguments, PreparedNode[] values) {
+			this.name = name;
+			this.arguments = arguments;
+			this.values = values;
+		}
+
+		Object evaluate(VariableProvider variables, FunctionProvider functions) {
+			Purity known = purityOf(functions);
+			PreparedNode[] nodes = known.passesValues ? values : arguments;
+			Object[] parameters = new Object[nodes.length];
+			for (int i = 0; i < nodes.length; i++) {
+				parameters[i] = nodes[i].evaluate(variables, functions);
+			}
+			if (!known.pure) {
+				return functions.calculate(name, parameters);
+			}
+			// Results are only re-used for the same provider
+			Object result = memo.lookup(functions, parameters);
+			if (result == CallMemo.MISS) {
+				result = functions.calculate(name, parameters.clone());
+				memo.store(functions, parameters, result);
+			}
+			return result;
+		}
+
+		private Purity purityOf(FunctionProvider functions) {
+			Purity known = purity;
+			if (known == null || known.functions != functions) {
+				// Concurrent evaluations may both compute it, either result is correct
+				known = new Purity(functions, functions.isPure(name), Evaluator.passesValues(functions, name));
+				purity = known;
+			}
+			return known;
+		}
+
+	}
+
+}
@@ -1,5 +1,8 @@
 package org.processmining.datapetrinets.expression;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 import org.processmining.datapetrinets.expression.syntax.ExprAnd;
 import org.processmining.datapetrinets.expression.syntax.ExprAtLeast;
 import org.processmining.datapetrinets.expression.syntax.ExprAtMost;
@@ -7,6 +10,7 @@ import org.processmining.datapetrinets.expression.syntax.ExprDiv;
 import org.processmining.datapetrinets.expression.syntax.ExprEqual;
 import org.processmining.datapetrinets.expression.syntax.ExprFunction;
 import org.processmining.datapetrinets.expression.syntax.ExprGreaterThan;
+import org.processmining.datapetrinets.expression.syntax.ExprIn;
 import org.processmining.datapetrinets.expression.syntax.ExprLessThan;
 import org.processmining.datapetrinets.expression.syntax.ExprLitBoolean;
 import org.processmining.datapetrinets.expression.syntax.ExprLitDouble;
@@ -21,143 +25,252 @@ import org.processmining.datapetrinets.expression.syntax.ExprNotEqual;
 import org.processmining.datapetrinets.expression.syntax.ExprOr;
 import org.processmining.datapetrinets.expression.syntax.ExprPlus;
 import org.processmining.datapetrinets.expression.syntax.ExprRoot;
+import org.processmining.datapetrinets.expression.syntax.ExprSet;
 import org.processmining.datapetrinets.expression.syntax.ExprVariable;
 import org.processmining.datapetrinets.expression.syntax.ExpressionParserVisitor;
 import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+import org.processmining.datapetrinets.expression.syntax.Node;
 import org.processmining.datapetrinets.expression.syntax.SimpleNode;
 
 /**
  * Class to create a readable String representation from an
  * {@link GuardExpression}.
+ * <p>
+ * The printers do not recurse into the expression tree. Each visitor appends
+ * the output of a single node and schedules the text and children that follow
+ * it on the {@link PrintJob}, so that arbitrarily deep expressions can be
+ * printed.
  * 
  * @author F. Mannhardt
  * 
  */
 public final class Printer {
 
-	private static final class CanonicalPrinterVisitor implements ExpressionParserVisitor {
+	/**
+	 * Output of a printer together with the text and nodes that remain to be
+	 * printed.
+	 */
+	private static final class PrintJob {
+
+		private final StringBuilder sb = new StringBuilder();
+		private final Deque<Object> pending = new ArrayDeque<>();
+		private int indent;
+
+		private PrintJob append(Object text) {
+			sb.append(text);
+			return this;
+		}
+
+		/**
+		 * Schedules the items to be printed in the given order. Items are
+		 * either text, a {@link Node} that is printed with the indentation of
+		 * the current node or an {@link IndentedNode}.
+		 */
+		private void schedule(Object... items) {
+			for (int i = items.length - 1; i >= 0; i--) {
+				push(items[i]);
+			}
+		}
+
+		private void scheduleAll(Deque<Object> items) {
+			while (!items.isEmpty()) {
+				push(items.removeLast());
+			}
+		}
+
+		private void push(Object item) {
+			pending.push(item instanceof Node ? new IndentedNode((Node) item, indent) : item);
+		}
+
+		private String print(Node node, ExpressionParserVisitor visitor) {
+			push(node);
+			try {
+				while (!pending.isEmpty()) {
+					Object item = pending.pop();
+					if (item instanceof IndentedNode) {
+						IndentedNode indentedNode = (IndentedNode) item;
+						indent = indentedNode.indent;
+						indentedNode.node.jjtAccept(visitor, this);
+					} else {
+						sb.append(item);
+					}
+				}
+			} catch (ExpressionVisitorException e) {
+				throw new RuntimeException("Exception while trying to print expression!", e);
+			}
+			return sb.toString();
+		}
+
+	}
+
+	private static final class IndentedNode {
+
+		private final Node node;
+		private final int indent;
+
+		private IndentedNode(Node node, int indent) {
+			this.node = node;
+			this.indent = indent;
+		}
 
-		private static StringBuilder sb(Object data) {
-			return (StringBuilder) data;
+	}
+
+	private static PrintJob job(Object data) {
+		return (PrintJob) data;
+	}
+
+	private static String whitespace(int level) {
+		StringBuilder sb = new StringBuilder(level);
+		for (int i = 0; i < level; i++) {
+			sb.append(' ');
 		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return the children of the node separated by the separator
+	 */
+	private static Deque<Object> separated(Node node, String separator) {
+		Deque<Object> items = new ArrayDeque<>(node.jjtGetNumChildren() * 2);
+		for (int i = 0; i < node.jjtGetNumChildren(); ++i) {
+			if (i != 0) {
+				items.add(separator);
+			}
+			items.add(node.jjtGetChild(i));
+		}
+		return items;
+	}
+
+	private static final class CanonicalPrinterVisitor implements ExpressionParserVisitor {
 
 		public Object visit(ExprLitNull node, Object data) {
-			sb(data).append("null");
+			job(data).append("null");
 			return null;
 		}
 
 		public Object visit(ExprLitBoolean node, Object data) {
-			sb(data).append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
 		public Object visit(ExprLitString node, Object data) {
-			sb(data).append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
 		public Object visit(ExprLitDouble node, Object data) {
-			sb(data).append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
 		public Object visit(ExprLitInteger node, Object data) {
-			sb(data).append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
 		public Object visit(ExprVariable node, Object data) {
-			sb(data).append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
-		public Object visit(ExprNot node, Object data) throws ExpressionVisitorException {
-			sb(data).append("!(");
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb(data).append(')');
+		public Object visit(ExprNot node, Object data) {
+			job(data).append("!(").schedule(node.jjtGetChild(0), ")");
 			return null;
 		}
 
-		public Object visit(ExprNegation node, Object data) throws ExpressionVisitorException {
-			sb(data).append("-");
-			node.jjtGetChild(0).jjtAccept(this, data);
+		public Object visit(ExprNegation node, Object data) {
+			job(data).append("-").schedule(node.jjtGetChild(0));
 			return null;
 		}
 
-		private void printBinaryOp(String symbol, SimpleNode node, Object data) throws ExpressionVisitorException {
-			sb(data).append('(');
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb(data).append(symbol);
-			node.jjtGetChild(1).jjtAccept(this, data);
-			sb(data).append(')');
+		private void printBinaryOp(String symbol, SimpleNode node, Object data) {
+			job(data).append('(').schedule(node.jjtGetChild(0), symbol, node.jjtGetChild(1), ")");
+		}
+
+		private void printNaryOp(String symbol, SimpleNode node, Object data) {
+			Deque<Object> items = separated(node, symbol);
+			items.add(")");
+			job(data).append('(').scheduleAll(items);
 		}
 
-		public Object visit(ExprDiv node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprDiv node, Object data) {
 			printBinaryOp("/", node, data);
 			return null;
 		}
 
-		public Object visit(ExprMult node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprMult node, Object data) {
 			printBinaryOp("*", node, data);
 			return null;
 		}
 
-		public Object visit(ExprMinus node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprMinus node, Object data) {
 			printBinaryOp("-", node, data);
 			return null;
 		}
 
-		public Object visit(ExprPlus node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprPlus node, Object data) {
 			printBinaryOp("+", node, data);
 			return null;
 		}
 
-		public Object visit(ExprAtLeast node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprAtLeast node, Object data) {
 			printBinaryOp(">=", node, data);
 			return null;
 		}
 
-		public Object visit(ExprGreaterThan node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprGreaterThan node, Object data) {
 			printBinaryOp(">", node, data);
 			return null;
 		}
 
-		public Object visit(ExprAtMost node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprAtMost node, Object data) {
 			printBinaryOp("<=", node, data);
 			return null;
 		}
 
-		public Object visit(ExprLessThan node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprLessThan node, Object data) {
 			printBinaryOp("<", node, data);
 			return null;
 		}
 
-		public Object visit(ExprNotEqual node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprNotEqual node, Object data) {
 			printBinaryOp("!=", node, data);
 			return null;
 		}
 
-		public Object visit(ExprEqual node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprEqual node, Object data) {
 			printBinaryOp("==", node, data);
 			return null;
 		}
 
-		public Object visit(ExprAnd node, Object data) throws ExpressionVisitorException {
-			printBinaryOp("&&", node, data);
+		public Object visit(ExprIn node, Object data) {
+			printBinaryOp(" in ", node, data);
+			return null;
+		}
+
+		public Object visit(ExprSet node, Object data) {
+			Deque<Object> items = separated(node, ",");
+			items.add("}");
+			job(data).append('{').scheduleAll(items);
+			return null;
+		}
+
+		public Object visit(ExprAnd node, Object data) {
+			printNaryOp("&&", node, data);
 			return null;
 		}
 
-		public Object visit(ExprOr node, Object data) throws ExpressionVisitorException {
-			printBinaryOp("||", node, data);
+		public Object visit(ExprOr node, Object data) {
+			printNaryOp("||", node, data);
 			return null;
 		}
 
-		public Object visit(ExprRoot node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprRoot node, Object data) {
 			if (node.jjtGetNumChildren() > 1) {
 				throw new IllegalArgumentException("Invalid expression " + node
 						+ " should not have been parsed! Top level element is only allowed to have one child.");
 			}
-			node.jjtGetChild(0).jjtAccept(this, data);
+			job(data).schedule(node.jjtGetChild(0));
 			return null;
 		}
 
@@ -165,15 +278,10 @@ public final class Printer {
 			throw new IllegalStateException("No unamed nodes allowed!");
 		}
 
-		public Object visit(ExprFunction node, Object data) throws ExpressionVisitorException {
-			sb(data).append(node.jjtGetValue() + "(");
-			for (int i = 0; i < node.jjtGetNumChildren(); ++i) {
-				node.jjtGetChild(i).jjtAccept(this, data);
-				if (i != node.jjtGetNumChildren() - 1) {
-					sb(data).append(',');
-				}
-			}
-			sb(data).append(")");
+		public Object visit(ExprFunction node, Object data) {
+			Deque<Object> items = separated(node, ",");
+			items.add(")");
+			job(data).append(node.jjtGetValue() + "(").scheduleAll(items);
 			return null;
 		}
 
@@ -181,168 +289,152 @@ public final class Printer {
 
 	private static final class PrettyPrinterVisitor implements ExpressionParserVisitor {
 
-		private final int spaces;
-		private final StringBuilder sb;
+		private final String whitespace;
 
 		public PrettyPrinterVisitor(int spaces) {
-			this.spaces = spaces;
-			this.sb = new StringBuilder();
+			this.whitespace = whitespace(spaces);
 		}
 
 		public Object visit(ExprLitNull node, Object data) {
-			sb.append("null");
+			job(data).append("null");
 			return null;
 		}
 
 		public Object visit(ExprLitBoolean node, Object data) {
-			sb.append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
 		public Object visit(ExprLitString node, Object data) {
-			sb.append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
 		public Object visit(ExprLitDouble node, Object data) {
-			sb.append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
 		public Object visit(ExprLitInteger node, Object data) {
-			sb.append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
 		public Object visit(ExprVariable node, Object data) {
-			sb.append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
-		public Object visit(ExprNot node, Object data) throws ExpressionVisitorException {
-			sb.append("!(");
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb.append(')');
+		public Object visit(ExprNot node, Object data) {
+			job(data).append("!(").schedule(node.jjtGetChild(0), ")");
 			return null;
 		}
 
-		public Object visit(ExprNegation node, Object data) throws ExpressionVisitorException {
-			sb.append("-");
-			node.jjtGetChild(0).jjtAccept(this, data);
+		public Object visit(ExprNegation node, Object data) {
+			job(data).append("-").schedule(node.jjtGetChild(0));
 			return null;
 		}
 
-		private void printBinaryOp(String symbol, SimpleNode node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(data, spaces);
-			node.jjtGetChild(0).jjtAccept(this, data);
-			appendWhitespace(data, spaces);
-			sb.append(symbol);
-			appendWhitespace(data, spaces);
-			node.jjtGetChild(1).jjtAccept(this, data);
+		private void printBinaryOp(String symbol, SimpleNode node, Object data) {
+			job(data).append(whitespace).schedule(node.jjtGetChild(0), whitespace, symbol, whitespace,
+					node.jjtGetChild(1));
 		}
 
-		private void printBooleanOp(String symbol, SimpleNode node, Object data) throws ExpressionVisitorException {
-			//appendWhitespace(data, spaces);
-			sb.append('(');
-			node.jjtGetChild(0).jjtAccept(this, data);
-			appendWhitespace(data, spaces);
-			sb.append(symbol);
-			appendWhitespace(data, spaces);
-			node.jjtGetChild(1).jjtAccept(this, data);
-			sb.append(')');
+		private void printBooleanOp(String symbol, SimpleNode node, Object data) {
+			Deque<Object> items = separated(node, whitespace + symbol + whitespace);
+			items.add(")");
+			job(data).append('(').scheduleAll(items);
 		}
 
-		public Object visit(ExprDiv node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprDiv node, Object data) {
 			printBinaryOp(" / ", node, data);
 			return null;
 		}
 
-		private void appendWhitespace(Object data, int level) {
-			for (int i = 0; i < level; i++) {
-				sb.append(' ');
-			}
-		}
-
-		public Object visit(ExprMult node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprMult node, Object data) {
 			printBinaryOp(" * ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprMinus node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprMinus node, Object data) {
 			printBinaryOp(" - ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprPlus node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprPlus node, Object data) {
 			printBinaryOp(" + ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprAtLeast node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprAtLeast node, Object data) {
 			printBinaryOp(" >= ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprGreaterThan node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprGreaterThan node, Object data) {
 			printBinaryOp(" > ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprAtMost node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprAtMost node, Object data) {
 			printBinaryOp(" <= ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprLessThan node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprLessThan node, Object data) {
 			printBinaryOp(" < ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprNotEqual node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprNotEqual node, Object data) {
 			printBinaryOp(" != ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprEqual node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprEqual node, Object data) {
 			printBinaryOp(" == ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprAnd node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprIn node, Object data) {
+			printBinaryOp(" in ", node, data);
+			return null;
+		}
+
+		public Object visit(ExprSet node, Object data) {
+			Deque<Object> items = separated(node, ", ");
+			items.add("}");
+			job(data).append('{').scheduleAll(items);
+			return null;
+		}
+
+		public Object visit(ExprAnd node, Object data) {
 			printBooleanOp("&&", node, data);
 			return null;
 		}
 
-		public Object visit(ExprOr node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprOr node, Object data) {
 			printBooleanOp("||", node, data);
 			return null;
 		}
 
-		public Object visit(ExprRoot node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprRoot node, Object data) {
 			if (node.jjtGetNumChildren() > 1) {
 				throw new IllegalArgumentException("Invalid expression " + node
 						+ " should not have been parsed! Top level element is only allowed to have one child.");
 			}
-			return node.jjtGetChild(0).jjtAccept(this, data);
+			job(data).schedule(node.jjtGetChild(0));
+			return null;
 		}
 
 		public Object visit(SimpleNode node, Object data) {
 			throw new IllegalStateException("No unamed nodes allowed!");
 		}
 
-		public String getString() {
-			return sb.toString();
-		}
-
-		public Object visit(ExprFunction node, Object data) throws ExpressionVisitorException {
-			sb.append(node.jjtGetValue() + "(");
-			for (int i = 0; i < node.jjtGetNumChildren(); ++i) {
-				node.jjtGetChild(i).jjtAccept(this, data);
-				if (i != node.jjtGetNumChildren() - 1) {
-					sb.append(',');
-				}
-			}
-			sb.append(")");
+		public Object visit(ExprFunction node, Object data) {
+			Deque<Object> items = separated(node, ",");
+			items.add(")");
+			job(data).append(node.jjtGetValue() + "(").scheduleAll(items);
 			return null;
 		}
 
@@ -350,197 +442,166 @@ public final class Printer {
 
 	private static final class TreePrinterVisitor implements ExpressionParserVisitor {
 
-		private int indent;
-		private final StringBuilder sb;
+		private final int indent;
 
 		public TreePrinterVisitor(int indent) {
 			this.indent = indent;
-			this.sb = new StringBuilder();
-		}
-		
-		private static int in(Object data) {
-			return (Integer) data;
 		}
-		
-		private static void appendWhitespace(StringBuilder sb, Object data, int level) {
-			for (int i = 0; i < level; i++) {
-				sb.append(' ');
-			}
+
+		private static String whitespace(Object data) {
+			return Printer.whitespace(job(data).indent);
 		}
 
 		public Object visit(ExprLitNull node, Object data) {
-			sb.append("null");
+			job(data).append("null");
 			return null;
 		}
 
 		public Object visit(ExprLitBoolean node, Object data) {
-			sb.append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
 		public Object visit(ExprLitString node, Object data) {
-			sb.append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
 		public Object visit(ExprLitDouble node, Object data) {
-			sb.append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
 		public Object visit(ExprLitInteger node, Object data) {
-			sb.append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
 		public Object visit(ExprVariable node, Object data) {
-			sb.append(node.jjtGetValue());
+			job(data).append(node.jjtGetValue());
 			return null;
 		}
 
-		public Object visit(ExprNot node, Object data) throws ExpressionVisitorException {
-			sb.append("!(");
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb.append(')');
+		public Object visit(ExprNot node, Object data) {
+			job(data).append("!(").schedule(node.jjtGetChild(0), ")");
 			return null;
 		}
 
-		public Object visit(ExprNegation node, Object data) throws ExpressionVisitorException {
-			sb.append("-");
-			node.jjtGetChild(0).jjtAccept(this, data);
+		public Object visit(ExprNegation node, Object data) {
+			job(data).append("-").schedule(node.jjtGetChild(0));
 			return null;
 		}
 
-		public Object visit(ExprDiv node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(sb, data, in(data));
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb.append(" / ");
-			node.jjtGetChild(1).jjtAccept(this, data);
+		private void printBinaryOp(String symbol, SimpleNode node, Object data) {
+			int level = job(data).indent;
+			job(data).append(whitespace(data)).schedule(new IndentedNode(node.jjtGetChild(0), level), symbol,
+					new IndentedNode(node.jjtGetChild(1), level));
+		}
+
+		private void printBooleanOp(String symbol, SimpleNode node, Object data) {
+			int level = job(data).indent;
+			Deque<Object> items = new ArrayDeque<>();
+			for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+				if (i != 0) {
+					items.add("\n" + whitespace(data) + symbol + "\n");
+				}
+				items.add(new IndentedNode(node.jjtGetChild(i), level + indent));
+			}
+			job(data).append(whitespace(data)).scheduleAll(items);
+		}
+
+		public Object visit(ExprDiv node, Object data) {
+			printBinaryOp(" / ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprMult node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(sb, data, in(data));
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb.append(" * ");
-			node.jjtGetChild(1).jjtAccept(this, data);
+		public Object visit(ExprMult node, Object data) {
+			printBinaryOp(" * ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprMinus node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(sb, data, in(data));
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb.append(" - ");
-			node.jjtGetChild(1).jjtAccept(this, data);
+		public Object visit(ExprMinus node, Object data) {
+			printBinaryOp(" - ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprPlus node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(sb, data, in(data));
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb.append(" + ");
-			node.jjtGetChild(1).jjtAccept(this, data);
+		public Object visit(ExprPlus node, Object data) {
+			printBinaryOp(" + ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprAtLeast node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(sb, data, in(data));
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb.append(" >= ");
-			node.jjtGetChild(1).jjtAccept(this, data);
+		public Object visit(ExprAtLeast node, Object data) {
+			printBinaryOp(" >= ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprGreaterThan node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(sb, data, in(data));
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb.append(" > ");
-			node.jjtGetChild(1).jjtAccept(this, data);
+		public Object visit(ExprGreaterThan node, Object data) {
+			printBinaryOp(" > ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprAtMost node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(sb, data, in(data));
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb.append(" <= ");
-			node.jjtGetChild(1).jjtAccept(this, data);
+		public Object visit(ExprAtMost node, Object data) {
+			printBinaryOp(" <= ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprLessThan node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(sb, data, in(data));
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb.append(" < ");
-			node.jjtGetChild(1).jjtAccept(this, data);
+		public Object visit(ExprLessThan node, Object data) {
+			printBinaryOp(" < ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprNotEqual node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(sb, data, in(data));
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb.append(" != ");
-			node.jjtGetChild(1).jjtAccept(this, data);
+		public Object visit(ExprNotEqual node, Object data) {
+			printBinaryOp(" != ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprEqual node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(sb, data, in(data));
-			node.jjtGetChild(0).jjtAccept(this, data);
-			sb.append(" == ");
-			node.jjtGetChild(1).jjtAccept(this, data);
+		public Object visit(ExprEqual node, Object data) {
+			printBinaryOp(" == ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprAnd node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(sb, data, in(data));
-			node.jjtGetChild(0).jjtAccept(this, in(data) + indent);
-			sb.append('\n');
-			appendWhitespace(sb, data, in(data));
-			sb.append("&&");
-			sb.append('\n');
-			node.jjtGetChild(1).jjtAccept(this, in(data) + indent);			
+		public Object visit(ExprIn node, Object data) {
+			printBinaryOp(" in ", node, data);
 			return null;
 		}
 
-		public Object visit(ExprOr node, Object data) throws ExpressionVisitorException {
-			appendWhitespace(sb, data, in(data));
-			node.jjtGetChild(0).jjtAccept(this, in(data) + indent);
-			sb.append('\n');
-			appendWhitespace(sb, data, in(data));
-			sb.append("||");
-			sb.append('\n');
-			node.jjtGetChild(1).jjtAccept(this, in(data) + indent);		
+		public Object visit(ExprSet node, Object data) {
+			Deque<Object> items = separated(node, ", ");
+			items.add("}");
+			job(data).append('{').scheduleAll(items);
 			return null;
 		}
-		
-		public Object visit(ExprFunction node, Object data) throws ExpressionVisitorException {
-			sb.append(node.jjtGetValue() + "(");
-			for (int i = 0; i < node.jjtGetNumChildren(); ++i) {
-				node.jjtGetChild(i).jjtAccept(this, data);
-				if (i != node.jjtGetNumChildren() - 1) {
-					sb.append(',');
-				}
-			}
-			sb.append(")");
+
+		public Object visit(ExprAnd node, Object data) {
+			printBooleanOp("&&", node, data);
+			return null;
+		}
+
+		public Object visit(ExprOr node, Object data) {
+			printBooleanOp("||", node, data);
 			return null;
 		}
 
-		public Object visit(ExprRoot node, Object data) throws ExpressionVisitorException {
+		public Object visit(ExprFunction node, Object data) {
+			Deque<Object> items = separated(node, ",");
+			items.add(")");
+			job(data).append(node.jjtGetValue() + "(").scheduleAll(items);
+			return null;
+		}
+
+		public Object visit(ExprRoot node, Object data) {
 			if (node.jjtGetNumChildren() > 1) {
 				throw new IllegalArgumentException("Invalid expression " + node
 						+ " should not have been parsed! Top level element is only allowed to have one child.");
 			}
-			return node.jjtGetChild(0).jjtAccept(this, data);
+			job(data).schedule(node.jjtGetChild(0));
+			return null;
 		}
 
 		public Object visit(SimpleNode node, Object data) {
 			throw new IllegalStateException("No unamed nodes allowed!");
 		}
 
-		public String getString() {
-			return sb.toString();
-		}
-
 	}
 
 	private static final CanonicalPrinterVisitor CANONICAL_VISITOR = new CanonicalPrinterVisitor();
@@ -550,33 +611,24 @@ public final class Printer {
 	}
 
 	public static String printCanonical(ExprRoot expression) {
-		StringBuilder sb = new StringBuilder();
-		try {
-			CANONICAL_VISITOR.visit(expression, sb);
-		} catch (ExpressionVisitorException e) {
-			throw new RuntimeException("Exception while trying to print expression!", e);
-		} 
-		return sb.toString();
+		return new PrintJob().print(expression, CANONICAL_VISITOR);
+	}
+
+	/**
+	 * @param node
+	 *            any node of an expression
+	 * @return the canonical String representation of the sub-expression
+	 */
+	static String printCanonical(Node node) {
+		return new PrintJob().print(node, CANONICAL_VISITOR);
 	}
 
 	public static String printTree(ExprRoot expression, int indent) {
-		TreePrinterVisitor treePrinterVisitor = new TreePrinterVisitor(indent);
-		try {
-			treePrinterVisitor.visit(expression, 0);
-		} catch (ExpressionVisitorException e) {
-			throw new RuntimeException("Exception while trying to print expression!", e);
-		}
-		return treePrinterVisitor.getString();
+		return new PrintJob().print(expression, new TreePrinterVisitor(indent));
 	}
 
 	public static String printPretty(ExprRoot expression, int spaces) {
-		PrettyPrinterVisitor prettyPrinterVisitor = new PrettyPrinterVisitor(spaces);
-		try {
-			prettyPrinterVisitor.visit(expression, null);
-		} catch (ExpressionVisitorException e) {
-			throw new RuntimeException("Exception while trying to print expression!", e);
-		}
-		return prettyPrinterVisitor.getString();
+		return new PrintJob().print(expression, new PrettyPrinterVisitor(spaces));
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,322 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.processmining.datapetrinets.expression.syntax.ExprFunction;
+import org.processmining.datapetrinets.expression.syntax.ExprRoot;
+import org.processmining.datapetrinets.expression.syntax.ExprSet;
+import org.processmining.datapetrinets.expression.syntax.ExprVariable;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserDefaultVisitor;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserTreeConstants;
+import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+import org.processmining.datapetrinets.expression.syntax.LiteralSet;
+import org.processmining.datapetrinets.expression.syntax.Node;
+import org.processmining.datapetrinets.expression.syntax.SimpleNode;
+import org.processmining.datapetrinets.expression.syntax.Symbol;
+
+/**
+ * Lowers the syntax tree of an expression into a {@link GuardProgram}. The
+ * tree is traversed with an explicit stack. Every node writes its value to the
+ * register it is assigned to, its operands are assigned to the following
+ * registers.
+ *
+ * @author F. Mannhardt
+ *
+ */
+final class ProgramCompiler {
+
+	/**
+	 * Node whose operands are being compiled.
+	 */
+	private static final class Frame {
+
+		private final Node node;
+		private final int register;
+		private int next;
+		private final List<Integer> jumps = new ArrayList<>();
+
+		private Frame(Node node, int register) {
+			this.node = node;
+			this.register = register;
+		}
+
+		private boolean isShortCircuit() {
+			return node.getId() == ExpressionParserTreeConstants.JJTAND
+					|| node.getId() == ExpressionParserTreeConstants.JJTOR;
+		}
+
+		private int operandCount() {
+			switch (node.getId()) {
+				case ExpressionParserTreeConstants.JJTIN :
+					// The set is not evaluated
+					return 1;
+				case ExpressionParserTreeConstants.JJTSET :
+					return 0;
+				default :
+					return node.jjtGetNumChildren();
+			}
+		}
+
+		private int operandRegister(int index) {
+			if (isShortCircuit()) {
+				// The first operand is the accumulated result
+				return index == 0 ? register : register + 1;
+			}
+			return register + index;
+		}
+
+	}
+
+	/**
+	 * @param guard
+	 * @param semantics
+	 *            floating point semantics, possibly with another precision
+	 * @return the program evaluating the guard
+	 */
+	static GuardProgram compile(GuardExpression guard, final NumericSemantics semantics) {
+		try {
+			return (GuardProgram) guard.visit(new ExpressionParserDefaultVisitor() {
+
+				public Object visit(ExprRoot node, Object data) {
+					return compile(node, semantics);
+				}
+
+			}, null);
+		} catch (ExpressionVisitorException e) {
+			throw new RuntimeException("Could not compile expression " + guard.toCanonicalString(), e);
+		}
+	}
+
+	/**
+	 * @param expression
+	 * @param semantics
+	 * @return the program evaluating the expression
+	 */
+	static GuardProgram compile(ExprRoot expression, NumericSemantics semantics) {
+		ProgramCompiler compiler = new ProgramCompiler();
+		if (expression.jjtGetNumChildren() != 1) {
+			compiler.emit(GuardProgram.FAIL, 0, compiler.constant("Invalid expression "
+					+ Printer.printCanonical(expression)
+					+ " should not have been parsed! Top level element is only allowed to have one child."));
+		} else {
+			compiler.compileNode(expression.jjtGetChild(0));
+			compiler.emit(GuardProgram.RETURN, 0);
+		}
+		return new GuardProgram(Printer.printCanonical(expression), Arrays.copyOf(compiler.code, compiler.size),
+				compiler.constants.toArray(), compiler.symbols.toArray(new Symbol[compiler.symbols.size()]),
+				compiler.sets.toArray(new LiteralSet[compiler.sets.size()]), compiler.registerCount, semantics);
+	}
+
+	private int[] code = new int[64];
+	private int size = 0;
+	private int registerCount = 1;
+
+	private final List<Object> constants = new ArrayList<>();
+	private final Map<Object, Integer> constantIndex = new HashMap<>();
+	private final List<Symbol> symbols = new ArrayList<>();
+	private final Map<Symbol, Integer> symbolIndex = new IdentityHashMap<>();
+	private final List<LiteralSet> sets = new ArrayList<>();
+
+	private ProgramCompiler() {
+		super();
+	}
+
+	private void compileNode(Node root) {
+		if (root.jjtGetNumChildren() == 0) {
+			compileLeaf(root, 0);
+			return;
+		}
+		Deque<Frame> stack = new ArrayDeque<>();
+		stack.push(new Frame(root, 0));
+		while (!stack.isEmpty()) {
+			Frame frame = stack.peek();
+			if (frame.next < frame.operandCount()) {
+				int index = frame.next++;
+				int register = frame.operandRegister(index);
+				registerCount = Math.max(registerCount, register + 1);
+				if (frame.isShortCircuit() && index > 0) {
+					// Skip the remaining operands once the result is known
+					frame.jumps.add(size + 1);
+					emit(frame.node.getId() == ExpressionParserTreeConstants.JJTAND ? GuardProgram.JUMP_IF_FALSE
+							: GuardProgram.JUMP_IF_TRUE, frame.register, -1);
+				}
+				Node child = frame.node.jjtGetChild(index);
+				String identifier = Evaluator.identifierArgument(child);
+				if (identifier != null) {
+					// Resolved by CALL if the function passes values
+					emit(GuardProgram.LOAD_CONST, register, constant(identifier));
+					operandCompiled(frame, index);
+				} else if (child.jjtGetNumChildren() == 0) {
+					compileLeaf(child, register);
+					operandCompiled(frame, index);
+				} else {
+					stack.push(new Frame(child, register));
+				}
+			} else {
+				stack.pop();
+				compileOperation(frame);
+				if (!stack.isEmpty()) {
+					Frame parent = stack.peek();
+					operandCompiled(parent, parent.next - 1);
+				}
+			}
+		}
+	}
+
+	private void operandCompiled(Frame frame, int index) {
+		if (frame.isShortCircuit() && index > 0) {
+			emit(frame.node.getId() == ExpressionParserTreeConstants.JJTAND ? GuardProgram.AND : GuardProgram.OR,
+					frame.register, frame.register + 1);
+		}
+	}
+
+	private void compileLeaf(Node node, int register) {
+		switch (node.getId()) {
+			case ExpressionParserTreeConstants.JJTLITNULL :
+				emit(GuardProgram.LOAD_CONST, register, constant(null));
+				break;
+			case ExpressionParserTreeConstants.JJTLITBOOLEAN :
+				emit(GuardProgram.LOAD_CONST, register,
+						constant(Boolean.valueOf((String) ((SimpleNode) node).jjtGetValue())));
+				break;
+			case ExpressionParserTreeConstants.JJTLITSTRING :
+				emit(GuardProgram.LOAD_CONST, register,
+						constant(Evaluator.Visitor.unquote((String) ((SimpleNode) node).jjtGetValue())));
+				break;
+			case ExpressionParserTreeConstants.JJTLITDOUBLE :
+				emit(GuardProgram.LOAD_CONST, register,
+						constant(Double.parseDouble((String) ((SimpleNode) node).jjtGetValue())));
+				break;
+			case ExpressionParserTreeConstants.JJTLITINTEGER :
+				emit(GuardProgram.LOAD_CONST, register,
+						constant(Long.parseLong((String) ((SimpleNode) node).jjtGetValue())));
+				break;
+			case ExpressionParserTreeConstants.JJTVARIABLE :
+				emit(GuardProgram.LOAD_VAR, register, symbol(((ExprVariable) node).getSymbol()));
+				break;
+			default :
+				// Functions without parameters and invalid nodes
+				compileOperation(new Frame(node, register));
+				break;
+		}
+	}
+
+	private void compileOperation(Frame frame) {
+		int r = frame.register;
+		switch (frame.node.getId()) {
+			case ExpressionParserTreeConstants.JJTNOT :
+				emit(GuardProgram.NOT, r, r);
+				break;
+			case ExpressionParserTreeConstants.JJTNEGATION :
+				emit(GuardProgram.NEG, r, r);
+				break;
+			case ExpressionParserTreeConstants.JJTPLUS :
+				emit(GuardProgram.ADD, r, r, r + 1);
+				break;
+			case ExpressionParserTreeConstants.JJTMINUS :
+				emit(GuardProgram.SUB, r, r, r + 1);
+				break;
+			case ExpressionParserTreeConstants.JJTMULT :
+				emit(GuardProgram.MUL, r, r, r + 1);
+				break;
+			case ExpressionParserTreeConstants.JJTDIV :
+				emit(GuardProgram.DIV, r, r, r + 1);
+				break;
+			case ExpressionParserTreeConstants.JJTLESSTHAN :
+				emit(GuardProgram.LT, r, r, r + 1);
+				break;
+			case ExpressionParserTreeConstants.JJTATMOST :
+				emit(GuardProgram.LE, r, r, r + 1);
+				break;
+			case ExpressionParserTreeConstants.JJTGREATERTHAN :
+				emit(GuardProgram.GT, r, r, r + 1);
+				break;
+			case ExpressionParserTreeConstants.JJTATLEAST :
+				emit(GuardProgram.GE, r, r, r + 1);
+				break;
+			case ExpressionParserTreeConstants.JJTEQUAL :
+				emit(GuardProgram.EQ, r, r, r + 1);
+				break;
+			case ExpressionParserTreeConstants.JJTNOTEQUAL :
+				emit(GuardProgram.NE, r, r, r + 1);
+				break;
+			case ExpressionParserTreeConstants.JJTIN :
+				sets.add(((ExprSet) frame.node.jjtGetChild(1)).getValues());
+				emit(GuardProgram.IN, r, r, sets.size() - 1);
+				break;
+			case ExpressionParserTreeConstants.JJTAND :
+			case ExpressionParserTreeConstants.JJTOR :
+				for (int jump : frame.jumps) {
+					code[jump] = size;
+				}
+				break;
+			case ExpressionParserTreeConstants.JJTFUNCTION :
+				emit(GuardProgram.CALL, r, constant(((ExprFunction) frame.node).jjtGetValue()),
+						frame.node.jjtGetNumChildren(), variableArguments(frame.node));
+				break;
+			case ExpressionParserTreeConstants.JJTSET :
+				emit(GuardProgram.FAIL, r, constant("Sets are only allowed as right operand of 'in'!"));
+				break;
+			default :
+				emit(GuardProgram.FAIL, r, constant("No unamed nodes allowed!"));
+				break;
+		}
+	}
+
+	/**
+	 * @param function
+	 * @return the constant with the identifiers of the arguments that are
+	 *         variables, NULL for other arguments, or -1 if there are none
+	 */
+	private int variableArguments(Node function) {
+		String[] identifiers = new String[function.jjtGetNumChildren()];
+		boolean any = false;
+		for (int i = 0; i < identifiers.length; i++) {
+			if (function.jjtGetChild(i) instanceof ExprVariable) {
+				identifiers[i] = (String) ((ExprVariable) function.jjtGetChild(i)).jjtGetValue();
+				any = true;
+			}
+		}
+		return any ? constant(identifiers) : -1;
+	}
+
+	private int constant(Object value) {
+		// Keys distinguish values that are equal but of different type, e.g., 1L and 1.0
+		Object key = value == null ? constants : Arrays.asList(value.getClass(), value);
+		Integer index = constantIndex.get(key);
+		if (index == null) {
+			index = constants.size();
+			constants.add(value);
+			constantIndex.put(key, index);
+		}
+		return index;
+	}
+
+	private int symbol(Symbol symbol) {
+		Integer index = symbolIndex.get(symbol);
+		if (index == null) {
+			index = symbols.size();
+			symbols.add(symbol);
+			symbolIndex.put(symbol, index);
+		}
+		return index;
+	}
+
+	private void emit(int opcode, int register, int... operands) {
+		if (size + operands.length + 1 > code.length) {
+			code = Arrays.copyOf(code, Math.max(code.length * 2, size + operands.length + 1));
+		}
+		code[size++] = opcode | (register << 8);
+		for (int operand : operands) {
+			code[size++] = operand;
+		}
+	}
+
+}
@@ -0,0 +1,276 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.expression.syntax.ExprAnd;
+import org.processmining.datapetrinets.expression.syntax.ExprFunction;
+import org.processmining.datapetrinets.expression.syntax.ExprOr;
+import org.processmining.datapetrinets.expression.syntax.ExprRoot;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserDefaultVisitor;
+import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+import org.processmining.datapetrinets.expression.syntax.Node;
+import org.processmining.datapetrinets.expression.syntax.SimpleNode;
+
+/**
+ * Wraps a {@link GuardExpression} whose functions are I/O-bound, e.g., a
+ * {@link FunctionProvider} that looks up reference data. If the top-level
+ * <code>&&</code> or <code>||</code> of the guard has several operands that
+ * call functions, these operands are evaluated concurrently by the
+ * {@link Evaluator}. As soon as the result is decided, the remaining operands
+ * are cancelled by interrupting them. Thus, the latency is about that of the
+ * slowest operand that decides the result rather than the sum of all operands.
+ * Only the operands of the top-level connective are evaluated concurrently,
+ * nested connectives, e.g., the <code>||</code> in
+ * <code>f(x) && (g(x) || h(x))</code>, are evaluated sequentially within
+ * their operand. Write guards as a flat conjunction or disjunction to
+ * benefit.
+ * <p>
+ * The result, including errors, is the same as when evaluating the operands
+ * from left to right: an operand that decides the result is only used once
+ * all operands to its left are known. Operands that would have been skipped
+ * may be called nonetheless, so functions should be free of side effects.
+ * The {@link FunctionProvider} and {@link VariableProvider} need to be
+ * thread-safe. Use {@link #of(GuardExpression)} to obtain an instance.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class SpeculativeGuardExpression extends ForwardingGuardExpression {
+
+	private static final class DefaultExecutorHolder {
+
+		private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "GuardExpression speculation");
+				thread.setDaemon(true);
+				return thread;
+			}
+
+		});
+
+	}
+
+	/**
+	 * Outcome of an operand that failed
+	 */
+	private static final class Failure {
+
+		private final Throwable cause;
+
+		private Failure(Throwable cause) {
+			this.cause = cause;
+		}
+
+	}
+
+	private final class SpeculativeVisitor extends Evaluator.Visitor {
+
+		public Object visit(ExprRoot node, Object data) throws ExpressionVisitorException {
+			Node child = node.jjtGetNumChildren() == 1 ? node.jjtGetChild(0) : null;
+			if ((child instanceof ExprAnd || child instanceof ExprOr) && countCallingOperands(child) > 1) {
+				return speculate(child, (Evaluator.Provider) data);
+			}
+			return super.visit(node, data);
+		}
+
+		private Object speculate(Node node, final Evaluator.Provider provider) throws ExpressionVisitorException {
+			boolean isAnd = node instanceof ExprAnd;
+			// Value of an operand that decides the result
+			Boolean decisive = isAnd ? Boolean.FALSE : Boolean.TRUE;
+			int count = node.jjtGetNumChildren();
+			Object[] outcomes = new Object[count];
+			boolean[] known = new boolean[count];
+			List<Future<Object>> futures = new ArrayList<>(count);
+			CompletionService<Object> completion = new ExecutorCompletionService<>(executor);
+			try {
+				for (int i = 0; i < count; i++) {
+					final Node operand = node.jjtGetChild(i);
+					if (callsFunction(operand)) {
+						futures.add(completion.submit(new Callable<Object>() {
+
+							public Object call() throws ExpressionVisitorException {
+								return evaluate(operand, provider);
+							}
+
+						}));
+					} else {
+						futures.add(null);
+					}
+				}
+				// Operands without calls are cheap, they are evaluated while the calls are running
+				for (int i = 0; i < count; i++) {
+					if (futures.get(i) == null) {
+						outcomes[i] = outcome(node.jjtGetChild(i), provider);
+						known[i] = true;
+					}
+				}
+				int next = 0;
+				Object accumulated = null;
+				while (true) {
+					// Folds the known prefix like the Evaluator from left to right
+					while (next < count && known[next]) {
+						Object outcome = outcomes[next];
+						if (outcome instanceof Failure) {
+							throw rethrow(((Failure) outcome).cause);
+						}
+						if (next == 0) {
+							accumulated = outcome;
+						} else {
+							accumulated = isAnd ? Evaluator.Visitor.and(accumulated, outcome)
+									: Evaluator.Visitor.or(accumulated, outcome);
+						}
+						next++;
+						if (next == count || decisive.equals(accumulated)) {
+							return accumulated;
+						}
+					}
+					Future<Object> done = completion.take();
+					int index = indexOf(futures, done);
+					outcomes[index] = outcome(done);
+					known[index] = true;
+					if (outcomes[index] instanceof Failure || decisive.equals(outcomes[index])) {
+						// Operands to the right are never needed
+						cancel(futures, index + 1);
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new EvaluatorException("Interrupted while evaluating " + node, e);
+			} finally {
+				// Operands that are still running are not needed anymore
+				cancel(futures, 0);
+			}
+		}
+
+		private Object outcome(Node operand, Evaluator.Provider provider) {
+			try {
+				return evaluate(operand, provider);
+			} catch (ExpressionVisitorException | RuntimeException e) {
+				return new Failure(e);
+			}
+		}
+
+		private Object outcome(Future<Object> future) {
+			try {
+				return future.get();
+			} catch (ExecutionException e) {
+				return new Failure(e.getCause());
+			} catch (CancellationException e) {
+				return new Failure(e);
+			} catch (InterruptedException e) {
+				// Completed futures do not block
+				Thread.currentThread().interrupt();
+				return new Failure(e);
+			}
+		}
+
+	}
+
+	/**
+	 * Evaluates the guard with the default executor, which runs the operands
+	 * on a shared pool of daemon threads.
+	 *
+	 * @param guard
+	 * @return the speculatively evaluated guard
+	 */
+	public static SpeculativeGuardExpression of(GuardExpression guard) {
+		return of(guard, DefaultExecutorHolder.EXECUTOR);
+	}
+
+	/**
+	 * @param guard
+	 * @param executor
+	 *            runs the operands, should not bound the number of threads
+	 *            as the operands block while waiting for I/O
+	 * @return the speculatively evaluated guard
+	 */
+	public static SpeculativeGuardExpression of(GuardExpression guard, ExecutorService executor) {
+		return new SpeculativeGuardExpression(guard, executor);
+	}
+
+	private final ExecutorService executor;
+	private final SpeculativeVisitor visitor = new SpeculativeVisitor();
+
+	private SpeculativeGuardExpression(GuardExpression guard, ExecutorService executor) {
+		super(guard);
+		this.executor = executor;
+	}
+
+	@Override
+	public Object evaluate(VariableProvider variableProvider, FunctionProvider functionProvider)
+			throws EvaluatorException {
+		return Evaluator.evaluate(this, variableProvider, functionProvider, visitor);
+	}
+
+	private static int countCallingOperands(Node node) {
+		int count = 0;
+		for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+			if (callsFunction(node.jjtGetChild(i))) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static boolean callsFunction(Node node) {
+		final boolean[] found = new boolean[1];
+		try {
+			TreeTraversal.preOrder(node, new ExpressionParserDefaultVisitor() {
+
+				public Object visit(ExprFunction node, Object data) {
+					found[0] = true;
+					return TreeTraversal.SKIP_CHILDREN;
+				}
+
+				public Object defaultVisit(SimpleNode node, Object data) {
+					return found[0] ? TreeTraversal.SKIP_CHILDREN : data;
+				}
+
+			}, null);
+		} catch (ExpressionVisitorException e) {
+			throw new RuntimeException("Exception while trying to find function calls!", e);
+		}
+		return found[0];
+	}
+
+	private static int indexOf(List<Future<Object>> futures, Future<Object> future) {
+		for (int i = 0; i < futures.size(); i++) {
+			if (futures.get(i) == future) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("Unknown operand " + future);
+	}
+
+	private static void cancel(List<Future<Object>> futures, int from) {
+		for (int i = from; i < futures.size(); i++) {
+			if (futures.get(i) != null) {
+				futures.get(i).cancel(true);
+			}
+		}
+	}
+
+	private static RuntimeException rethrow(Throwable cause) throws ExpressionVisitorException {
+		if (cause instanceof ExpressionVisitorException) {
+			throw (ExpressionVisitorException) cause;
+		} else if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		} else if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		throw new EvaluatorException(cause);
+	}
+
+}
@@ -0,0 +1,450 @@
+package org.processmining.datapetrinets.expression;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.exception.VariableNotFoundException;
+import org.processmining.datapetrinets.expression.syntax.Symbol;
+import org.processmining.datapetrinets.expression.syntax.SymbolTable;
+
+/**
+ * Filters an XES log by a guard while reading it, without building the
+ * traces and events of the log in memory. Only attributes that are variables
+ * of the guard are converted to values, all other attributes are copied to
+ * the output as they are read. The variables of an event are its attributes
+ * and, as fallback, the attributes of its trace that precede the event. An
+ * event without an attribute for one of the variables does not match.
+ * <p>
+ * With {@link Scope#EVENTS} all traces are written, but only with the events
+ * that match. At most one event is held in memory. With {@link Scope#TRACES}
+ * only the traces with at least one matching event are written. A trace is
+ * held in memory until its first matching event, the remaining events are
+ * copied without evaluating the guard.
+ * <p>
+ * Limits of reading the log in a single pass:
+ * <ul>
+ * <li>With {@link Scope#TRACES} a trace without matching event is held in
+ * memory in full before it is discarded. Logs with long traces that rarely
+ * match need memory for the longest such trace.</li>
+ * <li>A trace attribute that follows an event in the XML is not seen by that
+ * event, it is only used as fallback for the events after it.</li>
+ * <li>Guards with prime variables are not supported, since the next event
+ * is not known when an event is evaluated.</li>
+ * </ul>
+ * Instances can be re-used, but are not thread-safe.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class StreamingLogFilter {
+
+	public enum Scope {
+		EVENTS, TRACES
+	}
+
+	private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	private static final String TRACE = "trace";
+	private static final String EVENT = "event";
+
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+		return factory;
+	}
+
+	/**
+	 * Copy of a start element, including its namespace declarations and
+	 * attributes
+	 */
+	private static final class StartElement {
+
+		private final String prefix;
+		private final String localName;
+		private final String namespaceURI;
+		private final String[] namespaces;
+		private final String[] attributes;
+
+		private StartElement(XMLStreamReader reader) {
+			this.prefix = reader.getPrefix();
+			this.localName = reader.getLocalName();
+			this.namespaceURI = reader.getNamespaceURI();
+			this.namespaces = new String[reader.getNamespaceCount() * 2];
+			for (int i = 0; i < reader.getNamespaceCount(); i++) {
+				namespaces[i * 2] = reader.getNamespacePrefix(i);
+				namespaces[i * 2 + 1] = reader.getNamespaceURI(i);
+			}
+			this.attributes = new String[reader.getAttributeCount() * 4];
+			for (int i = 0; i < reader.getAttributeCount(); i++) {
+				attributes[i * 4] = reader.getAttributePrefix(i);
+				attributes[i * 4 + 1] = reader.getAttributeNamespace(i);
+				attributes[i * 4 + 2] = reader.getAttributeLocalName(i);
+				attributes[i * 4 + 3] = reader.getAttributeValue(i);
+			}
+		}
+
+		private void write(XMLStreamWriter writer) throws XMLStreamException {
+			if (isEmpty(namespaceURI)) {
+				writer.writeStartElement(localName);
+			} else {
+				writer.writeStartElement(prefix == null ? "" : prefix, localName, namespaceURI);
+			}
+			for (int i = 0; i < namespaces.length; i += 2) {
+				if (isEmpty(namespaces[i])) {
+					writer.writeDefaultNamespace(namespaces[i + 1]);
+				} else {
+					writer.writeNamespace(namespaces[i], namespaces[i + 1]);
+				}
+			}
+			for (int i = 0; i < attributes.length; i += 4) {
+				if (isEmpty(attributes[i + 1])) {
+					writer.writeAttribute(attributes[i + 2], attributes[i + 3]);
+				} else {
+					writer.writeAttribute(attributes[i] == null ? "" : attributes[i], attributes[i + 1],
+							attributes[i + 2], attributes[i + 3]);
+				}
+			}
+		}
+
+		private static boolean isEmpty(String s) {
+			return s == null || s.isEmpty();
+		}
+
+	}
+
+	/**
+	 * Writes the copied XML either directly or to a buffer that is written or
+	 * discarded once the guard has been evaluated
+	 */
+	private static final class Output {
+
+		private static final Object END = new Object();
+
+		private final XMLStreamWriter writer;
+		private final List<Object> buffer = new ArrayList<>();
+		private boolean buffering;
+
+		private Output(XMLStreamWriter writer) {
+			this.writer = writer;
+		}
+
+		private void start(XMLStreamReader reader) throws XMLStreamException {
+			StartElement element = new StartElement(reader);
+			if (buffering) {
+				buffer.add(element);
+			} else {
+				element.write(writer);
+			}
+		}
+
+		private void end() throws XMLStreamException {
+			if (buffering) {
+				buffer.add(END);
+			} else {
+				writer.writeEndElement();
+			}
+		}
+
+		private void text(XMLStreamReader reader) throws XMLStreamException {
+			if (buffering) {
+				buffer.add(reader.getText());
+			} else {
+				writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+			}
+		}
+
+		private void flush() throws XMLStreamException {
+			for (Object token : buffer) {
+				if (token == END) {
+					writer.writeEndElement();
+				} else if (token instanceof StartElement) {
+					((StartElement) token).write(writer);
+				} else {
+					writer.writeCharacters((String) token);
+				}
+			}
+			buffer.clear();
+		}
+
+		private void discard() {
+			buffer.clear();
+		}
+
+	}
+
+	/**
+	 * Values of the attributes of the current event and trace indexed by the
+	 * position of the variable in the variables of the guard
+	 */
+	private final class ProjectedVariables implements VariableProvider {
+
+		public Object getValue(Symbol symbol) throws VariableNotFoundException {
+			int index = guardVariables.indexOf(symbol);
+			if (index >= 0) {
+				Object value = eventValues[index] != null ? eventValues[index] : traceValues[index];
+				if (value != null) {
+					return value;
+				}
+			}
+			throw VariableNotFoundException.lazy(symbol);
+		}
+
+		public Object getValue(String variableName) throws VariableNotFoundException {
+			Symbol symbol = symbolTable.lookup(variableName);
+			if (symbol == null) {
+				throw VariableNotFoundException.lazy(variableName);
+			}
+			return getValue(symbol);
+		}
+
+	}
+
+	private final GuardExpression guard;
+	private final Scope scope;
+
+	private final SymbolTable symbolTable = SymbolTable.getGlobal();
+	private final SymbolSet guardVariables;
+	private final Map<String, Integer> indexByKey = new HashMap<>();
+	private final Object[] eventValues;
+	private final Object[] traceValues;
+	private final ProjectedVariables variables = new ProjectedVariables();
+
+	/**
+	 * Reads each variable from the attribute with the same key
+	 *
+	 * @param guard
+	 * @param scope
+	 */
+	public StreamingLogFilter(GuardExpression guard, Scope scope) {
+		this(guard, scope, Collections.<String, String>emptyMap());
+	}
+
+	/**
+	 * @param guard
+	 * @param scope
+	 * @param attributeKeys
+	 *            maps variable names to attribute keys, e.g.,
+	 *            <code>concept$3Aname</code> to <code>concept:name</code>,
+	 *            variables that are not mapped are read from the attribute
+	 *            with the same key
+	 */
+	public StreamingLogFilter(GuardExpression guard, Scope scope, Map<String, String> attributeKeys) {
+		if (!guard.getPrimeVariables().isEmpty()) {
+			throw new IllegalArgumentException("Cannot filter a log by guard " + guard
+					+ " with prime variables " + guard.getPrimeVariables() + "!");
+		}
+		this.guard = guard;
+		this.scope = scope;
+		this.guardVariables = SymbolSet.copyOf(guard.getNormalVariables(), false);
+		for (int i = 0; i < guardVariables.size(); i++) {
+			String name = guardVariables.getSymbol(i).getName();
+			String key = attributeKeys.get(name);
+			indexByKey.put(key != null ? key : name, i);
+		}
+		this.eventValues = new Object[guardVariables.size()];
+		this.traceValues = new Object[guardVariables.size()];
+	}
+
+	/**
+	 * Copies the XES log from the input to the output, leaving out the
+	 * traces or events that do not match. Neither stream is closed. See the
+	 * class documentation for the memory needed by {@link Scope#TRACES} and
+	 * for trace attributes that follow events.
+	 *
+	 * @param in
+	 *            XES log
+	 * @param out
+	 *            receives the filtered XES log encoded in UTF-8
+	 * @return the number of traces or events, depending on the {@link Scope},
+	 *         that match
+	 * @throws XMLStreamException
+	 * @throws EvaluatorException
+	 *             if the guard cannot be evaluated for a reason other than a
+	 *             missing attribute
+	 */
+	public long filter(InputStream in, OutputStream out) throws XMLStreamException, EvaluatorException {
+		XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+		XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+		try {
+			Output output = new Output(writer);
+			writer.writeStartDocument("UTF-8", "1.0");
+			long matches = 0;
+			int depth = 0;
+			while (reader.hasNext()) {
+				int type = reader.next();
+				if (type == XMLStreamConstants.START_ELEMENT) {
+					if (depth == 1 && TRACE.equals(reader.getLocalName())) {
+						matches += filterTrace(reader, output);
+					} else {
+						output.start(reader);
+						depth++;
+					}
+				} else if (type == XMLStreamConstants.END_ELEMENT) {
+					output.end();
+					depth--;
+				} else if (isText(type) && depth > 0) {
+					output.text(reader);
+				}
+			}
+			writer.writeEndDocument();
+			writer.flush();
+			return matches;
+		} finally {
+			reader.close();
+			writer.close();
+		}
+	}
+
+	/**
+	 * Reads the trace starting at the current element up to and including its
+	 * end element
+	 *
+	 * @return the number of matches
+	 */
+	private long filterTrace(XMLStreamReader reader, Output output) throws XMLStreamException {
+		Arrays.fill(traceValues, null);
+		boolean written = scope == Scope.EVENTS;
+		output.buffering = !written;
+		output.start(reader);
+		long matches = 0;
+		while (true) {
+			int type = reader.next();
+			if (type == XMLStreamConstants.START_ELEMENT) {
+				if (!EVENT.equals(reader.getLocalName())) {
+					copyElement(reader, output, traceValues, 0);
+				} else if (written && scope == Scope.TRACES) {
+					copyElement(reader, output, null, 0);
+				} else {
+					Arrays.fill(eventValues, null);
+					output.buffering = true;
+					copyElement(reader, output, eventValues, 1);
+					if (matches()) {
+						output.flush();
+						output.buffering = false;
+						written = true;
+						matches++;
+					} else if (scope == Scope.EVENTS) {
+						output.discard();
+						output.buffering = false;
+					}
+				}
+			} else if (type == XMLStreamConstants.END_ELEMENT) {
+				break;
+			} else if (isText(type)) {
+				output.text(reader);
+			}
+		}
+		if (written) {
+			output.end();
+		} else {
+			output.discard();
+		}
+		output.buffering = false;
+		return matches;
+	}
+
+	/**
+	 * Copies the element starting at the current element up to and including
+	 * its end element. Attributes at the given depth relative to the element
+	 * are stored as values if they are variables of the guard.
+	 */
+	private void copyElement(XMLStreamReader reader, Output output, Object[] values, int valueDepth)
+			throws XMLStreamException {
+		int depth = 0;
+		while (true) {
+			int type = reader.getEventType();
+			if (type == XMLStreamConstants.START_ELEMENT) {
+				if (values != null && depth == valueDepth) {
+					project(reader, values);
+				}
+				output.start(reader);
+				depth++;
+			} else if (type == XMLStreamConstants.END_ELEMENT) {
+				output.end();
+				if (--depth == 0) {
+					return;
+				}
+			} else if (isText(type)) {
+				output.text(reader);
+			}
+			reader.next();
+		}
+	}
+
+	private void project(XMLStreamReader reader, Object[] values) {
+		String key = reader.getAttributeValue(null, "key");
+		Integer index = key != null ? indexByKey.get(key) : null;
+		if (index != null) {
+			values[index] = parseValue(reader.getLocalName(), reader.getAttributeValue(null, "value"));
+		}
+	}
+
+	/**
+	 * @param type
+	 *            XES attribute type
+	 * @param value
+	 * @return the value as the type used by the {@link Evaluator}, see
+	 *         {@link XAttributeVariableProvider#toValue}
+	 */
+	private static Object parseValue(String type, String value) {
+		if (value == null) {
+			// Lists and containers do not have a value
+			return null;
+		}
+		try {
+			switch (type) {
+				case "int" :
+					return Long.parseLong(value);
+				case "float" :
+					return Double.parseDouble(value);
+				case "boolean" :
+					return Boolean.valueOf(value);
+				case "date" :
+					long millis = DateParser.parseMillis(value);
+					return millis != DateParser.NOT_A_DATE ? new Date(millis) : value;
+				default :
+					return value;
+			}
+		} catch (NumberFormatException e) {
+			return value;
+		}
+	}
+
+	private boolean matches() {
+		Object result = Evaluator.tryEvaluate(guard, variables, FunctionProvider.EMPTY_PROVIDER);
+		if (result instanceof EvaluationError) {
+			EvaluationError error = (EvaluationError) result;
+			if (error.getKind() == EvaluationError.Kind.MISSING_VARIABLE) {
+				return false;
+			}
+			throw error.getException();
+		} else if (result instanceof Boolean) {
+			return (Boolean) result;
+		} else {
+			throw new IllegalArgumentException("Expression does not evaluate to a Boolean!");
+		}
+	}
+
+	private static boolean isText(int type) {
+		return type == XMLStreamConstants.CHARACTERS || type == XMLStreamConstants.CDATA
+				|| type == XMLStreamConstants.SPACE;
+	}
+
+}
@@ -0,0 +1,143 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Dictionary that encodes strings as {@link EncodedString} with a dense
+ * integer code. String literals of a {@link PreparedExpression} and the
+ * values returned by a {@link VariableProvider} that are encoded with the same
+ * dictionary are compared for equality by their code and ordered by a
+ * precomputed sort rank. Lookups are lock-free, only the creation of new
+ * entries is synchronized.
+ * <p>
+ * Sort ranks are recomputed lazily once the dictionary grew by more than an
+ * eighth since the last computation, strings added in between are compared
+ * using {@link String#compareTo(String)}.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class StringDictionary {
+
+	private static final Comparator<EncodedString> VALUE_ORDER = new Comparator<EncodedString>() {
+
+		public int compare(EncodedString o1, EncodedString o2) {
+			return o1.toString().compareTo(o2.toString());
+		}
+
+	};
+
+	private final ConcurrentMap<String, EncodedString> entriesByValue = new ConcurrentHashMap<>();
+	private volatile EncodedString[] entries = new EncodedString[64];
+	private volatile int size = 0;
+
+	private volatile int[] ranks = new int[0];
+
+	public StringDictionary() {
+		super();
+	}
+
+	/**
+	 * Returns the encoded string for the value, the value is added to the
+	 * dictionary if it is not contained yet.
+	 *
+	 * @param value
+	 * @return the encoded string
+	 */
+	public EncodedString encode(String value) {
+		EncodedString encoded = entriesByValue.get(value);
+		if (encoded != null) {
+			return encoded;
+		}
+		return createEntry(value);
+	}
+
+	/**
+	 * Encodes all string values of the map, other values are copied as they
+	 * are.
+	 *
+	 * @param valueMap
+	 * @return a new map with the encoded values
+	 */
+	public Map<String, Object> encodeValues(Map<String, Object> valueMap) {
+		Map<String, Object> encodedMap = new HashMap<>(valueMap.size());
+		for (Map.Entry<String, Object> entry : valueMap.entrySet()) {
+			Object value = entry.getValue();
+			encodedMap.put(entry.getKey(), value instanceof String ? encode((String) value) : value);
+		}
+		return encodedMap;
+	}
+
+	private synchronized EncodedString createEntry(String value) {
+		EncodedString encoded = entriesByValue.get(value);
+		if (encoded != null) {
+			return encoded;
+		}
+		int code = size;
+		if (code == entries.length) {
+			entries = Arrays.copyOf(entries, code * 2);
+		}
+		encoded = new EncodedString(this, code, value);
+		entries[code] = encoded;
+		size = code + 1;
+		entriesByValue.put(value, encoded);
+		return encoded;
+	}
+
+	/**
+	 * @param value
+	 * @return the encoded string or NULL if the value is not in the dictionary
+	 */
+	public EncodedString lookup(String value) {
+		return entriesByValue.get(value);
+	}
+
+	/**
+	 * @param code
+	 * @return the encoded string with the code
+	 */
+	public EncodedString get(int code) {
+		if (code < 0 || code >= size) {
+			throw new IndexOutOfBoundsException("Unknown code " + code);
+		}
+		return entries[code];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return sort ranks indexed by code, may not cover the most recently
+	 *         added entries
+	 */
+	int[] getRanks() {
+		int[] currentRanks = ranks;
+		int currentSize = size;
+		if (currentSize - currentRanks.length > (currentRanks.length >> 3)) {
+			return computeRanks();
+		}
+		return currentRanks;
+	}
+
+	private synchronized int[] computeRanks() {
+		int currentSize = size;
+		if (currentSize - ranks.length <= (ranks.length >> 3)) {
+			return ranks;
+		}
+		EncodedString[] sorted = Arrays.copyOf(entries, currentSize);
+		Arrays.sort(sorted, VALUE_ORDER);
+		int[] newRanks = new int[currentSize];
+		for (int i = 0; i < sorted.length; i++) {
+			newRanks[sorted[i].getCode()] = i;
+		}
+		ranks = newRanks;
+		return newRanks;
+	}
+
+}
@@ -0,0 +1,156 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.processmining.datapetrinets.exception.InvalidArgumentException;
+
+/**
+ * Built-in predicates on strings, see
+ * {@link FunctionRegistry#withStringPredicates()}. Unlike other functions,
+ * their arguments are the values of variables rather than the identifiers.
+ * When the second argument is a literal, the predicate is bound to it once
+ * when the expression is prepared, so that a regular expression is compiled
+ * only once for each call site. Regular expressions that are not bound are
+ * looked up in a small cache shared by all call sites.
+ *
+ * @author F. Mannhardt
+ *
+ */
+enum StringPredicate {
+
+	STARTS_WITH("startsWith") {
+
+		boolean test(String value, String argument) {
+			return value.startsWith(argument);
+		}
+
+		Predicate<String> bind(final String prefix) {
+			return new Predicate<String>() {
+
+				public boolean test(String value) {
+					return value.startsWith(prefix);
+				}
+
+			};
+		}
+
+	},
+
+	ENDS_WITH("endsWith") {
+
+		boolean test(String value, String argument) {
+			return value.endsWith(argument);
+		}
+
+		Predicate<String> bind(final String suffix) {
+			return new Predicate<String>() {
+
+				public boolean test(String value) {
+					return value.endsWith(suffix);
+				}
+
+			};
+		}
+
+	},
+
+	CONTAINS("contains") {
+
+		boolean test(String value, String argument) {
+			return value.indexOf(argument) >= 0;
+		}
+
+		Predicate<String> bind(final String infix) {
+			if (infix.length() == 1) {
+				final char c = infix.charAt(0);
+				return new Predicate<String>() {
+
+					public boolean test(String value) {
+						return value.indexOf(c) >= 0;
+					}
+
+				};
+			}
+			return new Predicate<String>() {
+
+				public boolean test(String value) {
+					return value.indexOf(infix) >= 0;
+				}
+
+			};
+		}
+
+	},
+
+	MATCHES("matches") {
+
+		boolean test(String value, String argument) {
+			Pattern pattern = PATTERNS.get(argument);
+			if (pattern == null) {
+				pattern = compile(argument);
+				if (PATTERNS.size() < MAX_PATTERNS) {
+					PATTERNS.putIfAbsent(argument, pattern);
+				}
+			}
+			return pattern.matcher(value).matches();
+		}
+
+		Predicate<String> bind(String regex) {
+			final Pattern pattern = compile(regex);
+			return new Predicate<String>() {
+
+				public boolean test(String value) {
+					return pattern.matcher(value).matches();
+				}
+
+			};
+		}
+
+	};
+
+	/**
+	 * Patterns of calls of {@link #MATCHES} with regular expressions that
+	 * were not bound when preparing
+	 */
+	private static final ConcurrentMap<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+	private static final int MAX_PATTERNS = 64;
+
+	private final String name;
+
+	private StringPredicate(String name) {
+		this.name = name;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * @param value
+	 * @param argument
+	 * @return whether the predicate holds for the value
+	 */
+	abstract boolean test(String value, String argument);
+
+	/**
+	 * @param argument
+	 *            the literal second argument of the call
+	 * @return the predicate with the argument bound to the literal
+	 * @throws InvalidArgumentException
+	 *             if the argument is not a valid regular expression
+	 */
+	abstract Predicate<String> bind(String argument);
+
+	private static Pattern compile(String regex) {
+		try {
+			return Pattern.compile(regex);
+		} catch (PatternSyntaxException e) {
+			throw new InvalidArgumentException("Invalid regular expression " + regex + "!", e);
+		}
+	}
+
+}
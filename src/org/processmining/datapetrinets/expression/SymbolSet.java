@@ -0,0 +1,263 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.processmining.datapetrinets.expression.syntax.Symbol;
+import org.processmining.datapetrinets.expression.syntax.SymbolTable;
+
+/**
+ * Immutable set of variable names backed by a sorted array of {@link Symbol}
+ * ids. Intersections and unions between two {@link SymbolSet}s are computed on
+ * the id arrays without hashing any String.
+ * <p>
+ * As a {@link java.util.Set} of Strings it contains variable names without the
+ * prime symbol. A set of prime variables only contains the prime versions of
+ * its {@link Symbol}s. The position of a symbol in the sorted array is a dense
+ * index, which can be used to store the values of the variables of a guard in
+ * an array of the size of the set.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class SymbolSet extends AbstractSet<String> {
+
+	private static final int[] NO_IDS = new int[0];
+
+	private static final SymbolSet EMPTY = new SymbolSet(SymbolTable.getGlobal(), NO_IDS, false);
+
+	public static SymbolSet empty() {
+		return EMPTY;
+	}
+
+	/**
+	 * @param symbolTable
+	 * @param ids
+	 *            set bits are the ids of the contained symbols
+	 * @return a new {@link SymbolSet}
+	 */
+	public static SymbolSet of(SymbolTable symbolTable, BitSet ids) {
+		return of(symbolTable, ids, false);
+	}
+
+	/**
+	 * @param symbolTable
+	 * @param ids
+	 *            set bits are the ids of the contained symbols
+	 * @param prime
+	 *            whether the set contains the prime versions of the symbols
+	 * @return a new {@link SymbolSet}
+	 */
+	public static SymbolSet of(SymbolTable symbolTable, BitSet ids, boolean prime) {
+		if (ids.isEmpty() && symbolTable == EMPTY.symbolTable && !prime) {
+			return EMPTY;
+		}
+		return new SymbolSet(symbolTable, ids.stream().toArray(), prime);
+	}
+
+	/**
+	 * @param names
+	 *            variable names without the prime symbol
+	 * @param prime
+	 *            whether the set contains the prime versions of the symbols
+	 * @return the names as {@link SymbolSet} of the global {@link SymbolTable}
+	 */
+	public static SymbolSet copyOf(Collection<String> names, boolean prime) {
+		SymbolTable symbolTable = SymbolTable.getGlobal();
+		if (names instanceof SymbolSet && ((SymbolSet) names).symbolTable == symbolTable
+				&& ((SymbolSet) names).prime == prime) {
+			return (SymbolSet) names;
+		}
+		BitSet ids = new BitSet();
+		for (String name : names) {
+			ids.set(symbolTable.intern(name, false).getId());
+		}
+		return of(symbolTable, ids, prime);
+	}
+
+	private final SymbolTable symbolTable;
+	private final int[] ids;
+	private final boolean prime;
+
+	private SymbolSet(SymbolTable symbolTable, int[] ids, boolean prime) {
+		this.symbolTable = symbolTable;
+		this.ids = ids;
+		this.prime = prime;
+	}
+
+	public boolean contains(Object o) {
+		if (o instanceof String) {
+			Symbol symbol = symbolTable.lookup((String) o);
+			return symbol != null && !symbol.isPrime() && containsId(symbol.getId());
+		}
+		return false;
+	}
+
+	public boolean containsId(int id) {
+		return Arrays.binarySearch(ids, id) >= 0;
+	}
+
+	/**
+	 * @param symbol
+	 * @return whether the set contains the symbol, a normal symbol is not
+	 *         contained in a set of prime symbols and vice versa
+	 */
+	public boolean contains(Symbol symbol) {
+		return indexOf(symbol) >= 0;
+	}
+
+	/**
+	 * @param symbol
+	 * @return the dense index of the symbol between 0 and {@link #size()} or
+	 *         -1 if the set does not contain the symbol
+	 */
+	public int indexOf(Symbol symbol) {
+		if (symbol.isPrime() != prime) {
+			return -1;
+		}
+		int index = Arrays.binarySearch(ids, symbol.getId());
+		if (index < 0 || symbolTable.get(symbol.getId(), prime) != symbol) {
+			// Not contained or a symbol of another table
+			return -1;
+		}
+		return index;
+	}
+
+	/**
+	 * @param index
+	 *            dense index between 0 and {@link #size()}
+	 * @return the symbol at the index
+	 */
+	public Symbol getSymbol(int index) {
+		return symbolTable.get(ids[index], prime);
+	}
+
+	public boolean isPrime() {
+		return prime;
+	}
+
+	/**
+	 * @return a copy of the sorted symbol ids
+	 */
+	public int[] getIds() {
+		return ids.clone();
+	}
+
+	public int size() {
+		return ids.length;
+	}
+
+	public boolean isEmpty() {
+		return ids.length == 0;
+	}
+
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+
+			private int index = 0;
+
+			public boolean hasNext() {
+				return index < ids.length;
+			}
+
+			public String next() {
+				if (index >= ids.length) {
+					throw new NoSuchElementException();
+				}
+				return symbolTable.get(ids[index++], false).getName();
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("SymbolSet is immutable!");
+			}
+
+		};
+	}
+
+	/**
+	 * @param other
+	 * @return whether both sets share at least one variable
+	 */
+	public boolean intersects(SymbolSet other) {
+		checkSameTable(other);
+		int i = 0, j = 0;
+		while (i < ids.length && j < other.ids.length) {
+			if (ids[i] == other.ids[j]) {
+				return true;
+			} else if (ids[i] < other.ids[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param other
+	 * @return the variables contained in both sets, the result only contains
+	 *         prime symbols if both sets do
+	 */
+	public SymbolSet intersection(SymbolSet other) {
+		checkSameTable(other);
+		int[] result = new int[Math.min(ids.length, other.ids.length)];
+		int i = 0, j = 0, k = 0;
+		while (i < ids.length && j < other.ids.length) {
+			if (ids[i] == other.ids[j]) {
+				result[k++] = ids[i];
+				i++;
+				j++;
+			} else if (ids[i] < other.ids[j]) {
+				i++;
+			} else {
+				j++;
+			}
+		}
+		return new SymbolSet(symbolTable, k == 0 ? NO_IDS : Arrays.copyOf(result, k), prime && other.prime);
+	}
+
+	/**
+	 * @param other
+	 * @return the variables contained in either set, the result only contains
+	 *         prime symbols if both sets do
+	 */
+	public SymbolSet union(SymbolSet other) {
+		checkSameTable(other);
+		int[] result = new int[ids.length + other.ids.length];
+		int i = 0, j = 0, k = 0;
+		while (i < ids.length || j < other.ids.length) {
+			if (j == other.ids.length || (i < ids.length && ids[i] < other.ids[j])) {
+				result[k++] = ids[i++];
+			} else if (i == ids.length || other.ids[j] < ids[i]) {
+				result[k++] = other.ids[j++];
+			} else {
+				result[k++] = ids[i];
+				i++;
+				j++;
+			}
+		}
+		return new SymbolSet(symbolTable, k == 0 ? NO_IDS : Arrays.copyOf(result, k), prime && other.prime);
+	}
+
+	private void checkSameTable(SymbolSet other) {
+		if (other.symbolTable != symbolTable) {
+			throw new IllegalArgumentException("Cannot combine symbol sets of different symbol tables!");
+		}
+	}
+
+	public boolean equals(Object o) {
+		if (o instanceof SymbolSet && ((SymbolSet) o).symbolTable == symbolTable) {
+			return Arrays.equals(ids, ((SymbolSet) o).ids);
+		}
+		return super.equals(o);
+	}
+
+	public int hashCode() {
+		return super.hashCode();
+	}
+
+}
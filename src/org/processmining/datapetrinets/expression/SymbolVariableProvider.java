@@ -0,0 +1,81 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.Arrays;
+
+import org.processmining.datapetrinets.exception.VariableNotFoundException;
+import org.processmining.datapetrinets.expression.syntax.Symbol;
+import org.processmining.datapetrinets.expression.syntax.SymbolTable;
+
+/**
+ * Mutable {@link VariableProvider} that stores values in arrays indexed by the
+ * {@link Symbol} id. Looking up a variable of a parsed {@link GuardExpression}
+ * is an array access. Instances are meant to be reused for many bindings, they
+ * are not thread-safe.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class SymbolVariableProvider implements VariableProvider {
+
+	private final SymbolTable symbolTable;
+
+	private Object[] normalValues;
+	private Object[] primeValues;
+
+	public SymbolVariableProvider() {
+		this(SymbolTable.getGlobal());
+	}
+
+	public SymbolVariableProvider(SymbolTable symbolTable) {
+		this.symbolTable = symbolTable;
+		this.normalValues = new Object[Math.max(16, symbolTable.size())];
+		this.primeValues = new Object[normalValues.length];
+	}
+
+	public void setValue(Symbol symbol, Object value) {
+		int id = symbol.getId();
+		if (id >= normalValues.length) {
+			int newLength = Math.max(id + 1, normalValues.length * 2);
+			normalValues = Arrays.copyOf(normalValues, newLength);
+			primeValues = Arrays.copyOf(primeValues, newLength);
+		}
+		if (symbol.isPrime()) {
+			primeValues[id] = value;
+		} else {
+			normalValues[id] = value;
+		}
+	}
+
+	public void setValue(String variableName, Object value) {
+		setValue(symbolTable.intern(variableName), value);
+	}
+
+	/**
+	 * Removes all values, keeps the allocated arrays.
+	 */
+	public void clear() {
+		Arrays.fill(normalValues, null);
+		Arrays.fill(primeValues, null);
+	}
+
+	public Object getValue(Symbol symbol) throws VariableNotFoundException {
+		int id = symbol.getId();
+		Object value = null;
+		if (id < normalValues.length) {
+			value = symbol.isPrime() ? primeValues[id] : normalValues[id];
+		}
+		if (value == null) {
+			throw VariableNotFoundException.lazy(symbol);
+		}
+		return value;
+	}
+
+	public Object getValue(String variableName) throws VariableNotFoundException {
+		Symbol symbol = symbolTable.lookup(variableName);
+		if (symbol == null) {
+			throw VariableNotFoundException.lazy(variableName);
+		}
+		return getValue(symbol);
+	}
+
+}
@@ -0,0 +1,269 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.processmining.datapetrinets.exception.EvaluatorException;
+
+/**
+ * Wraps a {@link GuardExpression} that is evaluated by the {@link Evaluator}
+ * until it has been evaluated a configurable number of times. Then, the guard
+ * is compiled into a {@link GuardProgram} in the background. Threads keep
+ * evaluating the guard with the {@link Evaluator} while it is compiled, the
+ * program is used as soon as it is available. Only guards that are evaluated
+ * often pay for their compilation.
+ * <p>
+ * Use {@link Manager#tiered(GuardExpression)} to obtain an instance.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class TieredGuardExpression extends ForwardingGuardExpression {
+
+	public enum Tier {
+
+		/**
+		 * Evaluated by the {@link Evaluator}
+		 */
+		INTERPRETED,
+
+		/**
+		 * Evaluated by the {@link Evaluator} while the program is compiled
+		 */
+		COMPILING,
+
+		/**
+		 * Evaluated by its {@link GuardProgram}
+		 */
+		COMPILED,
+
+		/**
+		 * Evaluated by the {@link Evaluator} as the compilation failed
+		 */
+		FAILED,
+
+		/**
+		 * Evaluated by the {@link Evaluator} as the program does not fit into
+		 * the {@link GuardCodeCache}
+		 */
+		REJECTED
+
+	}
+
+	/**
+	 * Creates {@link TieredGuardExpression} sharing the same promotion
+	 * threshold and compiling their programs on the same {@link Executor}.
+	 * Instances can be shared between threads.
+	 */
+	public static final class Manager {
+
+		private static final class DefaultExecutorHolder {
+
+			private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "GuardExpression compiler");
+					thread.setDaemon(true);
+					return thread;
+				}
+
+			});
+
+		}
+
+		public static final int DEFAULT_THRESHOLD = 1000;
+
+		private final long threshold;
+		private final Executor executor;
+		private final GuardCodeCache cache;
+
+		private final AtomicLong promotions = new AtomicLong();
+		private final AtomicLong failures = new AtomicLong();
+
+		/**
+		 * Creates a manager with the {@link #DEFAULT_THRESHOLD} that compiles
+		 * guards on a shared daemon thread.
+		 */
+		public Manager() {
+			this(DEFAULT_THRESHOLD);
+		}
+
+		/**
+		 * Creates a manager that compiles guards on a shared daemon thread.
+		 *
+		 * @param threshold
+		 *            number of evaluations after which a guard is compiled
+		 */
+		public Manager(long threshold) {
+			this(threshold, DefaultExecutorHolder.EXECUTOR);
+		}
+
+		/**
+		 * @param threshold
+		 *            number of evaluations after which a guard is compiled
+		 * @param executor
+		 *            used to compile guards
+		 */
+		public Manager(long threshold, Executor executor) {
+			this(threshold, executor, null);
+		}
+
+		/**
+		 * @param threshold
+		 *            number of evaluations after which a guard is compiled
+		 * @param executor
+		 *            used to compile guards
+		 * @param cache
+		 *            bounds the compiled programs, may be NULL
+		 */
+		public Manager(long threshold, Executor executor, GuardCodeCache cache) {
+			if (threshold < 0) {
+				throw new IllegalArgumentException("Threshold must not be negative!");
+			}
+			this.threshold = threshold;
+			this.executor = executor;
+			this.cache = cache;
+		}
+
+		public TieredGuardExpression tiered(GuardExpression guard) {
+			return new TieredGuardExpression(guard, this);
+		}
+
+		public long getThreshold() {
+			return threshold;
+		}
+
+		/**
+		 * @return the cache bounding the compiled programs or NULL
+		 */
+		public GuardCodeCache getCache() {
+			return cache;
+		}
+
+		/**
+		 * @return the number of guards that were compiled successfully
+		 */
+		public long getPromotionCount() {
+			return promotions.get();
+		}
+
+		/**
+		 * @return the number of guards that could not be compiled
+		 */
+		public long getFailureCount() {
+			return failures.get();
+		}
+
+	}
+
+	private final Manager manager;
+
+	private final AtomicLong interpretedInvocations = new AtomicLong();
+	private final AtomicReference<Tier> tier = new AtomicReference<>(Tier.INTERPRETED);
+	private volatile GuardProgram program;
+	private boolean referenced;
+
+	private TieredGuardExpression(GuardExpression guard, Manager manager) {
+		super(guard);
+		this.manager = manager;
+	}
+
+	@Override
+	public Object evaluate(VariableProvider variableProvider, FunctionProvider functionProvider)
+			throws EvaluatorException {
+		GuardProgram compiled = program;
+		if (compiled != null) {
+			if (!referenced) {
+				// Not volatile, a missed write only costs the guard its second chance in the GuardCodeCache
+				referenced = true;
+			}
+			return compiled.evaluate(variableProvider, functionProvider);
+		}
+		if (interpretedInvocations.incrementAndGet() >= manager.threshold && tier.get() == Tier.INTERPRETED) {
+			promote();
+		}
+		return guard.evaluate(variableProvider, functionProvider);
+	}
+
+	private void promote() {
+		if (!tier.compareAndSet(Tier.INTERPRETED, Tier.COMPILING)) {
+			// Another thread was faster
+			return;
+		}
+		try {
+			manager.executor.execute(new Runnable() {
+
+				public void run() {
+					try {
+						GuardProgram compiled = Evaluator.compile(guard);
+						if (manager.cache == null) {
+							install(compiled);
+						} else if (!manager.cache.admit(TieredGuardExpression.this, compiled)) {
+							tier.set(Tier.REJECTED);
+							return;
+						}
+						manager.promotions.incrementAndGet();
+					} catch (RuntimeException e) {
+						tier.set(Tier.FAILED);
+						manager.failures.incrementAndGet();
+					}
+				}
+
+			});
+		} catch (RejectedExecutionException e) {
+			// Try again on one of the next evaluations
+			tier.set(Tier.INTERPRETED);
+		}
+	}
+
+	/**
+	 * Publishes the program to evaluating threads.
+	 */
+	void install(GuardProgram compiled) {
+		program = compiled;
+		tier.set(Tier.COMPILED);
+	}
+
+	/**
+	 * Called by the {@link GuardCodeCache} to return to the {@link Evaluator}.
+	 * The guard is compiled again once it reaches the threshold again.
+	 */
+	void evict() {
+		program = null;
+		interpretedInvocations.set(0);
+		tier.set(Tier.INTERPRETED);
+	}
+
+	/**
+	 * @return whether the program was used since the last call
+	 */
+	boolean clearReferenced() {
+		boolean wasReferenced = referenced;
+		referenced = false;
+		return wasReferenced;
+	}
+
+	public Tier getTier() {
+		return tier.get();
+	}
+
+	/**
+	 * @return the number of evaluations before the compiled program was used
+	 */
+	public long getInterpretedInvocations() {
+		return interpretedInvocations.get();
+	}
+
+	/**
+	 * @return the compiled program or NULL if the guard is not yet compiled
+	 */
+	public GuardProgram getProgram() {
+		return program;
+	}
+
+}
@@ -0,0 +1,296 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.processmining.datapetrinets.exception.UnsupportedFunctionException;
+import org.processmining.datapetrinets.exception.VariableNotFoundException;
+import org.processmining.datapetrinets.expression.syntax.ExprFunction;
+import org.processmining.datapetrinets.expression.syntax.ExprRoot;
+import org.processmining.datapetrinets.expression.syntax.ExprVariable;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserDefaultVisitor;
+import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+import org.processmining.datapetrinets.expression.syntax.SimpleNode;
+
+/**
+ * {@link FunctionProvider} that aggregates the values of attributes over the
+ * events of one case that were appended so far. Like all functions, the
+ * aggregates receive their {@link ExprVariable} argument as identifier, e.g.,
+ * <code>sum(amount) &gt; 10000</code> or <code>count(reject) &gt;= 3</code>.
+ * The following aggregates are supported:
+ * <ul>
+ * <li><code>count(x)</code> the number of events that assigned a value to x,
+ * a Boolean value is only counted if it is true,</li>
+ * <li><code>sum(x)</code> the sum of all numeric values of x, 0 if there are
+ * none,</li>
+ * <li><code>min(x)</code>, <code>max(x)</code> and <code>avg(x)</code> the
+ * minimum, maximum and average of all numeric values of x, NULL if there are
+ * none,</li>
+ * <li><code>last(x)</code> the most recent value of x, NULL if there is
+ * none.</li>
+ * </ul>
+ * Each aggregate is updated in constant time when an event is appended.
+ * Therefore, replaying a trace and evaluating guards after each event takes
+ * time linear in the length of the trace rather than re-scanning the prefix
+ * for each evaluation. Only the attributes passed on construction are
+ * recorded, use {@link #collectAggregatedVariables(Iterable)} to obtain the
+ * attributes aggregated by a set of guards. Other calls, e.g.,
+ * <code>min(a, b)</code>, are delegated to the fallback provider.
+ * <p>
+ * An instance records the history of a single case, use {@link #reset()} or
+ * {@link #newCase()} to start the next case. None of the aggregates is pure.
+ * This class is not thread-safe.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class TraceHistory implements FunctionProvider {
+
+	/**
+	 * Names of the aggregate functions
+	 */
+	public static final Set<String> AGGREGATES = Collections
+			.unmodifiableSet(new LinkedHashSet<>(Arrays.asList("count", "sum", "min", "max", "avg", "last")));
+
+	private static final class Aggregate {
+
+		private final String attribute;
+
+		private long count;
+		private long numericCount;
+		private double sum;
+		private double min;
+		private double max;
+		private Object last;
+
+		private Aggregate(String attribute) {
+			this.attribute = attribute;
+			reset();
+		}
+
+		private void reset() {
+			count = 0;
+			numericCount = 0;
+			sum = 0d;
+			min = Double.POSITIVE_INFINITY;
+			max = Double.NEGATIVE_INFINITY;
+			last = null;
+		}
+
+		private void add(Object value) {
+			last = value;
+			if (value instanceof Boolean) {
+				if ((Boolean) value) {
+					count++;
+				}
+			} else {
+				count++;
+				if (value instanceof Number) {
+					double number = ((Number) value).doubleValue();
+					numericCount++;
+					sum += number;
+					// Math.min and Math.max propagate NaN like a re-scan would
+					min = Math.min(min, number);
+					max = Math.max(max, number);
+				}
+			}
+		}
+
+		private Object get(String function) throws UnsupportedFunctionException {
+			switch (function) {
+				case "count" :
+					return count;
+				case "sum" :
+					return sum;
+				case "min" :
+					return numericCount == 0 ? null : min;
+				case "max" :
+					return numericCount == 0 ? null : max;
+				case "avg" :
+					return numericCount == 0 ? null : sum / numericCount;
+				case "last" :
+					return last;
+				default :
+					throw new UnsupportedFunctionException("Unknown aggregate " + function + "(" + attribute + ")");
+			}
+		}
+
+	}
+
+	private static final class AggregateCollectingVisitor extends ExpressionParserDefaultVisitor {
+
+		@SuppressWarnings("unchecked")
+		public Object visit(ExprFunction node, Object data) {
+			if (node.jjtGetNumChildren() == 1 && node.jjtGetChild(0) instanceof ExprVariable
+					&& AGGREGATES.contains(node.jjtGetValue())) {
+				((Collection<String>) data).add((String) ((ExprVariable) node.jjtGetChild(0)).jjtGetValue());
+			}
+			return data;
+		}
+
+		public Object visit(ExprRoot node, Object data) throws ExpressionVisitorException {
+			TreeTraversal.preOrder(node.jjtGetChild(0), this, data);
+			return data;
+		}
+
+		public Object defaultVisit(SimpleNode node, Object data) {
+			// Children are visited by the traversal
+			return data;
+		}
+
+	}
+
+	private static final AggregateCollectingVisitor AGGREGATE_VISITOR = new AggregateCollectingVisitor();
+
+	private final Aggregate[] aggregates;
+	private final Map<String, Aggregate> aggregateByAttribute;
+	private final FunctionProvider fallback;
+
+	private long eventCount;
+
+	/**
+	 * Records the history of the given attributes, other calls are not
+	 * supported.
+	 *
+	 * @param attributes
+	 */
+	public TraceHistory(Collection<String> attributes) {
+		this(attributes, FunctionProvider.EMPTY_PROVIDER);
+	}
+
+	/**
+	 * Records the history of the given attributes.
+	 *
+	 * @param attributes
+	 * @param fallback
+	 *            calculates all calls that are not an aggregate over a
+	 *            single attribute, e.g., {@link FunctionProvider#BASIC_MATH}
+	 */
+	public TraceHistory(Collection<String> attributes, FunctionProvider fallback) {
+		this.fallback = fallback;
+		this.aggregateByAttribute = new HashMap<>();
+		for (String attribute : attributes) {
+			if (!aggregateByAttribute.containsKey(attribute)) {
+				aggregateByAttribute.put(attribute, new Aggregate(attribute));
+			}
+		}
+		this.aggregates = aggregateByAttribute.values().toArray(new Aggregate[aggregateByAttribute.size()]);
+	}
+
+	/**
+	 * @return an empty history of the same attributes with the same fallback
+	 */
+	public TraceHistory newCase() {
+		return new TraceHistory(aggregateByAttribute.keySet(), fallback);
+	}
+
+	/**
+	 * @param guards
+	 * @return the attributes that are aggregated by the guards, i.e., the
+	 *         variables that are the only argument of one of the
+	 *         {@link #AGGREGATES}
+	 */
+	public static Set<String> collectAggregatedVariables(Iterable<? extends GuardExpression> guards) {
+		Set<String> attributes = new LinkedHashSet<>();
+		for (GuardExpression guard : guards) {
+			try {
+				guard.visit(AGGREGATE_VISITOR, attributes);
+			} catch (ExpressionVisitorException e) {
+				throw new RuntimeException("Exception while trying to collect aggregated variables!", e);
+			}
+		}
+		return attributes;
+	}
+
+	/**
+	 * Appends an event to the history of the case. Attributes that are not
+	 * assigned by the event keep their aggregates.
+	 *
+	 * @param event
+	 *            the attribute values written by the event
+	 */
+	public void append(Map<String, ?> event) {
+		for (Aggregate aggregate : aggregates) {
+			Object value = event.get(aggregate.attribute);
+			if (value != null) {
+				aggregate.add(value);
+			}
+		}
+		eventCount++;
+	}
+
+	/**
+	 * Appends an event to the history of the case. Attributes that are not
+	 * assigned by the event keep their aggregates. Prefer
+	 * {@link #append(Map)} if the event is available as map, as looking up
+	 * missing attributes may be costly.
+	 *
+	 * @param event
+	 *            the attribute values written by the event
+	 */
+	public void append(VariableProvider event) {
+		for (Aggregate aggregate : aggregates) {
+			Object value;
+			try {
+				value = event.getValue(aggregate.attribute);
+			} catch (VariableNotFoundException e) {
+				continue;
+			}
+			if (value != null) {
+				aggregate.add(value);
+			}
+		}
+		eventCount++;
+	}
+
+	/**
+	 * Forgets the history to start a new case.
+	 */
+	public void reset() {
+		for (Aggregate aggregate : aggregates) {
+			aggregate.reset();
+		}
+		eventCount = 0;
+	}
+
+	/**
+	 * @return the number of events appended since the start of the case
+	 */
+	public long getEventCount() {
+		return eventCount;
+	}
+
+	/**
+	 * @return the attributes whose history is recorded
+	 */
+	public Set<String> getAttributes() {
+		return Collections.unmodifiableSet(aggregateByAttribute.keySet());
+	}
+
+	public Object calculate(String function, Object[] parameters) throws UnsupportedFunctionException {
+		if (parameters.length == 1 && parameters[0] instanceof String && AGGREGATES.contains(function)) {
+			Aggregate aggregate = aggregateByAttribute.get(parameters[0]);
+			if (aggregate == null) {
+				throw new UnsupportedFunctionException(
+						"History of " + parameters[0] + " is not recorded for " + function);
+			}
+			return aggregate.get(function);
+		}
+		return fallback.calculate(function, parameters);
+	}
+
+	public boolean passesValues(String function) {
+		// Aggregates receive the identifier of the attribute
+		return !AGGREGATES.contains(function) && fallback.passesValues(function);
+	}
+
+	public String toString() {
+		return "TraceHistory " + aggregateByAttribute.keySet() + " after " + eventCount + " events";
+	}
+
+}
@@ -0,0 +1,89 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserVisitor;
+import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+import org.processmining.datapetrinets.expression.syntax.Node;
+
+/**
+ * Traversals of an expression tree that keep the pending nodes on an explicit
+ * stack instead of the call stack. The size of an expression is, therefore,
+ * not limited by its depth. Visitors used with these traversals are only
+ * responsible for a single node and must not visit the children themselves.
+ *
+ * @author F. Mannhardt
+ *
+ */
+final class TreeTraversal {
+
+	/**
+	 * Returned by a visitor during a {@link #preOrder} traversal to skip the
+	 * children of the visited node
+	 */
+	static final Object SKIP_CHILDREN = new Object();
+
+	private TreeTraversal() {
+		super();
+	}
+
+	/**
+	 * Accepts the visitor on the node and all its descendants, parents are
+	 * visited before their children and children from left to right. The
+	 * children of nodes for which the visitor returns {@link #SKIP_CHILDREN}
+	 * are not visited.
+	 *
+	 * @param node
+	 * @param visitor
+	 * @param data
+	 * @throws ExpressionVisitorException
+	 */
+	static void preOrder(Node node, ExpressionParserVisitor visitor, Object data) throws ExpressionVisitorException {
+		Deque<Node> stack = new ArrayDeque<>();
+		stack.push(node);
+		while (!stack.isEmpty()) {
+			Node current = stack.pop();
+			if (current.jjtAccept(visitor, data) == SKIP_CHILDREN) {
+				continue;
+			}
+			for (int i = current.jjtGetNumChildren() - 1; i >= 0; i--) {
+				stack.push(current.jjtGetChild(i));
+			}
+		}
+	}
+
+	/**
+	 * Accepts the visitor on the node and all its descendants, children are
+	 * visited from left to right before their parent.
+	 *
+	 * @param node
+	 * @param visitor
+	 * @param data
+	 * @throws ExpressionVisitorException
+	 */
+	static void postOrder(Node node, ExpressionParserVisitor visitor, Object data) throws ExpressionVisitorException {
+		Node[] nodes = new Node[16];
+		int[] nextChild = new int[16];
+		int top = 0;
+		nodes[0] = node;
+		while (top >= 0) {
+			Node current = nodes[top];
+			int index = nextChild[top];
+			if (index < current.jjtGetNumChildren()) {
+				nextChild[top] = index + 1;
+				if (++top == nodes.length) {
+					nodes = Arrays.copyOf(nodes, top * 2);
+					nextChild = Arrays.copyOf(nextChild, top * 2);
+				}
+				nodes[top] = current.jjtGetChild(index);
+				nextChild[top] = 0;
+			} else {
+				nodes[top--] = null;
+				current.jjtAccept(visitor, data);
+			}
+		}
+	}
+
+}
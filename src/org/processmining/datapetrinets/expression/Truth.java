@@ -0,0 +1,57 @@
+package org.processmining.datapetrinets.expression;
+
+/**
+ * Truth values of Kleene's strong three-valued logic, the result of
+ * {@link Evaluator#evaluateKleene(GuardExpression, VariableProvider, FunctionProvider)}.
+ * {@link #UNKNOWN} stands for a value that may still become true or false,
+ * e.g., because a variable has no value yet.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public enum Truth {
+
+	FALSE, UNKNOWN, TRUE;
+
+	public static Truth of(boolean value) {
+		return value ? TRUE : FALSE;
+	}
+
+	/**
+	 * @return whether the value is {@link #TRUE} or {@link #FALSE}
+	 */
+	public boolean isKnown() {
+		return this != UNKNOWN;
+	}
+
+	public Truth not() {
+		switch (this) {
+			case TRUE :
+				return FALSE;
+			case FALSE :
+				return TRUE;
+			default :
+				return UNKNOWN;
+		}
+	}
+
+	/**
+	 * @param other
+	 * @return {@link #FALSE} if one of the values is false, {@link #TRUE} if
+	 *         both are true, otherwise {@link #UNKNOWN}
+	 */
+	public Truth and(Truth other) {
+		// FALSE < UNKNOWN < TRUE
+		return compareTo(other) <= 0 ? this : other;
+	}
+
+	/**
+	 * @param other
+	 * @return {@link #TRUE} if one of the values is true, {@link #FALSE} if
+	 *         both are false, otherwise {@link #UNKNOWN}
+	 */
+	public Truth or(Truth other) {
+		return compareTo(other) >= 0 ? this : other;
+	}
+
+}
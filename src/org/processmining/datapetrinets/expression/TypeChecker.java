@@ -0,0 +1,404 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.processmining.datapetrinets.exception.TypeCheckException;
+import org.processmining.datapetrinets.expression.syntax.ExprAnd;
+import org.processmining.datapetrinets.expression.syntax.ExprAtLeast;
+import org.processmining.datapetrinets.expression.syntax.ExprAtMost;
+import org.processmining.datapetrinets.expression.syntax.ExprDiv;
+import org.processmining.datapetrinets.expression.syntax.ExprEqual;
+import org.processmining.datapetrinets.expression.syntax.ExprFunction;
+import org.processmining.datapetrinets.expression.syntax.ExprGreaterThan;
+import org.processmining.datapetrinets.expression.syntax.ExprIn;
+import org.processmining.datapetrinets.expression.syntax.ExprLessThan;
+import org.processmining.datapetrinets.expression.syntax.ExprLitBoolean;
+import org.processmining.datapetrinets.expression.syntax.ExprLitDouble;
+import org.processmining.datapetrinets.expression.syntax.ExprLitInteger;
+import org.processmining.datapetrinets.expression.syntax.ExprLitNull;
+import org.processmining.datapetrinets.expression.syntax.ExprLitString;
+import org.processmining.datapetrinets.expression.syntax.ExprMinus;
+import org.processmining.datapetrinets.expression.syntax.ExprMult;
+import org.processmining.datapetrinets.expression.syntax.ExprNegation;
+import org.processmining.datapetrinets.expression.syntax.ExprNot;
+import org.processmining.datapetrinets.expression.syntax.ExprNotEqual;
+import org.processmining.datapetrinets.expression.syntax.ExprOr;
+import org.processmining.datapetrinets.expression.syntax.ExprPlus;
+import org.processmining.datapetrinets.expression.syntax.ExprRoot;
+import org.processmining.datapetrinets.expression.syntax.ExprSet;
+import org.processmining.datapetrinets.expression.syntax.ExprVariable;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserVisitor;
+import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+import org.processmining.datapetrinets.expression.syntax.Node;
+import org.processmining.datapetrinets.expression.syntax.SimpleNode;
+import org.processmining.datapetrinets.expression.syntax.Symbol;
+
+/**
+ * Determines the static {@link ExpressionType} of every node of an expression
+ * based on the variable types declared by a {@link VariableTypeProvider}. The
+ * typing rules follow the runtime behavior of {@link Evaluator}, expressions
+ * that would always fail or always compare unequal values of different types
+ * are rejected. Variables without declared type are typed as
+ * {@link ExpressionType#ANY} and checked at runtime. Function calls are typed
+ * by the signature of the function in a {@link FunctionRegistry}, or as
+ * {@link ExpressionType#ANY} if no registry is given.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class TypeChecker {
+
+	private static final class TypeCheckingVisitor implements ExpressionParserVisitor {
+
+		private final VariableTypeProvider typeProvider;
+		private final FunctionRegistry functions;
+		private final Map<Node, ExpressionType> types = new IdentityHashMap<>();
+
+		public TypeCheckingVisitor(VariableTypeProvider typeProvider, FunctionRegistry functions) {
+			this.typeProvider = typeProvider;
+			this.functions = functions;
+		}
+
+		private ExpressionType annotate(Node node, ExpressionType type) {
+			types.put(node, type);
+			return type;
+		}
+
+		private ExpressionType typeOf(Node node, Object data) throws ExpressionVisitorException {
+			ExpressionType type = types.get(node);
+			if (type == null) {
+				// Not yet annotated by the traversal
+				return (ExpressionType) node.jjtAccept(this, data);
+			}
+			return type;
+		}
+
+		private static ExpressionVisitorException typeError(SimpleNode node, String reason) {
+			return new ExpressionVisitorException(
+					"Expression " + Printer.printCanonical(node) + " is ill-typed: " + reason);
+		}
+
+		private ExpressionType arithmetic(SimpleNode node, Object data) throws ExpressionVisitorException {
+			ExpressionType lhs = typeOf(node.jjtGetChild(0), data);
+			ExpressionType rhs = typeOf(node.jjtGetChild(1), data);
+			if (!(isArithmeticOperand(lhs, rhs) && isArithmeticOperand(rhs, lhs))) {
+				throw typeError(node, "Operation not defined for " + lhs + " and " + rhs + "!");
+			}
+			checkDateLiterals(node, lhs, rhs);
+			return annotate(node, ExpressionType.DOUBLE);
+		}
+
+		private static boolean isArithmeticOperand(ExpressionType type, ExpressionType other) {
+			// Strings are converted to dates if the other operand is a date
+			return type.isTemporal() || type == ExpressionType.ANY
+					|| (type == ExpressionType.STRING && other == ExpressionType.DATE);
+		}
+
+		private static void checkDateLiterals(SimpleNode node, ExpressionType lhs, ExpressionType rhs)
+				throws ExpressionVisitorException {
+			if (lhs == ExpressionType.DATE) {
+				checkDateLiteral(node, node.jjtGetChild(1));
+			}
+			if (rhs == ExpressionType.DATE) {
+				checkDateLiteral(node, node.jjtGetChild(0));
+			}
+		}
+
+		private static void checkDateLiteral(SimpleNode node, Node operand) throws ExpressionVisitorException {
+			if (operand instanceof ExprLitString) {
+				String literal = Evaluator.Visitor.unquote((String) ((ExprLitString) operand).jjtGetValue());
+				if (DateParser.parseMillis(literal) == DateParser.NOT_A_DATE) {
+					throw typeError(node, "String " + literal + " is not a valid date!");
+				}
+			}
+		}
+
+		private ExpressionType comparison(SimpleNode node, Object data) throws ExpressionVisitorException {
+			ExpressionType lhs = typeOf(node.jjtGetChild(0), data);
+			ExpressionType rhs = typeOf(node.jjtGetChild(1), data);
+			if (!isComparable(lhs, rhs)) {
+				throw typeError(node, "Comparison not defined for " + lhs + " and " + rhs + "!");
+			}
+			checkDateLiterals(node, lhs, rhs);
+			return annotate(node, ExpressionType.BOOLEAN);
+		}
+
+		private static boolean isComparable(ExpressionType lhs, ExpressionType rhs) {
+			if (lhs == ExpressionType.BOOLEAN || rhs == ExpressionType.BOOLEAN || lhs == ExpressionType.NULL
+					|| rhs == ExpressionType.NULL) {
+				return false;
+			}
+			if (lhs == ExpressionType.ANY || rhs == ExpressionType.ANY) {
+				return true;
+			}
+			if (lhs.isTemporal() && rhs.isTemporal()) {
+				return true;
+			}
+			if (lhs == ExpressionType.STRING) {
+				return rhs == ExpressionType.STRING || rhs == ExpressionType.DATE;
+			}
+			return lhs == ExpressionType.DATE && rhs == ExpressionType.STRING;
+		}
+
+		private ExpressionType equality(SimpleNode node, Object data) throws ExpressionVisitorException {
+			ExpressionType lhs = typeOf(node.jjtGetChild(0), data);
+			ExpressionType rhs = typeOf(node.jjtGetChild(1), data);
+			if (!isEqualityComparable(lhs, rhs)) {
+				throw typeError(node, "Values of type " + lhs + " and " + rhs + " are never equal!");
+			}
+			return annotate(node, ExpressionType.BOOLEAN);
+		}
+
+		private static boolean isEqualityComparable(ExpressionType lhs, ExpressionType rhs) {
+			if (lhs == ExpressionType.ANY || rhs == ExpressionType.ANY || lhs == ExpressionType.NULL
+					|| rhs == ExpressionType.NULL) {
+				return true;
+			}
+			return lhs == rhs || (lhs.isNumeric() && rhs.isNumeric());
+		}
+
+		private ExpressionType logical(SimpleNode node, Object data) throws ExpressionVisitorException {
+			for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+				ExpressionType type = typeOf(node.jjtGetChild(i), data);
+				if (type != ExpressionType.BOOLEAN && type != ExpressionType.ANY) {
+					throw typeError(node, "Operation not defined for non-boolean values of type " + type + "!");
+				}
+			}
+			return annotate(node, ExpressionType.BOOLEAN);
+		}
+
+		public Object visit(ExprLitNull node, Object data) {
+			return annotate(node, ExpressionType.NULL);
+		}
+
+		public Object visit(ExprLitBoolean node, Object data) {
+			return annotate(node, ExpressionType.BOOLEAN);
+		}
+
+		public Object visit(ExprLitString node, Object data) {
+			return annotate(node, ExpressionType.STRING);
+		}
+
+		public Object visit(ExprLitDouble node, Object data) {
+			return annotate(node, ExpressionType.DOUBLE);
+		}
+
+		public Object visit(ExprLitInteger node, Object data) {
+			return annotate(node, ExpressionType.LONG);
+		}
+
+		public Object visit(ExprVariable node, Object data) {
+			String identifier = Evaluator.identifierArgument(node);
+			if (identifier != null) {
+				if (functions == null) {
+					// The provider given for evaluation decides between identifier and value
+					return annotate(node, ExpressionType.ANY);
+				} else if (!functions.passesValues((String) ((ExprFunction) node.jjtGetParent()).jjtGetValue())) {
+					return annotate(node, ExpressionType.STRING);
+				}
+			}
+			Symbol symbol = node.getSymbol();
+			Class<?> type = typeProvider.getType(symbol.getIdentifier());
+			if (type == null && symbol.isPrime()) {
+				type = typeProvider.getType(symbol.getName());
+			}
+			return annotate(node, ExpressionType.of(type));
+		}
+
+		public Object visit(ExprNot node, Object data) throws ExpressionVisitorException {
+			return logical(node, data);
+		}
+
+		public Object visit(ExprNegation node, Object data) throws ExpressionVisitorException {
+			ExpressionType type = typeOf(node.jjtGetChild(0), data);
+			if (!type.isNumeric() && type != ExpressionType.ANY) {
+				throw typeError(node, "Negation is not defined for values of type " + type + "!");
+			}
+			return annotate(node, ExpressionType.DOUBLE);
+		}
+
+		public Object visit(ExprDiv node, Object data) throws ExpressionVisitorException {
+			return arithmetic(node, data);
+		}
+
+		public Object visit(ExprMult node, Object data) throws ExpressionVisitorException {
+			return arithmetic(node, data);
+		}
+
+		public Object visit(ExprMinus node, Object data) throws ExpressionVisitorException {
+			return arithmetic(node, data);
+		}
+
+		public Object visit(ExprPlus node, Object data) throws ExpressionVisitorException {
+			return arithmetic(node, data);
+		}
+
+		public Object visit(ExprAtLeast node, Object data) throws ExpressionVisitorException {
+			return comparison(node, data);
+		}
+
+		public Object visit(ExprGreaterThan node, Object data) throws ExpressionVisitorException {
+			return comparison(node, data);
+		}
+
+		public Object visit(ExprAtMost node, Object data) throws ExpressionVisitorException {
+			return comparison(node, data);
+		}
+
+		public Object visit(ExprLessThan node, Object data) throws ExpressionVisitorException {
+			return comparison(node, data);
+		}
+
+		public Object visit(ExprNotEqual node, Object data) throws ExpressionVisitorException {
+			return equality(node, data);
+		}
+
+		public Object visit(ExprEqual node, Object data) throws ExpressionVisitorException {
+			return equality(node, data);
+		}
+
+		public Object visit(ExprIn node, Object data) throws ExpressionVisitorException {
+			ExpressionType lhs = typeOf(node.jjtGetChild(0), data);
+			Node set = node.jjtGetChild(1);
+			typeOf(set, data);
+			for (int i = 0; i < set.jjtGetNumChildren(); i++) {
+				ExpressionType element = types.get(set.jjtGetChild(i));
+				if (!isEqualityComparable(lhs, element)) {
+					throw typeError(node, "Values of type " + lhs + " and " + element + " are never equal!");
+				}
+			}
+			return annotate(node, ExpressionType.BOOLEAN);
+		}
+
+		public Object visit(ExprSet node, Object data) throws ExpressionVisitorException {
+			for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+				typeOf(node.jjtGetChild(i), data);
+			}
+			return annotate(node, ExpressionType.ANY);
+		}
+
+		public Object visit(ExprAnd node, Object data) throws ExpressionVisitorException {
+			return logical(node, data);
+		}
+
+		public Object visit(ExprOr node, Object data) throws ExpressionVisitorException {
+			return logical(node, data);
+		}
+
+		public Object visit(ExprFunction node, Object data) throws ExpressionVisitorException {
+			int arity = node.jjtGetNumChildren();
+			ExpressionType[] arguments = new ExpressionType[arity];
+			for (int i = 0; i < arity; i++) {
+				arguments[i] = typeOf(node.jjtGetChild(i), data);
+			}
+			if (functions == null) {
+				return annotate(node, ExpressionType.ANY);
+			}
+			String name = (String) node.jjtGetValue();
+			FunctionRegistry.Signature signature = functions.getSignature(name);
+			if (signature == null) {
+				throw typeError(node, "Unknown function " + name + "!");
+			}
+			if (!signature.accepts(arity)) {
+				throw typeError(node, "Function " + signature + " cannot be called with " + arity + " arguments!");
+			}
+			for (int i = 0; i < arity; i++) {
+				if (!isAssignable(arguments[i], signature.getParameterType(i))) {
+					throw typeError(node,
+							"Function " + signature + " is not defined for arguments of type " + arguments[i] + "!");
+				}
+			}
+			return annotate(node, signature.getReturnType());
+		}
+
+		private static boolean isAssignable(ExpressionType argument, ExpressionType parameter) {
+			if (parameter == ExpressionType.ANY || argument == ExpressionType.ANY) {
+				return true;
+			} else if (parameter == ExpressionType.DOUBLE) {
+				return argument.isNumeric();
+			}
+			return argument == parameter;
+		}
+
+		public Object visit(ExprRoot node, Object data) throws ExpressionVisitorException {
+			if (node.jjtGetNumChildren() > 1) {
+				throw new ExpressionVisitorException("Invalid expression " + Printer.printCanonical(node)
+						+ " should not have been parsed! Top level element is only allowed to have one child.");
+			}
+			// Annotates the children before their parents
+			TreeTraversal.postOrder(node.jjtGetChild(0), this, data);
+			return annotate(node, typeOf(node.jjtGetChild(0), data));
+		}
+
+		public Object visit(SimpleNode node, Object data) throws ExpressionVisitorException {
+			throw new ExpressionVisitorException("No unamed nodes allowed!");
+		}
+
+	}
+
+	private TypeChecker() {
+		super();
+	}
+
+	/**
+	 * Determines the static type of every node in the expression.
+	 *
+	 * @param expression
+	 * @param typeProvider
+	 * @return an unmodifiable map from each node to its static type
+	 * @throws TypeCheckException
+	 *             in case the expression is ill-typed
+	 */
+	public static Map<Node, ExpressionType> check(ExprRoot expression, VariableTypeProvider typeProvider)
+			throws TypeCheckException {
+		TypeCheckingVisitor visitor = new TypeCheckingVisitor(typeProvider, null);
+		try {
+			visitor.visit(expression, null);
+		} catch (ExpressionVisitorException e) {
+			throw new TypeCheckException(e.getMessage(), e);
+		}
+		return Collections.unmodifiableMap(visitor.types);
+	}
+
+	/**
+	 * Determines the static type of every node in the expression.
+	 *
+	 * @param guard
+	 * @param typeProvider
+	 * @return an unmodifiable map from each node to its static type
+	 * @throws TypeCheckException
+	 *             in case the expression is ill-typed
+	 */
+	public static Map<Node, ExpressionType> check(GuardExpression guard, VariableTypeProvider typeProvider)
+			throws TypeCheckException {
+		return check(guard, typeProvider, null);
+	}
+
+	/**
+	 * Determines the static type of every node in the expression and checks
+	 * the function calls against the signatures of the registered functions.
+	 *
+	 * @param guard
+	 * @param typeProvider
+	 * @param functions
+	 *            registry of the functions that may be called, may be NULL to
+	 *            accept any function
+	 * @return an unmodifiable map from each node to its static type
+	 * @throws TypeCheckException
+	 *             in case the expression is ill-typed or calls an unknown
+	 *             function
+	 */
+	public static Map<Node, ExpressionType> check(GuardExpression guard, VariableTypeProvider typeProvider,
+			FunctionRegistry functions) throws TypeCheckException {
+		TypeCheckingVisitor visitor = new TypeCheckingVisitor(typeProvider, functions);
+		try {
+			guard.visit(visitor, null);
+		} catch (ExpressionVisitorException e) {
+			throw new TypeCheckException(e.getMessage(), e);
+		}
+		return Collections.unmodifiableMap(visitor.types);
+	}
+
+}
@@ -1,8 +1,8 @@
 package org.processmining.datapetrinets.expression;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 
 import org.processmining.datapetrinets.expression.syntax.ExprFunction;
@@ -11,8 +11,8 @@ import org.processmining.datapetrinets.expression.syntax.ExprVariable;
 import org.processmining.datapetrinets.expression.syntax.ExpressionParserDefaultVisitor;
 import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
 import org.processmining.datapetrinets.expression.syntax.SimpleNode;
-
-import com.google.common.collect.ImmutableSet;
+import org.processmining.datapetrinets.expression.syntax.Symbol;
+import org.processmining.datapetrinets.expression.syntax.SymbolTable;
 
 public final class VariableCollector {
 	
@@ -31,7 +31,13 @@ public final class VariableCollector {
 				throw new IllegalArgumentException("Invalid expression " + Printer.printCanonical(node)
 						+ " should not have been parsed! Top level element is only allowed to have one child.");
 			}
-			return node.childrenAccept(this, data);
+			TreeTraversal.preOrder(node.jjtGetChild(0), this, data);
+			return data;
+		}
+
+		public Object defaultVisit(SimpleNode node, Object data) {
+			// Children are visited by the traversal
+			return data;
 		}
 
 		public Object visit(SimpleNode node, Object data) {
@@ -40,6 +46,43 @@ public final class VariableCollector {
 
 	}
 	
+	private static final class SymbolCollectingVisitor extends ExpressionParserDefaultVisitor {
+
+		private final BitSet normalIds = new BitSet();
+		private final BitSet primeIds = new BitSet();
+
+		public Object visit(ExprVariable node, Object data) {
+			if (!(node.jjtGetParent() instanceof ExprFunction)) {
+				Symbol symbol = node.getSymbol();
+				if (symbol.isPrime()) {
+					primeIds.set(symbol.getId());
+				} else {
+					normalIds.set(symbol.getId());
+				}
+			}
+			return null;
+		}
+
+		public Object visit(ExprRoot node, Object data) throws ExpressionVisitorException {
+			if (node.jjtGetNumChildren() > 1) {
+				throw new IllegalArgumentException("Invalid expression " + Printer.printCanonical(node)
+						+ " should not have been parsed! Top level element is only allowed to have one child.");
+			}
+			TreeTraversal.preOrder(node.jjtGetChild(0), this, data);
+			return data;
+		}
+
+		public Object defaultVisit(SimpleNode node, Object data) {
+			// Children are visited by the traversal
+			return data;
+		}
+
+		public Object visit(SimpleNode node, Object data) {
+			throw new IllegalStateException("No unamed nodes allowed!");
+		}
+
+	}
+
 	private static final VariableCollectingVisitor VARIABLE_VISITOR = new VariableCollectingVisitor();
 
 	private VariableCollector() {
@@ -55,37 +98,31 @@ public final class VariableCollector {
 		}
 		return variableSet;
 	}
-	
-	public static Set<String> collectPrimesOnly(ExprRoot expression) {
-		Set<String> variables = collectAll(expression);
-		Set<String> primeVariables = new HashSet<>();
-		for (Iterator<String> iterator = variables.iterator(); iterator.hasNext();) {
-			String varName = iterator.next();
-			if (isPrimeVar(varName)) {
-				iterator.remove();
-				primeVariables.add(stripPrime(varName));
-			}
-		}		
-		return ImmutableSet.copyOf(primeVariables);
-	}
 
-	public static Set<String> collectNormalOnly(ExprRoot expression) {
-		Set<String> variables = collectAll(expression);
-		for (Iterator<String> iterator = variables.iterator(); iterator.hasNext();) {
-			String varName = iterator.next();
-			if (isPrimeVar(varName)) {
-				iterator.remove();
-			}
-		}		
-		return ImmutableSet.copyOf(variables);
+	private static SymbolCollectingVisitor collectSymbols(ExprRoot expression) {
+		SymbolCollectingVisitor visitor = new SymbolCollectingVisitor();
+		try {
+			visitor.visit(expression, null);
+		} catch (ExpressionVisitorException e) {
+			throw new RuntimeException("Exception while trying to collect variables!", e);
+		}
+		return visitor;
 	}
 	
-	private static String stripPrime(String varName) {
-		return varName.substring(0, varName.length() - 1);
+	/**
+	 * @param expression
+	 * @return the names of all prime variables without the prime symbol
+	 */
+	public static SymbolSet collectPrimesOnly(ExprRoot expression) {
+		return SymbolSet.of(SymbolTable.getGlobal(), collectSymbols(expression).primeIds, true);
 	}
-	
-	private static boolean isPrimeVar(String varName) {
-		return varName.charAt(varName.length() - 1) == '\'';
+
+	/**
+	 * @param expression
+	 * @return the names of all normal variables
+	 */
+	public static SymbolSet collectNormalOnly(ExprRoot expression) {
+		return SymbolSet.of(SymbolTable.getGlobal(), collectSymbols(expression).normalIds);
 	}
 
 }
@@ -3,6 +3,7 @@ package org.processmining.datapetrinets.expression;
 import java.util.Map;
 
 import org.processmining.datapetrinets.exception.VariableNotFoundException;
+import org.processmining.datapetrinets.expression.syntax.Symbol;
 
 public interface VariableProvider {
 
@@ -17,8 +18,7 @@ public interface VariableProvider {
 		public Object getValue(String variableName) throws VariableNotFoundException {
 			Object value = valueMap.get(variableName);
 			if (value == null) {
-				throw new VariableNotFoundException(
-						String.format("Variable %s is not found in map %s", variableName, valueMap));
+				throw VariableNotFoundException.lazy(variableName, valueMap);
 			} else {
 				return value;
 			}
@@ -35,4 +35,17 @@ public interface VariableProvider {
 
 	Object getValue(String variableName) throws VariableNotFoundException;
 
+	/**
+	 * Looks up the value of an interned variable. Providers that store their
+	 * values by {@link Symbol} id should override this method to avoid hashing
+	 * the identifier.
+	 * 
+	 * @param symbol
+	 * @return the value of the variable
+	 * @throws VariableNotFoundException
+	 */
+	default Object getValue(Symbol symbol) throws VariableNotFoundException {
+		return getValue(symbol.getIdentifier());
+	}
+
 }
\ No newline at end of file
@@ -1,6 +1,22 @@
 package org.processmining.datapetrinets.expression;
 
+import java.util.Map;
+
 public interface VariableTypeProvider {
+
+	public class DefaultVariableTypeProvider implements VariableTypeProvider {
+
+		private final Map<String, Class<?>> typeMap;
+
+		public DefaultVariableTypeProvider(Map<String, Class<?>> typeMap) {
+			this.typeMap = typeMap;
+		}
+
+		public Class<?> getType(String variableName) {
+			return typeMap.get(variableName);
+		}
+
+	}
 	
 	Class<?> getType(String variableName);
 
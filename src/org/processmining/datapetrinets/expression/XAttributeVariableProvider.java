@@ -0,0 +1,162 @@
+package org.processmining.datapetrinets.expression;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.deckfour.xes.model.XAttributable;
+import org.deckfour.xes.model.XAttribute;
+import org.deckfour.xes.model.XAttributeBoolean;
+import org.deckfour.xes.model.XAttributeContinuous;
+import org.deckfour.xes.model.XAttributeDiscrete;
+import org.deckfour.xes.model.XAttributeLiteral;
+import org.deckfour.xes.model.XAttributeMap;
+import org.deckfour.xes.model.XAttributeTimestamp;
+import org.deckfour.xes.model.XTrace;
+import org.processmining.datapetrinets.exception.VariableNotFoundException;
+import org.processmining.datapetrinets.expression.syntax.Symbol;
+import org.processmining.datapetrinets.expression.syntax.SymbolTable;
+
+/**
+ * {@link VariableProvider} that reads the variables of a guard directly from
+ * the attributes of an event, without copying them into a {@link Map} first.
+ * Normal variables are read from the event and prime variables from the next
+ * event, in both cases the attributes of the trace are used if the event has
+ * no such attribute. The attribute keys of the variables are resolved once
+ * when the provider is created, only the variables of the guard are known.
+ * <p>
+ * Attributes are returned as the types used by the {@link Evaluator}:
+ * discrete as {@link Long}, continuous as {@link Double}, timestamps as
+ * {@link java.util.Date}, booleans as {@link Boolean} and literals as
+ * {@link String}. Instances are meant to be re-bound to many events, they are
+ * not thread-safe.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class XAttributeVariableProvider implements VariableProvider {
+
+	private final SymbolTable symbolTable = SymbolTable.getGlobal();
+
+	private final SymbolSet normalVariables;
+	private final SymbolSet primeVariables;
+
+	// Attribute keys indexed by the position of the variable in its set
+	private final String[] normalKeys;
+	private final String[] primeKeys;
+
+	private XAttributeMap event;
+	private XAttributeMap next;
+	private XAttributeMap trace;
+
+	/**
+	 * Reads each variable from the attribute with the same key
+	 *
+	 * @param guard
+	 */
+	public XAttributeVariableProvider(GuardExpression guard) {
+		this(guard, Collections.<String, String>emptyMap());
+	}
+
+	/**
+	 * @param guard
+	 * @param attributeKeys
+	 *            maps variable names (without prime symbol) to attribute
+	 *            keys, e.g., <code>concept$3Aname</code> to
+	 *            <code>concept:name</code>, variables that are not mapped are
+	 *            read from the attribute with the same key
+	 */
+	public XAttributeVariableProvider(GuardExpression guard, Map<String, String> attributeKeys) {
+		this.normalVariables = SymbolSet.copyOf(guard.getNormalVariables(), false);
+		this.primeVariables = SymbolSet.copyOf(guard.getPrimeVariables(), true);
+		this.normalKeys = resolveKeys(normalVariables, attributeKeys);
+		this.primeKeys = resolveKeys(primeVariables, attributeKeys);
+	}
+
+	private static String[] resolveKeys(SymbolSet variables, Map<String, String> attributeKeys) {
+		String[] keys = new String[variables.size()];
+		for (int i = 0; i < keys.length; i++) {
+			String name = variables.getSymbol(i).getName();
+			String key = attributeKeys.get(name);
+			keys[i] = key != null ? key : name;
+		}
+		return keys;
+	}
+
+	/**
+	 * Binds the variables to the event at the index of the trace and prime
+	 * variables to the event that follows it.
+	 *
+	 * @param trace
+	 * @param index
+	 * @return this provider
+	 */
+	public XAttributeVariableProvider bind(XTrace trace, int index) {
+		return bind(trace.get(index), index + 1 < trace.size() ? trace.get(index + 1) : null, trace);
+	}
+
+	/**
+	 * @param event
+	 *            source of the normal variables
+	 * @param next
+	 *            source of the prime variables, may be NULL
+	 * @param trace
+	 *            source of variables that are not attributes of the events,
+	 *            may be NULL
+	 * @return this provider
+	 */
+	public XAttributeVariableProvider bind(XAttributable event, XAttributable next, XAttributable trace) {
+		this.event = event != null ? event.getAttributes() : null;
+		this.next = next != null ? next.getAttributes() : null;
+		this.trace = trace != null ? trace.getAttributes() : null;
+		return this;
+	}
+
+	public Object getValue(Symbol symbol) throws VariableNotFoundException {
+		int index = symbol.isPrime() ? primeVariables.indexOf(symbol) : normalVariables.indexOf(symbol);
+		if (index >= 0) {
+			String key = symbol.isPrime() ? primeKeys[index] : normalKeys[index];
+			XAttribute attribute = lookup(symbol.isPrime() ? next : event, key);
+			if (attribute == null) {
+				attribute = lookup(trace, key);
+			}
+			if (attribute != null) {
+				return toValue(attribute);
+			}
+		}
+		throw VariableNotFoundException.lazy(symbol);
+	}
+
+	public Object getValue(String variableName) throws VariableNotFoundException {
+		Symbol symbol = symbolTable.lookup(variableName);
+		if (symbol == null) {
+			throw VariableNotFoundException.lazy(variableName);
+		}
+		return getValue(symbol);
+	}
+
+	private static XAttribute lookup(XAttributeMap attributes, String key) {
+		return attributes != null ? attributes.get(key) : null;
+	}
+
+	/**
+	 * @param attribute
+	 * @return the value of the attribute as the type used by the
+	 *         {@link Evaluator}, other types of attributes are returned as
+	 *         their {@link String} representation
+	 */
+	public static Object toValue(XAttribute attribute) {
+		if (attribute instanceof XAttributeLiteral) {
+			return ((XAttributeLiteral) attribute).getValue();
+		} else if (attribute instanceof XAttributeDiscrete) {
+			return ((XAttributeDiscrete) attribute).getValue();
+		} else if (attribute instanceof XAttributeContinuous) {
+			return ((XAttributeContinuous) attribute).getValue();
+		} else if (attribute instanceof XAttributeTimestamp) {
+			return ((XAttributeTimestamp) attribute).getValue();
+		} else if (attribute instanceof XAttributeBoolean) {
+			return ((XAttributeBoolean) attribute).getValue();
+		}
+		return attribute.toString();
+	}
+
+}
@@ -0,0 +1,23 @@
+/* Generated By:JJTree: Do not edit this line. ExprIn.java Version 6.1 */
+/* JavaCCOptions:MULTI=true,NODE_USES_PARSER=false,VISITOR=true,TRACK_TOKENS=true,NODE_PREFIX=Expr,NODE_EXTENDS=,NODE_FACTORY=,SUPPORT_CLASS_VISIBILITY_PUBLIC=true */
+package org.processmining.datapetrinets.expression.syntax;
+
+public final
+class ExprIn extends SimpleNode {
+  public ExprIn(int id) {
+    super(id);
+  }
+
+  public ExprIn(ExpressionParser p, int id) {
+    super(p, id);
+  }
+
+
+  /** Accept the visitor. **/
+  public Object jjtAccept(ExpressionParserVisitor visitor, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException {
+
+    return
+    visitor.visit(this, data);
+  }
+}
+/* JavaCC - OriginalChecksum=3c78c97873f367bb48f43585b4cc98fc (do not edit this line) */
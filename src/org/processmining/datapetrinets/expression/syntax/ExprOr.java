@@ -12,6 +12,14 @@ class ExprOr extends SimpleNode {
     super(p, id);
   }
 
+  /**
+   * Adopts the operands of nested disjunctions, the operands are kept in
+   * their order of evaluation.
+   */
+  public void jjtClose() {
+    flattenChildren();
+  }
+
 
   /** Accept the visitor. **/
   public Object jjtAccept(ExpressionParserVisitor visitor, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException {
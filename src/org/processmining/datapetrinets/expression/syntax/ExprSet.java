@@ -0,0 +1,42 @@
+/* Generated By:JJTree: Do not edit this line. ExprSet.java Version 6.1 */
+/* JavaCCOptions:MULTI=true,NODE_USES_PARSER=false,VISITOR=true,TRACK_TOKENS=true,NODE_PREFIX=Expr,NODE_EXTENDS=,NODE_FACTORY=,SUPPORT_CLASS_VISIBILITY_PUBLIC=true */
+package org.processmining.datapetrinets.expression.syntax;
+
+public final
+class ExprSet extends SimpleNode {
+
+  private LiteralSet values;
+
+  public ExprSet(int id) {
+    super(id);
+  }
+
+  public ExprSet(ExpressionParser p, int id) {
+    super(p, id);
+  }
+
+  /**
+   * @return the values of the literals in this set, which are collected on
+   *         first access
+   */
+  public LiteralSet getValues() {
+    if (values == null) {
+      values = LiteralSet.of(this);
+    }
+    return values;
+  }
+
+  public void jjtAddChild(Node n, int i) {
+    super.jjtAddChild(n, i);
+    values = null;
+  }
+
+
+  /** Accept the visitor. **/
+  public Object jjtAccept(ExpressionParserVisitor visitor, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException {
+
+    return
+    visitor.visit(this, data);
+  }
+}
+/* JavaCC - OriginalChecksum=dc9aed5b8dbefeadc5dfb15bafdde523 (do not edit this line) */
@@ -4,6 +4,9 @@ package org.processmining.datapetrinets.expression.syntax;
 
 public final
 class ExprVariable extends SimpleNode {
+
+  private Symbol symbol;
+
   public ExprVariable(int id) {
     super(id);
   }
@@ -12,6 +15,27 @@ class ExprVariable extends SimpleNode {
     super(p, id);
   }
 
+  /**
+   * @return the interned {@link Symbol} of this variable, nodes that were
+   *         created without the parser are resolved on first access
+   */
+  public Symbol getSymbol() {
+    if (symbol == null) {
+      symbol = SymbolTable.getGlobal().intern((String) value);
+    }
+    return symbol;
+  }
+
+  public void setSymbol(Symbol symbol) {
+    this.symbol = symbol;
+    this.value = symbol.getIdentifier();
+  }
+
+  public void jjtSetValue(Object value) {
+    this.symbol = null;
+    super.jjtSetValue(value);
+  }
+
 
   /** Accept the visitor. **/
   public Object jjtAccept(ExpressionParserVisitor visitor, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException {
@@ -2,14 +2,32 @@
 /* Generated By:JJTree&JavaCC: Do not edit this line. ExpressionParser.java */
 package org.processmining.datapetrinets.expression.syntax;
 
+import java.io.Reader;
 import java.io.StringReader;
 
+import com.google.common.collect.Interner;
+
 public class ExpressionParser/*@bgen(jjtree)*/implements ExpressionParserTreeConstants, ExpressionParserConstants {/*@bgen(jjtree)*/
   protected JJTExpressionParserState jjtree = new JJTExpressionParserState();
+    private Interner<String> interner;
+
     public ExpressionParser(String s) {
         this(new StringReader(s));
     }
 
+    /**
+     * Creates a parser that interns the images of literals and function names
+     * with the supplied {@link Interner}, which may be shared among parsers.
+     */
+    public ExpressionParser(Reader reader, Interner<String> interner) {
+        this(reader);
+        this.interner = interner;
+    }
+
+    private String intern(Token t) {
+        return interner != null ? interner.intern(t.image) : t.image;
+    }
+
   final public ExprRoot parse() throws ParseException {/*@bgen(jjtree) Root */
   ExprRoot jjtn000 = new ExprRoot(JJTROOT);
   boolean jjtc000 = true;
@@ -45,89 +63,89 @@ if (jjtc000) {
     throw new Error("Missing return statement in function");
   }
 
-  final public void orExpression() throws ParseException {
-    andExpression();
-    label_1:
-    while (true) {
-      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
-      case OR:{
-        ;
-        break;
+  final public void orExpression() throws ParseException {/*@bgen(jjtree) #Or(> 1) */
+  ExprOr jjtn000 = new ExprOr(JJTOR);
+  boolean jjtc000 = true;
+  jjtree.openNodeScope(jjtn000);
+  jjtn000.jjtSetFirstToken(getToken(1));
+    try {
+      andExpression();
+      label_1:
+      while (true) {
+        switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+        case OR:{
+          ;
+          break;
+          }
+        default:
+          jj_la1[0] = jj_gen;
+          break label_1;
         }
-      default:
-        jj_la1[0] = jj_gen;
-        break label_1;
-      }
-ExprOr jjtn001 = new ExprOr(JJTOR);
-                  boolean jjtc001 = true;
-                  jjtree.openNodeScope(jjtn001);
-                  jjtn001.jjtSetFirstToken(getToken(1));
-      try {
         jj_consume_token(OR);
         andExpression();
-      } catch (Throwable jjte001) {
-if (jjtc001) {
-                    jjtree.clearNodeScope(jjtn001);
-                    jjtc001 = false;
-                  } else {
-                    jjtree.popNode();
-                  }
-                  if (jjte001 instanceof RuntimeException) {
-                    {if (true) throw (RuntimeException)jjte001;}
-                  }
-                  if (jjte001 instanceof ParseException) {
-                    {if (true) throw (ParseException)jjte001;}
-                  }
-                  {if (true) throw (Error)jjte001;}
-      } finally {
-if (jjtc001) {
-                    jjtree.closeNodeScope(jjtn001,  2);
-                    jjtn001.jjtSetLastToken(getToken(0));
-                  }
       }
+    } catch (Throwable jjte000) {
+if (jjtc000) {
+            jjtree.clearNodeScope(jjtn000);
+            jjtc000 = false;
+          } else {
+            jjtree.popNode();
+          }
+          if (jjte000 instanceof RuntimeException) {
+            {if (true) throw (RuntimeException)jjte000;}
+          }
+          if (jjte000 instanceof ParseException) {
+            {if (true) throw (ParseException)jjte000;}
+          }
+          {if (true) throw (Error)jjte000;}
+    } finally {
+if (jjtc000) {
+            jjtree.closeNodeScope(jjtn000, jjtree.nodeArity() > 1);
+            jjtn000.jjtSetLastToken(getToken(0));
+          }
     }
   }
 
-  final public void andExpression() throws ParseException {
-    equalityExpression();
-    label_2:
-    while (true) {
-      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
-      case AND:{
-        ;
-        break;
+  final public void andExpression() throws ParseException {/*@bgen(jjtree) #And(> 1) */
+  ExprAnd jjtn000 = new ExprAnd(JJTAND);
+  boolean jjtc000 = true;
+  jjtree.openNodeScope(jjtn000);
+  jjtn000.jjtSetFirstToken(getToken(1));
+    try {
+      equalityExpression();
+      label_2:
+      while (true) {
+        switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+        case AND:{
+          ;
+          break;
+          }
+        default:
+          jj_la1[1] = jj_gen;
+          break label_2;
         }
-      default:
-        jj_la1[1] = jj_gen;
-        break label_2;
-      }
-ExprAnd jjtn001 = new ExprAnd(JJTAND);
-                  boolean jjtc001 = true;
-                  jjtree.openNodeScope(jjtn001);
-                  jjtn001.jjtSetFirstToken(getToken(1));
-      try {
         jj_consume_token(AND);
         equalityExpression();
-      } catch (Throwable jjte001) {
-if (jjtc001) {
-                    jjtree.clearNodeScope(jjtn001);
-                    jjtc001 = false;
-                  } else {
-                    jjtree.popNode();
-                  }
-                  if (jjte001 instanceof RuntimeException) {
-                    {if (true) throw (RuntimeException)jjte001;}
-                  }
-                  if (jjte001 instanceof ParseException) {
-                    {if (true) throw (ParseException)jjte001;}
-                  }
-                  {if (true) throw (Error)jjte001;}
-      } finally {
-if (jjtc001) {
-                    jjtree.closeNodeScope(jjtn001,  2);
-                    jjtn001.jjtSetLastToken(getToken(0));
-                  }
       }
+    } catch (Throwable jjte000) {
+if (jjtc000) {
+            jjtree.clearNodeScope(jjtn000);
+            jjtc000 = false;
+          } else {
+            jjtree.popNode();
+          }
+          if (jjte000 instanceof RuntimeException) {
+            {if (true) throw (RuntimeException)jjte000;}
+          }
+          if (jjte000 instanceof ParseException) {
+            {if (true) throw (ParseException)jjte000;}
+          }
+          {if (true) throw (Error)jjte000;}
+    } finally {
+if (jjtc000) {
+            jjtree.closeNodeScope(jjtn000, jjtree.nodeArity() > 1);
+            jjtn000.jjtSetLastToken(getToken(0));
+          }
     }
   }
 
@@ -222,7 +240,8 @@ if (jjtc002) {
       case GT:
       case LT:
       case LTE:
-      case GTE:{
+      case GTE:
+      case IN:{
         ;
         break;
         }
@@ -353,15 +372,199 @@ if (jjtc004) {
         }
       default:
         jj_la1[5] = jj_gen;
-        jj_consume_token(-1);
-        throw new ParseException();
+        if (jj_2_1(2)) {
+ExprIn jjtn005 = new ExprIn(JJTIN);
+                               boolean jjtc005 = true;
+                               jjtree.openNodeScope(jjtn005);
+                               jjtn005.jjtSetFirstToken(getToken(1));
+          try {
+            jj_consume_token(IN);
+            set();
+          } catch (Throwable jjte005) {
+if (jjtc005) {
+                                 jjtree.clearNodeScope(jjtn005);
+                                 jjtc005 = false;
+                               } else {
+                                 jjtree.popNode();
+                               }
+                               if (jjte005 instanceof RuntimeException) {
+                                 {if (true) throw (RuntimeException)jjte005;}
+                               }
+                               if (jjte005 instanceof ParseException) {
+                                 {if (true) throw (ParseException)jjte005;}
+                               }
+                               {if (true) throw (Error)jjte005;}
+          } finally {
+if (jjtc005) {
+                                 jjtree.closeNodeScope(jjtn005,  2);
+                                 jjtn005.jjtSetLastToken(getToken(0));
+                               }
+          }
+        } else {
+          jj_consume_token(-1);
+          throw new ParseException();
+        }
       }
     }
   }
 
+  final public void set() throws ParseException {/*@bgen(jjtree) Set */
+  ExprSet jjtn000 = new ExprSet(JJTSET);
+  boolean jjtc000 = true;
+  jjtree.openNodeScope(jjtn000);
+  jjtn000.jjtSetFirstToken(getToken(1));
+    try {
+      jj_consume_token(LBRACE);
+      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+      case MINUS:
+      case TRUE:
+      case FALSE:
+      case NULL:
+      case INTEGER_LITERAL:
+      case FLOATING_POINT_LITERAL:
+      case STRING_LITERAL:{
+        setElement();
+        label_5:
+        while (true) {
+          switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+          case COMMA:{
+            ;
+            break;
+            }
+          default:
+            jj_la1[6] = jj_gen;
+            break label_5;
+          }
+          jj_consume_token(COMMA);
+          setElement();
+        }
+        break;
+        }
+      default:
+        jj_la1[7] = jj_gen;
+        ;
+      }
+      jj_consume_token(RBRACE);
+    } catch (Throwable jjte000) {
+if (jjtc000) {
+            jjtree.clearNodeScope(jjtn000);
+            jjtc000 = false;
+          } else {
+            jjtree.popNode();
+          }
+          if (jjte000 instanceof RuntimeException) {
+            {if (true) throw (RuntimeException)jjte000;}
+          }
+          if (jjte000 instanceof ParseException) {
+            {if (true) throw (ParseException)jjte000;}
+          }
+          {if (true) throw (Error)jjte000;}
+    } finally {
+if (jjtc000) {
+            jjtree.closeNodeScope(jjtn000, true);
+            jjtn000.jjtSetLastToken(getToken(0));
+          }
+    }
+  }
+
+  final public void setElement() throws ParseException {
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case MINUS:{
+ExprNegation jjtn001 = new ExprNegation(JJTNEGATION);
+          boolean jjtc001 = true;
+          jjtree.openNodeScope(jjtn001);
+          jjtn001.jjtSetFirstToken(getToken(1));
+      try {
+        jj_consume_token(MINUS);
+        numericLiteral();
+      } catch (Throwable jjte001) {
+if (jjtc001) {
+            jjtree.clearNodeScope(jjtn001);
+            jjtc001 = false;
+          } else {
+            jjtree.popNode();
+          }
+          if (jjte001 instanceof RuntimeException) {
+            {if (true) throw (RuntimeException)jjte001;}
+          }
+          if (jjte001 instanceof ParseException) {
+            {if (true) throw (ParseException)jjte001;}
+          }
+          {if (true) throw (Error)jjte001;}
+      } finally {
+if (jjtc001) {
+            jjtree.closeNodeScope(jjtn001,  1);
+            jjtn001.jjtSetLastToken(getToken(0));
+          }
+      }
+      break;
+      }
+    case TRUE:
+    case FALSE:
+    case NULL:
+    case INTEGER_LITERAL:
+    case FLOATING_POINT_LITERAL:
+    case STRING_LITERAL:{
+      literal();
+      break;
+      }
+    default:
+      jj_la1[8] = jj_gen;
+      jj_consume_token(-1);
+      throw new ParseException();
+    }
+  }
+
+  final public void numericLiteral() throws ParseException {Token t;
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case INTEGER_LITERAL:{
+ExprLitInteger jjtn001 = new ExprLitInteger(JJTLITINTEGER);
+                  boolean jjtc001 = true;
+                  jjtree.openNodeScope(jjtn001);
+                  jjtn001.jjtSetFirstToken(getToken(1));
+      try {
+        t = jj_consume_token(INTEGER_LITERAL);
+jjtree.closeNodeScope(jjtn001, true);
+                                        jjtc001 = false;
+                                        jjtn001.jjtSetLastToken(getToken(0));
+jjtn001.value = intern(t);
+      } finally {
+if (jjtc001) {
+                    jjtree.closeNodeScope(jjtn001, true);
+                    jjtn001.jjtSetLastToken(getToken(0));
+                  }
+      }
+      break;
+      }
+    case FLOATING_POINT_LITERAL:{
+ExprLitDouble jjtn002 = new ExprLitDouble(JJTLITDOUBLE);
+                  boolean jjtc002 = true;
+                  jjtree.openNodeScope(jjtn002);
+                  jjtn002.jjtSetFirstToken(getToken(1));
+      try {
+        t = jj_consume_token(FLOATING_POINT_LITERAL);
+jjtree.closeNodeScope(jjtn002, true);
+                                               jjtc002 = false;
+                                               jjtn002.jjtSetLastToken(getToken(0));
+jjtn002.value = intern(t);
+      } finally {
+if (jjtc002) {
+                    jjtree.closeNodeScope(jjtn002, true);
+                    jjtn002.jjtSetLastToken(getToken(0));
+                  }
+      }
+      break;
+      }
+    default:
+      jj_la1[9] = jj_gen;
+      jj_consume_token(-1);
+      throw new ParseException();
+    }
+  }
+
   final public void additiveExpression() throws ParseException {
     multiplicativeExpression();
-    label_5:
+    label_6:
     while (true) {
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
       case MINUS:
@@ -370,8 +573,8 @@ if (jjtc004) {
         break;
         }
       default:
-        jj_la1[6] = jj_gen;
-        break label_5;
+        jj_la1[10] = jj_gen;
+        break label_6;
       }
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
       case PLUS:{
@@ -435,7 +638,7 @@ if (jjtc002) {
         break;
         }
       default:
-        jj_la1[7] = jj_gen;
+        jj_la1[11] = jj_gen;
         jj_consume_token(-1);
         throw new ParseException();
       }
@@ -444,7 +647,7 @@ if (jjtc002) {
 
   final public void multiplicativeExpression() throws ParseException {
     unaryExpression();
-    label_6:
+    label_7:
     while (true) {
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
       case MULT:
@@ -453,8 +656,8 @@ if (jjtc002) {
         break;
         }
       default:
-        jj_la1[8] = jj_gen;
-        break label_6;
+        jj_la1[12] = jj_gen;
+        break label_7;
       }
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
       case MULT:{
@@ -518,7 +721,7 @@ if (jjtc002) {
         break;
         }
       default:
-        jj_la1[9] = jj_gen;
+        jj_la1[13] = jj_gen;
         jj_consume_token(-1);
         throw new ParseException();
       }
@@ -587,6 +790,7 @@ if (jjtc002) {
       }
       break;
       }
+    case IN:
     case IDENTIFIER:{
       identifier();
       break;
@@ -607,44 +811,51 @@ if (jjtc002) {
       break;
       }
     default:
-      jj_la1[10] = jj_gen;
+      jj_la1[14] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
   }
 
   final public void identifier() throws ParseException {
-    if (jj_2_1(2)) {
+    if (jj_2_2(2)) {
       function();
     } else {
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+      case IN:
       case IDENTIFIER:{
         variable();
         break;
         }
       default:
-        jj_la1[11] = jj_gen;
+        jj_la1[15] = jj_gen;
         jj_consume_token(-1);
         throw new ParseException();
       }
     }
   }
 
-/*void base():
-{}
-{	
-  	literal()
-	|
-	(<LPAREN> orExpression() <RPAREN>)
-}*/
-  final public 
-void function() throws ParseException {/*@bgen(jjtree) Function */
-  ExprFunction jjtn000 = new ExprFunction(JJTFUNCTION);
-  boolean jjtc000 = true;
-  jjtree.openNodeScope(jjtn000);
-  jjtn000.jjtSetFirstToken(getToken(1));
+  final public void function() throws ParseException {/*@bgen(jjtree) Function */
+        ExprFunction jjtn000 = new ExprFunction(JJTFUNCTION);
+        boolean jjtc000 = true;
+        jjtree.openNodeScope(jjtn000);
+        jjtn000.jjtSetFirstToken(getToken(1));Token t;
     try {
-      jjtn000.value = jj_consume_token(IDENTIFIER).image;
+      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+      case IDENTIFIER:{
+        t = jj_consume_token(IDENTIFIER);
+        break;
+        }
+      case IN:{
+        t = jj_consume_token(IN);
+        break;
+        }
+      default:
+        jj_la1[16] = jj_gen;
+        jj_consume_token(-1);
+        throw new ParseException();
+      }
+jjtn000.value = intern(t);
       parameters();
     } catch (Throwable jjte000) {
 if (jjtc000) {
@@ -677,12 +888,13 @@ if (jjtc000) {
     case TRUE:
     case FALSE:
     case NULL:
+    case IN:
     case INTEGER_LITERAL:
     case FLOATING_POINT_LITERAL:
     case STRING_LITERAL:
     case IDENTIFIER:{
       unaryExpression();
-      label_7:
+      label_8:
       while (true) {
         switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
         case COMMA:{
@@ -690,8 +902,8 @@ if (jjtc000) {
           break;
           }
         default:
-          jj_la1[12] = jj_gen;
-          break label_7;
+          jj_la1[17] = jj_gen;
+          break label_8;
         }
         jj_consume_token(COMMA);
         unaryExpression();
@@ -699,7 +911,7 @@ if (jjtc000) {
       break;
       }
     default:
-      jj_la1[13] = jj_gen;
+      jj_la1[18] = jj_gen;
       ;
     }
     jj_consume_token(RPAREN);
@@ -711,24 +923,33 @@ if (jjtc000) {
         jjtree.openNodeScope(jjtn000);
         jjtn000.jjtSetFirstToken(getToken(1));Token a = null, b = null;
     try {
-      a = jj_consume_token(IDENTIFIER);
+      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+      case IDENTIFIER:{
+        a = jj_consume_token(IDENTIFIER);
+        break;
+        }
+      case IN:{
+        a = jj_consume_token(IN);
+        break;
+        }
+      default:
+        jj_la1[19] = jj_gen;
+        jj_consume_token(-1);
+        throw new ParseException();
+      }
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
       case PRIME:{
         b = jj_consume_token(PRIME);
         break;
         }
       default:
-        jj_la1[14] = jj_gen;
+        jj_la1[20] = jj_gen;
         ;
       }
 jjtree.closeNodeScope(jjtn000, true);
           jjtc000 = false;
           jjtn000.jjtSetLastToken(getToken(0));
-if (b != null) {
-                        jjtn000.value= a.image + b.image;
-                } else {
-                        jjtn000.value= a.image;
-                }
+jjtn000.setSymbol(SymbolTable.getGlobal().intern(a.image, b != null));
     } finally {
 if (jjtc000) {
             jjtree.closeNodeScope(jjtn000, true);
@@ -737,7 +958,7 @@ if (jjtc000) {
     }
   }
 
-  final public void literal() throws ParseException {
+  final public void literal() throws ParseException {Token t;
     switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
     case INTEGER_LITERAL:{
 ExprLitInteger jjtn001 = new ExprLitInteger(JJTLITINTEGER);
@@ -745,7 +966,11 @@ ExprLitInteger jjtn001 = new ExprLitInteger(JJTLITINTEGER);
                   jjtree.openNodeScope(jjtn001);
                   jjtn001.jjtSetFirstToken(getToken(1));
       try {
-        jjtn001.value = jj_consume_token(INTEGER_LITERAL).image;
+        t = jj_consume_token(INTEGER_LITERAL);
+jjtree.closeNodeScope(jjtn001, true);
+                                        jjtc001 = false;
+                                        jjtn001.jjtSetLastToken(getToken(0));
+jjtn001.value = intern(t);
       } finally {
 if (jjtc001) {
                     jjtree.closeNodeScope(jjtn001, true);
@@ -760,7 +985,11 @@ ExprLitDouble jjtn002 = new ExprLitDouble(JJTLITDOUBLE);
                   jjtree.openNodeScope(jjtn002);
                   jjtn002.jjtSetFirstToken(getToken(1));
       try {
-        jjtn002.value = jj_consume_token(FLOATING_POINT_LITERAL).image;
+        t = jj_consume_token(FLOATING_POINT_LITERAL);
+jjtree.closeNodeScope(jjtn002, true);
+                                               jjtc002 = false;
+                                               jjtn002.jjtSetLastToken(getToken(0));
+jjtn002.value = intern(t);
       } finally {
 if (jjtc002) {
                     jjtree.closeNodeScope(jjtn002, true);
@@ -775,7 +1004,11 @@ ExprLitString jjtn003 = new ExprLitString(JJTLITSTRING);
                   jjtree.openNodeScope(jjtn003);
                   jjtn003.jjtSetFirstToken(getToken(1));
       try {
-        jjtn003.value = jj_consume_token(STRING_LITERAL).image;
+        t = jj_consume_token(STRING_LITERAL);
+jjtree.closeNodeScope(jjtn003, true);
+                                       jjtc003 = false;
+                                       jjtn003.jjtSetLastToken(getToken(0));
+jjtn003.value = intern(t);
       } finally {
 if (jjtc003) {
                     jjtree.closeNodeScope(jjtn003, true);
@@ -790,7 +1023,11 @@ ExprLitBoolean jjtn004 = new ExprLitBoolean(JJTLITBOOLEAN);
                   jjtree.openNodeScope(jjtn004);
                   jjtn004.jjtSetFirstToken(getToken(1));
       try {
-        jjtn004.value = jj_consume_token(TRUE).image;
+        t = jj_consume_token(TRUE);
+jjtree.closeNodeScope(jjtn004, true);
+                             jjtc004 = false;
+                             jjtn004.jjtSetLastToken(getToken(0));
+jjtn004.value = intern(t);
       } finally {
 if (jjtc004) {
                     jjtree.closeNodeScope(jjtn004, true);
@@ -805,7 +1042,11 @@ ExprLitBoolean jjtn005 = new ExprLitBoolean(JJTLITBOOLEAN);
               jjtree.openNodeScope(jjtn005);
               jjtn005.jjtSetFirstToken(getToken(1));
       try {
-        jjtn005.value = jj_consume_token(FALSE).image;
+        t = jj_consume_token(FALSE);
+jjtree.closeNodeScope(jjtn005, true);
+                          jjtc005 = false;
+                          jjtn005.jjtSetLastToken(getToken(0));
+jjtn005.value = intern(t);
       } finally {
 if (jjtc005) {
                 jjtree.closeNodeScope(jjtn005, true);
@@ -830,7 +1071,7 @@ if (jjtc006) {
       break;
       }
     default:
-      jj_la1[15] = jj_gen;
+      jj_la1[21] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
@@ -844,22 +1085,48 @@ if (jjtc006) {
     finally { jj_save(0, xla); }
   }
 
-  private boolean jj_3R_8()
+  private boolean jj_2_2(int xla)
+ {
+    jj_la = xla; jj_lastpos = jj_scanpos = token;
+    try { return !jj_3_2(); }
+    catch(LookaheadSuccess ls) { return true; }
+    finally { jj_save(1, xla); }
+  }
+
+  private boolean jj_3R_10()
+ {
+    Token xsp;
+    xsp = jj_scanpos;
+    if (jj_scan_token(36)) {
+    jj_scanpos = xsp;
+    if (jj_scan_token(26)) return true;
+    }
+    if (jj_3R_11()) return true;
+    return false;
+  }
+
+  private boolean jj_3_2()
+ {
+    if (jj_3R_10()) return true;
+    return false;
+  }
+
+  private boolean jj_3_1()
  {
-    if (jj_scan_token(IDENTIFIER)) return true;
+    if (jj_scan_token(IN)) return true;
     if (jj_3R_9()) return true;
     return false;
   }
 
   private boolean jj_3R_9()
  {
-    if (jj_scan_token(LPAREN)) return true;
+    if (jj_scan_token(LBRACE)) return true;
     return false;
   }
 
-  private boolean jj_3_1()
+  private boolean jj_3R_11()
  {
-    if (jj_3R_8()) return true;
+    if (jj_scan_token(LPAREN)) return true;
     return false;
   }
 
@@ -874,7 +1141,7 @@ if (jjtc006) {
   private Token jj_scanpos, jj_lastpos;
   private int jj_la;
   private int jj_gen;
-  final private int[] jj_la1 = new int[16];
+  final private int[] jj_la1 = new int[22];
   static private int[] jj_la1_0;
   static private int[] jj_la1_1;
   static {
@@ -882,12 +1149,12 @@ if (jjtc006) {
       jj_la1_init_1();
    }
    private static void jj_la1_init_0() {
-      jj_la1_0 = new int[] {0x10000,0x8000,0x60000,0x60000,0x180300,0x180300,0xc00,0xc00,0x3000,0x3000,0x44e04440,0x0,0x1000000,0x44e04440,0x2000000,0x44e00000,};
+      jj_la1_0 = new int[] {0x10000,0x8000,0x60000,0x60000,0x4180300,0x180300,0x1000000,0x20e00400,0x20e00400,0x20000000,0xc00,0xc00,0x3000,0x3000,0x24e04440,0x4000000,0x4000000,0x1000000,0x24e04440,0x4000000,0x2000000,0x20e00000,};
    }
    private static void jj_la1_init_1() {
-      jj_la1_1 = new int[] {0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x3,0x2,0x0,0x3,0x0,0x1,};
+      jj_la1_1 = new int[] {0x0,0x0,0x0,0x0,0x0,0x0,0x0,0xa,0xa,0x2,0x0,0x0,0x0,0x0,0x1a,0x10,0x10,0x0,0x1a,0x10,0x0,0xa,};
    }
-  final private JJCalls[] jj_2_rtns = new JJCalls[1];
+  final private JJCalls[] jj_2_rtns = new JJCalls[2];
   private boolean jj_rescan = false;
   private int jj_gc = 0;
 
@@ -902,7 +1169,7 @@ if (jjtc006) {
     token = new Token();
     jj_ntk = -1;
     jj_gen = 0;
-    for (int i = 0; i < 16; i++) jj_la1[i] = -1;
+    for (int i = 0; i < 22; i++) jj_la1[i] = -1;
     for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -918,7 +1185,7 @@ if (jjtc006) {
     jj_ntk = -1;
     jjtree.reset();
     jj_gen = 0;
-    for (int i = 0; i < 16; i++) jj_la1[i] = -1;
+    for (int i = 0; i < 22; i++) jj_la1[i] = -1;
     for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -929,19 +1196,27 @@ if (jjtc006) {
     token = new Token();
     jj_ntk = -1;
     jj_gen = 0;
-    for (int i = 0; i < 16; i++) jj_la1[i] = -1;
+    for (int i = 0; i < 22; i++) jj_la1[i] = -1;
     for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
   /** Reinitialise. */
   public void ReInit(java.io.Reader stream) {
-    jj_input_stream.ReInit(stream, 1, 1);
+	if (jj_input_stream == null) {
+      jj_input_stream = new SimpleCharStream(stream, 1, 1);
+   } else {
+      jj_input_stream.ReInit(stream, 1, 1);
+   }
+   if (token_source == null) {
+      token_source = new ExpressionParserTokenManager(jj_input_stream);
+   }
+
     token_source.ReInit(jj_input_stream);
     token = new Token();
     jj_ntk = -1;
     jjtree.reset();
     jj_gen = 0;
-    for (int i = 0; i < 16; i++) jj_la1[i] = -1;
+    for (int i = 0; i < 22; i++) jj_la1[i] = -1;
     for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -951,7 +1226,7 @@ if (jjtc006) {
     token = new Token();
     jj_ntk = -1;
     jj_gen = 0;
-    for (int i = 0; i < 16; i++) jj_la1[i] = -1;
+    for (int i = 0; i < 22; i++) jj_la1[i] = -1;
     for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -962,7 +1237,7 @@ if (jjtc006) {
     jj_ntk = -1;
     jjtree.reset();
     jj_gen = 0;
-    for (int i = 0; i < 16; i++) jj_la1[i] = -1;
+    for (int i = 0; i < 22; i++) jj_la1[i] = -1;
     for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1048,39 +1323,52 @@ if (jjtc006) {
   private int jj_endpos;
 
   private void jj_add_error_token(int kind, int pos) {
-    if (pos >= 100) return;
+    if (pos >= 100) {
+       return;
+    }
+
     if (pos == jj_endpos + 1) {
       jj_lasttokens[jj_endpos++] = kind;
     } else if (jj_endpos != 0) {
       jj_expentry = new int[jj_endpos];
+
       for (int i = 0; i < jj_endpos; i++) {
         jj_expentry[i] = jj_lasttokens[i];
       }
-      jj_entries_loop: for (java.util.Iterator<?> it = jj_expentries.iterator(); it.hasNext();) {
-        int[] oldentry = (int[])(it.next());
+
+      for (int[] oldentry : jj_expentries) {
         if (oldentry.length == jj_expentry.length) {
+          boolean isMatched = true;
+
           for (int i = 0; i < jj_expentry.length; i++) {
             if (oldentry[i] != jj_expentry[i]) {
-              continue jj_entries_loop;
+              isMatched = false;
+              break;
             }
+
+          }
+          if (isMatched) {
+            jj_expentries.add(jj_expentry);
+            break;
           }
-          jj_expentries.add(jj_expentry);
-          break jj_entries_loop;
         }
       }
-      if (pos != 0) jj_lasttokens[(jj_endpos = pos) - 1] = kind;
+
+      if (pos != 0) {
+        jj_lasttokens[(jj_endpos = pos) - 1] = kind;
+      }
     }
   }
 
   /** Generate ParseException. */
   public ParseException generateParseException() {
     jj_expentries.clear();
-    boolean[] la1tokens = new boolean[38];
+    boolean[] la1tokens = new boolean[41];
     if (jj_kind >= 0) {
       la1tokens[jj_kind] = true;
       jj_kind = -1;
     }
-    for (int i = 0; i < 16; i++) {
+    for (int i = 0; i < 22; i++) {
       if (jj_la1[i] == jj_gen) {
         for (int j = 0; j < 32; j++) {
           if ((jj_la1_0[i] & (1<<j)) != 0) {
@@ -1092,7 +1380,7 @@ if (jjtc006) {
         }
       }
     }
-    for (int i = 0; i < 38; i++) {
+    for (int i = 0; i < 41; i++) {
       if (la1tokens[i]) {
         jj_expentry = new int[1];
         jj_expentry[0] = i;
@@ -1119,19 +1407,22 @@ if (jjtc006) {
 
   private void jj_rescan_token() {
     jj_rescan = true;
-    for (int i = 0; i < 1; i++) {
-    try {
-      JJCalls p = jj_2_rtns[i];
-      do {
-        if (p.gen > jj_gen) {
-          jj_la = p.arg; jj_lastpos = jj_scanpos = p.first;
-          switch (i) {
-            case 0: jj_3_1(); break;
+    for (int i = 0; i < 2; i++) {
+      try {
+        JJCalls p = jj_2_rtns[i];
+
+        do {
+          if (p.gen > jj_gen) {
+            jj_la = p.arg; jj_lastpos = jj_scanpos = p.first;
+            switch (i) {
+              case 0: jj_3_1(); break;
+              case 1: jj_3_2(); break;
+            }
           }
-        }
-        p = p.next;
-      } while (p != null);
-      } catch(LookaheadSuccess ls) { }
+          p = p.next;
+        } while (p != null);
+
+        } catch(LookaheadSuccess ls) { }
     }
     jj_rescan = false;
   }
@@ -1142,7 +1433,10 @@ if (jjtc006) {
       if (p.next == null) { p = p.next = new JJCalls(); break; }
       p = p.next;
     }
-    p.gen = jj_gen + xla - jj_la; p.first = token; p.arg = xla;
+
+    p.gen = jj_gen + xla - jj_la; 
+    p.first = token;
+    p.arg = xla;
   }
 
   static final class JJCalls {
@@ -51,29 +51,35 @@ public interface ExpressionParserConstants {
   /** RegularExpression Id. */
   int PRIME = 25;
   /** RegularExpression Id. */
-  int INTEGER_LITERAL = 26;
+  int IN = 26;
   /** RegularExpression Id. */
-  int DECIMAL_LITERAL = 27;
+  int LBRACE = 27;
   /** RegularExpression Id. */
-  int HEX_LITERAL = 28;
+  int RBRACE = 28;
   /** RegularExpression Id. */
-  int OCTAL_LITERAL = 29;
+  int INTEGER_LITERAL = 29;
   /** RegularExpression Id. */
-  int FLOATING_POINT_LITERAL = 30;
+  int DECIMAL_LITERAL = 30;
   /** RegularExpression Id. */
-  int EXPONENT = 31;
+  int HEX_LITERAL = 31;
   /** RegularExpression Id. */
-  int STRING_LITERAL = 32;
+  int OCTAL_LITERAL = 32;
   /** RegularExpression Id. */
-  int IDENTIFIER = 33;
+  int FLOATING_POINT_LITERAL = 33;
   /** RegularExpression Id. */
-  int LETTER = 34;
+  int EXPONENT = 34;
   /** RegularExpression Id. */
-  int DIGIT = 35;
+  int STRING_LITERAL = 35;
   /** RegularExpression Id. */
-  int SPECIALCHAR = 36;
+  int IDENTIFIER = 36;
   /** RegularExpression Id. */
-  int UNKNOWN = 37;
+  int LETTER = 37;
+  /** RegularExpression Id. */
+  int DIGIT = 38;
+  /** RegularExpression Id. */
+  int SPECIALCHAR = 39;
+  /** RegularExpression Id. */
+  int UNKNOWN = 40;
 
   /** Lexical state. */
   int DEFAULT = 0;
@@ -106,6 +112,9 @@ public interface ExpressionParserConstants {
     "\"null\"",
     "\",\"",
     "\"\\\'\"",
+    "\"in\"",
+    "\"{\"",
+    "\"}\"",
     "<INTEGER_LITERAL>",
     "<DECIMAL_LITERAL>",
     "<HEX_LITERAL>",
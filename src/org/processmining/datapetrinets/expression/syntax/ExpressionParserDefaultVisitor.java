@@ -1,4 +1,4 @@
-/* Generated By:JavaCC: Do not edit this line. ExpressionParserDefaultVisitor.java Version 6.0_1 */
+/* Generated By:JavaCC: Do not edit this line. ExpressionParserDefaultVisitor.java Version 6.1_2 */
 package org.processmining.datapetrinets.expression.syntax;
 
 public class ExpressionParserDefaultVisitor implements ExpressionParserVisitor{
@@ -36,6 +36,21 @@ public class ExpressionParserDefaultVisitor implements ExpressionParserVisitor{
   public Object visit(ExprAtLeast node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
     return defaultVisit(node, data);
   }
+  public Object visit(ExprIn node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
+    return defaultVisit(node, data);
+  }
+  public Object visit(ExprSet node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
+    return defaultVisit(node, data);
+  }
+  public Object visit(ExprNegation node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
+    return defaultVisit(node, data);
+  }
+  public Object visit(ExprLitInteger node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
+    return defaultVisit(node, data);
+  }
+  public Object visit(ExprLitDouble node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
+    return defaultVisit(node, data);
+  }
   public Object visit(ExprPlus node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
     return defaultVisit(node, data);
   }
@@ -48,9 +63,6 @@ public class ExpressionParserDefaultVisitor implements ExpressionParserVisitor{
   public Object visit(ExprDiv node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
     return defaultVisit(node, data);
   }
-  public Object visit(ExprNegation node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
-    return defaultVisit(node, data);
-  }
   public Object visit(ExprNot node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
     return defaultVisit(node, data);
   }
@@ -60,12 +72,6 @@ public class ExpressionParserDefaultVisitor implements ExpressionParserVisitor{
   public Object visit(ExprVariable node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
     return defaultVisit(node, data);
   }
-  public Object visit(ExprLitInteger node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
-    return defaultVisit(node, data);
-  }
-  public Object visit(ExprLitDouble node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
-    return defaultVisit(node, data);
-  }
   public Object visit(ExprLitString node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException{
     return defaultVisit(node, data);
   }
@@ -76,4 +82,4 @@ public class ExpressionParserDefaultVisitor implements ExpressionParserVisitor{
     return defaultVisit(node, data);
   }
 }
-/* JavaCC - OriginalChecksum=8e5325878896aba5707ee3885f536329 (do not edit this line) */
+/* JavaCC - OriginalChecksum=93bc7bceb4d5f8bae61ef38fe2770bcd (do not edit this line) */
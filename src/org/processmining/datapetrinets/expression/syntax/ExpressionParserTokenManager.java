@@ -1,7 +1,9 @@
 /* ExpressionParserTokenManager.java */
 /* Generated By:JJTree&JavaCC: Do not edit this line. ExpressionParserTokenManager.java */
 package org.processmining.datapetrinets.expression.syntax;
+import java.io.Reader;
 import java.io.StringReader;
+import com.google.common.collect.Interner;
 
 /** Token Manager. */
 @SuppressWarnings("unused")public class ExpressionParserTokenManager implements ExpressionParserConstants {
@@ -73,18 +75,28 @@ private int jjMoveStringLiteralDfa0_0(){
          return jjMoveStringLiteralDfa1_0(0x100000L);
       case 70:
          return jjMoveStringLiteralDfa1_0(0x400000L);
+      case 73:
+         return jjMoveStringLiteralDfa1_0(0x4000000L);
       case 78:
          return jjMoveStringLiteralDfa1_0(0x800000L);
       case 84:
          return jjMoveStringLiteralDfa1_0(0x200000L);
       case 102:
          return jjMoveStringLiteralDfa1_0(0x400000L);
+      case 105:
+         return jjMoveStringLiteralDfa1_0(0x4000000L);
       case 110:
          return jjMoveStringLiteralDfa1_0(0x800000L);
       case 116:
          return jjMoveStringLiteralDfa1_0(0x200000L);
+      case 123:
+         jjmatchedKind = 27;
+         return jjMoveNfa_0(0, 0);
       case 124:
          return jjMoveStringLiteralDfa1_0(0x10000L);
+      case 125:
+         jjmatchedKind = 28;
+         return jjMoveNfa_0(0, 0);
       default :
          return jjMoveNfa_0(0, 0);
    }
@@ -127,12 +139,26 @@ private int jjMoveStringLiteralDfa1_0(long active0){
          break;
       case 65:
          return jjMoveStringLiteralDfa2_0(active0, 0x400000L);
+      case 78:
+         if ((active0 & 0x4000000L) != 0L)
+         {
+            jjmatchedKind = 26;
+            jjmatchedPos = 1;
+         }
+         break;
       case 82:
          return jjMoveStringLiteralDfa2_0(active0, 0x200000L);
       case 85:
          return jjMoveStringLiteralDfa2_0(active0, 0x800000L);
       case 97:
          return jjMoveStringLiteralDfa2_0(active0, 0x400000L);
+      case 110:
+         if ((active0 & 0x4000000L) != 0L)
+         {
+            jjmatchedKind = 26;
+            jjmatchedPos = 1;
+         }
+         break;
       case 114:
          return jjMoveStringLiteralDfa2_0(active0, 0x200000L);
       case 117:
@@ -296,8 +322,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                      { jjCheckNAddStates(0, 6); }
                   else if (curChar == 36)
                   {
-                     if (kind > 33)
-                        kind = 33;
+                     if (kind > 36)
+                        kind = 36;
                      { jjCheckNAdd(19); }
                   }
                   else if (curChar == 34)
@@ -306,22 +332,22 @@ private int jjMoveNfa_0(int startState, int curPos)
                      { jjCheckNAdd(4); }
                   if ((0x3fe000000000000L & l) != 0L)
                   {
-                     if (kind > 26)
-                        kind = 26;
+                     if (kind > 29)
+                        kind = 29;
                      { jjCheckNAddTwoStates(1, 2); }
                   }
                   else if (curChar == 48)
                   {
-                     if (kind > 26)
-                        kind = 26;
+                     if (kind > 29)
+                        kind = 29;
                      { jjCheckNAddStates(10, 12); }
                   }
                   break;
                case 1:
                   if ((0x3ff000000000000L & l) == 0L)
                      break;
-                  if (kind > 26)
-                     kind = 26;
+                  if (kind > 29)
+                     kind = 29;
                   { jjCheckNAddTwoStates(1, 2); }
                   break;
                case 3:
@@ -331,8 +357,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 4:
                   if ((0x3ff000000000000L & l) == 0L)
                      break;
-                  if (kind > 30)
-                     kind = 30;
+                  if (kind > 33)
+                     kind = 33;
                   { jjCheckNAddStates(13, 15); }
                   break;
                case 6:
@@ -342,8 +368,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 7:
                   if ((0x3ff000000000000L & l) == 0L)
                      break;
-                  if (kind > 30)
-                     kind = 30;
+                  if (kind > 33)
+                     kind = 33;
                   { jjCheckNAddTwoStates(7, 8); }
                   break;
                case 9:
@@ -359,8 +385,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                      { jjCheckNAddStates(7, 9); }
                   break;
                case 13:
-                  if (curChar == 34 && kind > 32)
-                     kind = 32;
+                  if (curChar == 34 && kind > 35)
+                     kind = 35;
                   break;
                case 14:
                   if ((0xff000000000000L & l) != 0L)
@@ -381,15 +407,15 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 18:
                   if (curChar != 36)
                      break;
-                  if (kind > 33)
-                     kind = 33;
+                  if (kind > 36)
+                     kind = 36;
                   { jjCheckNAdd(19); }
                   break;
                case 19:
                   if ((0x7ff001800000000L & l) == 0L)
                      break;
-                  if (kind > 33)
-                     kind = 33;
+                  if (kind > 36)
+                     kind = 36;
                   { jjCheckNAdd(19); }
                   break;
                case 20:
@@ -403,15 +429,15 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 22:
                   if (curChar != 46)
                      break;
-                  if (kind > 30)
-                     kind = 30;
+                  if (kind > 33)
+                     kind = 33;
                   { jjCheckNAddStates(20, 22); }
                   break;
                case 23:
                   if ((0x3ff000000000000L & l) == 0L)
                      break;
-                  if (kind > 30)
-                     kind = 30;
+                  if (kind > 33)
+                     kind = 33;
                   { jjCheckNAddStates(20, 22); }
                   break;
                case 25:
@@ -421,8 +447,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 26:
                   if ((0x3ff000000000000L & l) == 0L)
                      break;
-                  if (kind > 30)
-                     kind = 30;
+                  if (kind > 33)
+                     kind = 33;
                   { jjCheckNAddTwoStates(26, 8); }
                   break;
                case 27:
@@ -436,8 +462,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 30:
                   if ((0x3ff000000000000L & l) == 0L)
                      break;
-                  if (kind > 30)
-                     kind = 30;
+                  if (kind > 33)
+                     kind = 33;
                   { jjCheckNAddTwoStates(30, 8); }
                   break;
                case 31:
@@ -455,22 +481,22 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 35:
                   if (curChar != 48)
                      break;
-                  if (kind > 26)
-                     kind = 26;
+                  if (kind > 29)
+                     kind = 29;
                   { jjCheckNAddStates(10, 12); }
                   break;
                case 37:
                   if ((0x3ff000000000000L & l) == 0L)
                      break;
-                  if (kind > 26)
-                     kind = 26;
+                  if (kind > 29)
+                     kind = 29;
                   { jjCheckNAddTwoStates(37, 2); }
                   break;
                case 38:
                   if ((0xff000000000000L & l) == 0L)
                      break;
-                  if (kind > 26)
-                     kind = 26;
+                  if (kind > 29)
+                     kind = 29;
                   { jjCheckNAddTwoStates(38, 2); }
                   break;
                default : break;
@@ -487,21 +513,21 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 0:
                   if ((0x7fffffe87fffffeL & l) == 0L)
                      break;
-                  if (kind > 33)
-                     kind = 33;
+                  if (kind > 36)
+                     kind = 36;
                   { jjCheckNAdd(19); }
                   break;
                case 2:
-                  if ((0x100000001000L & l) != 0L && kind > 26)
-                     kind = 26;
+                  if ((0x100000001000L & l) != 0L && kind > 29)
+                     kind = 29;
                   break;
                case 5:
                   if ((0x2000000020L & l) != 0L)
                      { jjAddStates(26, 27); }
                   break;
                case 8:
-                  if ((0x5000000050L & l) != 0L && kind > 30)
-                     kind = 30;
+                  if ((0x5000000050L & l) != 0L && kind > 33)
+                     kind = 33;
                   break;
                case 10:
                   if ((0xffffffffefffffffL & l) != 0L)
@@ -518,8 +544,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 19:
                   if ((0x7fffffe87ffffffL & l) == 0L)
                      break;
-                  if (kind > 33)
-                     kind = 33;
+                  if (kind > 36)
+                     kind = 36;
                   { jjCheckNAdd(19); }
                   break;
                case 24:
@@ -541,8 +567,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 37:
                   if ((0x7e0000007eL & l) == 0L)
                      break;
-                  if (kind > 26)
-                     kind = 26;
+                  if (kind > 29)
+                     kind = 29;
                   { jjCheckNAddTwoStates(37, 2); }
                   break;
                default : break;
@@ -564,8 +590,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 19:
                   if (!jjCanMove_1(hiByte, i1, i2, l1, l2))
                      break;
-                  if (kind > 33)
-                     kind = 33;
+                  if (kind > 36)
+                     kind = 36;
                   { jjCheckNAdd(19); }
                   break;
                case 10:
@@ -648,8 +674,8 @@ private static final boolean jjCanMove_1(int hiByte, int i1, int i2, long l1, lo
 public static final String[] jjstrLiteralImages = {
 "", null, null, null, null, null, "\50", "\51", "\76", "\74", "\55", "\53", 
 "\52", "\57", "\41", "\46\46", "\174\174", "\75\75", "\41\75", "\74\75", "\76\75", 
-null, null, null, "\54", "\47", null, null, null, null, null, null, null, null, null, 
-null, null, null, };
+null, null, null, "\54", "\47", null, "\173", "\175", null, null, null, null, null, 
+null, null, null, null, null, null, null, };
 protected Token jjFillToken()
 {
    final Token t;
@@ -694,7 +720,7 @@ public Token getNextToken()
    {
       curChar = input_stream.BeginToken();
    }
-   catch(java.io.IOException e)
+   catch(Exception e)
    {
       jjmatchedKind = 0;
       jjmatchedPos = -1;
@@ -705,9 +731,9 @@ public Token getNextToken()
    jjmatchedKind = 0x7fffffff;
    jjmatchedPos = 0;
    curPos = jjMoveStringLiteralDfa0_0();
-   if (jjmatchedPos == 0 && jjmatchedKind > 37)
+   if (jjmatchedPos == 0 && jjmatchedKind > 40)
    {
-      jjmatchedKind = 37;
+      jjmatchedKind = 40;
    }
    if (jjmatchedKind != 0x7fffffff)
    {
@@ -791,6 +817,7 @@ private void jjCheckNAddStates(int start, int end)
   /** Reinitialise parser. */
   public void ReInit(SimpleCharStream stream)
   {
+	
     jjmatchedPos = jjnewStateCnt = 0;
     curLexState = defaultLexState;
     input_stream = stream;
@@ -806,9 +833,10 @@ private void jjCheckNAddStates(int start, int end)
   }
 
   /** Reinitialise parser. */
-  public void ReInit(SimpleCharStream stream, int lexState)
+  public void ReInit( SimpleCharStream stream, int lexState)
   {
-    ReInit(stream);
+  
+    ReInit( stream);
     SwitchTo(lexState);
   }
 
@@ -826,7 +854,7 @@ public static final String[] lexStateNames = {
    "DEFAULT",
 };
 static final long[] jjtoToken = {
-   0x2347ffffc1L, 
+   0x11a3fffffc1L, 
 };
 static final long[] jjtoSkip = {
    0x3eL, 
@@ -837,5 +865,5 @@ static final long[] jjtoSkip = {
     private final int[] jjstateSet = new int[2 * 39];
 
     
-    protected char curChar;
+    protected int curChar;
 }
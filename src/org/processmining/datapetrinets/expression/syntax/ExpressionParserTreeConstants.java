@@ -1,57 +1,61 @@
-/* Generated By:JavaCC: Do not edit this line. ExpressionParserTreeConstants.java Version 6.0_1 */
+/* Generated By:JavaCC: Do not edit this line. ExpressionParserTreeConstants.java Version 6.1_2 */
 package org.processmining.datapetrinets.expression.syntax;
 
 public interface ExpressionParserTreeConstants
 {
   public int JJTROOT = 0;
-  public int JJTVOID = 1;
-  public int JJTOR = 2;
-  public int JJTAND = 3;
+  public int JJTOR = 1;
+  public int JJTAND = 2;
+  public int JJTVOID = 3;
   public int JJTEQUAL = 4;
   public int JJTNOTEQUAL = 5;
   public int JJTLESSTHAN = 6;
   public int JJTATMOST = 7;
   public int JJTGREATERTHAN = 8;
   public int JJTATLEAST = 9;
-  public int JJTPLUS = 10;
-  public int JJTMINUS = 11;
-  public int JJTMULT = 12;
-  public int JJTDIV = 13;
-  public int JJTNEGATION = 14;
-  public int JJTNOT = 15;
-  public int JJTFUNCTION = 16;
-  public int JJTVARIABLE = 17;
-  public int JJTLITINTEGER = 18;
-  public int JJTLITDOUBLE = 19;
-  public int JJTLITSTRING = 20;
-  public int JJTLITBOOLEAN = 21;
-  public int JJTLITNULL = 22;
+  public int JJTIN = 10;
+  public int JJTSET = 11;
+  public int JJTNEGATION = 12;
+  public int JJTLITINTEGER = 13;
+  public int JJTLITDOUBLE = 14;
+  public int JJTPLUS = 15;
+  public int JJTMINUS = 16;
+  public int JJTMULT = 17;
+  public int JJTDIV = 18;
+  public int JJTNOT = 19;
+  public int JJTFUNCTION = 20;
+  public int JJTVARIABLE = 21;
+  public int JJTLITSTRING = 22;
+  public int JJTLITBOOLEAN = 23;
+  public int JJTLITNULL = 24;
 
 
   public String[] jjtNodeName = {
     "Root",
-    "void",
     "Or",
     "And",
+    "void",
     "Equal",
     "NotEqual",
     "LessThan",
     "AtMost",
     "GreaterThan",
     "AtLeast",
+    "In",
+    "Set",
+    "Negation",
+    "LitInteger",
+    "LitDouble",
     "Plus",
     "Minus",
     "Mult",
     "Div",
-    "Negation",
     "Not",
     "Function",
     "Variable",
-    "LitInteger",
-    "LitDouble",
     "LitString",
     "LitBoolean",
     "LitNull",
   };
 }
-/* JavaCC - OriginalChecksum=2b912062aa19351843edc0d92fe631bf (do not edit this line) */
+/* JavaCC - OriginalChecksum=4da9cf566102b69838328dc4de4c8a1c (do not edit this line) */
@@ -1,4 +1,4 @@
-/* Generated By:JavaCC: Do not edit this line. ExpressionParserVisitor.java Version 6.0_1 */
+/* Generated By:JavaCC: Do not edit this line. ExpressionParserVisitor.java Version 6.1_2 */
 package org.processmining.datapetrinets.expression.syntax;
 
 public interface ExpressionParserVisitor
@@ -13,18 +13,20 @@ public interface ExpressionParserVisitor
   public Object visit(ExprAtMost node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
   public Object visit(ExprGreaterThan node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
   public Object visit(ExprAtLeast node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+  public Object visit(ExprIn node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+  public Object visit(ExprSet node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+  public Object visit(ExprNegation node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+  public Object visit(ExprLitInteger node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+  public Object visit(ExprLitDouble node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
   public Object visit(ExprPlus node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
   public Object visit(ExprMinus node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
   public Object visit(ExprMult node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
   public Object visit(ExprDiv node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
-  public Object visit(ExprNegation node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
   public Object visit(ExprNot node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
   public Object visit(ExprFunction node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
   public Object visit(ExprVariable node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
-  public Object visit(ExprLitInteger node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
-  public Object visit(ExprLitDouble node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
   public Object visit(ExprLitString node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
   public Object visit(ExprLitBoolean node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
   public Object visit(ExprLitNull node, Object data) throws org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
 }
-/* JavaCC - OriginalChecksum=aa9f989e394ad2968b0ce4d59fd4aef1 (do not edit this line) */
+/* JavaCC - OriginalChecksum=dde376ba3ee7309b584302dabd7756cc (do not edit this line) */
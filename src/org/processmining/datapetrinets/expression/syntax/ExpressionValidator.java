@@ -0,0 +1,576 @@
+package org.processmining.datapetrinets.expression.syntax;
+
+/**
+ * Recognizer for the grammar defined in 'expression.jjt' that neither builds
+ * a tree nor throws exceptions. It is meant for validating large numbers of
+ * possibly invalid expressions, the cost of rejecting an invalid expression is
+ * roughly the cost of lexing it. The lexical rules and the reported expected
+ * tokens mirror the generated {@link ExpressionParser}.
+ * <p>
+ * Instances are not thread-safe, but can be reused for many inputs.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class ExpressionValidator implements ExpressionParserConstants {
+
+	private static final long FIRST_UNARY = bit(MINUS) | bit(NOT) | bit(IDENTIFIER) | bit(IN) | bit(INTEGER_LITERAL)
+			| bit(FLOATING_POINT_LITERAL) | bit(STRING_LITERAL) | bit(TRUE) | bit(FALSE) | bit(NULL) | bit(LPAREN);
+
+	private static final long FIRST_SET_ELEMENT = bit(MINUS) | bit(INTEGER_LITERAL) | bit(FLOATING_POINT_LITERAL)
+			| bit(STRING_LITERAL) | bit(TRUE) | bit(FALSE) | bit(NULL);
+
+	private static long bit(int kind) {
+		return 1L << kind;
+	}
+
+	/**
+	 * @param input
+	 * @return whether the input is a syntactically valid expression
+	 */
+	public static boolean isValid(CharSequence input) {
+		return new ExpressionValidator().validate(input);
+	}
+
+	private CharSequence input;
+
+	// current token
+	private int kind;
+	private int start;
+	private int end;
+
+	private long expected;
+
+	private int errorOffset;
+	private int errorKind;
+	private long errorExpected;
+
+	public ExpressionValidator() {
+		super();
+	}
+
+	/**
+	 * Validates the input. In case of an error, the offending token and the
+	 * expected tokens can be queried afterwards.
+	 *
+	 * @param input
+	 * @return whether the input is a syntactically valid expression
+	 */
+	public boolean validate(CharSequence input) {
+		this.input = input;
+		this.errorOffset = -1;
+		this.errorKind = -1;
+		this.errorExpected = 0;
+		this.expected = 0;
+		this.end = 0;
+		nextToken();
+		try {
+			return orExpression() && expect(EOF);
+		} finally {
+			this.input = null;
+		}
+	}
+
+	/**
+	 * @return the offset of the first character of the offending token, or -1
+	 *         if the last input was valid
+	 */
+	public int getErrorOffset() {
+		return errorOffset;
+	}
+
+	/**
+	 * @return the kind of the offending token as defined in
+	 *         {@link ExpressionParserConstants}, or -1 if the last input was
+	 *         valid
+	 */
+	public int getErrorTokenKind() {
+		return errorKind;
+	}
+
+	/**
+	 * @return bit mask of the token kinds, as defined in
+	 *         {@link ExpressionParserConstants}, that would have been valid at
+	 *         the error offset
+	 */
+	public long getExpectedTokenKinds() {
+		return errorExpected;
+	}
+
+	// Grammar
+
+	private boolean orExpression() {
+		if (!andExpression()) {
+			return false;
+		}
+		while (accept(OR)) {
+			if (!andExpression()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean andExpression() {
+		if (!equalityExpression()) {
+			return false;
+		}
+		while (accept(AND)) {
+			if (!equalityExpression()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean equalityExpression() {
+		if (!relationalExpression()) {
+			return false;
+		}
+		while (accept(EQUAL) || accept(NOTEQUAL)) {
+			if (!relationalExpression()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean relationalExpression() {
+		if (!additiveExpression()) {
+			return false;
+		}
+		while (true) {
+			if (accept(LT) || accept(LTE) || accept(GT) || accept(GTE)) {
+				if (!additiveExpression()) {
+					return false;
+				}
+			} else if (kind == IN && peekKind() == LBRACE) {
+				// Only an operator if a set follows, otherwise an identifier
+				consume();
+				if (!set()) {
+					return false;
+				}
+			} else {
+				expected |= bit(IN);
+				return true;
+			}
+		}
+	}
+
+	private boolean set() {
+		if (!expect(LBRACE)) {
+			return false;
+		}
+		if ((bit(kind) & FIRST_SET_ELEMENT) != 0) {
+			if (!setElement()) {
+				return false;
+			}
+			while (accept(COMMA)) {
+				if (!setElement()) {
+					return false;
+				}
+			}
+		} else {
+			expected |= FIRST_SET_ELEMENT;
+		}
+		return expect(RBRACE);
+	}
+
+	private boolean setElement() {
+		switch (kind) {
+			case MINUS :
+				consume();
+				if (kind == INTEGER_LITERAL || kind == FLOATING_POINT_LITERAL) {
+					consume();
+					return true;
+				}
+				expected |= bit(INTEGER_LITERAL) | bit(FLOATING_POINT_LITERAL);
+				return error();
+			case INTEGER_LITERAL :
+			case FLOATING_POINT_LITERAL :
+			case STRING_LITERAL :
+			case TRUE :
+			case FALSE :
+			case NULL :
+				consume();
+				return true;
+			default :
+				expected |= FIRST_SET_ELEMENT;
+				return error();
+		}
+	}
+
+	private boolean additiveExpression() {
+		if (!multiplicativeExpression()) {
+			return false;
+		}
+		while (accept(PLUS) || accept(MINUS)) {
+			if (!multiplicativeExpression()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean multiplicativeExpression() {
+		if (!unaryExpression()) {
+			return false;
+		}
+		while (accept(MULT) || accept(DIV)) {
+			if (!unaryExpression()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean unaryExpression() {
+		switch (kind) {
+			case MINUS :
+			case NOT :
+				consume();
+				return unaryExpression();
+			case IDENTIFIER :
+			case IN :
+				if (peekKind() == LPAREN) {
+					consume();
+					return parameters();
+				} else {
+					consume();
+					accept(PRIME);
+					return true;
+				}
+			case INTEGER_LITERAL :
+			case FLOATING_POINT_LITERAL :
+			case STRING_LITERAL :
+			case TRUE :
+			case FALSE :
+			case NULL :
+				consume();
+				return true;
+			case LPAREN :
+				consume();
+				return orExpression() && expect(RPAREN);
+			default :
+				expected |= FIRST_UNARY;
+				return error();
+		}
+	}
+
+	private boolean parameters() {
+		if (!expect(LPAREN)) {
+			return false;
+		}
+		if ((bit(kind) & FIRST_UNARY) != 0) {
+			if (!unaryExpression()) {
+				return false;
+			}
+			while (accept(COMMA)) {
+				if (!unaryExpression()) {
+					return false;
+				}
+			}
+		} else {
+			expected |= FIRST_UNARY;
+		}
+		return expect(RPAREN);
+	}
+
+	private boolean accept(int tokenKind) {
+		if (kind == tokenKind) {
+			consume();
+			return true;
+		}
+		expected |= bit(tokenKind);
+		return false;
+	}
+
+	private boolean expect(int tokenKind) {
+		if (kind == tokenKind) {
+			if (tokenKind != EOF) {
+				consume();
+			}
+			return true;
+		}
+		expected |= bit(tokenKind);
+		return error();
+	}
+
+	private boolean error() {
+		errorOffset = start;
+		errorKind = kind;
+		errorExpected = expected;
+		return false;
+	}
+
+	private void consume() {
+		expected = 0;
+		nextToken();
+	}
+
+	// Lexer
+
+	private void nextToken() {
+		int pos = skipWhitespace(end);
+		start = pos;
+		kind = scan(pos);
+		end = scanEnd;
+	}
+
+	private int peekKind() {
+		int savedEnd = scanEnd;
+		int peekKind = scan(skipWhitespace(end));
+		scanEnd = savedEnd;
+		return peekKind;
+	}
+
+	private int skipWhitespace(int pos) {
+		while (pos < input.length()) {
+			char c = input.charAt(pos);
+			if (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\f') {
+				pos++;
+			} else {
+				break;
+			}
+		}
+		return pos;
+	}
+
+	private int scanEnd;
+
+	/**
+	 * Scans the longest token starting at pos and stores its end in
+	 * {@link #scanEnd}.
+	 */
+	private int scan(int pos) {
+		int length = input.length();
+		if (pos >= length) {
+			scanEnd = pos;
+			return EOF;
+		}
+		char c = input.charAt(pos);
+		char next = pos + 1 < length ? input.charAt(pos + 1) : 0;
+		scanEnd = pos + 1;
+		switch (c) {
+			case '(' :
+				return LPAREN;
+			case ')' :
+				return RPAREN;
+			case '-' :
+				return MINUS;
+			case '+' :
+				return PLUS;
+			case '*' :
+				return MULT;
+			case '/' :
+				return DIV;
+			case ',' :
+				return COMMA;
+			case '{' :
+				return LBRACE;
+			case '}' :
+				return RBRACE;
+			case '\'' :
+				return PRIME;
+			case '>' :
+				return next == '=' ? twoChars(GTE) : GT;
+			case '<' :
+				return next == '=' ? twoChars(LTE) : LT;
+			case '!' :
+				return next == '=' ? twoChars(NOTEQUAL) : NOT;
+			case '=' :
+				return next == '=' ? twoChars(EQUAL) : UNKNOWN;
+			case '&' :
+				return next == '&' ? twoChars(AND) : UNKNOWN;
+			case '|' :
+				return next == '|' ? twoChars(OR) : UNKNOWN;
+			case '"' :
+				return scanString(pos);
+			case '.' :
+				return scanNumber(pos);
+			default :
+				if (c >= '0' && c <= '9') {
+					return scanNumber(pos);
+				} else if (isLetter(c)) {
+					return scanIdentifier(pos);
+				} else {
+					return UNKNOWN;
+				}
+		}
+	}
+
+	private int twoChars(int tokenKind) {
+		scanEnd++;
+		return tokenKind;
+	}
+
+	private int scanString(int pos) {
+		int length = input.length();
+		int i = pos + 1;
+		while (i < length) {
+			char c = input.charAt(i);
+			if (c == '"') {
+				scanEnd = i + 1;
+				return STRING_LITERAL;
+			} else if (c == '\n' || c == '\r') {
+				break;
+			} else if (c == '\\') {
+				if (i + 1 >= length || "ntbrf\\'\"01234567".indexOf(input.charAt(i + 1)) == -1) {
+					break;
+				}
+				i += 2;
+			} else {
+				i++;
+			}
+		}
+		scanEnd = pos + 1;
+		return UNKNOWN;
+	}
+
+	private int scanIdentifier(int pos) {
+		int i = pos + 1;
+		while (i < input.length() && isIdentifierPart(input.charAt(i))) {
+			i++;
+		}
+		scanEnd = i;
+		int tokenLength = i - pos;
+		if (tokenLength == 4 && regionMatches(pos, "true")) {
+			return TRUE;
+		} else if (tokenLength == 5 && regionMatches(pos, "false")) {
+			return FALSE;
+		} else if (tokenLength == 4 && regionMatches(pos, "null")) {
+			return NULL;
+		} else if (tokenLength == 2 && regionMatches(pos, "in")) {
+			return IN;
+		}
+		return IDENTIFIER;
+	}
+
+	private boolean regionMatches(int pos, String keyword) {
+		for (int i = 0; i < keyword.length(); i++) {
+			if (Character.toLowerCase(input.charAt(pos + i)) != keyword.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int scanNumber(int pos) {
+		int integerEnd = -1;
+		char c = input.charAt(pos);
+		if (c >= '1' && c <= '9') {
+			integerEnd = longSuffix(digits(pos));
+		} else if (c == '0') {
+			if (pos + 1 < input.length() && (input.charAt(pos + 1) == 'x' || input.charAt(pos + 1) == 'X')
+					&& hexDigits(pos + 2) > pos + 2) {
+				integerEnd = longSuffix(hexDigits(pos + 2));
+			} else {
+				int i = pos + 1;
+				while (i < input.length() && input.charAt(i) >= '0' && input.charAt(i) <= '7') {
+					i++;
+				}
+				integerEnd = longSuffix(i);
+			}
+		}
+
+		int floatEnd = -1;
+		int digitsEnd = digits(pos);
+		if (digitsEnd < input.length() && input.charAt(digitsEnd) == '.') {
+			int fractionEnd = digits(digitsEnd + 1);
+			if (digitsEnd > pos || fractionEnd > digitsEnd + 1) {
+				int exponentEnd = exponent(fractionEnd);
+				floatEnd = floatSuffix(exponentEnd != -1 ? exponentEnd : fractionEnd);
+			}
+		} else if (digitsEnd > pos) {
+			int exponentEnd = exponent(digitsEnd);
+			if (exponentEnd != -1) {
+				floatEnd = floatSuffix(exponentEnd);
+			} else if (isFloatSuffix(digitsEnd)) {
+				floatEnd = digitsEnd + 1;
+			}
+		}
+
+		if (floatEnd > integerEnd) {
+			scanEnd = floatEnd;
+			return FLOATING_POINT_LITERAL;
+		} else if (integerEnd != -1) {
+			scanEnd = integerEnd;
+			return INTEGER_LITERAL;
+		} else {
+			scanEnd = pos + 1;
+			return UNKNOWN;
+		}
+	}
+
+	private int digits(int i) {
+		while (i < input.length() && input.charAt(i) >= '0' && input.charAt(i) <= '9') {
+			i++;
+		}
+		return i;
+	}
+
+	private int hexDigits(int i) {
+		while (i < input.length() && Character.digit(input.charAt(i), 16) != -1 && input.charAt(i) < 128) {
+			i++;
+		}
+		return i;
+	}
+
+	private int longSuffix(int i) {
+		if (i < input.length() && (input.charAt(i) == 'l' || input.charAt(i) == 'L')) {
+			return i + 1;
+		}
+		return i;
+	}
+
+	private int exponent(int i) {
+		if (i < input.length() && (input.charAt(i) == 'e' || input.charAt(i) == 'E')) {
+			int j = i + 1;
+			if (j < input.length() && (input.charAt(j) == '+' || input.charAt(j) == '-')) {
+				j++;
+			}
+			int digitsEnd = digits(j);
+			if (digitsEnd > j) {
+				return digitsEnd;
+			}
+		}
+		return -1;
+	}
+
+	private boolean isFloatSuffix(int i) {
+		if (i < input.length()) {
+			char c = input.charAt(i);
+			return c == 'f' || c == 'F' || c == 'd' || c == 'D';
+		}
+		return false;
+	}
+
+	private int floatSuffix(int i) {
+		return isFloatSuffix(i) ? i + 1 : i;
+	}
+
+	private static boolean isIdentifierPart(char c) {
+		return isLetter(c) || isDigit(c) || c == ':' || c == '#' || c == '@';
+	}
+
+	private static boolean isLetter(char c) {
+		return c == '$' || (c >= 'A' && c <= 'Z') || c == '_' || (c >= 'a' && c <= 'z')
+				|| (c >= '\u00c0' && c <= '\u00d6') || (c >= '\u00d8' && c <= '\u00f6')
+				|| (c >= '\u00f8' && c <= '\u00ff') || (c >= '\u0100' && c <= '\u1fff')
+				|| (c >= '\u3040' && c <= '\u318f') || (c >= '\u3300' && c <= '\u337f')
+				|| (c >= '\u3400' && c <= '\u3d2d') || (c >= '\u4e00' && c <= '\u9fff')
+				|| (c >= '\uf900' && c <= '\ufaff');
+	}
+
+	private static boolean isDigit(char c) {
+		return (c >= '0' && c <= '9') || (c >= '\u0660' && c <= '\u0669')
+				|| (c >= '\u06f0' && c <= '\u06f9') || (c >= '\u0966' && c <= '\u096f')
+				|| (c >= '\u09e6' && c <= '\u09ef') || (c >= '\u0a66' && c <= '\u0a6f')
+				|| (c >= '\u0ae6' && c <= '\u0aef') || (c >= '\u0b66' && c <= '\u0b6f')
+				|| (c >= '\u0be7' && c <= '\u0bef') || (c >= '\u0c66' && c <= '\u0c6f')
+				|| (c >= '\u0ce6' && c <= '\u0cef') || (c >= '\u0d66' && c <= '\u0d6f')
+				|| (c >= '\u0e50' && c <= '\u0e59') || (c >= '\u0ed0' && c <= '\u0ed9')
+				|| (c >= '\u1040' && c <= '\u1049');
+	}
+
+}
@@ -1,4 +1,4 @@
-/* Generated By:JavaCC: Do not edit this line. JJTExpressionParserState.java Version 6.0_1 */
+/* Generated By:JavaCC: Do not edit this line. JJTExpressionParserState.java Version 6.1_2 */
 package org.processmining.datapetrinets.expression.syntax;
 
 public class JJTExpressionParserState {
@@ -120,4 +120,4 @@ public class JJTExpressionParserState {
     }
   }
 }
-/* JavaCC - OriginalChecksum=872a028c364f84bfaf98e3e93f005a88 (do not edit this line) */
+/* JavaCC - OriginalChecksum=80afc0a7216c4227e9f67d426acdc115 (do not edit this line) */
@@ -0,0 +1,142 @@
+package org.processmining.datapetrinets.expression.syntax;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Values of the literals of an {@link ExprSet}. Strings are kept in a hash set
+ * and numbers in a sorted array, so that membership can be tested without
+ * comparing against every element.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class LiteralSet {
+
+	static LiteralSet of(ExprSet node) {
+		Set<String> strings = new HashSet<>();
+		double[] numbers = new double[node.jjtGetNumChildren()];
+		int numberCount = 0;
+		boolean containsTrue = false, containsFalse = false, containsNull = false;
+		for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+			Node child = node.jjtGetChild(i);
+			if (child instanceof ExprLitString) {
+				String literal = (String) ((ExprLitString) child).jjtGetValue();
+				strings.add(literal.substring(1, literal.length() - 1));
+			} else if (child instanceof ExprLitBoolean) {
+				if (Boolean.valueOf((String) ((ExprLitBoolean) child).jjtGetValue())) {
+					containsTrue = true;
+				} else {
+					containsFalse = true;
+				}
+			} else if (child instanceof ExprLitNull) {
+				containsNull = true;
+			} else {
+				numbers[numberCount++] = numberValue(child);
+			}
+		}
+		numbers = Arrays.copyOf(numbers, numberCount);
+		Arrays.sort(numbers);
+		return new LiteralSet(strings, numbers, containsTrue, containsFalse, containsNull);
+	}
+
+	/**
+	 * @param values
+	 *            strings, numbers, booleans or NULL
+	 * @return the set of the values
+	 */
+	public static LiteralSet of(Object... values) {
+		Set<String> strings = new HashSet<>();
+		double[] numbers = new double[values.length];
+		int numberCount = 0;
+		boolean containsTrue = false, containsFalse = false, containsNull = false;
+		for (Object value : values) {
+			if (value instanceof String) {
+				strings.add((String) value);
+			} else if (value instanceof Boolean) {
+				if ((Boolean) value) {
+					containsTrue = true;
+				} else {
+					containsFalse = true;
+				}
+			} else if (value == null) {
+				containsNull = true;
+			} else if (value instanceof Number) {
+				numbers[numberCount++] = ((Number) value).doubleValue();
+			} else {
+				throw new IllegalArgumentException("Unsupported set element " + value);
+			}
+		}
+		numbers = Arrays.copyOf(numbers, numberCount);
+		Arrays.sort(numbers);
+		return new LiteralSet(strings, numbers, containsTrue, containsFalse, containsNull);
+	}
+
+	private static double numberValue(Node node) {
+		if (node instanceof ExprNegation) {
+			return -numberValue(node.jjtGetChild(0));
+		} else if (node instanceof ExprLitInteger) {
+			return Long.parseLong((String) ((ExprLitInteger) node).jjtGetValue());
+		} else if (node instanceof ExprLitDouble) {
+			return Double.parseDouble((String) ((ExprLitDouble) node).jjtGetValue());
+		}
+		throw new IllegalArgumentException("Unsupported set element " + node);
+	}
+
+	private final Set<String> strings;
+	private final double[] numbers;
+	private final boolean containsTrue;
+	private final boolean containsFalse;
+	private final boolean containsNull;
+
+	private LiteralSet(Set<String> strings, double[] numbers, boolean containsTrue, boolean containsFalse,
+			boolean containsNull) {
+		this.strings = strings;
+		this.numbers = numbers;
+		this.containsTrue = containsTrue;
+		this.containsFalse = containsFalse;
+		this.containsNull = containsNull;
+	}
+
+	/**
+	 * @return the string literals without quotes
+	 */
+	public Set<String> getStrings() {
+		return strings;
+	}
+
+	public boolean containsString(String value) {
+		return strings.contains(value);
+	}
+
+	/**
+	 * @param value
+	 * @param tolerance
+	 * @return whether one of the numeric literals is within the tolerance of
+	 *         the value
+	 */
+	public boolean containsNumber(double value, double tolerance) {
+		int index = Arrays.binarySearch(numbers, value);
+		if (index >= 0) {
+			return true;
+		}
+		int insertionPoint = -index - 1;
+		// Only the direct neighbors can be closest to the value
+		return (insertionPoint > 0 && Math.abs(value - numbers[insertionPoint - 1]) <= tolerance)
+				|| (insertionPoint < numbers.length && Math.abs(numbers[insertionPoint] - value) <= tolerance);
+	}
+
+	public boolean hasNumbers() {
+		return numbers.length > 0;
+	}
+
+	public boolean containsBoolean(boolean value) {
+		return value ? containsTrue : containsFalse;
+	}
+
+	public boolean containsNull() {
+		return containsNull;
+	}
+
+}
@@ -42,6 +42,37 @@ class SimpleNode implements Node {
     children[i] = n;
   }
 
+  /**
+   * Replaces children of the same node type with their own children, so that
+   * a chain of an associative operation is represented by a single node.
+   */
+  protected final void flattenChildren() {
+    if (children == null) {
+      return;
+    }
+    int count = 0;
+    for (Node child : children) {
+      count += child.getClass() == getClass() ? child.jjtGetNumChildren() : 1;
+    }
+    if (count == children.length) {
+      return;
+    }
+    Node[] flattened = new Node[count];
+    int index = 0;
+    for (Node child : children) {
+      if (child.getClass() == getClass()) {
+        for (int i = 0; i < child.jjtGetNumChildren(); i++) {
+          Node grandChild = child.jjtGetChild(i);
+          grandChild.jjtSetParent(this);
+          flattened[index++] = grandChild;
+        }
+      } else {
+        flattened[index++] = child;
+      }
+    }
+    children = flattened;
+  }
+
   public final Node jjtGetChild(int i) {
     return children[i];
   }
@@ -0,0 +1,57 @@
+package org.processmining.datapetrinets.expression.syntax;
+
+/**
+ * Interned variable identifier. Symbols are obtained from a
+ * {@link SymbolTable} and can be compared by identity. The normal variable x
+ * and its prime version x' share the same id and only differ in their prime
+ * flag.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class Symbol {
+
+	private final int id;
+	private final String name;
+	private final String identifier;
+	private final boolean prime;
+
+	Symbol(int id, String name, boolean prime) {
+		this.id = id;
+		this.name = name;
+		this.prime = prime;
+		this.identifier = prime ? name + '\'' : name;
+	}
+
+	/**
+	 * @return the id that is stable for the lifetime of the
+	 *         {@link SymbolTable}, shared by the normal and the prime version
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * @return the variable name without the prime symbol
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the variable identifier as used in expressions, i.e., including
+	 *         the prime symbol for prime variables
+	 */
+	public String getIdentifier() {
+		return identifier;
+	}
+
+	public boolean isPrime() {
+		return prime;
+	}
+
+	public String toString() {
+		return identifier;
+	}
+
+}
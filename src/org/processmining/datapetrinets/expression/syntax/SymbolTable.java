@@ -0,0 +1,130 @@
+package org.processmining.datapetrinets.expression.syntax;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns variable identifiers into {@link Symbol} instances with a stable
+ * integer id. Lookups are lock-free, only the creation of new symbols is
+ * synchronized. The {@link ExpressionParser} resolves all variables against
+ * the global table.
+ *
+ * @author F. Mannhardt
+ *
+ */
+public final class SymbolTable {
+
+	private static final SymbolTable GLOBAL = new SymbolTable();
+
+	public static SymbolTable getGlobal() {
+		return GLOBAL;
+	}
+
+	private final ConcurrentMap<String, Symbol> symbolsByIdentifier = new ConcurrentHashMap<>();
+	private volatile Symbol[] normalSymbols = new Symbol[64];
+	private volatile Symbol[] primeSymbols = new Symbol[64];
+	private volatile int size = 0;
+
+	public SymbolTable() {
+		super();
+	}
+
+	/**
+	 * Returns the symbol for the variable identifier, which may end with the
+	 * prime symbol. The symbol is created if it does not exist yet.
+	 *
+	 * @param identifier
+	 * @return the interned symbol
+	 * @throws IllegalArgumentException
+	 *             if the identifier ends with more than one prime symbol
+	 */
+	public Symbol intern(String identifier) {
+		Symbol symbol = symbolsByIdentifier.get(identifier);
+		if (symbol != null) {
+			return symbol;
+		}
+		if (isPrimeIdentifier(identifier)) {
+			return intern(identifier.substring(0, identifier.length() - 1), true);
+		} else {
+			return intern(identifier, false);
+		}
+	}
+
+	/**
+	 * Returns the normal or prime symbol for the variable name. The symbol is
+	 * created if it does not exist yet.
+	 *
+	 * @param name
+	 *            variable name without the prime symbol
+	 * @param prime
+	 * @return the interned symbol
+	 * @throws IllegalArgumentException
+	 *             if the name ends with the prime symbol
+	 */
+	public Symbol intern(String name, boolean prime) {
+		if (isPrimeIdentifier(name)) {
+			// Would be confused with the prime version of the name without the prime symbol
+			throw new IllegalArgumentException("Variable name " + name + " must not end with the prime symbol!");
+		}
+		Symbol normal = symbolsByIdentifier.get(name);
+		if (normal == null) {
+			normal = createSymbol(name);
+		}
+		return prime ? primeSymbols[normal.getId()] : normal;
+	}
+
+	private synchronized Symbol createSymbol(String name) {
+		Symbol normal = symbolsByIdentifier.get(name);
+		if (normal != null) {
+			return normal;
+		}
+		int id = size;
+		if (id == normalSymbols.length) {
+			primeSymbols = Arrays.copyOf(primeSymbols, id * 2);
+			normalSymbols = Arrays.copyOf(normalSymbols, id * 2);
+		}
+		normal = new Symbol(id, name, false);
+		Symbol prime = new Symbol(id, name, true);
+		normalSymbols[id] = normal;
+		primeSymbols[id] = prime;
+		size = id + 1;
+		symbolsByIdentifier.put(prime.getIdentifier(), prime);
+		symbolsByIdentifier.put(name, normal);
+		return normal;
+	}
+
+	/**
+	 * @param identifier
+	 * @return the symbol for the identifier or NULL if it has never been
+	 *         interned
+	 */
+	public Symbol lookup(String identifier) {
+		return symbolsByIdentifier.get(identifier);
+	}
+
+	/**
+	 * @param id
+	 * @param prime
+	 * @return the symbol with the given id
+	 */
+	public Symbol get(int id, boolean prime) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("Unknown symbol id " + id);
+		}
+		return prime ? primeSymbols[id] : normalSymbols[id];
+	}
+
+	/**
+	 * @return the number of interned variable names, all ids are smaller than
+	 *         this number
+	 */
+	public int size() {
+		return size;
+	}
+
+	private static boolean isPrimeIdentifier(String identifier) {
+		return !identifier.isEmpty() && identifier.charAt(identifier.length() - 1) == '\'';
+	}
+
+}
@@ -43,6 +43,12 @@ public class TokenMgrError extends Error
    */
   int errorCode;
 
+  /**
+   * Line and column of the lexical error, -1 if unknown.
+   */
+  int errorLine = -1;
+  int errorColumn = -1;
+
   /**
    * Replaces unprintable characters by their escaped (or unicode escaped)
    * equivalents in the given string
@@ -104,14 +110,23 @@ public class TokenMgrError extends Error
    *    curchar     : the offending character
    * Note: You can customize the lexical error message by modifying this method.
    */
-  protected static String LexicalError(boolean EOFSeen, int lexState, int errorLine, int errorColumn, String errorAfter, char curChar) {
+  protected static String LexicalError(boolean EOFSeen, int lexState, int errorLine, int errorColumn, String errorAfter, int curChar) {
     return("Lexical error at line " +
           errorLine + ", column " +
           errorColumn + ".  Encountered: " +
-          (EOFSeen ? "<EOF> " : ("\"" + addEscapes(String.valueOf(curChar)) + "\"") + " (" + (int)curChar + "), ") +
+          (EOFSeen ? "<EOF> " : ("\"" + addEscapes(String.valueOf((char) curChar)) + "\"") + " (" + curChar + "), ") +
           "after : \"" + addEscapes(errorAfter) + "\"");
   }
 
+  /**
+   * Variant of {@link #LexicalError(boolean, int, int, int, String, int)}
+   * taking the offending character as char, kept for subclasses compiled
+   * against earlier versions.
+   */
+  protected static String LexicalError(boolean EOFSeen, int lexState, int errorLine, int errorColumn, String errorAfter, char curChar) {
+    return LexicalError(EOFSeen, lexState, errorLine, errorColumn, errorAfter, (int) curChar);
+  }
+
   /**
    * You can also modify the body of this method to customize your error messages.
    * For example, cases like LOOP_DETECTED and INVALID_LEXICAL_STATE are not
@@ -140,8 +155,23 @@ public class TokenMgrError extends Error
   }
 
   /** Full Constructor. */
-  public TokenMgrError(boolean EOFSeen, int lexState, int errorLine, int errorColumn, String errorAfter, char curChar, int reason) {
+  public TokenMgrError(boolean EOFSeen, int lexState, int errorLine, int errorColumn, String errorAfter, int curChar, int reason) {
     this(LexicalError(EOFSeen, lexState, errorLine, errorColumn, errorAfter, curChar), reason);
+    this.errorLine = errorLine;
+    this.errorColumn = errorColumn;
+  }
+
+  /** Full Constructor taking the offending character as char, kept for callers compiled against earlier versions. */
+  public TokenMgrError(boolean EOFSeen, int lexState, int errorLine, int errorColumn, String errorAfter, char curChar, int reason) {
+    this(EOFSeen, lexState, errorLine, errorColumn, errorAfter, (int) curChar, reason);
+  }
+
+  public int getErrorLine() {
+    return errorLine;
+  }
+
+  public int getErrorColumn() {
+    return errorColumn;
   }
 }
 /* JavaCC - OriginalChecksum=40211e4a7cc4cdf39df396496c1454da (do not edit this line) */
@@ -0,0 +1,119 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.processmining.datapetrinets.exception.EvaluatorException;
+
+public class BackendEquivalenceTest {
+
+	private static final String[] GUARDS = { "n > 2", "n + 1 == m", "n * 2 - m / 4 >= 1.5", "-(n) < m",
+			"m == 2.0000001", "n != 3 && m <= 2.5", "n < 1 || m > 3 || b", "!(b) && s == \"b\"", "s < \"b\"",
+			"s != \"a\" || n >= 4", "n in {1, 2.5, 4}", "s in {\"a\", \"c\"}", "o == 1", "o > n", "o == true",
+			"o != null", "max(n, m) > 3", "min(n, 2) + o == 2", "(n > 1 && m < 4) || (s == \"c\" && !(b))",
+			"n / 0 > 1", "b == (n > 2)" };
+
+	private static final Map<String, Class<?>> TYPES = new HashMap<>();
+
+	static {
+		TYPES.put("n", Long.class);
+		TYPES.put("m", Double.class);
+		TYPES.put("s", String.class);
+		TYPES.put("b", Boolean.class);
+	}
+
+	private static List<Map<String, Object>> bindings() {
+		List<Map<String, Object>> bindings = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			Map<String, Object> values = new HashMap<>();
+			values.put("n", (long) i);
+			values.put("m", i * 0.75 + (i == 2 ? 0.0000001 : 0));
+			values.put("s", String.valueOf((char) ('a' + i % 3)));
+			values.put("b", i % 2 == 0);
+			// Changes its type between bindings
+			values.put("o", i % 3 == 0 ? (Object) Boolean.TRUE : (Object) (long) (i % 3));
+			bindings.add(values);
+		}
+		Map<String, Object> missing = new HashMap<>(bindings.get(1));
+		missing.remove("n");
+		bindings.add(missing);
+		return bindings;
+	}
+
+	/**
+	 * @return the value or the marker for a failed evaluation
+	 */
+	private static Object outcome(GuardExpression guard, Object backend, VariableProvider variables,
+			FunctionProvider functions) {
+		try {
+			if (backend instanceof GuardExpression) {
+				return ((GuardExpression) backend).evaluate(variables, functions);
+			} else if (backend instanceof GuardProgram) {
+				return ((GuardProgram) backend).evaluate(variables, functions);
+			} else {
+				return ((PreparedExpression) backend).evaluate(variables, functions);
+			}
+		} catch (EvaluatorException e) {
+			return EvaluatorException.class;
+		}
+	}
+
+	@Test
+	public void testBackendsAgree() throws Exception {
+		VariableTypeProvider types = new VariableTypeProvider.DefaultVariableTypeProvider(TYPES);
+		GuardSourceGenerator generator = new GuardSourceGenerator("generated", "EquivalentGuards", types);
+		List<GuardExpression> guards = new ArrayList<>();
+		for (String expression : GUARDS) {
+			GuardExpression guard = GuardExpression.Factory.newInstance(expression);
+			guards.add(guard);
+			generator.add(guard);
+		}
+		GuardRegistry registry = new GuardRegistry();
+		registry.register(GuardSourceGeneratorTest.compile(generator));
+
+		VariableTypeProvider noTypes = new VariableTypeProvider.DefaultVariableTypeProvider(
+				new HashMap<String, Class<?>>());
+		FunctionProvider functions = FunctionProvider.BASIC_MATH;
+		for (GuardExpression guard : guards) {
+			GuardExpression compiled = registry.lookup(guard);
+			assertNotSame(guard, compiled);
+			Object[] backends = { Evaluator.compile(guard), Evaluator.prepare(guard, types),
+					Evaluator.prepare(guard, noTypes), Evaluator.prepareAdaptive(guard, noTypes), compiled };
+			for (Map<String, Object> values : bindings()) {
+				VariableProvider variables = new VariableProvider.DefaultVariableProvider(values);
+				Object expected = outcome(guard, guard, variables, functions);
+				for (Object backend : backends) {
+					String message = guard + " " + values + " " + backend.getClass().getSimpleName();
+					// Twice for the nodes that specialize on the first evaluation
+					assertEquals(message, expected, outcome(guard, backend, variables, functions));
+					assertEquals(message, expected, outcome(guard, backend, variables, functions));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testGuardsCoverBothResults() throws Exception {
+		int[] counts = new int[2];
+		for (String expression : GUARDS) {
+			GuardExpression guard = GuardExpression.Factory.newInstance(expression);
+			for (Map<String, Object> values : bindings()) {
+				Object result = outcome(guard, guard, new VariableProvider.DefaultVariableProvider(values),
+						FunctionProvider.BASIC_MATH);
+				if (result instanceof Boolean) {
+					counts[(Boolean) result ? 1 : 0]++;
+				}
+			}
+		}
+		assertTrue(counts[0] > 20);
+		assertTrue(counts[1] > 20);
+	}
+
+}
@@ -0,0 +1,137 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.Test;
+import org.processmining.datapetrinets.exception.VariableNotFoundException;
+import org.processmining.datapetrinets.expression.syntax.Symbol;
+
+public class BatchEvaluatorTest {
+
+	private static final FunctionProvider FUNCTIONS = new FunctionProvider() {
+
+		public Object calculate(String function, Object[] parameters) {
+			long value = ((Number) parameters[0]).longValue();
+			if (function.equals("lookup")) {
+				return (double) (value % 10);
+			} else if (function.equals("tag")) {
+				return "k" + (value % 3);
+			} else if (function.equals("boom") && value == 3) {
+				throw new IllegalStateException("boom");
+			}
+			return true;
+		}
+
+	};
+
+	/**
+	 * Counts the batches requested for each function
+	 */
+	private static final class CountingProvider implements AsyncFunctionProvider {
+
+		private final AsyncFunctionProvider delegate = AsyncFunctionProvider.of(FUNCTIONS);
+		private final Map<String, Integer> batches = new HashMap<>();
+		private int calls;
+
+		public CompletableFuture<List<Object>> calculateAll(String function, List<Object[]> parameters) {
+			Integer count = batches.get(function);
+			batches.put(function, count == null ? 1 : count + 1);
+			calls += parameters.size();
+			return delegate.calculateAll(function, parameters);
+		}
+
+	}
+
+	private static List<VariableProvider> bindings(int size) {
+		List<VariableProvider> bindings = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			bindings.add(new VariableProvider.DefaultVariableProvider(Collections.<String, Object>singletonMap("x",
+					(long) (i % 50))));
+		}
+		return bindings;
+	}
+
+	@Test
+	public void testRounds() throws Exception {
+		GuardExpression guard = GuardExpression.Factory
+				.newInstance("lookup((x + 0)) > 4 && tag((x * 2)) == \"k1\" || x < 3");
+		List<VariableProvider> bindings = bindings(1000);
+		CountingProvider provider = new CountingProvider();
+		List<Object> results = new BatchEvaluator(provider).evaluateAll(guard, bindings).get();
+		// One batch per function and round, equal calls are only requested once
+		assertEquals(Integer.valueOf(1), provider.batches.get("lookup"));
+		assertEquals(Integer.valueOf(1), provider.batches.get("tag"));
+		assertTrue(provider.calls <= 100);
+		for (int i = 0; i < bindings.size(); i++) {
+			assertEquals(guard.evaluate(bindings.get(i), FUNCTIONS), results.get(i));
+		}
+	}
+
+	@Test
+	public void testMaxBatchSize() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("lookup((x + 0)) > 4");
+		CountingProvider provider = new CountingProvider();
+		new BatchEvaluator(provider, 20).evaluateAll(guard, bindings(1000)).get();
+		assertEquals(Integer.valueOf(3), provider.batches.get("lookup"));
+		assertEquals(50, provider.calls);
+	}
+
+	@Test
+	public void testFailuresArePerBinding() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("x > 10 || boom((x + 0))");
+		List<Object> results = new BatchEvaluator(new CountingProvider()).evaluateAll(guard, bindings(20)).get();
+		for (int i = 0; i < results.size(); i++) {
+			if (i == 3) {
+				EvaluationError error = (EvaluationError) results.get(i);
+				assertEquals(EvaluationError.Kind.OTHER, error.getKind());
+				assertTrue(error.getMessage().contains("boom"));
+			} else {
+				assertEquals(Boolean.TRUE, results.get(i));
+			}
+		}
+		results = new BatchEvaluator(new CountingProvider())
+				.evaluateAll(GuardExpression.Factory.newInstance("x < 10 || y"), bindings(20)).get();
+		assertEquals(Boolean.TRUE, results.get(0));
+		assertEquals(EvaluationError.Kind.MISSING_VARIABLE, ((EvaluationError) results.get(10)).getKind());
+	}
+
+	@Test
+	public void testRuntimeExceptionFailsFuture() throws Exception {
+		VariableProvider broken = new VariableProvider() {
+
+			public Object getValue(String variableName) {
+				throw new IllegalStateException("broken");
+			}
+
+			public Object getValue(Symbol symbol) throws VariableNotFoundException {
+				throw new IllegalStateException("broken");
+			}
+
+		};
+		List<VariableProvider> bindings = Collections.singletonList(broken);
+		assertFailed(new BatchEvaluator(new CountingProvider()).evaluateAll(
+				GuardExpression.Factory.newInstance("x > 1"), bindings));
+		assertFailed(new BatchEvaluator(new CountingProvider()).evaluateAll(
+				GuardExpression.Factory.newInstance("lookup(1) < 5 && x > 1"), bindings));
+	}
+
+	private static void assertFailed(CompletableFuture<List<Object>> future) {
+		try {
+			future.join();
+			fail("Provider is broken");
+		} catch (CompletionException e) {
+			assertEquals("broken", e.getCause().getMessage());
+		}
+	}
+
+}
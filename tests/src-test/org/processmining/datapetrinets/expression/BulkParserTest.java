@@ -0,0 +1,155 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class BulkParserTest {
+
+	/**
+	 * @return more expressions than are parsed sequentially, every third one
+	 *         is invalid in a different way
+	 */
+	private static List<String> mixedInput() {
+		List<String> inputs = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			switch (i % 3) {
+				case 0 :
+					inputs.add("a" + i + " > " + i);
+					break;
+				case 1 :
+					inputs.add("s == \"" + i + "\" || t in {" + i + ", 2}");
+					break;
+				default :
+					inputs.add(i % 2 == 0 ? "a > " + i + " &&" : "b == \"" + i);
+			}
+		}
+		return inputs;
+	}
+
+	private static String describe(ParseResult result) {
+		if (result.isSuccess()) {
+			return result.getGuard().toCanonicalString();
+		}
+		ParseError error = result.getError();
+		return "error at " + error.getOffset() + " (" + error.getLine() + ":" + error.getColumn() + ") "
+				+ error.getTokenKind() + " " + Arrays.toString(error.getExpectedTokenKinds());
+	}
+
+	private static void assertParsedLike(List<String> inputs, List<ParseResult> results) {
+		assertEquals(inputs.size(), results.size());
+		for (int i = 0; i < inputs.size(); i++) {
+			assertEquals(inputs.get(i), describe(GuardExpression.Factory.tryParse(inputs.get(i))),
+					describe(results.get(i)));
+		}
+	}
+
+	private static byte[] lines(String... lines) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for (String line : lines) {
+			byte[] b = line.getBytes(StandardCharsets.UTF_8);
+			bytes.write(b, 0, b.length);
+		}
+		return bytes.toByteArray();
+	}
+
+	@Test
+	public void testDiagnostics() throws Exception {
+		ParseResult valid = GuardExpression.Factory.tryParse("a > 1 && b == \"x\"");
+		assertTrue(valid.isSuccess());
+		assertEquals(GuardExpression.Factory.newInstance("a > 1 && b == \"x\""), valid.getGuard());
+
+		ParseResult invalid = GuardExpression.Factory.tryParse("a > 1 &&\n\tb ==");
+		assertFalse(invalid.isSuccess());
+		assertEquals(14, invalid.getError().getOffset());
+		assertEquals(2, invalid.getError().getLine());
+		assertEquals(12, invalid.getError().getColumn());
+
+		ParseResult unterminated = GuardExpression.Factory.tryParse("s == \"abc");
+		assertFalse(unterminated.isSuccess());
+		assertEquals(1, unterminated.getError().getLine());
+	}
+
+	@Test
+	public void testIterable() {
+		List<String> inputs = mixedInput();
+		assertParsedLike(inputs, GuardExpression.Factory.parseAll(inputs));
+		assertParsedLike(inputs, GuardExpression.Factory.parseAll(inputs, new ForkJoinPool(3)));
+		assertTrue(GuardExpression.Factory.parseAll(new ArrayList<String>()).isEmpty());
+	}
+
+	@Test
+	public void testStream() {
+		List<String> inputs = mixedInput();
+		assertParsedLike(inputs, GuardExpression.Factory.parseAll(inputs.stream()).collect(Collectors.toList()));
+	}
+
+	@Test
+	public void testLines() {
+		List<String> inputs = mixedInput();
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < inputs.size(); i++) {
+			// The last line has no separator
+			sb.append(inputs.get(i)).append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		sb.setLength(sb.length() - 2);
+		assertParsedLike(inputs, GuardExpression.Factory.parseAll(ByteBuffer.wrap(lines(sb.toString()))));
+	}
+
+	@Test
+	public void testBlankLines() {
+		ByteBuffer buffer = ByteBuffer.wrap(lines("ignored\n", "a > 1\r\n", "\r\n", "\n", "b == \"\u00e4\"\n"));
+		buffer.position(8);
+		List<ParseResult> results = GuardExpression.Factory.parseAll(buffer);
+		assertParsedLike(Arrays.asList("a > 1", "", "", "b == \"\u00e4\""), results);
+		assertFalse(results.get(1).isSuccess());
+		assertEquals(8, buffer.position());
+	}
+
+	@Test
+	public void testInvalidUtf8() {
+		byte[] bytes = lines("a > 1\n", "b == \"\u00e4\u00e4\"\n", "c > 2");
+		// Truncated two byte sequence of the first character
+		bytes[13] = 'x';
+		List<ParseResult> results = GuardExpression.Factory.parseAll(ByteBuffer.wrap(bytes));
+		assertEquals(3, results.size());
+		assertTrue(results.get(0).isSuccess());
+		ParseError error = results.get(1).getError();
+		assertEquals(6, error.getOffset());
+		assertEquals(1, error.getLine());
+		assertEquals(7, error.getColumn());
+		assertEquals(-1, error.getTokenKind());
+		assertTrue(error.getMessage(), error.getMessage().contains("byte 12"));
+		assertTrue(results.get(2).isSuccess());
+	}
+
+	@Test
+	public void testFile() throws Exception {
+		List<String> inputs = mixedInput();
+		StringBuilder sb = new StringBuilder();
+		for (String input : inputs) {
+			sb.append(input).append('\n');
+		}
+		File file = File.createTempFile("guards", ".txt");
+		try {
+			Files.write(file.toPath(), lines(sb.toString()));
+			assertParsedLike(inputs, GuardExpression.Factory.parseAll(file.toPath()));
+		} finally {
+			file.delete();
+		}
+	}
+
+}
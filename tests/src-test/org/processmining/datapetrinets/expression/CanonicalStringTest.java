@@ -0,0 +1,49 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CanonicalStringTest {
+
+	@Test
+	public void testChainsAreFlat() throws Exception {
+		String[] equivalent = { "(a||b)||c", "a||(b||c)", "a||b||c", "(((a)||(b))||(c))" };
+		for (String expression : equivalent) {
+			GuardExpression guard = GuardExpression.Factory.newInstance(expression);
+			assertEquals(expression, "(a||b||c)", guard.toCanonicalString());
+			assertEquals(expression, GuardExpression.Factory.newInstance("a||b||c"), guard);
+		}
+		assertEquals("((a&&b&&c)||d)", GuardExpression.Factory.newInstance("a&&b&&c||d").toCanonicalString());
+		assertEquals("(a&&b&&(c||d||e))",
+				GuardExpression.Factory.newInstance("(a&&b)&&(c||d||e)").toCanonicalString());
+	}
+
+	@Test
+	public void testNestedCanonicalStrings() throws Exception {
+		// Canonical strings as printed by earlier versions
+		String[][] migrated = { { "((a||b)||c)", "(a||b||c)" },
+				{ "(((x>1)&&(y<2))&&(z==3))", "((x>1)&&(y<2)&&(z==3))" },
+				{ "((((a&&b)&&c)||d)||(e&&f))", "((a&&b&&c)||d||(e&&f))" } };
+		Map<String, Object> values = new HashMap<>();
+		values.put("x", 2L);
+		values.put("y", 1L);
+		values.put("z", 3L);
+		for (String name : new String[] { "a", "b", "c", "d", "e", "f" }) {
+			values.put(name, name.equals("e"));
+		}
+		for (String[] strings : migrated) {
+			GuardExpression old = GuardExpression.Factory.newInstance(strings[0]);
+			GuardExpression current = GuardExpression.Factory.newInstance(strings[1]);
+			assertEquals(strings[1], old.toCanonicalString());
+			assertEquals(current, old);
+			assertEquals(current.evaluate(values), old.evaluate(values));
+			// Printing is stable
+			assertEquals(strings[1], GuardExpression.Factory.newInstance(old.toCanonicalString()).toCanonicalString());
+		}
+	}
+
+}
@@ -0,0 +1,85 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class DateParserTest {
+
+	/**
+	 * @return the result of the lenient formats that dates were always parsed
+	 *         with
+	 */
+	private static long lenient(String text) {
+		Date date = new SimpleDateFormat(Evaluator.STANDARD_DATE_FORMAT, Locale.US).parse(text, new ParsePosition(0));
+		if (date == null) {
+			date = new SimpleDateFormat(Evaluator.OLD_DATE_FORMAT, Locale.US).parse(text, new ParsePosition(0));
+		}
+		return date != null ? date.getTime() : DateParser.NOT_A_DATE;
+	}
+
+	@Test
+	public void testStandardFormat() {
+		String[] dates = { "2016-01-04T12:00:00.000+01:00", "2020-02-29T23:59:59.999Z", "1970-01-01T00:00:00.000Z",
+				"1969-12-31T23:59:59.999-05:30", "1583-01-01T00:00:00.000Z", "9999-12-31T23:59:59.999+14:00" };
+		for (String date : dates) {
+			assertEquals(date, lenient(date), DateParser.parseMillis(date));
+		}
+		assertEquals(1451905200000L, DateParser.parseMillis("2016-01-04T12:00:00.000+01:00"));
+	}
+
+	@Test
+	public void testLenientFallback() {
+		// Out-of-range fields roll over, trailing text is ignored
+		String[] dates = { "2020-13-01T00:00:00.000Z", "2019-02-30T00:00:00.000Z", "2020-01-01T24:00:00.000Z",
+				"2020-01-01T00:00:60.000+01:00", "2020-01-01T00:00:00.000Z and more", "2020-01-01T00:00:00.5+01:00",
+				"1500-06-01T00:00:00.000Z", "Wed Jan 01 12:00:00 UTC 2020", "Wed Jan 01 24:00:00 UTC 2020",
+				"Sun Feb 30 10:00:00 CET 2020" };
+		for (String date : dates) {
+			long expected = lenient(date);
+			assertEquals(date, true, expected != DateParser.NOT_A_DATE);
+			assertEquals(date, expected, DateParser.parseMillis(date));
+		}
+		// Hour 24 of the old format is midnight at the start of the day
+		assertEquals(DateParser.parseMillis("Wed Jan 01 00:00:00 UTC 2020"),
+				DateParser.parseMillis("Wed Jan 01 24:00:00 UTC 2020"));
+	}
+
+	@Test
+	public void testRejected() {
+		String[] texts = { "", "2020", "2020-01-01", "2020-01-01T00:00:00+00:00", "2020-01-01T00:00:00Z",
+				"01.01.2020", "not a date", "Wed Jan 01 12:00 UTC 2020" };
+		for (String text : texts) {
+			assertEquals(text, DateParser.NOT_A_DATE, DateParser.parseMillis(text));
+			assertEquals(text, text, DateParser.tryParseMillis(text));
+		}
+	}
+
+	@Test
+	public void testTryParseMillis() {
+		assertEquals(42L, DateParser.tryParseMillis(new Date(42)));
+		assertEquals(42, DateParser.tryParseMillis(42));
+		assertEquals(0L, DateParser.tryParseMillis("1970-01-01T00:00:00.000Z"));
+		StringDictionary dictionary = new StringDictionary();
+		assertEquals(0L, DateParser.tryParseMillis(dictionary.encode("1970-01-01T00:00:00.000Z")));
+	}
+
+	@Test
+	public void testComparison() throws Exception {
+		Map<String, Object> values = new HashMap<>();
+		values.put("d", "Wed Jan 01 24:00:00 UTC 2020");
+		values.put("t", new Date(DateParser.parseMillis("2020-01-01T00:00:00.000Z")));
+		GuardExpression guard = GuardExpression.Factory.newInstance("d > t");
+		assertEquals(Boolean.FALSE, guard.evaluate(values));
+		values.put("d", "2020-01-01T00:00:00.001Z");
+		assertEquals(Boolean.TRUE, guard.evaluate(values));
+	}
+
+}
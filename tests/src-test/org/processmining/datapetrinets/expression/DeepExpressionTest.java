@@ -0,0 +1,124 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class DeepExpressionTest {
+
+	private static final int TERMS = 5000;
+
+	private static final VariableProvider VARIABLES;
+	private static final VariableTypeProvider TYPES;
+
+	static {
+		Map<String, Object> values = new HashMap<>();
+		values.put("a", 1L);
+		VARIABLES = new VariableProvider.DefaultVariableProvider(values);
+		Map<String, Class<?>> types = new HashMap<>();
+		types.put("a", Long.class);
+		TYPES = new VariableTypeProvider.DefaultVariableTypeProvider(types);
+	}
+
+	/**
+	 * @return a left-deep arithmetic chain <code>a + a - a + ... > 0</code>
+	 *         that is true for a value of 1
+	 */
+	private static GuardExpression arithmeticChain() throws Exception {
+		StringBuilder sb = new StringBuilder("a");
+		for (int i = 1; i < TERMS; i++) {
+			sb.append(i % 2 == 0 ? " - a" : " + a");
+		}
+		return GuardExpression.Factory.newInstance(sb.append(" > 0").toString());
+	}
+
+	/**
+	 * @return a chain of alternating disjunctions and conjunctions, which are
+	 *         not flattened into a single operation, that is true for a value
+	 *         of 1
+	 */
+	private static GuardExpression logicalChain() throws Exception {
+		StringBuilder sb = new StringBuilder("a == 0");
+		for (int i = 1; i < TERMS; i++) {
+			sb.append(i % 2 == 0 ? " && " : " || ").append("a != ").append(i);
+		}
+		return GuardExpression.Factory.newInstance(sb.toString());
+	}
+
+	/**
+	 * @return a tree of nested conjunctions, disjunctions and negations that
+	 *         is true for a value of 1
+	 */
+	private static GuardExpression nestedConnectives() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("a == 1");
+		// Every combination prints the whole guard
+		for (int i = 1; i < TERMS / 4; i++) {
+			GuardExpression term = GuardExpression.Factory.newInstance("a != " + (i + 1));
+			if (i % 3 == 0) {
+				guard = GuardExpression.Operation.not(GuardExpression.Operation.not(guard));
+			} else if (i % 3 == 1) {
+				guard = GuardExpression.Operation.and(guard, term);
+			} else {
+				guard = GuardExpression.Operation.or(guard, term);
+			}
+		}
+		return guard;
+	}
+
+	private static void assertAllBackends(GuardExpression guard) throws Exception {
+		VariableTypeProvider noTypes = new VariableTypeProvider.DefaultVariableTypeProvider(
+				new HashMap<String, Class<?>>());
+
+		assertEquals(Boolean.TRUE, guard.evaluate(VARIABLES, null));
+		assertEquals(Boolean.TRUE, Evaluator.evaluate(guard, VARIABLES, null, NumericSemantics.EXACT_INTEGERS));
+		assertEquals(Truth.TRUE, Evaluator.evaluateKleene(guard, VARIABLES, null));
+		assertEquals(Boolean.TRUE, Evaluator.compile(guard).evaluate(VARIABLES, null));
+		assertEquals(Boolean.TRUE, Evaluator.prepare(guard, TYPES).evaluate(VARIABLES, null));
+		assertEquals(Boolean.TRUE, Evaluator.prepare(guard, noTypes).evaluate(VARIABLES, null));
+		assertEquals(Boolean.TRUE, Evaluator.prepare(guard, TYPES,
+				PrepareOptions.DEFAULT.withSemantics(NumericSemantics.EXACT_INTEGERS)).evaluate(VARIABLES, null));
+		assertEquals(Boolean.TRUE, Evaluator.prepareAdaptive(guard, noTypes).evaluate(VARIABLES, null));
+		assertEquals(Boolean.FALSE, GuardExpression.Operation.not(guard).evaluate(VARIABLES, null));
+		assertEquals(Boolean.TRUE, ExpressionOptimizer.optimize(guard).evaluate(VARIABLES, null));
+
+		String canonical = guard.toCanonicalString();
+		assertTrue(canonical.length() > TERMS);
+		assertTrue(guard.toPrettyString(1).length() >= canonical.length());
+		assertTrue(guard.toTreeLikeString(2).length() >= canonical.length());
+	}
+
+	@Test
+	public void testArithmeticChain() throws Exception {
+		assertAllBackends(arithmeticChain());
+	}
+
+	@Test
+	public void testLogicalChain() throws Exception {
+		assertAllBackends(logicalChain());
+	}
+
+	@Test
+	public void testNestedConnectives() throws Exception {
+		assertAllBackends(nestedConnectives());
+	}
+
+	@Test
+	public void testGeneratedSource() throws Exception {
+		GuardExpression[] guards = { arithmeticChain(), logicalChain(), nestedConnectives() };
+		GuardSourceGenerator generator = new GuardSourceGenerator("generated", "DeepGuards", TYPES);
+		for (GuardExpression guard : guards) {
+			generator.add(guard);
+		}
+		GuardRegistry registry = new GuardRegistry();
+		// Fails in the Java compiler unless nested operations are split into several methods
+		registry.register(GuardSourceGeneratorTest.compile(generator));
+		for (GuardExpression guard : guards) {
+			assertEquals(Boolean.TRUE, registry.lookup(guard).evaluate(VARIABLES, null));
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.exception.VariableNotFoundException;
+
+public class EvaluationErrorTest {
+
+	@Test
+	public void testEvaluateThrowsWithStackTrace() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("x > 1");
+		Map<String, Object> values = new HashMap<>();
+		values.put("y", 1);
+		try {
+			guard.evaluate(new VariableProvider.DefaultVariableProvider(values), null);
+			fail("x is missing");
+		} catch (EvaluatorException e) {
+			assertTrue(e.getStackTrace().length > 0);
+			assertTrue(e.getCause() instanceof VariableNotFoundException);
+			assertTrue(e.getCause().getStackTrace().length > 0);
+			// The message describes the binding at the time of the error
+			values.put("x", 5);
+			assertEquals("Variable x is not found in map {y=1}", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void testTryEvaluateMissingVariable() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("x > 1");
+		Map<String, Object> values = new HashMap<>();
+		values.put("y", 1);
+		Object result = Evaluator.tryEvaluate(guard, new VariableProvider.DefaultVariableProvider(values), null);
+		assertTrue(result instanceof EvaluationError);
+		EvaluationError error = (EvaluationError) result;
+		assertEquals(EvaluationError.Kind.MISSING_VARIABLE, error.getKind());
+		assertEquals(0, error.getException().getStackTrace().length);
+		values.put("x", 5);
+		assertFalse(error.getMessage().contains("x=5"));
+		assertEquals(Boolean.TRUE, Evaluator.tryEvaluate(guard, new VariableProvider.DefaultVariableProvider(values), null));
+	}
+
+	@Test
+	public void testTryEvaluateRestoresMode() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("x > 1");
+		Evaluator.tryEvaluate(guard, VariableProvider.EMPTY_PROVIDER, null);
+		try {
+			guard.evaluate(new VariableProvider.DefaultVariableProvider(new HashMap<String, Object>()), null);
+			fail("x is missing");
+		} catch (EvaluatorException e) {
+			assertTrue(e.getCause().getStackTrace().length > 0);
+		}
+	}
+
+	@Test
+	public void testTryEvaluateTypeError() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("x && true");
+		Map<String, Object> values = new HashMap<>();
+		values.put("x", 1.0);
+		Object result = Evaluator.tryEvaluate(guard, new VariableProvider.DefaultVariableProvider(values), null);
+		assertEquals(EvaluationError.Kind.TYPE_ERROR, ((EvaluationError) result).getKind());
+	}
+
+}
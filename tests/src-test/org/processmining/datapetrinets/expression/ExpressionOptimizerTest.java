@@ -0,0 +1,42 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class ExpressionOptimizerTest {
+
+	private static String optimize(String expression) throws Exception {
+		return ExpressionOptimizer.optimize(GuardExpression.Factory.newInstance(expression)).toCanonicalString();
+	}
+
+	@Test
+	public void testMergesAdjacentTests() throws Exception {
+		assertEquals("(s in {\"a\",\"b\",\"c\"})", optimize("s == \"a\" || s == \"b\" || \"c\" == s"));
+		assertEquals("(n in {1,-2.5})", optimize("n == 1 || n == -2.5"));
+		assertEquals("(s in {\"a\",\"b\",\"m\"})", optimize("s == \"a\" || s in {\"b\"} || s == \"m\""));
+		// Operands are evaluated in the original order
+		assertEquals("((n==1)||(s in {\"a\",\"b\"})||(n in {2,3}))",
+				optimize("n == 1 || s == \"a\" || s == \"b\" || n == 2 || n == 3"));
+	}
+
+	@Test
+	public void testRewritesNestedDisjunctions() throws Exception {
+		assertEquals("((s in {\"a\",\"q\"})&&!((n in {1,2})))",
+				optimize("(s == \"a\" || s == \"q\") && !(n == 1 || n == 2)"));
+		assertEquals("(((s in {\"a\",\"b\"})&&(n in {1,2}))||(s==\"c\"))",
+				optimize("(s == \"a\" || s == \"b\") && (n == 1 || n == 2) || s == \"c\""));
+	}
+
+	@Test
+	public void testCopiesGuard() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("(s == \"a\" || s == \"b\") && n + 1 > 2");
+		String canonical = guard.toCanonicalString();
+		GuardExpression optimized = ExpressionOptimizer.optimize(guard);
+		assertEquals(canonical, guard.toCanonicalString());
+		assertEquals(canonical, GuardExpression.Factory.newInstance(canonical).toCanonicalString());
+		assertEquals("((s in {\"a\",\"b\"})&&((n+1)>2))", optimized.toCanonicalString());
+		assertEquals(optimized, ExpressionOptimizer.optimize(optimized));
+	}
+
+}
@@ -0,0 +1,150 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.processmining.datapetrinets.expression.TieredGuardExpression.Tier;
+
+public class GuardCodeCacheTest {
+
+	private static TieredGuardExpression.Manager manager(GuardCodeCache cache) {
+		return new TieredGuardExpression.Manager(1, TieredGuardExpressionTest.DIRECT, cache);
+	}
+
+	/**
+	 * @return the guard after its first evaluation, which promotes it
+	 */
+	private static TieredGuardExpression promoted(TieredGuardExpression.Manager manager, String expression)
+			throws Exception {
+		TieredGuardExpression guard = manager.tiered(GuardExpression.Factory.newInstance(expression));
+		guard.evaluate(TieredGuardExpressionTest.X_IS_3, null);
+		return guard;
+	}
+
+	private static int size(String expression) throws Exception {
+		return Evaluator.compile(GuardExpression.Factory.newInstance(expression)).size();
+	}
+
+	@Test
+	public void testRejected() throws Exception {
+		GuardCodeCache tooSmall = new GuardCodeCache(4, size("x == 3") - 1);
+		TieredGuardExpression.Manager manager = manager(tooSmall);
+		TieredGuardExpression guard = promoted(manager, "x == 3");
+		assertEquals(Tier.REJECTED, guard.getTier());
+		assertNull(guard.getProgram());
+		assertEquals(Boolean.TRUE, guard.evaluate(TieredGuardExpressionTest.X_IS_3, null));
+		assertEquals(0, manager.getPromotionCount());
+		assertEquals(0, tooSmall.getGuardCount());
+
+		GuardCodeCache noGuards = new GuardCodeCache(0, Long.MAX_VALUE);
+		assertEquals(Tier.REJECTED, promoted(manager(noGuards), "x == 3").getTier());
+	}
+
+	@Test
+	public void testSecondChance() throws Exception {
+		GuardCodeCache cache = new GuardCodeCache(2, Long.MAX_VALUE);
+		TieredGuardExpression.Manager manager = manager(cache);
+		TieredGuardExpression a = promoted(manager, "x == 1");
+		TieredGuardExpression b = promoted(manager, "x == 2");
+		assertEquals(Tier.COMPILED, a.getTier());
+		assertEquals(Tier.COMPILED, b.getTier());
+
+		// Only a is used with its program
+		assertEquals(Boolean.FALSE, a.evaluate(TieredGuardExpressionTest.X_IS_3, null));
+		TieredGuardExpression c = promoted(manager, "x == 3");
+		assertEquals(Tier.COMPILED, a.getTier());
+		assertEquals(Tier.INTERPRETED, b.getTier());
+		assertNull(b.getProgram());
+		assertEquals(0, b.getInterpretedInvocations());
+		assertEquals(Tier.COMPILED, c.getTier());
+		assertEquals(2, cache.getGuardCount());
+		assertEquals(1, cache.getEvictionCount());
+
+		// The second chance is used up
+		TieredGuardExpression d = promoted(manager, "x == 4");
+		assertEquals(Tier.INTERPRETED, a.getTier());
+		assertEquals(Tier.COMPILED, c.getTier());
+		assertEquals(Tier.COMPILED, d.getTier());
+		assertEquals(2, cache.getEvictionCount());
+		assertEquals(Boolean.FALSE, a.evaluate(TieredGuardExpressionTest.X_IS_3, null));
+	}
+
+	@Test
+	public void testCodeSizeBudget() throws Exception {
+		int size = size("x == 1");
+		GuardCodeCache cache = new GuardCodeCache(100, 2 * size);
+		TieredGuardExpression.Manager manager = manager(cache);
+		TieredGuardExpression a = promoted(manager, "x == 1");
+		TieredGuardExpression b = promoted(manager, "x == 2");
+		assertEquals(2 * size, cache.getCodeSize());
+		TieredGuardExpression c = promoted(manager, "x == 3");
+		assertEquals(Tier.INTERPRETED, a.getTier());
+		assertEquals(Tier.COMPILED, b.getTier());
+		assertEquals(Tier.COMPILED, c.getTier());
+		assertEquals(2, cache.getGuardCount());
+		assertEquals(2 * size, cache.getCodeSize());
+
+		// Needs the space of all other programs
+		int largeSize = size("x == 1 || x == 3");
+		cache = new GuardCodeCache(100, largeSize);
+		manager = manager(cache);
+		List<TieredGuardExpression> small = new ArrayList<>();
+		for (int i = 0; (i + 1) * size <= largeSize; i++) {
+			small.add(promoted(manager, "x == " + i));
+		}
+		TieredGuardExpression large = promoted(manager, "x == 1 || x == 3");
+		assertEquals(Tier.COMPILED, large.getTier());
+		for (TieredGuardExpression guard : small) {
+			assertEquals(Tier.INTERPRETED, guard.getTier());
+		}
+		assertEquals(1, cache.getGuardCount());
+		assertEquals(largeSize, cache.getCodeSize());
+		assertEquals(small.size(), cache.getEvictionCount());
+	}
+
+	@Test
+	public void testPromotedAgainAfterEviction() throws Exception {
+		GuardCodeCache cache = new GuardCodeCache(1, Long.MAX_VALUE);
+		TieredGuardExpression.Manager manager = manager(cache);
+		TieredGuardExpression a = promoted(manager, "x == 3");
+		TieredGuardExpression b = promoted(manager, "x == 4");
+		assertEquals(Tier.INTERPRETED, a.getTier());
+
+		assertEquals(Boolean.TRUE, a.evaluate(TieredGuardExpressionTest.X_IS_3, null));
+		assertEquals(Tier.COMPILED, a.getTier());
+		assertEquals(Tier.INTERPRETED, b.getTier());
+		assertEquals(Boolean.TRUE, a.evaluate(TieredGuardExpressionTest.X_IS_3, null));
+		assertEquals(3, manager.getPromotionCount());
+		assertEquals(2, cache.getEvictionCount());
+	}
+
+	private static void promoteUnreferenced(TieredGuardExpression.Manager manager, int count) throws Exception {
+		for (int i = 0; i < count; i++) {
+			promoted(manager, "x > " + i);
+		}
+	}
+
+	@Test
+	public void testCollectedGuardsAreReleased() throws Exception {
+		GuardCodeCache cache = new GuardCodeCache(100, Long.MAX_VALUE);
+		TieredGuardExpression.Manager manager = manager(cache);
+		promoteUnreferenced(manager, 10);
+		for (int i = 0; i < 100 && cache.getGuardCount() > 0; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertEquals(0, cache.getGuardCount());
+		assertEquals(0, cache.getCodeSize());
+
+		promoteUnreferenced(manager, 100);
+		TieredGuardExpression guard = promoted(manager, "x == 3");
+		assertEquals(Tier.COMPILED, guard.getTier());
+		assertTrue(cache.getGuardCount() <= 100);
+	}
+
+}
@@ -0,0 +1,119 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import org.processmining.datapetrinets.expression.syntax.ParseException;
+
+public class GuardRegistryTest {
+
+	/**
+	 * Set with a single guard that counts its evaluations
+	 */
+	private static class CountingGuardSet implements CompiledGuardSet {
+
+		private final String canonicalString;
+		private int evaluations;
+
+		private CountingGuardSet(String canonicalString) {
+			this.canonicalString = canonicalString;
+		}
+
+		public int getFormatVersion() {
+			return FORMAT_VERSION;
+		}
+
+		public String[] getCanonicalStrings() {
+			return new String[] { canonicalString };
+		}
+
+		public Object evaluate(int guard, VariableProvider variableProvider, FunctionProvider functionProvider) {
+			evaluations++;
+			return CompiledGuardSupport.greaterThan(variableProvider.getValue("x"), 1L);
+		}
+
+	}
+
+	@Test
+	public void testLookupByCanonicalString() throws Exception {
+		GuardRegistry registry = new GuardRegistry();
+		CountingGuardSet guardSet = new CountingGuardSet("(x>1)");
+		registry.register(guardSet);
+		GuardExpression guard = registry.lookup("(x>1)");
+		assertEquals("(x>1)", guard.toCanonicalString());
+		assertEquals(Boolean.TRUE, guard.evaluate(Collections.<String, Object>singletonMap("x", 2L)));
+		assertEquals(1, guardSet.evaluations);
+		// Parsed on demand
+		assertEquals(Collections.singleton("x"), guard.getNormalVariables());
+
+		GuardExpression fallback = registry.lookup("(y>1)");
+		assertEquals(Boolean.FALSE, fallback.evaluate(Collections.<String, Object>singletonMap("y", 1L)));
+		assertEquals(1, guardSet.evaluations);
+		try {
+			registry.lookup("y >");
+			fail("Not a guard");
+		} catch (ParseException e) {
+		}
+	}
+
+	@Test
+	public void testLookupDoesNotParse() throws Exception {
+		GuardRegistry registry = new GuardRegistry();
+		// Only the compiled version knows how to evaluate the string
+		registry.register(new CountingGuardSet("x >"));
+		assertTrue(registry.contains("x >"));
+		assertEquals(Boolean.TRUE, registry.lookup("x >").evaluate(Collections.<String, Object>singletonMap("x", 2L)));
+	}
+
+	@Test
+	public void testLookupGuard() throws Exception {
+		GuardRegistry registry = new GuardRegistry();
+		registry.register(new CountingGuardSet("(x>1)"));
+		GuardExpression parsed = GuardExpression.Factory.newInstance("x > 1");
+		GuardExpression compiled = registry.lookup(parsed);
+		assertFalse(compiled == parsed);
+		assertEquals(parsed.getNormalVariables(), compiled.getNormalVariables());
+		GuardExpression other = GuardExpression.Factory.newInstance("x > 2");
+		assertSame(other, registry.lookup(other));
+	}
+
+	@Test
+	public void testFormatVersionMismatch() {
+		GuardRegistry registry = new GuardRegistry();
+		try {
+			registry.register(new CountingGuardSet("(x>1)") {
+
+				public int getFormatVersion() {
+					return FORMAT_VERSION + 1;
+				}
+
+			});
+			fail("Version mismatch");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			// Generated before versions were recorded
+			registry.register(new CompiledGuardSet() {
+
+				public String[] getCanonicalStrings() {
+					return new String[] { "(x>1)" };
+				}
+
+				public Object evaluate(int guard, VariableProvider variableProvider, FunctionProvider functionProvider) {
+					return Boolean.TRUE;
+				}
+
+			});
+			fail("Version mismatch");
+		} catch (IllegalArgumentException e) {
+		}
+		assertEquals(0, registry.size());
+	}
+
+}
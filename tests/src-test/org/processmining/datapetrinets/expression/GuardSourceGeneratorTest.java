@@ -0,0 +1,68 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class GuardSourceGeneratorTest {
+
+	/**
+	 * Compiles the generated class and loads it
+	 */
+	static CompiledGuardSet compile(GuardSourceGenerator generator) throws Exception {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		Assume.assumeNotNull(compiler);
+		Path directory = Files.createTempDirectory("guards");
+		Path file = generator.write(directory);
+		int result = compiler.run(null, null, null, "-nowarn", "-cp", System.getProperty("java.class.path"), "-d",
+				directory.toString(), file.toString());
+		assertEquals(generator.generate(), 0, result);
+		URLClassLoader loader = new URLClassLoader(new URL[] { directory.toUri().toURL() },
+				GuardSourceGeneratorTest.class.getClassLoader());
+		return (CompiledGuardSet) loader.loadClass(generator.getQualifiedClassName()).newInstance();
+	}
+
+	@Test
+	public void testNonFiniteLiterals() throws Exception {
+		Map<String, Class<?>> types = new HashMap<>();
+		types.put("x", Double.class);
+		types.put("o", Object.class);
+		GuardSourceGenerator generator = new GuardSourceGenerator("generated", "NonFiniteGuards",
+				new VariableTypeProvider.DefaultVariableTypeProvider(types));
+		String[] guards = { "x < 1e400", "x > -1e400", "o == 1e400", "x in {1e400, -1e400, 1}" };
+		for (String guard : guards) {
+			generator.add(GuardExpression.Factory.newInstance(guard));
+		}
+		String source = generator.generate();
+		assertTrue(source.contains("Double.POSITIVE_INFINITY"));
+		assertFalse(source.contains("Infinityd"));
+
+		GuardRegistry registry = new GuardRegistry();
+		registry.register(compile(generator));
+		Map<String, Object> values = new HashMap<>();
+		values.put("x", 1.0d);
+		values.put("o", Double.POSITIVE_INFINITY);
+		for (String guard : guards) {
+			GuardExpression parsed = GuardExpression.Factory.newInstance(guard);
+			assertTrue(registry.contains(parsed.toCanonicalString()));
+			assertEquals(guard, parsed.evaluate(values), registry.lookup(parsed.toCanonicalString()).evaluate(values));
+		}
+		assertEquals(Boolean.TRUE, registry.lookup(GuardExpression.Factory.newInstance("x in {1e400, -1e400, 1}"))
+				.evaluate(Collections.<String, Object>singletonMap("x", Double.NEGATIVE_INFINITY)));
+	}
+
+}
@@ -0,0 +1,117 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class IntegralOperationTest {
+
+	private static final long[] VALUES = { Long.MIN_VALUE, Long.MIN_VALUE + 1, -3037000500L, -4294967296L, -3, -1, 0,
+			1, 2, 3, 2147483648L, 3037000499L, 3037000500L, Long.MAX_VALUE - 1, Long.MAX_VALUE };
+
+	private static final BigInteger MIN = BigInteger.valueOf(Long.MIN_VALUE);
+	private static final BigInteger MAX = BigInteger.valueOf(Long.MAX_VALUE);
+
+	private static boolean fits(BigInteger value) {
+		return value.compareTo(MIN) >= 0 && value.compareTo(MAX) <= 0;
+	}
+
+	/**
+	 * @return the exact result as long value if it fits, otherwise the
+	 *         result of the floating point operation
+	 */
+	private static Object expected(IntegralOperation operation, long lhs, long rhs) {
+		BigInteger a = BigInteger.valueOf(lhs);
+		BigInteger b = BigInteger.valueOf(rhs);
+		BigInteger exact;
+		switch (operation) {
+			case PLUS :
+				exact = a.add(b);
+				break;
+			case MINUS :
+				exact = a.subtract(b);
+				break;
+			case MULT :
+				exact = a.multiply(b);
+				break;
+			case DIV :
+				exact = rhs != 0 && a.mod(b.abs()).signum() == 0 ? a.divide(b) : null;
+				break;
+			default :
+				throw new IllegalArgumentException(operation.name());
+		}
+		if (exact != null && fits(exact)) {
+			return exact.longValue();
+		}
+		return operation.fallback.evaluate(lhs, rhs);
+	}
+
+	@Test
+	public void testArithmeticOverflow() {
+		IntegralOperation[] operations = { IntegralOperation.PLUS, IntegralOperation.MINUS, IntegralOperation.MULT,
+				IntegralOperation.DIV };
+		for (IntegralOperation operation : operations) {
+			for (long lhs : VALUES) {
+				for (long rhs : VALUES) {
+					String message = lhs + " " + operation + " " + rhs;
+					Object expected = expected(operation, lhs, rhs);
+					assertEquals(message, expected, operation.evaluate(lhs, rhs));
+					// Smaller integral types are widened
+					if (lhs == (int) lhs && rhs == (int) rhs) {
+						assertEquals(message, expected, operation.evaluate((int) lhs, (int) rhs));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testComparisonsAreExact() {
+		for (long lhs : VALUES) {
+			for (long rhs : VALUES) {
+				assertEquals(lhs < rhs, IntegralOperation.LESS_THAN.evaluate(lhs, rhs));
+				assertEquals(lhs <= rhs, IntegralOperation.AT_MOST.evaluate(lhs, rhs));
+				assertEquals(lhs > rhs, IntegralOperation.GREATER_THAN.evaluate(lhs, rhs));
+				assertEquals(lhs >= rhs, IntegralOperation.AT_LEAST.evaluate(lhs, rhs));
+				assertEquals(lhs == rhs, IntegralOperation.EQUAL.evaluate(lhs, rhs));
+			}
+		}
+		// Equal as double values
+		assertEquals(Boolean.FALSE, IntegralOperation.EQUAL.evaluate(Long.MAX_VALUE, Long.MAX_VALUE - 1));
+	}
+
+	@Test
+	public void testNegate() {
+		assertEquals(-Long.MAX_VALUE, IntegralOperation.negate(Long.MAX_VALUE));
+		assertEquals(9.223372036854775808E18, IntegralOperation.negate(Long.MIN_VALUE));
+		assertEquals(-5L, IntegralOperation.negate((short) 5));
+		assertEquals(-2.5d, IntegralOperation.negate(2.5d));
+	}
+
+	@Test
+	public void testOverflowInGuards() throws Exception {
+		Map<String, Object> values = new HashMap<>();
+		values.put("a", Long.MAX_VALUE);
+		values.put("b", 1L);
+		VariableProvider provider = new VariableProvider.DefaultVariableProvider(values);
+		// Overflows to a double value instead of wrapping around
+		GuardExpression guard = GuardExpression.Factory.newInstance("a + b > 0 && -(a) - b - b < 0 && a * a > a");
+		assertEquals(Boolean.TRUE, Evaluator.evaluate(guard, provider, null, NumericSemantics.EXACT_INTEGERS));
+		assertEquals(Boolean.TRUE, Evaluator.compile(guard).evaluate(provider, null));
+		Map<String, Class<?>> types = new HashMap<>();
+		types.put("a", Long.class);
+		types.put("b", Long.class);
+		assertEquals(Boolean.TRUE,
+				Evaluator.prepare(guard, new VariableTypeProvider.DefaultVariableTypeProvider(types),
+						PrepareOptions.DEFAULT.withSemantics(NumericSemantics.EXACT_INTEGERS)).evaluate(provider, null));
+		// Distinct as long values, but not as double values
+		guard = GuardExpression.Factory.newInstance("a - b < a");
+		assertEquals(Boolean.TRUE, Evaluator.evaluate(guard, provider, null, NumericSemantics.EXACT_INTEGERS));
+		assertEquals(Boolean.FALSE, Evaluator.evaluate(guard, provider, null, NumericSemantics.FLOATING_POINT));
+	}
+
+}
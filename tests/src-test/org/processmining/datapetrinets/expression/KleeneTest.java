@@ -0,0 +1,70 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class KleeneTest {
+
+	private static final Truth F = Truth.FALSE;
+	private static final Truth U = Truth.UNKNOWN;
+	private static final Truth T = Truth.TRUE;
+
+	private static final Truth[] VALUES = { F, U, T };
+
+	// Rows are the left operand, columns the right operand in the order of VALUES
+	private static final Truth[][] AND = { { F, F, F }, { F, U, U }, { F, U, T } };
+	private static final Truth[][] OR = { { F, U, T }, { U, U, T }, { T, T, T } };
+	private static final Truth[] NOT = { T, U, F };
+
+	private static VariableProvider binding(Truth a, Truth b) {
+		Map<String, Object> values = new HashMap<>();
+		// Unknown values are missing variables
+		if (a.isKnown()) {
+			values.put("a", a == T);
+		}
+		if (b.isKnown()) {
+			values.put("b", b == T);
+		}
+		return new VariableProvider.DefaultVariableProvider(values);
+	}
+
+	private static Truth kleene(String expression, VariableProvider provider) throws Exception {
+		return Evaluator.evaluateKleene(GuardExpression.Factory.newInstance(expression), provider, null);
+	}
+
+	@Test
+	public void testTruthTables() throws Exception {
+		for (int i = 0; i < VALUES.length; i++) {
+			Truth a = VALUES[i];
+			assertEquals("!" + a, NOT[i], a.not());
+			assertEquals("!" + a, NOT[i], kleene("!a", binding(a, U)));
+			for (int j = 0; j < VALUES.length; j++) {
+				Truth b = VALUES[j];
+				String message = a + " " + b;
+				assertEquals(message, AND[i][j], a.and(b));
+				assertEquals(message, OR[i][j], a.or(b));
+				VariableProvider provider = binding(a, b);
+				assertEquals(message, AND[i][j], kleene("a && b", provider));
+				assertEquals(message, OR[i][j], kleene("a || b", provider));
+				// Comparisons on missing variables are unknown as well
+				assertEquals(message, AND[i][j], kleene("(a == true) && (b != false)", provider));
+				assertEquals(message, NOT[OR[i][j].ordinal()], kleene("!(a || b)", provider));
+			}
+		}
+	}
+
+	@Test
+	public void testUnknownDespiteTautology() throws Exception {
+		VariableProvider empty = binding(U, U);
+		// The operands are not related to each other
+		assertEquals(U, kleene("x > 1 || x <= 1", empty));
+		assertEquals(U, kleene("a || !a", empty));
+		assertEquals(T, kleene("x > 1 || true", empty));
+		assertEquals(F, kleene("false && x > 1", empty));
+	}
+
+}
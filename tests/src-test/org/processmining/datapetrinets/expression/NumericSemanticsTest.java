@@ -0,0 +1,90 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class NumericSemanticsTest {
+
+	private static final NumericSemantics[] SEMANTICS = { NumericSemantics.FLOATING_POINT,
+			NumericSemantics.EXACT_INTEGERS, NumericSemantics.EXACT, NumericSemantics.FLOATING_POINT.withPrecision(0.5),
+			NumericSemantics.EXACT_INTEGERS.withPrecision(2) };
+
+	private static final String[] GUARDS = { "a > b", "a == b", "a != b", "a >= b", "c == d", "c < d", "c <= d",
+			"e == f", "e > f", "a == d", "c in {1, 2.4}", "a + b > 0", "a - b == 1", "c * 2 == 2" };
+
+	private static List<Map<String, Object>> bindings() {
+		List<Map<String, Object>> bindings = new ArrayList<>();
+		// Distinct as long values, equal as double values
+		bindings.add(binding(9007199254740993L, 9007199254740992L, 1.0000001d, 1d, 3, 2L));
+		bindings.add(binding(2L, 1L, 1.3d, 1d, 1, 1L));
+		bindings.add(binding(5L, 5L, 2.4d, 2.0000001d, (short) 4, 5L));
+		// Changes the observed types of the specializing nodes
+		bindings.add(binding(1.5d, 1L, 1L, 1d, 2L, 1.5d));
+		return bindings;
+	}
+
+	private static Map<String, Object> binding(Object a, Object b, Object c, Object d, Object e, Object f) {
+		Map<String, Object> values = new HashMap<>();
+		values.put("a", a);
+		values.put("b", b);
+		values.put("c", c);
+		values.put("d", d);
+		values.put("e", e);
+		values.put("f", f);
+		return values;
+	}
+
+	@Test
+	public void testBackendsAgree() throws Exception {
+		for (NumericSemantics semantics : SEMANTICS) {
+			for (String expression : GUARDS) {
+				GuardExpression guard = GuardExpression.Factory.newInstance(expression);
+				PreparedExpression adaptive = Evaluator.prepare(guard,
+						new VariableTypeProvider.DefaultVariableTypeProvider(new HashMap<String, Class<?>>()),
+						PrepareOptions.DEFAULT.withAdaptive(true).withSemantics(semantics));
+				GuardProgram program = semantics.isExactIntegers() ? null : Evaluator.compile(guard, semantics);
+				for (Map<String, Object> values : bindings()) {
+					VariableProvider provider = new VariableProvider.DefaultVariableProvider(values);
+					Object expected = Evaluator.evaluate(guard, provider, null, semantics);
+					String message = semantics + " " + expression + " " + values;
+					// Twice to evaluate the specialized node
+					assertEquals(message, expected, adaptive.evaluate(provider, null));
+					assertEquals(message, expected, adaptive.evaluate(provider, null));
+					if (program != null) {
+						assertEquals(message, expected, program.evaluate(provider, null));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSemanticsChangeResult() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("a > b");
+		VariableProvider provider = new VariableProvider.DefaultVariableProvider(bindings().get(0));
+		assertEquals(Boolean.FALSE, Evaluator.evaluate(guard, provider, null, NumericSemantics.FLOATING_POINT));
+		assertEquals(Boolean.TRUE, Evaluator.evaluate(guard, provider, null, NumericSemantics.EXACT_INTEGERS));
+		guard = GuardExpression.Factory.newInstance("c == d");
+		assertEquals(Boolean.TRUE, Evaluator.evaluate(guard, provider, null, NumericSemantics.FLOATING_POINT));
+		assertEquals(Boolean.FALSE, Evaluator.evaluate(guard, provider, null, NumericSemantics.EXACT));
+		assertEquals(Boolean.FALSE, Evaluator.compile(guard, NumericSemantics.FLOATING_POINT.withPrecision(0))
+				.evaluate(provider, null));
+	}
+
+	@Test
+	public void testProgramRejectsExactIntegers() throws Exception {
+		try {
+			Evaluator.compile(GuardExpression.Factory.newInstance("a > b"), NumericSemantics.EXACT_INTEGERS);
+			fail("Programs compute with double values");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.exception.UnsupportedFunctionException;
+
+public class PureFunctionTest {
+
+	private static final AtomicInteger calls = new AtomicInteger();
+
+	static double twice(double value) {
+		calls.incrementAndGet();
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative " + value);
+		}
+		return 2 * value;
+	}
+
+	private static FunctionRegistry registry(boolean pure) throws Exception {
+		FunctionRegistry registry = new FunctionRegistry().register("twice", MethodHandles.lookup()
+				.findStatic(PureFunctionTest.class, "twice", MethodType.methodType(double.class, double.class)));
+		return pure ? registry.declarePure("twice") : registry;
+	}
+
+	private static PreparedExpression prepare(String expression, FunctionRegistry registry) throws Exception {
+		Map<String, Class<?>> types = new HashMap<>();
+		types.put("n", Long.class);
+		return Evaluator.prepare(GuardExpression.Factory.newInstance(expression),
+				new VariableTypeProvider.DefaultVariableTypeProvider(types),
+				PrepareOptions.DEFAULT.withFunctions(registry));
+	}
+
+	private static VariableProvider n(long value) {
+		Map<String, Object> values = new HashMap<>();
+		values.put("n", value);
+		return new VariableProvider.DefaultVariableProvider(values);
+	}
+
+	@Test
+	public void testConstantFolding() throws Exception {
+		calls.set(0);
+		PreparedExpression prepared = prepare("twice(twice(3)) == 12", registry(true));
+		assertEquals(2, calls.get());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Boolean.TRUE, prepared.evaluate(n(1), null));
+		}
+		assertEquals(2, calls.get());
+
+		// Not folded unless declared pure
+		calls.set(0);
+		prepared = prepare("twice(3) == 6", registry(false));
+		assertEquals(0, calls.get());
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Boolean.TRUE, prepared.evaluate(n(1), null));
+		}
+		assertEquals(10, calls.get());
+	}
+
+	@Test
+	public void testFailedFolding() throws Exception {
+		PreparedExpression prepared = prepare("twice(-1) > 0", registry(true));
+		try {
+			// Fails like the call that was not folded
+			prepared.evaluate(n(1), null);
+			fail("Negative argument");
+		} catch (EvaluatorException e) {
+		}
+	}
+
+	@Test
+	public void testBoundCallMemo() throws Exception {
+		calls.set(0);
+		PreparedExpression prepared = prepare("twice((n + 1)) > 0", registry(true));
+		assertEquals(0, calls.get());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Boolean.TRUE, prepared.evaluate(n(i % 4), null));
+		}
+		assertEquals(4, calls.get());
+
+		calls.set(0);
+		prepared = prepare("twice((n + 1)) > 0", registry(false));
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Boolean.TRUE, prepared.evaluate(n(i % 4), null));
+		}
+		assertEquals(100, calls.get());
+	}
+
+	@Test
+	public void testProviderCallMemo() throws Exception {
+		final AtomicInteger providerCalls = new AtomicInteger();
+		FunctionProvider provider = new FunctionProvider() {
+
+			public Object calculate(String function, Object[] parameters) throws UnsupportedFunctionException {
+				providerCalls.incrementAndGet();
+				return ((Number) parameters[0]).doubleValue() * 2;
+			}
+
+			public boolean isPure(String function) {
+				return function.equals("pure");
+			}
+
+		};
+		FunctionProvider negative = new FunctionProvider() {
+
+			public Object calculate(String function, Object[] parameters) throws UnsupportedFunctionException {
+				return -1d;
+			}
+
+			public boolean isPure(String function) {
+				return true;
+			}
+
+		};
+		Map<String, Class<?>> types = new HashMap<>();
+		types.put("n", Long.class);
+		PreparedExpression prepared = Evaluator.prepare(
+				GuardExpression.Factory.newInstance("pure((n + 1)) > 0 && impure((n + 1)) > 0"),
+				new VariableTypeProvider.DefaultVariableTypeProvider(types));
+		for (int i = 0; i < 100; i++) {
+			assertEquals(Boolean.TRUE, prepared.evaluate(n(i % 4), provider));
+		}
+		// 4 distinct calls of pure, every call of impure
+		assertEquals(104, providerCalls.get());
+
+		// Results are not shared with another provider
+		assertEquals(Boolean.FALSE, prepared.evaluate(n(0), negative));
+		// The entry was replaced by the result of the other provider, both functions are called
+		assertEquals(Boolean.TRUE, prepared.evaluate(n(0), provider));
+		assertEquals(106, providerCalls.get());
+	}
+
+	@Test
+	public void testMemoHitsAndMisses() {
+		CallMemo memo = new CallMemo();
+		Object context = new Object();
+		Object[] parameters = { 1L, "a" };
+		assertSame(CallMemo.MISS, memo.lookup(context, parameters));
+		memo.store(context, parameters, "result");
+		assertEquals("result", memo.lookup(context, new Object[] { 1L, "a" }));
+		assertSame(CallMemo.MISS, memo.lookup(new Object(), parameters));
+		assertSame(CallMemo.MISS, memo.lookup(null, parameters));
+		assertSame(CallMemo.MISS, memo.lookup(context, new Object[] { 1L, "b" }));
+		assertSame(CallMemo.MISS, memo.lookup(context, new Object[] { 1L }));
+
+		// NULL results are remembered
+		memo.store(null, new Object[] { 2L }, null);
+		assertEquals(null, memo.lookup(null, new Object[] { 2L }));
+
+		// Entries may be replaced, but never return the result of other parameters
+		for (long i = 0; i < 100; i++) {
+			memo.store(context, new Object[] { i }, i * 2);
+		}
+		int hits = 0;
+		for (long i = 0; i < 100; i++) {
+			Object result = memo.lookup(context, new Object[] { i });
+			if (result != CallMemo.MISS) {
+				assertEquals(i * 2, result);
+				hits++;
+			}
+		}
+		assertTrue(hits > 0);
+		assertEquals(198L, memo.lookup(context, new Object[] { 99L }));
+	}
+
+}
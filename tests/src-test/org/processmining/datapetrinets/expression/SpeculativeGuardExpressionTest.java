@@ -0,0 +1,128 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.processmining.datapetrinets.exception.UnsupportedFunctionException;
+
+public class SpeculativeGuardExpressionTest {
+
+	/**
+	 * <code>slow(millis, value)</code> returns the value after the delay,
+	 * <code>fail(millis, value)</code> fails after the delay with the value as
+	 * message
+	 */
+	private static final FunctionProvider DELAYED = new FunctionProvider() {
+
+		public Object calculate(String function, Object[] parameters) throws UnsupportedFunctionException {
+			try {
+				Thread.sleep(((Number) parameters[0]).longValue());
+			} catch (InterruptedException e) {
+				throw new UnsupportedFunctionException("Interrupted " + function, e);
+			}
+			if (function.equals("fail")) {
+				throw new UnsupportedFunctionException(String.valueOf(parameters[1]));
+			}
+			return parameters[1];
+		}
+
+	};
+
+	private static final VariableProvider X_IS_2 = new VariableProvider.DefaultVariableProvider(
+			Collections.<String, Object>singletonMap("x", 2L));
+
+	private static String outcome(GuardExpression guard) {
+		try {
+			return String.valueOf(guard.evaluate(X_IS_2, DELAYED));
+		} catch (Exception e) {
+			Throwable cause = e;
+			StringBuilder sb = new StringBuilder();
+			while (cause != null) {
+				sb.append(cause.getClass().getSimpleName()).append(": ").append(cause.getMessage()).append('\n');
+				cause = cause.getCause();
+			}
+			return sb.toString();
+		}
+	}
+
+	private static void assertSameOutcome(String expression, String expected) throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance(expression);
+		String sequential = outcome(guard);
+		assertTrue(sequential, sequential.contains(expected));
+		assertEquals(expression, sequential, outcome(SpeculativeGuardExpression.of(guard)));
+	}
+
+	@Test
+	public void testSameResultAsLeftToRight() throws Exception {
+		assertSameOutcome("slow(30, true) && slow(1, true) && slow(10, true)", "true");
+		assertSameOutcome("slow(30, false) || slow(1, true) || slow(10, false)", "true");
+		assertSameOutcome("slow(30, false) || slow(1, false)", "false");
+		assertSameOutcome("x > 1 && slow(10, true) && slow(1, false)", "false");
+		assertSameOutcome("x > 3 || slow(10, true) || slow(1, false)", "true");
+		// Nested connectives are operands of the top-level connective
+		assertSameOutcome("slow(10, true) && (slow(1, false) || slow(5, true))", "true");
+	}
+
+	@Test
+	public void testShortCircuit() throws Exception {
+		// Failures to the right of the deciding operand are ignored
+		assertSameOutcome("slow(30, false) && fail(1, \"right\")", "false");
+		assertSameOutcome("slow(30, true) || fail(1, \"right\")", "true");
+		assertSameOutcome("x > 3 && fail(1, \"right\") && fail(1, \"further right\")", "false");
+	}
+
+	@Test
+	public void testLeftmostError() throws Exception {
+		// The error on the left is reported, although the operands to its right are known before
+		assertSameOutcome("fail(30, \"left\") || slow(1, true)", "left");
+		assertSameOutcome("fail(30, \"left\") && fail(1, \"right\")", "left");
+		assertSameOutcome("slow(20, true) && fail(30, \"middle\") && slow(1, false)", "middle");
+		assertSameOutcome("slow(1, 3) || slow(30, true)", "Exception");
+	}
+
+	@Test
+	public void testCancellation() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch interrupted = new CountDownLatch(1);
+		FunctionProvider blocking = new FunctionProvider() {
+
+			public Object calculate(String function, Object[] parameters) throws UnsupportedFunctionException {
+				if (function.equals("block")) {
+					started.countDown();
+					try {
+						Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+					} catch (InterruptedException e) {
+						interrupted.countDown();
+						throw new UnsupportedFunctionException("Interrupted", e);
+					}
+				} else if (function.equals("whenBlocked")) {
+					try {
+						started.await();
+					} catch (InterruptedException e) {
+						throw new UnsupportedFunctionException("Interrupted", e);
+					}
+				}
+				return DELAYED.calculate(function, parameters);
+			}
+
+		};
+		ExecutorService executor = Executors.newCachedThreadPool();
+		try {
+			GuardExpression guard = SpeculativeGuardExpression
+					.of(GuardExpression.Factory.newInstance("whenBlocked(0, false) && block(0, true)"), executor);
+			// Decided by the first operand once the second one is running, which is interrupted
+			assertEquals(Boolean.FALSE, guard.evaluate(X_IS_2, blocking));
+			assertTrue(interrupted.await(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+public class StreamingLogFilterTest {
+
+	private static final String GUARD = "region == \"us\" && amount > 100";
+
+	private static byte[] filter(String guard, StreamingLogFilter.Scope scope, long expectedMatches)
+			throws Exception {
+		String testFileRoot = System.getProperty("test.testFileRoot", ".");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (InputStream in = new FileInputStream(testFileRoot + "/StreamingLogFilter_Example.xes")) {
+			StreamingLogFilter filter = new StreamingLogFilter(GuardExpression.Factory.newInstance(guard), scope);
+			assertEquals(expectedMatches, filter.filter(in, out));
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @return the names of the events of each trace by the name of the trace
+	 */
+	private static Map<String, List<String>> read(byte[] xes) throws Exception {
+		DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+		factory.setNamespaceAware(true);
+		Document document = factory.newDocumentBuilder().parse(new ByteArrayInputStream(xes));
+		Map<String, List<String>> traces = new LinkedHashMap<>();
+		for (Element trace : children(document.getDocumentElement(), "trace")) {
+			List<String> events = new ArrayList<>();
+			for (Element event : children(trace, "event")) {
+				events.add(name(event));
+			}
+			traces.put(name(trace), events);
+		}
+		return traces;
+	}
+
+	private static List<Element> children(Element parent, String localName) {
+		List<Element> children = new ArrayList<>();
+		for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+			if (node instanceof Element && localName.equals(node.getLocalName())) {
+				children.add((Element) node);
+			}
+		}
+		return children;
+	}
+
+	private static String name(Element element) {
+		for (Element attribute : children(element, "string")) {
+			if ("concept:name".equals(attribute.getAttribute("key"))) {
+				return attribute.getAttribute("value");
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testEvents() throws Exception {
+		Map<String, List<String>> traces = read(filter(GUARD, StreamingLogFilter.Scope.EVENTS, 2));
+		assertEquals(Arrays.asList("t1", "t2", "t3", "t4"), new ArrayList<>(traces.keySet()));
+		assertEquals(Arrays.asList("t1-large"), traces.get("t1"));
+		assertEquals(Arrays.<String>asList(), traces.get("t2"));
+		// The trace attribute that follows the first event is not seen by it
+		assertEquals(Arrays.asList("t3-after"), traces.get("t3"));
+		// Event attributes take precedence over trace attributes
+		assertEquals(Arrays.<String>asList(), traces.get("t4"));
+	}
+
+	@Test
+	public void testTraces() throws Exception {
+		Map<String, List<String>> traces = read(filter(GUARD, StreamingLogFilter.Scope.TRACES, 2));
+		assertEquals(Arrays.asList("t1", "t3"), new ArrayList<>(traces.keySet()));
+		assertEquals(Arrays.asList("t1-small", "t1-large"), traces.get("t1"));
+		assertEquals(Arrays.asList("t3-before", "t3-after"), traces.get("t3"));
+	}
+
+	@Test
+	public void testCopiesUnchangedLog() throws Exception {
+		byte[] all = filter("amount >= 0 || amount < 0", StreamingLogFilter.Scope.EVENTS, 6);
+		Map<String, List<String>> traces = read(all);
+		assertEquals(4, traces.size());
+		assertEquals(Arrays.asList("t3-before", "t3-after"), traces.get("t3"));
+		String xes = new String(all, "UTF-8");
+		assertTrue(xes.contains("2016-01-04T12:00:00.000+01:00"));
+		assertTrue(xes.contains("<values>"));
+	}
+
+	@Test
+	public void testRejectsPrimeVariables() throws Exception {
+		try {
+			new StreamingLogFilter(GuardExpression.Factory.newInstance("amount' > amount"),
+					StreamingLogFilter.Scope.EVENTS);
+			fail("Prime variables need the next event");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+}
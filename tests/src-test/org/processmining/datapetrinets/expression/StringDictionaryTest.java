@@ -0,0 +1,168 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class StringDictionaryTest {
+
+	@Test
+	public void testEncode() {
+		StringDictionary dictionary = new StringDictionary();
+		EncodedString a = dictionary.encode("a");
+		EncodedString b = dictionary.encode("b");
+		assertSame(a, dictionary.encode("a"));
+		assertEquals(0, a.getCode());
+		assertEquals(1, b.getCode());
+		assertEquals(2, dictionary.size());
+		assertSame(b, dictionary.get(1));
+		assertSame(a, dictionary.lookup("a"));
+		assertNull(dictionary.lookup("c"));
+		assertEquals(2, dictionary.size());
+		try {
+			dictionary.get(2);
+			fail("Unknown code");
+		} catch (IndexOutOfBoundsException e) {
+		}
+		// Grows beyond the initial capacity
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i + 2, dictionary.encode("s" + i).getCode());
+		}
+		assertEquals("s999", dictionary.get(1001).toString());
+	}
+
+	@Test
+	public void testEncodeValues() {
+		StringDictionary dictionary = new StringDictionary();
+		Map<String, Object> values = new HashMap<>();
+		values.put("s", "abc");
+		values.put("n", 1L);
+		Map<String, Object> encoded = dictionary.encodeValues(values);
+		assertSame(dictionary.lookup("abc"), encoded.get("s"));
+		assertEquals(1L, encoded.get("n"));
+		assertEquals("abc", values.get("s"));
+	}
+
+	@Test
+	public void testCharSequence() {
+		EncodedString encoded = new StringDictionary().encode("hello");
+		assertEquals(5, encoded.length());
+		assertEquals('e', encoded.charAt(1));
+		assertEquals("ell", encoded.subSequence(1, 4));
+		assertEquals("hello".hashCode(), encoded.hashCode());
+	}
+
+	@Test
+	public void testEquality() {
+		StringDictionary dictionary = new StringDictionary();
+		StringDictionary other = new StringDictionary();
+		other.encode("x");
+		EncodedString a = dictionary.encode("a");
+		EncodedString otherA = other.encode("a");
+		assertTrue(a.getCode() != otherA.getCode());
+		assertEquals(a, otherA);
+		assertTrue(EncodedString.equal(a, otherA));
+		assertTrue(EncodedString.equal(a, "a"));
+		assertTrue(EncodedString.equal("a", a));
+		assertFalse(EncodedString.equal(a, dictionary.encode("b")));
+		assertFalse(EncodedString.equal(a, null));
+		assertFalse(EncodedString.equal(a, 1L));
+	}
+
+	@Test
+	public void testCompare() {
+		StringDictionary dictionary = new StringDictionary();
+		StringDictionary other = new StringDictionary();
+		Random random = new Random(1);
+		List<EncodedString> encoded = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			String value = Integer.toString(random.nextInt(1000), 36);
+			encoded.add(dictionary.encode(value));
+			encoded.add(other.encode(value + "0"));
+			if (i % 50 == 0) {
+				// Some strings are added after the ranks were computed
+				EncodedString.compare(encoded.get(0), encoded.get(encoded.size() - 2));
+			}
+		}
+		for (EncodedString lhs : encoded) {
+			for (EncodedString rhs : encoded) {
+				assertEquals(lhs + " " + rhs, Integer.signum(lhs.toString().compareTo(rhs.toString())),
+						Integer.signum(EncodedString.compare(lhs, rhs)));
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentEncode() throws Exception {
+		final StringDictionary dictionary = new StringDictionary();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<List<EncodedString>>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				futures.add(executor.submit(new Callable<List<EncodedString>>() {
+
+					public List<EncodedString> call() {
+						List<EncodedString> encoded = new ArrayList<>();
+						for (int i = 0; i < 2000; i++) {
+							encoded.add(dictionary.encode("v" + i));
+						}
+						return encoded;
+					}
+
+				}));
+			}
+			List<EncodedString> first = futures.get(0).get();
+			for (Future<List<EncodedString>> future : futures) {
+				List<EncodedString> encoded = future.get();
+				for (int i = 0; i < encoded.size(); i++) {
+					assertSame(first.get(i), encoded.get(i));
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(2000, dictionary.size());
+		for (int code = 0; code < dictionary.size(); code++) {
+			assertEquals(code, dictionary.get(code).getCode());
+		}
+	}
+
+	@Test
+	public void testGuards() throws Exception {
+		StringDictionary dictionary = new StringDictionary();
+		Map<String, Class<?>> types = new HashMap<>();
+		types.put("s", String.class);
+		VariableTypeProvider typeProvider = new VariableTypeProvider.DefaultVariableTypeProvider(types);
+		String[] expressions = { "s == \"b\"", "s != \"b\"", "s < \"b\"", "s >= \"b\"", "s in {\"a\", \"c\"}" };
+		String[] values = { "a", "b", "c", "new" };
+		for (String expression : expressions) {
+			GuardExpression plain = GuardExpression.Factory.newInstance(expression);
+			GuardExpression encoded = GuardExpression.Factory.newInstance(expression, typeProvider, dictionary);
+			for (String value : values) {
+				Map<String, Object> binding = new HashMap<>();
+				binding.put("s", value);
+				Object expected = plain.evaluate(binding);
+				assertEquals(expression + " " + value, expected, encoded.evaluate(binding));
+				assertEquals(expression + " " + value, expected, encoded.evaluate(dictionary.encodeValues(binding)));
+				assertEquals(expression + " " + value, expected,
+						encoded.evaluate(new StringDictionary().encodeValues(binding)));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,91 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.exception.InvalidArgumentException;
+import org.processmining.datapetrinets.exception.TypeCheckException;
+
+public class StringPredicateTest {
+
+	private static final FunctionRegistry FUNCTIONS = new FunctionRegistry().withStringPredicates();
+
+	private static VariableProvider binding(String s, String r) {
+		Map<String, Object> values = new HashMap<>();
+		values.put("s", s);
+		values.put("r", r);
+		return new VariableProvider.DefaultVariableProvider(values);
+	}
+
+	@Test
+	public void testUnboundPatterns() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("matches(s, r)");
+		// More patterns than are cached, alternating between call sites
+		for (int i = 0; i < 200; i++) {
+			assertEquals(Boolean.TRUE, guard.evaluate(binding("a" + i, "a" + i), FUNCTIONS));
+			assertEquals(Boolean.FALSE, guard.evaluate(binding("b", "a" + i), FUNCTIONS));
+			assertEquals(Boolean.TRUE, guard.evaluate(binding("b", "b|c"), FUNCTIONS));
+		}
+	}
+
+	@Test
+	public void testDelegatingProviders() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("startsWith(s, \"ab\") && count(s) == 1");
+		TraceHistory history = new TraceHistory(Collections.singleton("s"), FUNCTIONS);
+		history.append(Collections.singletonMap("s", "abc"));
+		VariableProvider binding = binding("abc", null);
+		assertEquals(Boolean.TRUE, guard.evaluate(binding, history));
+		assertEquals(Boolean.TRUE, Evaluator.compile(guard).evaluate(binding, history));
+		VariableTypeProvider noTypes = new VariableTypeProvider.DefaultVariableTypeProvider(
+				new HashMap<String, Class<?>>());
+		assertEquals(Boolean.TRUE, Evaluator.prepare(guard, noTypes).evaluate(binding, history));
+		assertEquals(Boolean.TRUE, Evaluator.prepareAdaptive(guard).evaluate(binding, history));
+		List<Object> results = new BatchEvaluator(AsyncFunctionProvider.of(history))
+				.evaluateAll(guard, Collections.singletonList(binding)).get();
+		assertEquals(Collections.<Object>singletonList(Boolean.TRUE), results);
+	}
+
+	@Test
+	public void testArgumentsHaveDeclaredType() throws Exception {
+		Map<String, Class<?>> types = new HashMap<>();
+		types.put("s", String.class);
+		types.put("n", Long.class);
+		VariableTypeProvider typeProvider = new VariableTypeProvider.DefaultVariableTypeProvider(types);
+		PrepareOptions options = PrepareOptions.DEFAULT.withFunctions(FUNCTIONS);
+		assertEquals(Boolean.TRUE, Evaluator.prepare(GuardExpression.Factory.newInstance("endsWith(s, \"bc\")"),
+				typeProvider, options).evaluate(binding("abc", null), null));
+		try {
+			Evaluator.prepare(GuardExpression.Factory.newInstance("startsWith(n, \"1\")"), typeProvider, options);
+			fail("n is not a string");
+		} catch (TypeCheckException e) {
+		}
+	}
+
+	@Test
+	public void testInvalidPattern() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("matches(s, r)");
+		Object result = Evaluator.tryEvaluate(guard, binding("a", "(a"), FUNCTIONS);
+		assertEquals(EvaluationError.Kind.INVALID_ARGUMENT, ((EvaluationError) result).getKind());
+		assertTrue(result.toString(), ((EvaluationError) result).getMessage().contains("(a"));
+
+		GuardExpression literal = GuardExpression.Factory.newInstance("matches(s, \"(a\")");
+		PreparedExpression prepared = Evaluator.prepare(literal, new VariableTypeProvider.DefaultVariableTypeProvider(
+				new HashMap<String, Class<?>>()), PrepareOptions.DEFAULT.withFunctions(FUNCTIONS));
+		try {
+			// Fails when evaluated like the unbound call
+			prepared.evaluate(binding("a", null), null);
+			fail("Invalid regular expression");
+		} catch (EvaluatorException e) {
+			assertTrue(e.getCause() instanceof InvalidArgumentException);
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.junit.Test;
+import org.processmining.datapetrinets.expression.syntax.Symbol;
+import org.processmining.datapetrinets.expression.syntax.SymbolTable;
+
+public class SymbolSetTest {
+
+	@Test
+	public void testPrimeFlag() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("x' > y && z == 1");
+		SymbolSet normal = (SymbolSet) guard.getNormalVariables();
+		SymbolSet prime = (SymbolSet) guard.getPrimeVariables();
+		SymbolTable symbolTable = SymbolTable.getGlobal();
+		assertTrue(prime.contains("x"));
+		assertTrue(prime.contains(symbolTable.intern("x'")));
+		assertFalse(prime.contains(symbolTable.intern("x")));
+		assertTrue(normal.contains(symbolTable.intern("y")));
+		assertFalse(normal.contains(symbolTable.intern("y'")));
+		assertFalse(normal.contains(symbolTable.intern("x")));
+	}
+
+	@Test
+	public void testDenseIndex() {
+		SymbolTable symbolTable = new SymbolTable();
+		for (int i = 0; i < 1000; i++) {
+			symbolTable.intern("v" + i);
+		}
+		BitSet ids = new BitSet();
+		ids.set(symbolTable.intern("v999").getId());
+		ids.set(symbolTable.intern("v5").getId());
+		SymbolSet set = SymbolSet.of(symbolTable, ids);
+		assertEquals(0, set.indexOf(symbolTable.intern("v5")));
+		assertEquals(1, set.indexOf(symbolTable.intern("v999")));
+		assertSame(symbolTable.intern("v999"), set.getSymbol(1));
+		assertEquals(-1, set.indexOf(symbolTable.intern("v6")));
+		assertEquals(-1, set.indexOf(symbolTable.intern("v5'")));
+		// Same id in another table
+		assertEquals(-1, set.indexOf(SymbolTable.getGlobal().get(symbolTable.intern("v5").getId(), false)));
+	}
+
+	@Test
+	public void testCopyOf() {
+		SymbolSet set = SymbolSet.copyOf(Arrays.asList("b", "a"), true);
+		assertEquals(2, set.size());
+		assertTrue(set.isPrime());
+		assertTrue(set.contains(SymbolTable.getGlobal().intern("a'")));
+		assertSame(set, SymbolSet.copyOf(set, true));
+		assertNotSame(set, SymbolSet.copyOf(set, false));
+	}
+
+	@Test
+	public void testInternTrailingPrime() {
+		SymbolTable symbolTable = new SymbolTable();
+		Symbol prime = symbolTable.intern("x'");
+		assertTrue(prime.isPrime());
+		assertEquals("x", prime.getName());
+		assertSame(prime, symbolTable.intern("x", true));
+		try {
+			symbolTable.intern("x'", true);
+			fail("Name ends with the prime symbol");
+		} catch (IllegalArgumentException e) {
+		}
+		try {
+			symbolTable.intern("x''");
+			fail("Name ends with the prime symbol");
+		} catch (IllegalArgumentException e) {
+		}
+		assertEquals(1, symbolTable.size());
+	}
+
+}
@@ -0,0 +1,156 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Test;
+import org.processmining.datapetrinets.exception.EvaluatorException;
+import org.processmining.datapetrinets.expression.TieredGuardExpression.Tier;
+import org.processmining.datapetrinets.expression.syntax.ExpressionParserVisitor;
+import org.processmining.datapetrinets.expression.syntax.ExpressionVisitorException;
+
+public class TieredGuardExpressionTest {
+
+	static final Executor DIRECT = new Executor() {
+
+		public void execute(Runnable command) {
+			command.run();
+		}
+
+	};
+
+	/**
+	 * Runs the tasks when asked to
+	 */
+	private static final class QueueExecutor implements Executor {
+
+		private final Deque<Runnable> tasks = new ArrayDeque<>();
+		private boolean rejecting;
+
+		public void execute(Runnable command) {
+			if (rejecting) {
+				throw new RejectedExecutionException();
+			}
+			tasks.add(command);
+		}
+
+		void runAll() {
+			while (!tasks.isEmpty()) {
+				tasks.poll().run();
+			}
+		}
+
+	}
+
+	static final VariableProvider X_IS_3 = new VariableProvider.DefaultVariableProvider(
+			Collections.<String, Object>singletonMap("x", 3L));
+
+	static TieredGuardExpression.Manager manager(long threshold, Executor executor) {
+		return new TieredGuardExpression.Manager(threshold, executor);
+	}
+
+	@Test
+	public void testPromotionAtThreshold() throws Exception {
+		TieredGuardExpression.Manager manager = manager(5, DIRECT);
+		TieredGuardExpression guard = manager.tiered(GuardExpression.Factory.newInstance("x > 2 && x < 4"));
+		for (int i = 0; i < 4; i++) {
+			assertEquals(Boolean.TRUE, guard.evaluate(X_IS_3, null));
+		}
+		assertEquals(Tier.INTERPRETED, guard.getTier());
+		assertNull(guard.getProgram());
+		assertEquals(0, manager.getPromotionCount());
+
+		// The evaluation reaching the threshold is still interpreted
+		assertEquals(Boolean.TRUE, guard.evaluate(X_IS_3, null));
+		assertEquals(Tier.COMPILED, guard.getTier());
+		assertNotNull(guard.getProgram());
+		assertEquals(1, manager.getPromotionCount());
+
+		for (int i = 0; i < 10; i++) {
+			assertEquals(Boolean.TRUE, guard.evaluate(X_IS_3, null));
+		}
+		assertEquals(5, guard.getInterpretedInvocations());
+		assertEquals(Boolean.FALSE, guard.evaluate(new VariableProvider.DefaultVariableProvider(
+				Collections.<String, Object>singletonMap("x", 4L)), null));
+	}
+
+	@Test
+	public void testZeroThreshold() throws Exception {
+		TieredGuardExpression guard = manager(0, DIRECT).tiered(GuardExpression.Factory.newInstance("x == 3"));
+		assertEquals(Boolean.TRUE, guard.evaluate(X_IS_3, null));
+		assertEquals(Tier.COMPILED, guard.getTier());
+	}
+
+	@Test
+	public void testCompiledInBackground() throws Exception {
+		QueueExecutor executor = new QueueExecutor();
+		TieredGuardExpression.Manager manager = manager(2, executor);
+		TieredGuardExpression guard = manager.tiered(GuardExpression.Factory.newInstance("x != 3"));
+		for (int i = 0; i < 5; i++) {
+			assertEquals(Boolean.FALSE, guard.evaluate(X_IS_3, null));
+		}
+		// Interpreted while compiling, only compiled once
+		assertEquals(Tier.COMPILING, guard.getTier());
+		assertEquals(1, executor.tasks.size());
+		executor.runAll();
+		assertEquals(Tier.COMPILED, guard.getTier());
+		assertEquals(Boolean.FALSE, guard.evaluate(X_IS_3, null));
+		assertEquals(5, guard.getInterpretedInvocations());
+	}
+
+	@Test
+	public void testRejectedExecution() throws Exception {
+		QueueExecutor executor = new QueueExecutor();
+		executor.rejecting = true;
+		TieredGuardExpression guard = manager(1, executor).tiered(GuardExpression.Factory.newInstance("x == 3"));
+		assertEquals(Boolean.TRUE, guard.evaluate(X_IS_3, null));
+		assertEquals(Tier.INTERPRETED, guard.getTier());
+		executor.rejecting = false;
+		assertEquals(Boolean.TRUE, guard.evaluate(X_IS_3, null));
+		assertEquals(Tier.COMPILING, guard.getTier());
+	}
+
+	@Test
+	public void testFailedCompilation() throws Exception {
+		final GuardExpression wrapped = GuardExpression.Factory.newInstance("x == 3");
+		GuardExpression notCompilable = new ForwardingGuardExpression(wrapped) {
+
+			public Object evaluate(VariableProvider variableProvider, FunctionProvider functionProvider)
+					throws EvaluatorException {
+				return wrapped.evaluate(variableProvider, functionProvider);
+			}
+
+			public Object visit(ExpressionParserVisitor visitor, Object data) throws ExpressionVisitorException {
+				throw new ExpressionVisitorException("Not compilable");
+			}
+
+		};
+		TieredGuardExpression.Manager manager = manager(1, DIRECT);
+		TieredGuardExpression guard = manager.tiered(notCompilable);
+		for (int i = 0; i < 3; i++) {
+			assertEquals(Boolean.TRUE, guard.evaluate(X_IS_3, null));
+		}
+		assertEquals(Tier.FAILED, guard.getTier());
+		assertNull(guard.getProgram());
+		assertEquals(1, manager.getFailureCount());
+		assertEquals(0, manager.getPromotionCount());
+	}
+
+	@Test
+	public void testNegativeThreshold() {
+		try {
+			manager(-1, DIRECT);
+			fail("Negative threshold");
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+}
@@ -0,0 +1,145 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import org.junit.Test;
+import org.processmining.datapetrinets.exception.UnsupportedFunctionException;
+
+public class TraceHistoryTest {
+
+	private static Map<String, Object> event(Object... keyValues) {
+		Map<String, Object> event = new HashMap<>();
+		for (int i = 0; i < keyValues.length; i += 2) {
+			event.put((String) keyValues[i], keyValues[i + 1]);
+		}
+		return event;
+	}
+
+	private static Object call(TraceHistory history, String function, Object... parameters)
+			throws UnsupportedFunctionException {
+		return history.calculate(function, parameters);
+	}
+
+	@Test
+	public void testAggregates() throws Exception {
+		TraceHistory history = new TraceHistory(Arrays.asList("amount", "res"));
+		history.append(event("amount", 10L, "res", "al"));
+		history.append(event("res", "bob"));
+		history.append(event("amount", 2.5d));
+		history.append(event("amount", 30));
+		assertEquals(4, history.getEventCount());
+		assertEquals(3L, call(history, "count", "amount"));
+		assertEquals(42.5d, call(history, "sum", "amount"));
+		assertEquals(2.5d, call(history, "min", "amount"));
+		assertEquals(30d, call(history, "max", "amount"));
+		assertEquals(42.5d / 3, call(history, "avg", "amount"));
+		assertEquals(30, call(history, "last", "amount"));
+		assertEquals(2L, call(history, "count", "res"));
+		assertEquals("bob", call(history, "last", "res"));
+		// Strings are counted, but not aggregated numerically
+		assertEquals(0d, call(history, "sum", "res"));
+		assertNull(call(history, "min", "res"));
+	}
+
+	@Test
+	public void testBooleansCountIfTrue() throws Exception {
+		TraceHistory history = new TraceHistory(Collections.singleton("reject"));
+		history.append(event("reject", true));
+		history.append(event("reject", false));
+		history.append(event());
+		history.append(event("reject", true));
+		assertEquals(2L, call(history, "count", "reject"));
+		assertEquals(true, call(history, "last", "reject"));
+		history.append(event("reject", false));
+		assertEquals(2L, call(history, "count", "reject"));
+		assertEquals(false, call(history, "last", "reject"));
+		assertNull(call(history, "avg", "reject"));
+	}
+
+	@Test
+	public void testEmpty() throws Exception {
+		TraceHistory history = new TraceHistory(Collections.singleton("amount"));
+		assertEquals(0L, call(history, "count", "amount"));
+		assertEquals(0d, call(history, "sum", "amount"));
+		assertNull(call(history, "min", "amount"));
+		assertNull(call(history, "max", "amount"));
+		assertNull(call(history, "avg", "amount"));
+		assertNull(call(history, "last", "amount"));
+		// Events without the attribute
+		history.append(event("other", 1L));
+		assertEquals(1, history.getEventCount());
+		assertNull(call(history, "max", "amount"));
+	}
+
+	@Test
+	public void testResetAndNewCase() throws Exception {
+		TraceHistory history = new TraceHistory(Collections.singleton("amount"), FunctionProvider.BASIC_MATH);
+		history.append(event("amount", 5L));
+		history.append(event("amount", 7L));
+
+		TraceHistory next = history.newCase();
+		assertEquals(history.getAttributes(), next.getAttributes());
+		assertEquals(0, next.getEventCount());
+		assertNull(call(next, "max", "amount"));
+		// The fallback is kept
+		assertEquals(call(history, "max", 1L, 2L), call(next, "max", 1L, 2L));
+		assertEquals(7d, call(history, "max", "amount"));
+
+		history.reset();
+		assertEquals(0, history.getEventCount());
+		assertEquals(0L, call(history, "count", "amount"));
+		assertNull(call(history, "last", "amount"));
+		history.append(new VariableProvider.DefaultVariableProvider(event("amount", 3L)));
+		assertEquals(3d, call(history, "min", "amount"));
+		assertEquals(1L, call(history, "count", "amount"));
+	}
+
+	@Test
+	public void testFallback() throws Exception {
+		TraceHistory history = new TraceHistory(Collections.singleton("amount"), FunctionProvider.BASIC_MATH);
+		// Not an aggregate over a single attribute
+		assertEquals(FunctionProvider.BASIC_MATH.calculate("max", new Object[] { 1L, 2L }),
+				call(history, "max", 1L, 2L));
+		try {
+			call(history, "sum", "unrecorded");
+			fail("unrecorded is not recorded");
+		} catch (UnsupportedFunctionException e) {
+		}
+		try {
+			call(new TraceHistory(Collections.singleton("amount")), "max", 1L, 2L);
+			fail("No fallback");
+		} catch (UnsupportedFunctionException e) {
+		}
+		assertFalse(history.passesValues("sum"));
+	}
+
+	@Test
+	public void testGuards() throws Exception {
+		GuardExpression sum = GuardExpression.Factory.newInstance("sum(amount) > 100 && count(reject) < 2");
+		GuardExpression max = GuardExpression.Factory.newInstance("max(amount) >= 80 || last(res) == \"bob\"");
+		assertEquals(new LinkedHashSet<>(Arrays.asList("amount", "reject", "res")),
+				TraceHistory.collectAggregatedVariables(Arrays.asList(sum, max)));
+
+		TraceHistory history = new TraceHistory(TraceHistory.collectAggregatedVariables(Arrays.asList(sum, max)));
+		VariableProvider none = new VariableProvider.DefaultVariableProvider(new HashMap<String, Object>());
+		history.append(event("amount", 60L, "res", "bob"));
+		assertFalse(sum.isTrue(none, history));
+		assertTrue(max.isTrue(none, history));
+		history.append(event("amount", 50L, "reject", true, "res", "al"));
+		assertTrue(sum.isTrue(none, history));
+		assertFalse(max.isTrue(none, history));
+		history.append(event("reject", true));
+		assertFalse(sum.isTrue(none, history));
+	}
+
+}
@@ -0,0 +1,123 @@
+package org.processmining.datapetrinets.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.deckfour.xes.model.XAttribute;
+import org.deckfour.xes.model.XAttributeMap;
+import org.deckfour.xes.model.XEvent;
+import org.deckfour.xes.model.XTrace;
+import org.deckfour.xes.model.impl.XAttributeBooleanImpl;
+import org.deckfour.xes.model.impl.XAttributeContinuousImpl;
+import org.deckfour.xes.model.impl.XAttributeDiscreteImpl;
+import org.deckfour.xes.model.impl.XAttributeLiteralImpl;
+import org.deckfour.xes.model.impl.XAttributeMapImpl;
+import org.deckfour.xes.model.impl.XAttributeTimestampImpl;
+import org.deckfour.xes.model.impl.XEventImpl;
+import org.deckfour.xes.model.impl.XTraceImpl;
+import org.junit.Test;
+import org.processmining.datapetrinets.exception.VariableNotFoundException;
+
+public class XAttributeVariableProviderTest {
+
+	private static XAttributeMap attributes(XAttribute... attributes) {
+		XAttributeMap map = new XAttributeMapImpl();
+		for (XAttribute attribute : attributes) {
+			map.put(attribute.getKey(), attribute);
+		}
+		return map;
+	}
+
+	private static XTrace trace() {
+		XTrace trace = new XTraceImpl(attributes(new XAttributeLiteralImpl("region", "eu"),
+				new XAttributeLiteralImpl("res", "trace")));
+		trace.add(new XEventImpl(attributes(new XAttributeDiscreteImpl("amount", 120),
+				new XAttributeLiteralImpl("res", "al"), new XAttributeLiteralImpl("concept:name", "A"))));
+		trace.add(new XEventImpl(attributes(new XAttributeContinuousImpl("amount", 80.5),
+				new XAttributeLiteralImpl("res", "bob"), new XAttributeLiteralImpl("concept:name", "B"))));
+		trace.add(new XEventImpl(attributes(new XAttributeLiteralImpl("concept:name", "C"))));
+		return trace;
+	}
+
+	@Test
+	public void testPrimeFromNextEvent() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("amount > 100 && res' == \"bob\"");
+		XAttributeVariableProvider provider = new XAttributeVariableProvider(guard);
+		XTrace trace = trace();
+		assertEquals(Boolean.TRUE, guard.evaluate(provider.bind(trace, 0), null));
+		assertEquals("bob", provider.getValue("res'"));
+
+		provider.bind(trace, 1);
+		assertEquals(80.5d, provider.getValue("amount"));
+		// The last event has no res, it is read from the trace
+		assertEquals("trace", provider.getValue("res'"));
+		assertEquals(Boolean.FALSE, guard.evaluate(provider, null));
+	}
+
+	@Test
+	public void testTraceFallback() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("region == \"eu\" && amount' < 100");
+		XAttributeVariableProvider provider = new XAttributeVariableProvider(guard);
+		XTrace trace = trace();
+		assertEquals(Boolean.TRUE, guard.evaluate(provider.bind(trace, 0), null));
+		assertEquals("eu", provider.getValue("region"));
+
+		// Neither the last event nor the trace has an amount
+		provider.bind(trace, 2);
+		try {
+			provider.getValue("amount'");
+			fail("There is no next event");
+		} catch (VariableNotFoundException e) {
+		}
+		provider.bind(trace.get(2), null, null);
+		try {
+			provider.getValue("region");
+			fail("Not bound to a trace");
+		} catch (VariableNotFoundException e) {
+		}
+		// Not a variable of the guard
+		try {
+			provider.bind(trace, 0).getValue("res");
+			fail("res is not read by the guard");
+		} catch (VariableNotFoundException e) {
+		}
+	}
+
+	@Test
+	public void testAttributeKeys() throws Exception {
+		// Prime variables use the key of the unprimed variable
+		GuardExpression guard = GuardExpression.Factory
+				.newInstance("concept$3Aname == \"A\" && concept$3Aname' == \"B\"");
+		XAttributeVariableProvider provider = new XAttributeVariableProvider(guard,
+				Collections.singletonMap("concept$3Aname", "concept:name"));
+		XTrace trace = trace();
+		assertEquals(Boolean.TRUE, guard.evaluate(provider.bind(trace, 0), null));
+		assertEquals(Boolean.FALSE, guard.evaluate(provider.bind(trace, 1), null));
+	}
+
+	@Test
+	public void testTypes() {
+		Date date = new Date(42);
+		assertEquals("a", XAttributeVariableProvider.toValue(new XAttributeLiteralImpl("x", "a")));
+		assertEquals(3L, XAttributeVariableProvider.toValue(new XAttributeDiscreteImpl("x", 3)));
+		assertEquals(2.5d, XAttributeVariableProvider.toValue(new XAttributeContinuousImpl("x", 2.5)));
+		assertEquals(true, XAttributeVariableProvider.toValue(new XAttributeBooleanImpl("x", true)));
+		assertEquals(date, XAttributeVariableProvider.toValue(new XAttributeTimestampImpl("x", date)));
+	}
+
+	@Test
+	public void testTypedGuard() throws Exception {
+		GuardExpression guard = GuardExpression.Factory
+				.newInstance("n == 3 && d > 2 && b && s == \"x\" && t < \"1970-01-01T00:00:01.000Z\"");
+		XEvent event = new XEventImpl(attributes(new XAttributeDiscreteImpl("n", 3),
+				new XAttributeContinuousImpl("d", 2.5), new XAttributeBooleanImpl("b", true),
+				new XAttributeLiteralImpl("s", "x"), new XAttributeTimestampImpl("t", new Date(42))));
+		XAttributeVariableProvider provider = new XAttributeVariableProvider(guard).bind(event, null, null);
+		assertEquals(Boolean.TRUE, guard.evaluate(provider, null));
+		assertEquals(Boolean.TRUE, Evaluator.compile(guard).evaluate(provider, null));
+	}
+
+}
@@ -0,0 +1,90 @@
+package org.processmining.datapetrinets.expression.syntax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.processmining.datapetrinets.expression.GuardExpression;
+import org.processmining.datapetrinets.expression.ParseError;
+
+public class ExpressionValidatorTest {
+
+	/**
+	 * Expressions that were valid before the in operator was added
+	 */
+	private static final String[] BASELINE_GUARDS = { "in == 1", "In > 2 && x < 3", "IN' == 1", "in' != in",
+			"in(x) > 1", "f(in, In) <= 0", "!in", "-in + 1 < 2", "(in)", "x' > x || y == \"a\"", "TRUE && !FALSE",
+			"a:b == null", "d >= \"2016-01-01T00:00:00.000+01:00\"", "x * 2 / 3 - -1 == 0.5e1",
+			"inx == 1 && xin == 2" };
+
+	/**
+	 * Fragments that are concatenated to random, mostly invalid, input
+	 */
+	private static final String[] FRAGMENTS = { "x", "y'", "foo(", "1", "0x1F", "07", "09", "1.5e3", "1e", "1.", "1L",
+			".5", ".", "\"a\\\"b\"", "\"bad\\q\"", "\"", "true", "TRUE", "truex", "null", "False", "(", ")", "&&",
+			"||", "&", "|", "==", "=", "!=", "!", "<", "<=", ">", ">=", "+", "-", "*", "/", ",", " ", "\t", "\n", "\u00e4",
+			"$v", "a:b", "#", "'", "@", "~", "3f", "0xg", " in ", "in", "IN", "{", "}", "{1,2}", "{\"a\",-1.5}", "inx" };
+
+	@Test
+	public void testBaselineGuardsStillParse() throws Exception {
+		ExpressionValidator validator = new ExpressionValidator();
+		for (String guard : BASELINE_GUARDS) {
+			new ExpressionParser(guard).parse();
+			assertTrue(guard, validator.validate(guard));
+		}
+	}
+
+	@Test
+	public void testAgreesWithParser() {
+		ExpressionValidator validator = new ExpressionValidator();
+		Random random = new Random(42);
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder sb = new StringBuilder();
+			int length = 1 + random.nextInt(8);
+			for (int j = 0; j < length; j++) {
+				sb.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+			String input = sb.toString();
+			Token errorToken = null;
+			boolean parsed;
+			try {
+				new ExpressionParser(input).parse();
+				parsed = true;
+			} catch (ParseException e) {
+				parsed = false;
+				errorToken = e.currentToken.next;
+			} catch (TokenMgrError e) {
+				parsed = false;
+			}
+			assertEquals(input, parsed, validator.validate(input));
+			if (errorToken != null) {
+				ParseError error = GuardExpression.Factory.tryParse(input).getError();
+				assertEquals(input, errorToken.beginLine, error.getLine());
+				assertEquals(input, errorToken.beginColumn, error.getColumn());
+				assertEquals(input, errorToken.kind, error.getTokenKind());
+			}
+		}
+	}
+
+	@Test
+	public void testInIsContextual() throws Exception {
+		GuardExpression guard = GuardExpression.Factory.newInstance("in in {1, 2} && In > 2");
+		assertEquals("((in in {1,2})&&(In>2))", guard.toCanonicalString());
+		assertTrue(guard.getNormalVariables().contains("in"));
+		assertTrue(guard.getNormalVariables().contains("In"));
+		assertTrue(GuardExpression.Factory.newInstance("IN' == 1").getPrimeVariables().contains("IN"));
+	}
+
+	@Test
+	public void testInWithoutSet() {
+		ExpressionValidator validator = new ExpressionValidator();
+		assertFalse(validator.validate("x in y"));
+		assertEquals(2, validator.getErrorOffset());
+		assertFalse(validator.validate("in in {in}"));
+		assertEquals(7, validator.getErrorOffset());
+	}
+
+}